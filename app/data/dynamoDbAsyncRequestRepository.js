@@ -17,8 +17,10 @@ const logger = createLogger({ source: "app/data/dynamoDbAsyncRequestRepository.j
  * @param {string} status - Request status: 'pending', 'processing', 'completed', 'failed'
  * @param {object} data - Optional data (result for completed, error for failed)
  * @param {string} tableName - Optional table name (defaults to env var)
+ * @param {object} timings - Optional epoch millisecond stamps (enqueuedAt, dequeuedAt, workerStartedAt, hmrcCallStartedAt,
+ *   completedAt) for end-to-end latency
  */
-export async function putAsyncRequest(userId, requestId, status, data = null, tableName = null) {
+export async function putAsyncRequest(userId, requestId, status, data = null, tableName = null, timings = null) {
   const actualTableName = tableName || process.env.ASYNC_REQUESTS_DYNAMODB_TABLE_NAME;
   if (!actualTableName) {
     logger.warn({ message: "putAsyncRequest called but no table name provided or in env", requestId });
@@ -61,6 +63,12 @@ export async function putAsyncRequest(userId, requestId, status, data = null, ta
     let updateExpression =
       "SET #status = :status, #updatedAt = :updatedAt, #ttl = :ttl, #ttl_datestamp = :ttl_datestamp, #createdAt = if_not_exists(#createdAt, :createdAt), #saltVersion = :saltVersion";
 
+    if (timings) {
+      updateExpression += ", #timings = :timings";
+      expressionAttributeNames["#timings"] = "timings";
+      expressionAttributeValues[":timings"] = timings;
+    }
+
     if (data) {
       updateExpression += ", #data = :data";
       expressionAttributeNames["#data"] = "data";
@@ -17,6 +17,14 @@ function getTableName() {
   return tableName || "";
 }
 
+function getDeliveryStreamName() {
+  return process.env.HMRC_API_REQUESTS_DELIVERY_STREAM_NAME || "";
+}
+
+// Buffered audit writes in flight (see flushHmrcApiRequests)
+const pendingAuditWrites = new Set();
+let __firehose = null;
+
 /*
 Example data:
   let duration = 0;
@@ -34,8 +42,9 @@ Example data:
 export async function putHmrcApiRequest(userSub, { url, httpRequest, httpResponse, duration }) {
   const hashedSub = hashSub(userSub);
   const method = httpRequest && httpRequest.method ? httpRequest.method : "UNKNOWN";
+  const deliveryStreamName = getDeliveryStreamName();
   logger.info({
-    message: `DynamoDB enabled, proceeding with putHmrcApiRequest [table: ${process.env.HMRC_API_REQUESTS_DYNAMODB_TABLE_NAME}]`,
+    message: `Proceeding with putHmrcApiRequest [table: ${getTableName() || "none"}, deliveryStream: ${deliveryStreamName || "none"}]`,
     hashedSub,
     url,
     method,
@@ -45,44 +54,45 @@ export async function putHmrcApiRequest(userSub, { url, httpRequest, httpRespons
   const traceparent = context.get("traceparent");
   const correlationId = context.get("requestId") || `req-${uuidv4()}`;
   const id = `hmrcreq-${uuidv4()}`; // Unique ID for this specific call
+  const now = new Date();
 
-  try {
-    const { docClient, module } = await getDynamoDbDocClient();
-    const tableName = getTableName();
+  // Mask sensitive data before persisting to DynamoDB
+  // This prevents leakage of credentials, tokens, and passwords in audit logs
+  const maskedHttpRequest = maskHttpData(httpRequest);
+  const maskedHttpResponse = maskHttpData(httpResponse);
+
+  const item = {
+    hashedSub,
+    id,
+    requestId: correlationId,
+    amznTraceId,
+    traceparent,
+    url,
+    method,
+    httpRequest: maskedHttpRequest,
+    httpResponse: maskedHttpResponse,
+    duration,
+    saltVersion: getSaltVersion(),
+    createdAt: now.toISOString(),
+  };
 
-    const now = new Date();
+  // Calculate TTL as 28 days
+  const { ttl, ttl_datestamp } = calculateTwentyEightDayTtl(now);
+  item.ttl = ttl;
+  item.ttl_datestamp = ttl_datestamp;
 
-    // Mask sensitive data before persisting to DynamoDB
-    // This prevents leakage of credentials, tokens, and passwords in audit logs
-    const maskedHttpRequest = maskHttpData(httpRequest);
-    const maskedHttpResponse = maskHttpData(httpResponse);
+  // Buffered mode: the Firehose audit trail (and the DynamoDB hot window when a table is configured) are written
+  // off the caller's latency path, handlers call flushHmrcApiRequests() before their invocation ends
+  if (deliveryStreamName) {
+    trackAuditWrite(putAuditTrailRecord(deliveryStreamName, item), { sink: "firehose", hashedSub, url, method });
+    if (getTableName()) {
+      trackAuditWrite(putDynamoDbItem(item), { sink: "dynamodb", hashedSub, url, method });
+    }
+    return;
+  }
 
-    const item = {
-      hashedSub,
-      id,
-      requestId: correlationId,
-      amznTraceId,
-      traceparent,
-      url,
-      method,
-      httpRequest: maskedHttpRequest,
-      httpResponse: maskedHttpResponse,
-      duration,
-      saltVersion: getSaltVersion(),
-      createdAt: now.toISOString(),
-    };
-
-    // Calculate TTL as 28 days
-    const { ttl, ttl_datestamp } = calculateTwentyEightDayTtl(now);
-    item.ttl = ttl;
-    item.ttl_datestamp = ttl_datestamp;
-
-    await docClient.send(
-      new module.PutCommand({
-        TableName: tableName,
-        Item: item,
-      }),
-    );
+  try {
+    await putDynamoDbItem(item);
 
     logger.info({
       message: "HmrcApiRequest stored in DynamoDB",
@@ -101,3 +111,71 @@ export async function putHmrcApiRequest(userSub, { url, httpRequest, httpRespons
     throw error;
   }
 }
+
+/**
+ * Wait for buffered audit writes started by putHmrcApiRequest. Call before a Lambda invocation returns so the
+ * execution environment is not frozen with writes in flight. Failures are logged, never thrown.
+ * @returns {Promise<void>}
+ */
+export async function flushHmrcApiRequests() {
+  await Promise.all([...pendingAuditWrites]);
+}
+
+/**
+ * Flat record for the Firehose -> S3 Parquet audit trail, one column per field of the Glue table in HmrcStack.
+ * The masked request and response are kept as JSON strings.
+ * @param {Object} item - the DynamoDB item built by putHmrcApiRequest
+ * @returns {Object}
+ */
+export function toAuditTrailRecord(item) {
+  return {
+    hashed_sub: item.hashedSub,
+    id: item.id,
+    request_id: item.requestId,
+    amzn_trace_id: item.amznTraceId ?? null,
+    traceparent: item.traceparent ?? null,
+    url: item.url,
+    method: item.method,
+    status_code: item.httpResponse?.statusCode ?? null,
+    duration: item.duration ?? null,
+    http_request: JSON.stringify(item.httpRequest ?? null),
+    http_response: JSON.stringify(item.httpResponse ?? null),
+    salt_version: item.saltVersion ?? null,
+    created_at: item.createdAt,
+  };
+}
+
+async function putDynamoDbItem(item) {
+  const { docClient, module } = await getDynamoDbDocClient();
+  await docClient.send(
+    new module.PutCommand({
+      TableName: getTableName(),
+      Item: item,
+    }),
+  );
+}
+
+async function putAuditTrailRecord(deliveryStreamName, item) {
+  if (!__firehose) {
+    const module = await import("@aws-sdk/client-firehose");
+    const endpoint = process.env.AWS_ENDPOINT_URL_FIREHOSE || process.env.AWS_ENDPOINT_URL;
+    const client = new module.FirehoseClient({ region: process.env.AWS_REGION || "eu-west-2", ...(endpoint ? { endpoint } : {}) });
+    __firehose = { module, client };
+  }
+  const { module, client } = __firehose;
+  await client.send(
+    new module.PutRecordCommand({
+      DeliveryStreamName: deliveryStreamName,
+      Record: { Data: Buffer.from(`${JSON.stringify(toAuditTrailRecord(item))}\n`) },
+    }),
+  );
+}
+
+function trackAuditWrite(promise, { sink, hashedSub, url, method }) {
+  const tracked = promise
+    .catch((error) => {
+      logger.error({ message: "Error storing buffered HmrcApiRequest", sink, error: error.message, hashedSub, url, method });
+    })
+    .finally(() => pendingAuditWrites.delete(tracked));
+  pendingAuditWrites.add(tracked);
+}
@@ -0,0 +1,123 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/data/dynamoDbHmrcRateLimitRepository.js
+// Token bucket shared by every HMRC worker. One item per bucket (e.g. "hmrc-live", "hmrc-sandbox") holds the
+// tokens left at updatedAt; refill is computed on read and written back with a conditional update on the item's
+// version, which every write increments, so of two workers that read the same state only one can spend the token.
+
+import { createLogger } from "../lib/logger.js";
+import { getDynamoDbDocClient } from "../lib/dynamoDbClient.js";
+
+const logger = createLogger({ source: "app/data/dynamoDbHmrcRateLimitRepository.js" });
+
+// Conditional update attempts before giving up and reporting the bucket as busy
+const MAX_ACQUIRE_ATTEMPTS = 3;
+
+function getTableName() {
+  const tableName = process.env.HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME;
+  return tableName || "";
+}
+
+/**
+ * Tokens available at nowMs given the stored bucket state. A missing bucket starts full.
+ * @param {{tokens: number, updatedAt: number}|null} item - stored bucket state
+ * @param {{capacity: number, refillPerSecond: number}} limits
+ * @param {number} nowMs
+ * @returns {number}
+ */
+export function refillTokens(item, { capacity, refillPerSecond }, nowMs) {
+  if (!item || typeof item.tokens !== "number" || typeof item.updatedAt !== "number") {
+    return capacity;
+  }
+  const elapsedMs = Math.max(0, nowMs - item.updatedAt);
+  return Math.min(capacity, item.tokens + (elapsedMs * refillPerSecond) / 1000);
+}
+
+/**
+ * Milliseconds until the bucket holds the tokens needed (one, plus any reserve held back for higher priority).
+ * @param {number} tokens - tokens available now
+ * @param {number} refillPerSecond
+ * @param {number} [needed]
+ * @returns {number}
+ */
+export function millisecondsUntilToken(tokens, refillPerSecond, needed = 1) {
+  if (tokens >= needed) return 0;
+  return Math.ceil(((needed - tokens) / refillPerSecond) * 1000);
+}
+
+/**
+ * Condition for writing back the bucket state read as item: created by nobody else, or not written since it was read.
+ * Items written before the version attribute existed are claimed by the first write that adds it.
+ * @param {{version?: number}|null} item
+ * @returns {{ConditionExpression: string, ExpressionAttributeValues: Object}}
+ */
+function unchangedSinceRead(item) {
+  if (!item) {
+    return { ConditionExpression: "attribute_not_exists(bucketId)", ExpressionAttributeValues: {} };
+  }
+  if (typeof item.version !== "number") {
+    return { ConditionExpression: "attribute_not_exists(#version)", ExpressionAttributeValues: {} };
+  }
+  return { ConditionExpression: "#version = :previousVersion", ExpressionAttributeValues: { ":previousVersion": item.version } };
+}
+
+/**
+ * Take one token from the bucket if one is available above the reserve.
+ * @param {string} bucketId
+ * @param {{capacity: number, refillPerSecond: number, reserve?: number}} limits - reserve tokens are left for callers
+ *   that pass a reserve of 0 (high priority work)
+ * @param {() => number} [clock] - read on each attempt, so a retry refills from the time it re-reads the bucket
+ * @returns {Promise<{acquired: boolean, tokensAvailable: number, waitMs: number}>}
+ */
+export async function tryAcquireToken(bucketId, limits, clock = Date.now) {
+  const { docClient, module } = await getDynamoDbDocClient();
+  const tableName = getTableName();
+  const needed = 1 + (limits.reserve || 0);
+
+  for (let attempt = 1; attempt <= MAX_ACQUIRE_ATTEMPTS; attempt++) {
+    const result = await docClient.send(
+      new module.GetCommand({
+        TableName: tableName,
+        Key: { bucketId },
+        ConsistentRead: true,
+      }),
+    );
+    const item = result.Item || null;
+    const nowMs = clock();
+    const tokensAvailable = refillTokens(item, limits, nowMs);
+    if (tokensAvailable < needed) {
+      return { acquired: false, tokensAvailable, waitMs: millisecondsUntilToken(tokensAvailable, limits.refillPerSecond, needed) };
+    }
+
+    const condition = unchangedSinceRead(item);
+    try {
+      await docClient.send(
+        new module.UpdateCommand({
+          TableName: tableName,
+          Key: { bucketId },
+          UpdateExpression: "SET tokens = :tokens, updatedAt = :now, #version = :version",
+          ConditionExpression: condition.ConditionExpression,
+          ExpressionAttributeNames: { "#version": "version" },
+          ExpressionAttributeValues: {
+            ":tokens": tokensAvailable - 1,
+            // Never move updatedAt back (a worker with a slower clock), that would refill the same time twice
+            ":now": Math.max(nowMs, item?.updatedAt ?? nowMs),
+            ":version": (item?.version ?? 0) + 1,
+            ...condition.ExpressionAttributeValues,
+          },
+        }),
+      );
+      return { acquired: true, tokensAvailable: tokensAvailable - 1, waitMs: 0 };
+    } catch (error) {
+      if (error.name !== "ConditionalCheckFailedException") {
+        logger.error({ message: "Error acquiring HMRC rate limit token", error: error.message, bucketId });
+        throw error;
+      }
+      logger.info({ message: "HMRC rate limit bucket updated concurrently, retrying", bucketId, attempt });
+    }
+  }
+
+  // Heavy contention: treat as empty for one token's worth of time
+  return { acquired: false, tokensAvailable: 0, waitMs: millisecondsUntilToken(0, limits.refillPerSecond, needed) };
+}
@@ -2,6 +2,10 @@
 // Copyright (C) 2025-2026 DIY Accounting Ltd
 
 // app/functions/account/sessionBeaconPost.js
+//
+// Local server handler for the session start beacon. Deployed environments answer the beacon at the edge
+// (app/functions/edge/sessionBeacon.js) and count it from the CloudFront real-time logs, so this runs only
+// behind app/bin/server.js.
 
 import { createLogger } from "../../lib/logger.js";
 import { extractRequest, http200OkResponse, getHeader } from "../../lib/httpResponseHelper.js";
@@ -13,7 +17,7 @@ const logger = createLogger({ source: "app/functions/account/sessionBeaconPost.j
 
 /* v8 ignore start */
 export function apiEndpoint(app) {
-  app.post("/api/session/beacon", async (httpRequest, httpResponse) => {
+  app.get("/api/session/beacon", async (httpRequest, httpResponse) => {
     const lambdaEvent = buildLambdaEventFromHttpRequest(httpRequest);
     const lambdaResult = await ingestHandler(lambdaEvent);
     return buildHttpResponseFromLambdaResult(lambdaResult, httpResponse);
@@ -35,13 +39,7 @@ export async function ingestHandler(event) {
     return http200OkResponse({ request, headers: { "Content-Type": "application/json" }, data: { ok: true } });
   }
 
-  let page = "/";
-  try {
-    const body = JSON.parse(event.body || "{}");
-    page = body.page || "/";
-  } catch {
-    // ignore parse errors
-  }
+  const page = event.queryStringParameters?.page || "/";
 
   await publishActivityEvent({
     event: "new-session",
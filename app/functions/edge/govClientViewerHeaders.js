@@ -0,0 +1,76 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/functions/edge/govClientViewerHeaders.js
+// CloudFront Function (cloudfront-js-2.0, viewer-request) attached to the /api/v1/hmrc/* behaviour.
+//
+// Computes the viewer-derived HMRC fraud prevention values at the edge, where the viewer connection is
+// known exactly, and forwards only the headers the HMRC Lambdas read. The origin request policy for this
+// behaviour therefore no longer needs to ship every viewer header and cookie to API Gateway, and
+// buildFraudHeaders.js no longer needs to reparse X-Forwarded-For chains.
+//
+// NOTE: CloudFront Functions are not ES modules - the runtime looks for a top level `handler` function.
+
+// Headers the HMRC Lambdas (and the custom authorizer in front of them) actually read.
+// Everything else sent by the viewer is dropped before the origin request is built.
+var FORWARDED_HEADERS = [
+  "accept",
+  "authorization",
+  "content-type",
+  "hmrcaccount",
+  "host",
+  "referer",
+  "traceparent",
+  "user-agent",
+  "x-authorization",
+  "x-correlationid",
+  "x-device-id",
+  "x-initial-request",
+  "x-request-id",
+  "x-wait-time-ms",
+  "cloudfront-viewer-address",
+];
+
+// Browser-supplied Gov-* headers (Gov-Client-Screens, Gov-Test-Scenario, ...) are forwarded by prefix.
+var FORWARDED_HEADER_PREFIX = "gov-";
+
+// Edge-computed values. These are always overwritten so a viewer cannot supply its own.
+var EDGE_PUBLIC_IP_HEADER = "x-edge-gov-client-public-ip";
+var EDGE_PUBLIC_PORT_HEADER = "x-edge-gov-client-public-port";
+
+/**
+ * Extract the port from a CloudFront-Viewer-Address value ("ip:port" or "ipv6:port").
+ * @param {string} viewerAddress
+ * @returns {string|null}
+ */
+function viewerPort(viewerAddress) {
+  if (!viewerAddress) return null;
+  var port = viewerAddress.substring(viewerAddress.lastIndexOf(":") + 1);
+  return /^\d+$/.test(port) ? port : null;
+}
+
+// eslint-disable-next-line no-unused-vars
+function handler(event) {
+  var request = event.request;
+  var headers = request.headers || {};
+  var forwarded = {};
+
+  Object.keys(headers).forEach(function (name) {
+    var lowerName = name.toLowerCase();
+    if (lowerName.indexOf("x-edge-") === 0) return;
+    if (FORWARDED_HEADERS.indexOf(lowerName) !== -1 || lowerName.indexOf(FORWARDED_HEADER_PREFIX) === 0) {
+      forwarded[lowerName] = headers[name];
+    }
+  });
+
+  if (event.viewer && event.viewer.ip) {
+    forwarded[EDGE_PUBLIC_IP_HEADER] = { value: event.viewer.ip };
+  }
+  var port = viewerPort(forwarded["cloudfront-viewer-address"] && forwarded["cloudfront-viewer-address"].value);
+  if (port) {
+    forwarded[EDGE_PUBLIC_PORT_HEADER] = { value: port };
+  }
+
+  request.headers = forwarded;
+  return request;
+}
@@ -0,0 +1,70 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/functions/edge/sessionBeacon.js
+// CloudFront Function (cloudfront-js-2.0, viewer-request) attached to the /api/session/beacon behaviour.
+//
+// Answers the session start beacon (web/public/lib/session-beacon.js) at the edge, so a page view no longer
+// invokes a Lambda. The beacon is recorded by the distribution's real-time logs (Kinesis -> Firehose -> S3
+// Parquet), where distributionRealtimeLogMetrics.js counts it into the Submit/SessionBeacon metrics. The response
+// status is what marks the log line:
+//   204 - recorded beacon
+//   200 - accepted but not recorded (crawler, or sampled out)
+//   400 - not a beacon (wrong method or missing/invalid page)
+//
+// NOTE: CloudFront Functions are not ES modules - the runtime looks for a top level `handler` function.
+
+// Fraction of beacons recorded. Sampled-out beacons get a 200 so Submit/SessionBeacon counts scale by 1 / rate.
+var SAMPLE_RATE = 1;
+
+var MAX_PAGE_LENGTH = 200;
+
+// Mirrors CRAWLER_PATTERNS in app/lib/visitorClassifier.js (crawlers were never published as sessions)
+var CRAWLER_PATTERNS = ["googlebot", "bingbot", "applebot", "slurp", "duckduckbot", "baiduspider", "yandexbot"];
+
+function response(statusCode) {
+  return {
+    statusCode: statusCode,
+    headers: {
+      "cache-control": { value: "no-store" },
+    },
+  };
+}
+
+function isCrawler(userAgent) {
+  var lower = (userAgent || "").toLowerCase();
+  for (var i = 0; i < CRAWLER_PATTERNS.length; i++) {
+    if (lower.indexOf(CRAWLER_PATTERNS[i]) !== -1) return true;
+  }
+  return false;
+}
+
+function decodePage(value) {
+  try {
+    return decodeURIComponent(value);
+  } catch (e) {
+    return null;
+  }
+}
+
+function isValidPage(page) {
+  return typeof page === "string" && page.length > 0 && page.length <= MAX_PAGE_LENGTH && page.charAt(0) === "/";
+}
+
+// eslint-disable-next-line no-unused-vars
+function handler(event) {
+  var request = event.request;
+  if (request.method !== "GET") {
+    return response(400);
+  }
+  var pageParameter = request.querystring && request.querystring.page;
+  var page = pageParameter && pageParameter.value ? decodePage(pageParameter.value) : null;
+  if (!isValidPage(page)) {
+    return response(400);
+  }
+  var userAgent = request.headers["user-agent"] && request.headers["user-agent"].value;
+  if (isCrawler(userAgent) || Math.random() >= SAMPLE_RATE) {
+    return response(200);
+  }
+  return response(204);
+}
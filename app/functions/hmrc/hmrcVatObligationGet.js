@@ -30,7 +30,9 @@ import {
 import { enforceBundles } from "../../services/bundleManagement.js";
 import { isValidVrn, isValidIsoDate, isValidDateRange } from "../../lib/hmrcValidation.js";
 import * as asyncApiServices from "../../services/asyncApiServices.js";
+import { acquireHmrcPermitOrDefer } from "../../services/hmrcRateLimiter.js";
 import { getAsyncRequest } from "../../data/dynamoDbAsyncRequestRepository.js";
+import { flushHmrcApiRequests } from "../../data/dynamoDbHmrcApiRequestRepository.js";
 import { buildFraudHeaders, detectVendorPublicIp } from "../../lib/buildFraudHeaders.js";
 import { initializeSalt } from "../../services/subHasher.js";
 import { publishActivityEvent } from "../../lib/activityAlert.js";
@@ -123,6 +125,15 @@ export function extractAndValidateParameters(event, errorMessages) {
 // HTTP request/response, aware Lambda ingestHandler function
 // TODO: Remove all but the initial wait and async options.
 export async function ingestHandler(event) {
+  try {
+    return await ingest(event);
+  } finally {
+    // Every exit, early validation returns included, waits for the HMRC audit writes its HMRC calls buffered
+    await flushHmrcApiRequests();
+  }
+}
+
+async function ingest(event) {
   await initializeSalt();
   await detectVendorPublicIp();
   validateEnv([
@@ -346,8 +357,10 @@ export async function workerHandler(event) {
     let requestId;
     let traceparent;
     let correlationId;
+    let timings;
     try {
       const body = JSON.parse(record.body);
+      timings = asyncApiServices.startWorkerTimings(record, body);
       userSub = body.userId;
       requestId = body.requestId;
       traceparent = body.traceparent;
@@ -369,6 +382,12 @@ export async function workerHandler(event) {
 
       logger.info({ message: "Processing SQS message", userSub, requestId, messageId: record.messageId });
 
+      // Shared HMRC rate limit: when no token is available the message is re-queued with a delay
+      if (!(await acquireHmrcPermitOrDefer({ body, hmrcAccount: payload.hmrcAccount, source: "hmrcVatObligationGet" }))) {
+        continue;
+      }
+
+      timings.hmrcCallStartedAt = Date.now();
       const { obligations, hmrcResponse } = await getVatObligations(
         payload.vrn,
         payload.hmrcAccessToken,
@@ -397,8 +416,8 @@ export async function workerHandler(event) {
       const result = { obligations, hmrcResponse: serializableHmrcResponse };
 
       if (!hmrcResponse.ok) {
-        // Distinguish retryable errors (e.g. 429, 503, 504)
-        const isRetryable = [429, 503, 504].includes(hmrcResponse.status);
+        // Distinguish retryable errors (429 and 5xx)
+        const isRetryable = asyncApiServices.isHmrcTemporaryStatus(hmrcResponse.status);
         if (isRetryable) {
           throw new Error(`HMRC temporary error ${hmrcResponse.status}`);
         }
@@ -408,6 +427,8 @@ export async function workerHandler(event) {
           requestId,
           userSub,
           result,
+          operation: "hmrcVatObligationGet",
+          timings,
         });
         continue;
       }
@@ -417,6 +438,8 @@ export async function workerHandler(event) {
         requestId,
         userSub,
         result,
+        operation: "hmrcVatObligationGet",
+        timings,
       });
 
       logger.info({ message: "Successfully processed SQS message", requestId });
@@ -425,6 +448,7 @@ export async function workerHandler(event) {
 
       if (isRetryable) {
         logger.warn({ message: "Transient error in worker, re-throwing for SQS retry", error: error.message, requestId });
+        await flushHmrcApiRequests();
         throw error;
       }
 
@@ -442,11 +466,15 @@ export async function workerHandler(event) {
           requestId,
           userSub,
           error,
+          operation: "hmrcVatObligationGet",
+          timings,
         });
       }
       // Do not re-throw terminal errors to avoid infinite SQS retry loops
     }
   }
+  // HMRC audit writes are buffered (see putHmrcApiRequest), finish them before the invocation ends
+  await flushHmrcApiRequests();
 }
 
 /**
@@ -459,7 +487,7 @@ function isRetryableError(error) {
   if (error.message?.includes("HMRC temporary error")) return true;
 
   // Fetch timeout
-  if (error.name === "AbortError") return true;
+  if (error.name === "AbortError" || error.name === "TimeoutError") return true;
 
   // Standard Node.js network errors
   const retryableCodes = ["ECONNRESET", "ETIMEDOUT", "ENOTFOUND", "ESOCKETTIMEDOUT", "ECONNREFUSED", "EHOSTUNREACH"];
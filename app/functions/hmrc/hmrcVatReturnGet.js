@@ -32,7 +32,9 @@ import { isValidVrn, isValidIsoDate } from "../../lib/hmrcValidation.js";
 import { findPeriodKeyByDateRange } from "../../lib/obligationFormatter.js";
 import { getVatObligations } from "./hmrcVatObligationGet.js";
 import * as asyncApiServices from "../../services/asyncApiServices.js";
+import { acquireHmrcPermitOrDefer } from "../../services/hmrcRateLimiter.js";
 import { getAsyncRequest } from "../../data/dynamoDbAsyncRequestRepository.js";
+import { flushHmrcApiRequests } from "../../data/dynamoDbHmrcApiRequestRepository.js";
 import { buildFraudHeaders, detectVendorPublicIp } from "../../lib/buildFraudHeaders.js";
 import { initializeSalt } from "../../services/subHasher.js";
 import { publishActivityEvent } from "../../lib/activityAlert.js";
@@ -131,8 +133,17 @@ export function extractAndValidateParameters(event, errorMessages) {
 
 // HTTP request/response, aware Lambda ingestHandler function
 // TODO: Remove all but the initial wait and async options.
-// eslint-disable-next-line sonarjs/cognitive-complexity -- async polling + error handling is inherently complex
 export async function ingestHandler(event) {
+  try {
+    return await ingest(event);
+  } finally {
+    // Every exit, early validation returns included, waits for the HMRC audit writes its HMRC calls buffered
+    await flushHmrcApiRequests();
+  }
+}
+
+// eslint-disable-next-line sonarjs/cognitive-complexity -- async polling + error handling is inherently complex
+async function ingest(event) {
   await initializeSalt();
   await detectVendorPublicIp();
   validateEnv([
@@ -433,8 +444,10 @@ export async function workerHandler(event) {
     let requestId;
     let traceparent;
     let correlationId;
+    let timings;
     try {
       const body = JSON.parse(record.body);
+      timings = asyncApiServices.startWorkerTimings(record, body);
       userSub = body.userId;
       requestId = body.requestId;
       traceparent = body.traceparent;
@@ -456,6 +469,12 @@ export async function workerHandler(event) {
 
       logger.info({ message: "Processing SQS message", userSub, requestId, messageId: record.messageId });
 
+      // Shared HMRC rate limit: when no token is available the message is re-queued with a delay
+      if (!(await acquireHmrcPermitOrDefer({ body, hmrcAccount: payload.hmrcAccount, source: "hmrcVatReturnGet" }))) {
+        continue;
+      }
+
+      timings.hmrcCallStartedAt = Date.now();
       const { vatReturn, hmrcResponse } = await getVatReturn(
         payload.vrn,
         payload.periodKey,
@@ -480,8 +499,8 @@ export async function workerHandler(event) {
       const result = { vatReturn, hmrcResponse: serializableHmrcResponse, periodKey: payload.periodKey };
 
       if (!hmrcResponse.ok) {
-        // Distinguish retryable errors (e.g. 429, 503, 504)
-        const isRetryable = [429, 503, 504].includes(hmrcResponse.status);
+        // Distinguish retryable errors (429 and 5xx)
+        const isRetryable = asyncApiServices.isHmrcTemporaryStatus(hmrcResponse.status);
         if (isRetryable) {
           throw new Error(`HMRC temporary error ${hmrcResponse.status}`);
         }
@@ -491,6 +510,8 @@ export async function workerHandler(event) {
           requestId,
           userSub,
           result,
+          operation: "hmrcVatReturnGet",
+          timings,
         });
         continue;
       }
@@ -500,6 +521,8 @@ export async function workerHandler(event) {
         requestId,
         userSub,
         result,
+        operation: "hmrcVatReturnGet",
+        timings,
       });
 
       logger.info({ message: "Successfully processed SQS message", requestId });
@@ -508,6 +531,7 @@ export async function workerHandler(event) {
 
       if (isRetryable) {
         logger.warn({ message: "Transient error in worker, re-throwing for SQS retry", error: error.message, requestId });
+        await flushHmrcApiRequests();
         throw error;
       }
 
@@ -525,11 +549,15 @@ export async function workerHandler(event) {
           requestId,
           userSub,
           error,
+          operation: "hmrcVatReturnGet",
+          timings,
         });
       }
       // Do not re-throw terminal errors to avoid infinite SQS retry loops
     }
   }
+  // HMRC audit writes are buffered (see putHmrcApiRequest), finish them before the invocation ends
+  await flushHmrcApiRequests();
 }
 
 /**
@@ -542,7 +570,7 @@ function isRetryableError(error) {
   if (error.message?.includes("HMRC temporary error")) return true;
 
   // Fetch timeout
-  if (error.name === "AbortError") return true;
+  if (error.name === "AbortError" || error.name === "TimeoutError") return true;
 
   // Standard Node.js network errors
   const retryableCodes = ["ECONNRESET", "ETIMEDOUT", "ENOTFOUND", "ESOCKETTIMEDOUT", "ECONNREFUSED", "EHOSTUNREACH"];
@@ -17,6 +17,7 @@ import {
 import { validateEnv } from "../../lib/env.js";
 import { putReceipt } from "../../data/dynamoDbReceiptRepository.js";
 import { getAsyncRequest } from "../../data/dynamoDbAsyncRequestRepository.js";
+import { flushHmrcApiRequests } from "../../data/dynamoDbHmrcApiRequestRepository.js";
 import { buildHttpResponseFromLambdaResult, buildLambdaEventFromHttpRequest } from "../../lib/httpServerToLambdaAdaptor.js";
 import { enforceBundles } from "../../services/bundleManagement.js";
 import {
@@ -39,6 +40,7 @@ import {
   isValidWholeAmount,
 } from "../../lib/vatReturnTypes.js";
 import * as asyncApiServices from "../../services/asyncApiServices.js";
+import { acquireHmrcPermit, acquireHmrcPermitOrDefer } from "../../services/hmrcRateLimiter.js";
 import { buildFraudHeaders, detectVendorPublicIp } from "../../lib/buildFraudHeaders.js";
 import { initializeSalt } from "../../services/subHasher.js";
 import { publishActivityEvent } from "../../lib/activityAlert.js";
@@ -223,6 +225,15 @@ export function extractAndValidateParameters(event, errorMessages) {
 // HTTP request/response, aware Lambda ingestHandler function
 // TODO: Remove all but the initial wait and async options.
 export async function ingestHandler(event) {
+  try {
+    return await ingest(event);
+  } finally {
+    // Every exit, early validation returns included, waits for the HMRC audit writes its HMRC calls buffered
+    await flushHmrcApiRequests();
+  }
+}
+
+async function ingest(event) {
   await initializeSalt();
   await detectVendorPublicIp();
   validateEnv([
@@ -238,7 +249,9 @@ export async function ingestHandler(event) {
   const { request, requestId, traceparent, correlationId } = extractRequest(event);
 
   const asyncRequestsTableName = process.env.HMRC_VAT_RETURN_POST_ASYNC_REQUESTS_TABLE_NAME;
-  const sqsQueueUrl = process.env.SQS_QUEUE_URL;
+  // VAT return submissions use the high priority lane so obligation and return reads never starve filings
+  const sqsQueueUrl = process.env.SQS_HIGH_PRIORITY_QUEUE_URL || process.env.SQS_QUEUE_URL;
+  const stateMachineArn = process.env.STEP_FUNCTIONS_STATE_MACHINE_ARN;
 
   let errorMessages = [];
 
@@ -424,7 +437,8 @@ export async function ingestHandler(event) {
     }
   }
 
-  const waitTimeMs = parseInt(getHeader(event.headers, "x-wait-time-ms") || DEFAULT_WAIT_MS, 10);
+  const waitTimeHeader = getHeader(event.headers, "x-wait-time-ms");
+  let waitTimeMs = parseInt(waitTimeHeader || DEFAULT_WAIT_MS, 10);
 
   // trace: 2
   const payload = {
@@ -463,56 +477,17 @@ export async function ingestHandler(event) {
       logger.info({ message: "Initiating new processing", requestId });
       // trace: 3
       const processor = async (payload) => {
-        const { receipt, hmrcResponse, hmrcResponseBody } = await submitVat(
-          payload.periodKey,
-          payload.vatReturnData,
-          payload.vatNumber,
-          payload.hmrcAccount,
-          payload.hmrcAccessToken,
-          payload.govClientHeaders,
-          payload.userSub,
-          payload.govTestScenarioHeader,
-          payload.runFraudPreventionHeaderValidation,
-          payload.requestId,
-          payload.traceparent,
-          payload.correlationId,
-        );
-
-        const serializableHmrcResponse = {
-          ok: hmrcResponse.ok,
-          status: hmrcResponse.status,
-          statusText: hmrcResponse.statusText,
-          headers: {},
-        };
-        if (hmrcResponse.headers) {
-          if (typeof hmrcResponse.headers.forEach === "function") {
-            hmrcResponse.headers.forEach((v, k) => {
-              serializableHmrcResponse.headers[k.toLowerCase()] = v;
-            });
-          } else {
-            Object.keys(hmrcResponse.headers).forEach((k) => {
-              serializableHmrcResponse.headers[k.toLowerCase()] = hmrcResponse.headers[k];
-            });
-          }
-        }
-
-        const resultData = {
-          receipt,
-          hmrcResponse: serializableHmrcResponse,
-          hmrcResponseBody,
-          periodKey: payload.periodKey, // Include resolved periodKey in response
-        };
-
-        if (!hmrcResponse.ok) {
+        const resultData = await submitVatForPayload(payload);
+        if (!resultData.hmrcResponse.ok) {
           return resultData;
         }
 
-        const formBundleNumber = receipt?.formBundleNumber ?? receipt?.formBundle;
+        const formBundleNumber = resultData.receipt?.formBundleNumber ?? resultData.receipt?.formBundle;
         let receiptId;
         if (payload.userSub && formBundleNumber) {
           const timestamp = new Date().toISOString();
           receiptId = `${timestamp}-${formBundleNumber}`;
-          await putReceipt(payload.userSub, receiptId, receipt);
+          await putReceipt(payload.userSub, receiptId, resultData.receipt);
           resultData.receiptId = receiptId;
         }
 
@@ -520,18 +495,38 @@ export async function ingestHandler(event) {
       };
 
       // trace: 4
-      result = await asyncApiServices.initiateProcessing({
-        processor,
-        userId: userSub,
-        requestId,
-        traceparent,
-        correlationId,
-        waitTimeMs,
-        payload,
-        tableName: asyncRequestsTableName,
-        queueUrl: sqsQueueUrl,
-        maxWaitMs: MAX_WAIT_MS,
-      });
+      // Express mode: HMRC call, receipt and result record in one synchronous execution, null falls back to SQS.
+      // A client that asked not to wait (x-wait-time-ms: 0) goes straight to the queue. Otherwise the execution runs
+      // to the state machine's own timeout, however short the wait asked for, because abandoning it would leave a
+      // submission in flight at HMRC; its time is then taken off the wait for the queue.
+      if (stateMachineArn && (!waitTimeHeader || waitTimeMs > 0)) {
+        const expressStartedAt = Date.now();
+        result = await asyncApiServices.executeStateMachine({
+          stateMachineArn,
+          userId: userSub,
+          requestId,
+          traceparent,
+          correlationId,
+          payload,
+          tableName: asyncRequestsTableName,
+        });
+        waitTimeMs = Math.max(0, waitTimeMs - (Date.now() - expressStartedAt));
+      }
+      if (!result) {
+        result = await asyncApiServices.initiateProcessing({
+          processor,
+          userId: userSub,
+          requestId,
+          traceparent,
+          correlationId,
+          waitTimeMs,
+          payload,
+          tableName: asyncRequestsTableName,
+          queueUrl: sqsQueueUrl,
+          maxWaitMs: MAX_WAIT_MS,
+          priority: "high",
+        });
+      }
     }
 
     // If still no result (async path) and we have a wait time, poll for completion
@@ -596,8 +591,10 @@ export async function workerHandler(event) {
     // trace: 5
     let traceparent;
     let correlationId;
+    let timings;
     try {
       const body = JSON.parse(record.body);
+      timings = asyncApiServices.startWorkerTimings(record, body);
       userSub = body.userId;
       requestId = body.requestId;
       // trace: 6
@@ -621,7 +618,13 @@ export async function workerHandler(event) {
 
       logger.info({ message: "Processing SQS message", userSub, requestId, messageId: record.messageId });
 
+      // Shared HMRC rate limit: when no token is available the message is re-queued with a delay
+      if (!(await acquireHmrcPermitOrDefer({ body, hmrcAccount: payload.hmrcAccount, source: "hmrcVatReturnPost" }))) {
+        continue;
+      }
+
       // trace: 8
+      timings.hmrcCallStartedAt = Date.now();
       const { receipt, hmrcResponse, hmrcResponseBody } = await submitVat(
         payload.periodKey,
         payload.vatReturnData,
@@ -663,8 +666,8 @@ export async function workerHandler(event) {
       };
 
       if (!hmrcResponse.ok) {
-        // Distinguish retryable errors (e.g. 429, 503, 504)
-        const isRetryable = [429, 503, 504].includes(hmrcResponse.status);
+        // Distinguish retryable errors (429 and 5xx)
+        const isRetryable = asyncApiServices.isHmrcTemporaryStatus(hmrcResponse.status);
         if (isRetryable) {
           throw new Error(`HMRC temporary error ${hmrcResponse.status}: ${JSON.stringify(hmrcResponseBody)}`);
         }
@@ -674,6 +677,8 @@ export async function workerHandler(event) {
           requestId,
           userSub,
           result,
+          operation: "hmrcVatReturnPost",
+          timings,
         });
         continue;
       }
@@ -692,6 +697,8 @@ export async function workerHandler(event) {
         requestId,
         userSub,
         result,
+        operation: "hmrcVatReturnPost",
+        timings,
       });
 
       logger.info({ message: "Successfully processed SQS message", requestId });
@@ -700,6 +707,7 @@ export async function workerHandler(event) {
 
       if (isRetryable) {
         logger.warn({ message: "Transient error in worker, re-throwing for SQS retry", error: error.message, requestId });
+        await flushHmrcApiRequests();
         throw error;
       }
 
@@ -717,11 +725,15 @@ export async function workerHandler(event) {
           requestId,
           userSub,
           error,
+          operation: "hmrcVatReturnPost",
+          timings,
         });
       }
       // Do not re-throw terminal errors to avoid infinite SQS retry loops
     }
   }
+  // HMRC audit writes are buffered (see putHmrcApiRequest), finish them before the invocation ends
+  await flushHmrcApiRequests();
 }
 
 /**
@@ -734,7 +746,7 @@ function isRetryableError(error) {
   if (error.message?.includes("HMRC temporary error")) return true;
 
   // Fetch timeout
-  if (error.name === "AbortError") return true;
+  if (error.name === "AbortError" || error.name === "TimeoutError") return true;
 
   // Standard Node.js network errors
   const retryableCodes = ["ECONNRESET", "ETIMEDOUT", "ENOTFOUND", "ESOCKETTIMEDOUT", "ECONNREFUSED", "EHOSTUNREACH"];
@@ -746,6 +758,139 @@ function isRetryableError(error) {
   return false;
 }
 
+/**
+ * Thrown for HMRC failures worth retrying (429, 5xx, rate limit, network), the Express state machine retries
+ * this error name with back-off (see AsyncApiLambda).
+ */
+export class HmrcTemporaryError extends Error {
+  constructor(message) {
+    super(message);
+    this.name = asyncApiServices.HMRC_TEMPORARY_ERROR;
+  }
+}
+
+// Calls HMRC for an ingest payload and returns the serialisable result (no receipt write)
+async function submitVatForPayload(payload) {
+  const { receipt, hmrcResponse, hmrcResponseBody } = await submitVat(
+    payload.periodKey,
+    payload.vatReturnData,
+    payload.vatNumber,
+    payload.hmrcAccount,
+    payload.hmrcAccessToken,
+    payload.govClientHeaders,
+    payload.userSub,
+    payload.govTestScenarioHeader,
+    payload.runFraudPreventionHeaderValidation,
+    payload.requestId,
+    payload.traceparent,
+    payload.correlationId,
+  );
+
+  const serializableHmrcResponse = {
+    ok: hmrcResponse.ok,
+    status: hmrcResponse.status,
+    statusText: hmrcResponse.statusText,
+    headers: {},
+  };
+  if (hmrcResponse.headers) {
+    if (typeof hmrcResponse.headers.forEach === "function") {
+      hmrcResponse.headers.forEach((v, k) => {
+        serializableHmrcResponse.headers[k.toLowerCase()] = v;
+      });
+    } else {
+      Object.keys(hmrcResponse.headers).forEach((k) => {
+        serializableHmrcResponse.headers[k.toLowerCase()] = hmrcResponse.headers[k];
+      });
+    }
+  }
+
+  return {
+    receipt,
+    hmrcResponse: serializableHmrcResponse,
+    hmrcResponseBody,
+    periodKey: payload.periodKey, // Include resolved periodKey in response
+  };
+}
+
+/**
+ * Task handler for the Express state machine (AsyncApiLambda express mode). Each state invokes it with
+ * { step, request } where request is the execution input ({ userId, requestId, traceparent, correlationId,
+ * enqueuedAt, payload }) plus, after the first state, submitted: { result, timings }.
+ *   submit  - rate limit permit and HMRC call, retryable failures throw HmrcTemporaryError
+ *   receipt - store the receipt (parallel with record)
+ *   record  - mark the async request completed (parallel with receipt)
+ * @param {{step: string, request: Object}} event
+ * @returns {Promise<Object>}
+ */
+export async function stepHandler(event) {
+  await initializeSalt();
+  validateEnv([
+    "HMRC_BASE_URI",
+    "RECEIPTS_DYNAMODB_TABLE_NAME",
+    "BUNDLE_DYNAMODB_TABLE_NAME",
+    "HMRC_API_REQUESTS_DYNAMODB_TABLE_NAME",
+    "HMRC_VAT_RETURN_POST_ASYNC_REQUESTS_TABLE_NAME",
+  ]);
+  const { step, request } = event;
+  const { userId: userSub, requestId, payload, submitted } = request;
+
+  if (!context.getStore()) {
+    context.enterWith(new Map());
+  }
+  context.set("requestId", requestId);
+  context.set("traceparent", request.traceparent);
+  context.set("correlationId", request.correlationId);
+  context.set("userSub", userSub);
+  logger.info({ message: "Express state machine step", step, requestId });
+
+  if (step === "submit") {
+    const timings = asyncApiServices.startWorkerTimings(null, request);
+    const permit = await acquireHmrcPermit({ priority: "high", hmrcAccount: payload.hmrcAccount, source: "hmrcVatReturnPost" });
+    if (!permit.acquired) {
+      throw new HmrcTemporaryError(`HMRC temporary error: rate limit bucket empty for ${permit.waitMs}ms`);
+    }
+    timings.hmrcCallStartedAt = Date.now();
+    let result;
+    try {
+      result = await submitVatForPayload(payload);
+    } catch (error) {
+      throw isRetryableError(error) ? new HmrcTemporaryError(`HMRC temporary error: ${error.message}`) : error;
+    } finally {
+      await flushHmrcApiRequests();
+    }
+    if (asyncApiServices.isHmrcTemporaryStatus(result.hmrcResponse.status)) {
+      throw new HmrcTemporaryError(`HMRC temporary error ${result.hmrcResponse.status}: ${JSON.stringify(result.hmrcResponseBody)}`);
+    }
+    // The receipt id is fixed here so the parallel receipt and record steps agree on it
+    const formBundleNumber = result.receipt?.formBundleNumber ?? result.receipt?.formBundle;
+    if (result.hmrcResponse.ok && userSub && formBundleNumber) {
+      result.receiptId = `${new Date().toISOString()}-${formBundleNumber}`;
+    }
+    return { result, timings };
+  }
+
+  if (step === "receipt") {
+    if (submitted.result.receiptId) {
+      await putReceipt(userSub, submitted.result.receiptId, submitted.result.receipt);
+    }
+    return { receiptId: submitted.result.receiptId ?? null };
+  }
+
+  if (step === "record") {
+    await asyncApiServices.complete({
+      asyncRequestsTableName: process.env.HMRC_VAT_RETURN_POST_ASYNC_REQUESTS_TABLE_NAME,
+      requestId,
+      userSub,
+      result: submitted.result,
+      operation: "hmrcVatReturnPost",
+      timings: submitted.timings,
+    });
+    return { status: "completed" };
+  }
+
+  throw new Error(`Unknown express step: ${step}`);
+}
+
 // Service adaptor for aware of the downstream service but not the consuming Lambda's incoming/outgoing HTTP request/response
 // trace: 9
 export async function submitVat(
@@ -63,11 +63,14 @@ export async function ingestHandler(event, context) {
     addStackNameIfPresent(stacksToDelete, process.env.OPS_STACK_NAME);
     addStackNameIfPresent(stacksToDelete, process.env.PUBLISH_STACK_NAME);
     addStackNameIfPresent(stacksToDelete, process.env.EDGE_STACK_NAME);
-    addStackNameIfPresent(stacksToDelete, process.env.API_STACK_NAME);
+    // Route stacks attach their routes to the ApiStack's HttpApi, so they go before it
     addStackNameIfPresent(stacksToDelete, process.env.AUTH_STACK_NAME);
     addStackNameIfPresent(stacksToDelete, process.env.HMRC_STACK_NAME);
     addStackNameIfPresent(stacksToDelete, process.env.BILLING_STACK_NAME);
     addStackNameIfPresent(stacksToDelete, process.env.ACCOUNT_STACK_NAME);
+    addStackNameIfPresent(stacksToDelete, process.env.BUNDLE_STACK_NAME);
+    addStackNameIfPresent(stacksToDelete, process.env.PASS_STACK_NAME);
+    addStackNameIfPresent(stacksToDelete, process.env.API_STACK_NAME);
     const selfDestructStackName = process.env.SELF_DESTRUCT_STACK_NAME;
 
     console.log(`Stacks to delete in order: ${stacksToDelete.join(", ")}`);
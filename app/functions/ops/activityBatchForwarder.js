@@ -0,0 +1,100 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/functions/ops/activityBatchForwarder.js
+//
+// SQS target Lambda: drains the activity buffer queue (ActivityStack) onto the activity bus.
+//
+// Each message body is one PutEvents entry written by publishActivityEvent (app/lib/activityAlert.js) when
+// ACTIVITY_QUEUE_URL is set. Entries are put 10 at a time (the PutEvents limit) on ACTIVITY_TARGET_BUS_NAME, so a
+// burst of activity costs one PutEvents call per 10 events here instead of one per event in every request path.
+// Entries EventBridge rejects, and messages whose batch call failed, are reported as batch item failures and
+// retried by SQS until they reach the buffer's DLQ.
+
+import { EventBridgeClient, PutEventsCommand } from "@aws-sdk/client-eventbridge";
+import { createLogger } from "../../lib/logger.js";
+
+const logger = createLogger({ source: "app/functions/ops/activityBatchForwarder.js" });
+
+export const PUT_EVENTS_MAX_ENTRIES = 10;
+
+const ebClient = new EventBridgeClient({ region: process.env.AWS_REGION || "eu-west-2" });
+
+/**
+ * Split items into consecutive chunks of at most size.
+ * @template T
+ * @param {T[]} items
+ * @param {number} size
+ * @returns {T[][]}
+ */
+export function chunk(items, size) {
+  const chunks = [];
+  for (let i = 0; i < items.length; i += size) {
+    chunks.push(items.slice(i, i + size));
+  }
+  return chunks;
+}
+
+/**
+ * The PutEvents entry carried by an SQS record, re-targeted at the forwarder's bus.
+ * @param {{body: string}} record
+ * @param {string} [busName]
+ * @returns {Object|null} null when the body is not a usable entry
+ */
+export function toPutEventsEntry(record, busName) {
+  try {
+    const entry = JSON.parse(record.body);
+    if (!entry?.Source || !entry?.DetailType || !entry?.Detail) return null;
+    return { ...entry, EventBusName: busName || entry.EventBusName };
+  } catch {
+    return null;
+  }
+}
+
+/**
+ * SQS event source target (batch item failures reported).
+ * @param {{Records: {messageId: string, body: string}[]}} event
+ * @param {object} [_context]
+ * @param {{putEvents: (entries: Object[]) => Promise<{FailedEntryCount?: number, Entries?: Object[]}>}} [eventsApi]
+ *   - injected in tests
+ * @returns {Promise<{batchItemFailures: {itemIdentifier: string}[]}>}
+ */
+export async function handler(event, _context, eventsApi) {
+  const api = eventsApi || {
+    putEvents: (entries) => ebClient.send(new PutEventsCommand({ Entries: entries })),
+  };
+  const busName = process.env.ACTIVITY_TARGET_BUS_NAME;
+  const records = event?.Records || [];
+
+  const forwardable = [];
+  for (const record of records) {
+    const entry = toPutEventsEntry(record, busName);
+    if (entry) {
+      forwardable.push({ messageId: record.messageId, entry });
+    } else {
+      // Retrying will not make a malformed body valid, drop it rather than cycle it to the DLQ
+      logger.warn({ message: "Dropping unreadable activity buffer message", messageId: record.messageId });
+    }
+  }
+
+  const batchItemFailures = [];
+  let forwarded = 0;
+  for (const batch of chunk(forwardable, PUT_EVENTS_MAX_ENTRIES)) {
+    try {
+      const result = await api.putEvents(batch.map((item) => item.entry));
+      // PutEvents results are in request order, a failed entry carries an ErrorCode
+      (result?.Entries || []).forEach((resultEntry, index) => {
+        if (resultEntry?.ErrorCode && batch[index]) {
+          batchItemFailures.push({ itemIdentifier: batch[index].messageId });
+        }
+      });
+      forwarded += batch.length - (result?.FailedEntryCount || 0);
+    } catch (err) {
+      logger.warn({ message: "PutEvents failed for activity batch", size: batch.length, error: err.message });
+      batch.forEach((item) => batchItemFailures.push({ itemIdentifier: item.messageId }));
+    }
+  }
+
+  logger.info({ message: "Forwarded activity events", received: records.length, forwarded, failed: batchItemFailures.length });
+  return { batchItemFailures };
+}
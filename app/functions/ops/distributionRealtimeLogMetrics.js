@@ -0,0 +1,272 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/functions/ops/distributionRealtimeLogMetrics.js
+//
+// Kinesis Data Firehose transformation Lambda for the web distribution's CloudFront real-time logs.
+//
+// CloudFront writes one tab-separated log line per request to a Kinesis Data Stream; Firehose reads the stream,
+// invokes this handler with a batch of records and converts the returned JSON to Parquet in S3 (partitioned by
+// hour). While each batch is in hand the handler also publishes per cache behaviour metrics (EMF) so cache hit
+// ratio and time-taken / origin-fbl percentiles are visible in CloudWatch without querying S3.
+//
+// Session start beacons are answered at the edge (app/functions/edge/sessionBeacon.js) and only exist as log
+// lines, so this is also where they are counted: recorded beacons (204) become Submit/SessionBeacon NewSessions
+// per visitor type, and remain queryable in Athena by cs_uri_stem, cs_uri_query and c_country.
+//
+// The pure helpers (parseRealtimeLogLine, summariseRealtimeLogs) have no AWS dependencies so recorded log samples
+// can be analysed offline.
+
+import { createLogger } from "../../lib/logger.js";
+import { classifyVisitor } from "../../lib/visitorClassifier.js";
+
+const logger = createLogger({ source: "app/functions/ops/distributionRealtimeLogMetrics.js" });
+
+// Order MUST match the fields list of the RealtimeLogConfig in EdgeStack.java.
+export const REALTIME_LOG_FIELDS = [
+  "timestamp",
+  "cs-method",
+  "cs-uri-stem",
+  "sc-status",
+  "sc-bytes",
+  "time-to-first-byte",
+  "time-taken",
+  "x-edge-location",
+  "x-edge-result-type",
+  "x-edge-response-result-type",
+  "x-edge-detailed-result-type",
+  "origin-fbl",
+  "origin-lbl",
+  "cache-behavior-path-pattern",
+  "cs-uri-query",
+  "c-country",
+  "cs-user-agent",
+];
+
+const NUMERIC_FIELDS = new Set(["timestamp", "sc-status", "sc-bytes", "time-to-first-byte", "time-taken", "origin-fbl", "origin-lbl"]);
+
+const CACHE_HIT_RESULT_TYPES = new Set(["Hit", "RefreshHit", "OriginShieldHit"]);
+
+export const METRICS_NAMESPACE = "Submit/CloudFrontRealtime";
+
+export const SESSION_BEACON_PATH = "/api/session/beacon";
+export const SESSION_BEACON_METRICS_NAMESPACE = "Submit/SessionBeacon";
+// sessionBeacon.js answers a recorded beacon with 204 (200 is a crawler or sampled out, 400 is not a beacon)
+const SESSION_BEACON_RECORDED_STATUS = 204;
+
+/**
+ * Parse one CloudFront real-time log line into an object keyed by Glue/Parquet friendly column names
+ * (dashes replaced with underscores). "-" values become null and numeric fields are converted.
+ * @param {string} line - tab separated values in REALTIME_LOG_FIELDS order
+ * @returns {object|null} - parsed record, or null when the line does not have the expected field count
+ */
+export function parseRealtimeLogLine(line) {
+  const values = (line || "").replace(/\r?\n$/, "").split("\t");
+  if (values.length !== REALTIME_LOG_FIELDS.length) {
+    return null;
+  }
+  const record = {};
+  REALTIME_LOG_FIELDS.forEach((field, index) => {
+    const raw = values[index];
+    const column = field.replace(/-/g, "_");
+    if (raw === undefined || raw === "" || raw === "-") {
+      record[column] = null;
+    } else if (NUMERIC_FIELDS.has(field)) {
+      const number = Number(raw);
+      record[column] = Number.isFinite(number) ? number : null;
+    } else {
+      record[column] = raw;
+    }
+  });
+  return record;
+}
+
+/**
+ * Nearest-rank percentile of an unsorted array of numbers.
+ * @param {number[]} values
+ * @param {number} p - percentile in the range 0-100
+ * @returns {number|null}
+ */
+export function percentile(values, p) {
+  if (!values || values.length === 0) return null;
+  const sorted = [...values].sort((a, b) => a - b);
+  const rank = Math.ceil((p / 100) * sorted.length);
+  return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+}
+
+/**
+ * Summarise parsed records per cache behaviour: request count, cache hit ratio and p50/p95/p99 of
+ * time-taken and origin-fbl (seconds, as logged by CloudFront).
+ * @param {object[]} records - output of parseRealtimeLogLine
+ * @returns {object} - keyed by cache behaviour path pattern
+ */
+export function summariseRealtimeLogs(records) {
+  const byBehaviour = {};
+  for (const record of records) {
+    if (!record) continue;
+    const behaviour = record.cache_behavior_path_pattern || "*";
+    const group = (byBehaviour[behaviour] ??= { requests: 0, cacheHits: 0, timeTaken: [], originFbl: [] });
+    group.requests += 1;
+    if (CACHE_HIT_RESULT_TYPES.has(record.x_edge_result_type)) group.cacheHits += 1;
+    if (record.time_taken !== null) group.timeTaken.push(record.time_taken);
+    if (record.origin_fbl !== null) group.originFbl.push(record.origin_fbl);
+  }
+
+  const summary = {};
+  for (const [behaviour, group] of Object.entries(byBehaviour)) {
+    summary[behaviour] = {
+      requests: group.requests,
+      cacheHits: group.cacheHits,
+      cacheHitRatio: group.requests === 0 ? null : group.cacheHits / group.requests,
+      timeTaken: { p50: percentile(group.timeTaken, 50), p95: percentile(group.timeTaken, 95), p99: percentile(group.timeTaken, 99) },
+      originFbl: { p50: percentile(group.originFbl, 50), p95: percentile(group.originFbl, 95), p99: percentile(group.originFbl, 99) },
+      timeTakenValues: group.timeTaken,
+      originFblValues: group.originFbl,
+    };
+  }
+  return summary;
+}
+
+// EMF accepts at most 100 values per metric in a single document
+const EMF_MAX_VALUES = 100;
+
+const METRIC_UNITS = {
+  Requests: "Count",
+  CacheHits: "Count",
+  CacheHitRatio: "None",
+  TimeTaken: "Milliseconds",
+  OriginFirstByteLatency: "Milliseconds",
+};
+
+function emfDocument(deploymentName, behaviour, metrics) {
+  return {
+    _aws: {
+      Timestamp: Date.now(),
+      CloudWatchMetrics: [
+        {
+          Namespace: METRICS_NAMESPACE,
+          Dimensions: [["deploymentName", "cacheBehavior"]],
+          Metrics: Object.keys(metrics).map((name) => ({ Name: name, Unit: METRIC_UNITS[name] })),
+        },
+      ],
+    },
+    deploymentName,
+    cacheBehavior: behaviour,
+    ...metrics,
+  };
+}
+
+/**
+ * Build EMF documents per cache behaviour. Raw time-taken and origin-fbl values are published as value arrays
+ * (milliseconds, chunked to the EMF limit) so CloudWatch computes p50/p95/p99 across batches; hit ratio across
+ * batches is derived on dashboards from CacheHits / Requests.
+ * @param {object} summary - output of summariseRealtimeLogs
+ * @param {string} deploymentName
+ * @returns {object[]}
+ */
+export function buildMetricDocuments(summary, deploymentName) {
+  const documents = [];
+  for (const [behaviour, group] of Object.entries(summary)) {
+    documents.push(
+      emfDocument(deploymentName, behaviour, {
+        Requests: group.requests,
+        CacheHits: group.cacheHits,
+        CacheHitRatio: group.cacheHitRatio ?? 0,
+      }),
+    );
+    const timeTaken = group.timeTakenValues.map((s) => Math.round(s * 1000));
+    const originFbl = group.originFblValues.map((s) => Math.round(s * 1000));
+    for (let i = 0; i < Math.max(timeTaken.length, originFbl.length); i += EMF_MAX_VALUES) {
+      const metrics = {};
+      const timeTakenChunk = timeTaken.slice(i, i + EMF_MAX_VALUES);
+      const originFblChunk = originFbl.slice(i, i + EMF_MAX_VALUES);
+      if (timeTakenChunk.length > 0) metrics.TimeTaken = timeTakenChunk;
+      if (originFblChunk.length > 0) metrics.OriginFirstByteLatency = originFblChunk;
+      documents.push(emfDocument(deploymentName, behaviour, metrics));
+    }
+  }
+  return documents;
+}
+
+/**
+ * Count recorded session beacons per visitor type (the user agent is URL encoded in real-time logs).
+ * @param {object[]} records - output of parseRealtimeLogLine
+ * @returns {Object<string, number>} - e.g. { human: 12, "ai-agent": 1 }
+ */
+export function summariseSessionBeacons(records) {
+  const counts = {};
+  for (const record of records) {
+    if (record?.cs_uri_stem !== SESSION_BEACON_PATH || record.sc_status !== SESSION_BEACON_RECORDED_STATUS) continue;
+    let userAgent = record.cs_user_agent || "";
+    try {
+      userAgent = decodeURIComponent(userAgent);
+    } catch {
+      // classify the raw value
+    }
+    const visitorType = classifyVisitor(userAgent);
+    counts[visitorType] = (counts[visitorType] || 0) + 1;
+  }
+  return counts;
+}
+
+/**
+ * Build one NewSessions EMF document per visitor type.
+ * @param {Object<string, number>} counts - output of summariseSessionBeacons
+ * @param {string} deploymentName
+ * @returns {object[]}
+ */
+export function buildSessionBeaconDocuments(counts, deploymentName) {
+  return Object.entries(counts).map(([visitorType, count]) => ({
+    _aws: {
+      Timestamp: Date.now(),
+      CloudWatchMetrics: [
+        {
+          Namespace: SESSION_BEACON_METRICS_NAMESPACE,
+          Dimensions: [["deploymentName", "visitorType"]],
+          Metrics: [{ Name: "NewSessions", Unit: "Count" }],
+        },
+      ],
+    },
+    deploymentName,
+    visitorType,
+    NewSessions: count,
+  }));
+}
+
+/**
+ * Firehose data transformation handler.
+ * @param {{records: {recordId: string, data: string}[]}} event
+ * @returns {{records: {recordId: string, result: string, data?: string}[]}}
+ */
+export async function handler(event) {
+  const deploymentName = process.env.DEPLOYMENT_NAME || "unknown";
+  const parsed = [];
+  const records = (event.records || []).map((firehoseRecord) => {
+    const line = Buffer.from(firehoseRecord.data, "base64").toString("utf-8");
+    const record = parseRealtimeLogLine(line);
+    if (!record) {
+      return { recordId: firehoseRecord.recordId, result: "ProcessingFailed", data: firehoseRecord.data };
+    }
+    parsed.push(record);
+    return {
+      recordId: firehoseRecord.recordId,
+      result: "Ok",
+      data: Buffer.from(`${JSON.stringify(record)}\n`, "utf-8").toString("base64"),
+    };
+  });
+
+  try {
+    for (const document of buildMetricDocuments(summariseRealtimeLogs(parsed), deploymentName)) {
+      console.log(JSON.stringify(document));
+    }
+    for (const document of buildSessionBeaconDocuments(summariseSessionBeacons(parsed), deploymentName)) {
+      console.log(JSON.stringify(document));
+    }
+  } catch (error) {
+    // EMF emission is best-effort, the Firehose transformation result must still be returned
+    logger.warn({ message: "Failed to publish real-time log metrics", error: error.message });
+  }
+
+  logger.info({ message: "Transformed real-time log records", received: records.length, parsed: parsed.length });
+  return { records };
+}
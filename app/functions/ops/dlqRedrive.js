@@ -0,0 +1,151 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/functions/ops/dlqRedrive.js
+//
+// Scheduled DLQ redrive controller shared by the DlqRedrive constructs (one EventBridge schedule per DLQ, the
+// rule input names the queue, velocity and health alarm).
+//
+// On each tick, when the DLQ has messages, the worker's circuit breaker is closed and no move task is running, it
+// starts an SQS message move task that returns messages to the queue each came from at
+// maxMessagesPerSecond. Each redrive in the last day doubles the wait before the next one, so messages that keep
+// failing back into the DLQ are retried less and less often instead of re-triggering HMRC throttling.
+//
+// Back-off state comes from ListMessageMoveTasks (the most recent tasks for the DLQ), nothing is stored.
+
+import { createLogger } from "../../lib/logger.js";
+import { defaultLambdaApi, isCircuitOpen } from "./hmrcCircuitBreaker.js";
+
+const logger = createLogger({ source: "app/functions/ops/dlqRedrive.js" });
+
+export const METRICS_NAMESPACE = "Submit/DlqRedrive";
+
+// Redrives older than this no longer count towards the back-off
+const BACKOFF_WINDOW_MS = 24 * 60 * 60 * 1000;
+const MAX_BACKOFF_MS = 6 * 60 * 60 * 1000;
+const DEFAULT_INTERVAL_SECONDS = 900;
+
+/**
+ * Wait between redrives: the schedule interval doubled for each redrive already made in the back-off window.
+ * @param {number} recentRedrives - move tasks started in the window
+ * @param {number} intervalMs
+ * @returns {number}
+ */
+export function backoffDelayMs(recentRedrives, intervalMs) {
+  if (recentRedrives <= 0) return 0;
+  return Math.min(MAX_BACKOFF_MS, intervalMs * 2 ** (recentRedrives - 1));
+}
+
+/**
+ * When the next redrive may start given the DLQ's recent move tasks.
+ * @param {{StartedTimestamp: number, Status: string}[]} tasks - ListMessageMoveTasks results
+ * @param {number} nowMs
+ * @param {number} intervalMs
+ * @returns {number} epoch milliseconds, nowMs or earlier when a redrive may start now
+ */
+export function nextRedriveAt(tasks, nowMs, intervalMs) {
+  const recent = (tasks || []).filter((task) => nowMs - task.StartedTimestamp < BACKOFF_WINDOW_MS);
+  if (recent.length === 0) return nowMs;
+  const lastStarted = Math.max(...recent.map((task) => task.StartedTimestamp));
+  return lastStarted + backoffDelayMs(recent.length, intervalMs);
+}
+
+function queueName(queueArn) {
+  return (queueArn || "").split(":").pop();
+}
+
+async function defaultAwsApi() {
+  const sqs = await import("@aws-sdk/client-sqs");
+  const region = process.env.AWS_REGION || "eu-west-2";
+  const sqsClient = new sqs.SQSClient({ region });
+  return {
+    approximateDepth: async (queueUrl) => {
+      const result = await sqsClient.send(
+        new sqs.GetQueueAttributesCommand({ QueueUrl: queueUrl, AttributeNames: ["ApproximateNumberOfMessages"] }),
+      );
+      return Number(result.Attributes?.ApproximateNumberOfMessages || 0);
+    },
+    listMoveTasks: async (sourceArn) =>
+      (await sqsClient.send(new sqs.ListMessageMoveTasksCommand({ SourceArn: sourceArn, MaxResults: 10 }))).Results || [],
+    startMoveTask: (sourceArn, maxMessagesPerSecond) =>
+      sqsClient.send(new sqs.StartMessageMoveTaskCommand({ SourceArn: sourceArn, MaxNumberOfMessagesPerSecond: maxMessagesPerSecond })),
+    // Read from the worker's event source mappings, not the breaker's alarm: once the mappings are paused the
+    // worker emits no metrics and the alarm returns to OK while the circuit is still open
+    circuitOpen: async (workerAliasArn) => isCircuitOpen(workerAliasArn, await defaultLambdaApi()),
+  };
+}
+
+function emitRedriveMetrics(queue, metrics) {
+  try {
+    console.log(
+      JSON.stringify({
+        _aws: {
+          Timestamp: Date.now(),
+          CloudWatchMetrics: [
+            {
+              Namespace: METRICS_NAMESPACE,
+              Dimensions: [["queue"]],
+              Metrics: Object.keys(metrics).map((name) => ({ Name: name, Unit: "Count" })),
+            },
+          ],
+        },
+        queue,
+        ...metrics,
+      }),
+    );
+  } catch {
+    // EMF emission is best-effort
+  }
+}
+
+/**
+ * EventBridge schedule target.
+ * @param {{deadLetterQueueArn: string, deadLetterQueueUrl: string, maxMessagesPerSecond?: number, intervalSeconds?: number,
+ *   circuitBreakerWorkerAliasArn?: string}} event - rule input from the DlqRedrive construct
+ * @param {object} [_context]
+ * @param {object} [awsApi] - injected in tests
+ * @returns {Promise<{action: string}>}
+ */
+export async function handler(event, _context, awsApi) {
+  const api = awsApi || (await defaultAwsApi());
+  const { deadLetterQueueArn, deadLetterQueueUrl, circuitBreakerWorkerAliasArn } = event;
+  const queue = queueName(deadLetterQueueArn);
+  const intervalMs = (event.intervalSeconds || DEFAULT_INTERVAL_SECONDS) * 1000;
+  const nowMs = Date.now();
+
+  const depth = await api.approximateDepth(deadLetterQueueUrl);
+  const tasks = await api.listMoveTasks(deadLetterQueueArn);
+  const running = tasks.find((task) => task.Status === "RUNNING");
+  if (running) {
+    emitRedriveMetrics(queue, {
+      DlqDepth: depth,
+      MessagesMoved: running.ApproximateNumberOfMessagesMoved || 0,
+      MessagesToMove: running.ApproximateNumberOfMessagesToMove || 0,
+    });
+    logger.info({ message: "DLQ redrive in progress", queue, moved: running.ApproximateNumberOfMessagesMoved });
+    return { action: "running" };
+  }
+  if (depth === 0) {
+    emitRedriveMetrics(queue, { DlqDepth: 0 });
+    return { action: "empty" };
+  }
+
+  if (circuitBreakerWorkerAliasArn && (await api.circuitOpen(circuitBreakerWorkerAliasArn))) {
+    emitRedriveMetrics(queue, { DlqDepth: depth, RedriveDeferred: 1 });
+    logger.info({ message: "DLQ redrive deferred, worker circuit breaker open", queue, circuitBreakerWorkerAliasArn, depth });
+    return { action: "unhealthy" };
+  }
+
+  const notBefore = nextRedriveAt(tasks, nowMs, intervalMs);
+  if (notBefore > nowMs) {
+    emitRedriveMetrics(queue, { DlqDepth: depth, RedriveDeferred: 1 });
+    logger.info({ message: "DLQ redrive backing off", queue, depth, notBefore: new Date(notBefore).toISOString() });
+    return { action: "backoff" };
+  }
+
+  const maxMessagesPerSecond = Math.max(1, event.maxMessagesPerSecond || 1);
+  await api.startMoveTask(deadLetterQueueArn, maxMessagesPerSecond);
+  emitRedriveMetrics(queue, { DlqDepth: depth, RedriveStarted: 1 });
+  logger.info({ message: "Started DLQ redrive", queue, depth, maxMessagesPerSecond });
+  return { action: "started" };
+}
@@ -0,0 +1,232 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/functions/ops/hmrcCircuitBreaker.js
+//
+// Circuit breaker controller for the HMRC SQS workers.
+//
+// When a worker's "<worker function name>-circuit-breaker" alarm goes into ALARM (sustained worker error rate,
+// typically HMRC returning 5xx) EventBridge invokes this handler and it disables the worker's SQS event source
+// mappings. Messages then wait in the queue instead of using up workerMaxReceiveCount and landing in the DLQ.
+//
+// A schedule invokes the handler every few minutes; for each worker with mappings opened by the breaker it sends
+// probe requests to the live and sandbox HMRC APIs the workers call and re-enables the mappings once every probe
+// succeeds, so the backlog drains at full speed on recovery. Only mappings tagged by the breaker are re-enabled, a
+// mapping disabled by hand stays off.
+
+import { createLogger } from "../../lib/logger.js";
+
+const logger = createLogger({ source: "app/functions/ops/hmrcCircuitBreaker.js" });
+
+export const METRICS_NAMESPACE = "Submit/HmrcCircuitBreaker";
+export const CIRCUIT_BREAKER_ALARM_SUFFIX = "-circuit-breaker";
+export const CIRCUIT_BREAKER_TAG = "circuit-breaker";
+
+const DEFAULT_PROBE_COUNT = 3;
+const PROBE_TIMEOUT_MS = 5000;
+
+/**
+ * Worker alias ARNs under the breaker's control (comma separated CIRCUIT_BREAKER_WORKER_ALIAS_ARNS).
+ * @returns {string[]}
+ */
+export function workerAliasArns() {
+  return (process.env.CIRCUIT_BREAKER_WORKER_ALIAS_ARNS || "")
+    .split(",")
+    .map((arn) => arn.trim())
+    .filter(Boolean);
+}
+
+/**
+ * The function name in a qualified Lambda ARN (arn:aws:lambda:region:account:function:name:alias).
+ * @param {string} aliasArn
+ * @returns {string}
+ */
+export function functionNameFromArn(aliasArn) {
+  return (aliasArn || "").split(":")[6] || "";
+}
+
+/**
+ * The worker alias ARN whose circuit breaker alarm this is, or null when the alarm belongs to something else.
+ * @param {string} alarmName
+ * @param {string[]} aliasArns
+ * @returns {string|null}
+ */
+export function workerForAlarm(alarmName, aliasArns) {
+  if (!alarmName || !alarmName.endsWith(CIRCUIT_BREAKER_ALARM_SUFFIX)) return null;
+  const functionName = alarmName.slice(0, -CIRCUIT_BREAKER_ALARM_SUFFIX.length);
+  return aliasArns.find((arn) => functionNameFromArn(arn) === functionName) || null;
+}
+
+export async function defaultLambdaApi() {
+  const lambda = await import("@aws-sdk/client-lambda");
+  const client = new lambda.LambdaClient({ region: process.env.AWS_REGION || "eu-west-2" });
+  return {
+    listEventSourceMappings: async (functionName) => {
+      const mappings = [];
+      let marker;
+      do {
+        const page = await client.send(new lambda.ListEventSourceMappingsCommand({ FunctionName: functionName, Marker: marker }));
+        mappings.push(...(page.EventSourceMappings || []));
+        marker = page.NextMarker;
+      } while (marker);
+      return mappings;
+    },
+    setEnabled: (uuid, enabled) => client.send(new lambda.UpdateEventSourceMappingCommand({ UUID: uuid, Enabled: enabled })),
+    listTags: async (arn) => (await client.send(new lambda.ListTagsCommand({ Resource: arn }))).Tags || {},
+    tag: (arn) => client.send(new lambda.TagResourceCommand({ Resource: arn, Tags: { [CIRCUIT_BREAKER_TAG]: "open" } })),
+    untag: (arn) => client.send(new lambda.UntagResourceCommand({ Resource: arn, TagKeys: [CIRCUIT_BREAKER_TAG] })),
+  };
+}
+
+function emitCircuitMetric(worker, circuitOpen) {
+  try {
+    console.log(
+      JSON.stringify({
+        _aws: {
+          Timestamp: Date.now(),
+          CloudWatchMetrics: [{ Namespace: METRICS_NAMESPACE, Dimensions: [["worker"]], Metrics: [{ Name: "CircuitOpen", Unit: "None" }] }],
+        },
+        worker,
+        CircuitOpen: circuitOpen ? 1 : 0,
+      }),
+    );
+  } catch {
+    // EMF emission is best-effort
+  }
+}
+
+/**
+ * Disable the worker's enabled event source mappings and tag them as opened by the breaker.
+ * @returns {Promise<number>} mappings disabled
+ */
+export async function openCircuit(aliasArn, lambdaApi) {
+  const mappings = await lambdaApi.listEventSourceMappings(aliasArn);
+  let opened = 0;
+  for (const mapping of mappings) {
+    if (mapping.State === "Disabled" || mapping.State === "Disabling") continue;
+    await lambdaApi.tag(mapping.EventSourceMappingArn);
+    await lambdaApi.setEnabled(mapping.UUID, false);
+    opened += 1;
+  }
+  emitCircuitMetric(functionNameFromArn(aliasArn), true);
+  logger.warn({ message: "Circuit breaker opened, worker event source mappings disabled", aliasArn, opened });
+  return opened;
+}
+
+/**
+ * Mappings of the worker that the breaker disabled (tagged and not enabled).
+ */
+export async function openMappings(aliasArn, lambdaApi) {
+  const mappings = await lambdaApi.listEventSourceMappings(aliasArn);
+  const open = [];
+  for (const mapping of mappings) {
+    if (mapping.State !== "Disabled" && mapping.State !== "Disabling") continue;
+    const tags = await lambdaApi.listTags(mapping.EventSourceMappingArn);
+    if (tags[CIRCUIT_BREAKER_TAG]) open.push(mapping);
+  }
+  return open;
+}
+
+/**
+ * Whether the breaker has the worker's mappings open, e.g. so a DLQ redrive does not start into a paused worker.
+ * @returns {Promise<boolean>}
+ */
+export async function isCircuitOpen(aliasArn, lambdaApi) {
+  return (await openMappings(aliasArn, lambdaApi)).length > 0;
+}
+
+/**
+ * The HMRC base URIs the breaker guards. A worker calls the live or the sandbox HMRC API per request (hmrcAccount),
+ * and the breaker cannot tell which one tripped it, so both are probed before its mappings are re-enabled.
+ * @returns {string[]}
+ */
+export function hmrcBaseUris() {
+  return [...new Set([process.env.HMRC_BASE_URI, process.env.HMRC_SANDBOX_BASE_URI].filter(Boolean))];
+}
+
+/**
+ * Send probe requests to the HMRC API platform's open "hello world" endpoint on each base URI. HMRC is considered
+ * healthy when every probe returns a non-5xx response within the timeout.
+ * @param {object} [options]
+ * @returns {Promise<boolean>}
+ */
+export async function probeHmrc({ baseUris = hmrcBaseUris(), count, fetchFn = fetch } = {}) {
+  if (baseUris.length === 0) {
+    logger.warn({ message: "HMRC_BASE_URI not set, circuit breaker probe cannot run" });
+    return false;
+  }
+  const probeCount = count || Number(process.env.CIRCUIT_BREAKER_PROBE_COUNT) || DEFAULT_PROBE_COUNT;
+  for (const baseUri of baseUris) {
+    for (let probe = 1; probe <= probeCount; probe++) {
+      try {
+        const response = await fetchFn(`${baseUri.replace(/\/$/, "")}/hello/world`, {
+          headers: { Accept: "application/vnd.hmrc.1.0+json" },
+          signal: AbortSignal.timeout(PROBE_TIMEOUT_MS),
+        });
+        if (response.status >= 500) {
+          logger.info({ message: "HMRC probe failed", baseUri, probe, status: response.status });
+          return false;
+        }
+      } catch (error) {
+        logger.info({ message: "HMRC probe failed", baseUri, probe, error: error.message });
+        return false;
+      }
+    }
+  }
+  return true;
+}
+
+/**
+ * Re-enable the worker's breaker-opened mappings if HMRC answers the probes.
+ * @returns {Promise<number>} mappings re-enabled
+ */
+export async function closeCircuitIfHealthy(aliasArn, lambdaApi, probe = probeHmrc) {
+  const open = await openMappings(aliasArn, lambdaApi);
+  if (open.length === 0) return 0;
+  if (!(await probe())) {
+    emitCircuitMetric(functionNameFromArn(aliasArn), true);
+    logger.info({ message: "Circuit breaker remains open, HMRC probes failing", aliasArn });
+    return 0;
+  }
+  for (const mapping of open) {
+    await lambdaApi.setEnabled(mapping.UUID, true);
+    await lambdaApi.untag(mapping.EventSourceMappingArn);
+  }
+  emitCircuitMetric(functionNameFromArn(aliasArn), false);
+  logger.info({ message: "Circuit breaker closed, worker event source mappings re-enabled", aliasArn, closed: open.length });
+  return open.length;
+}
+
+/**
+ * EventBridge target: "CloudWatch Alarm State Change" events open the breaker for the alarm's worker,
+ * "Scheduled Event" events probe HMRC and close any open breakers.
+ * @param {object} event
+ * @param {object} [_context]
+ * @param {object} [lambdaApi] - injected in tests
+ */
+export async function handler(event, _context, lambdaApi) {
+  const api = lambdaApi || (await defaultLambdaApi());
+  const aliasArns = workerAliasArns();
+
+  if (event?.["detail-type"] === "CloudWatch Alarm State Change") {
+    const aliasArn = workerForAlarm(event.detail?.alarmName, aliasArns);
+    if (!aliasArn || event.detail?.state?.value !== "ALARM") {
+      logger.info({ message: "Ignoring alarm state change", alarmName: event.detail?.alarmName, state: event.detail?.state?.value });
+      return { opened: 0 };
+    }
+    return { opened: await openCircuit(aliasArn, api) };
+  }
+
+  // One set of probes per schedule tick, shared by every worker with an open breaker
+  let healthy;
+  const probeOnce = async () => (healthy ??= await probeHmrc());
+  let closed = 0;
+  for (const aliasArn of aliasArns) {
+    try {
+      closed += await closeCircuitIfHealthy(aliasArn, api, probeOnce);
+    } catch (error) {
+      logger.error({ message: "Circuit breaker probe failed", aliasArn, error: error.message });
+    }
+  }
+  return { closed };
+}
@@ -10,10 +10,23 @@ const logger = createLogger({ source: "app/lib/activityAlert.js" });
 
 const ebClient = new EventBridgeClient({ region: process.env.AWS_REGION || "eu-west-2" });
 
+let sqsClient;
+
+async function sendToActivityBuffer(queueUrl, entry) {
+  const { SQSClient, SendMessageCommand } = await import("@aws-sdk/client-sqs");
+  sqsClient = sqsClient || new SQSClient({ region: process.env.AWS_REGION || "eu-west-2" });
+  await sqsClient.send(new SendMessageCommand({ QueueUrl: queueUrl, MessageBody: JSON.stringify(entry) }));
+}
+
 /**
  * Publish an activity event to the EventBridge custom bus.
  * Fire-and-forget: never throws, graceful no-op when ACTIVITY_BUS_NAME not set.
  *
+ * When ACTIVITY_QUEUE_URL is set (wired by the Lambda construct) the PutEvents entry is sent to the activity buffer
+ * queue instead and app/functions/ops/activityBatchForwarder.js puts it on the bus in batches of 10. That send is
+ * awaited like the PutEvents it replaces: Lambda freezes the execution environment once the handler returns, so a
+ * send still in flight would be lost or held until the next invocation. A failure is logged, never thrown.
+ *
  * @param {Object} params
  * @param {string} params.event - Event name (e.g. "login", "vat-return-submitted")
  * @param {string} params.site - Site identifier (e.g. "submit")
@@ -31,29 +44,35 @@ export async function publishActivityEvent({ event, site = "submit", summary, ac
 
   const requestId = context.get("requestId") || null;
   const effectiveActor = actor || (requestId?.startsWith("test_") ? "test-user" : "unknown");
+  const entry = {
+    EventBusName: busName,
+    Source: `diy.${site}`,
+    DetailType: "ActivityEvent",
+    Detail: JSON.stringify({
+      event,
+      site,
+      summary,
+      actor: effectiveActor,
+      flow: flow || "unknown",
+      timestamp: new Date().toISOString(),
+      ...(requestId ? { requestId } : {}),
+      ...detail,
+    }),
+  };
+
+  const queueUrl = process.env.ACTIVITY_QUEUE_URL;
+  if (queueUrl) {
+    try {
+      await sendToActivityBuffer(queueUrl, entry);
+      logger.info({ message: "Activity event buffered", event, summary, requestId });
+    } catch (err) {
+      logger.warn({ message: "Failed to buffer activity event", event, error: err.message });
+    }
+    return;
+  }
 
   try {
-    await ebClient.send(
-      new PutEventsCommand({
-        Entries: [
-          {
-            EventBusName: busName,
-            Source: `diy.${site}`,
-            DetailType: "ActivityEvent",
-            Detail: JSON.stringify({
-              event,
-              site,
-              summary,
-              actor: effectiveActor,
-              flow: flow || "unknown",
-              timestamp: new Date().toISOString(),
-              ...(requestId ? { requestId } : {}),
-              ...detail,
-            }),
-          },
-        ],
-      }),
-    );
+    await ebClient.send(new PutEventsCommand({ Entries: [entry] }));
     logger.info({ message: "Activity event published", event, summary, requestId });
   } catch (err) {
     logger.warn({ message: "Failed to publish activity event", event, error: err.message });
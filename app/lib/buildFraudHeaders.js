@@ -59,7 +59,8 @@ export async function detectVendorPublicIp() {
  * Follows HMRC's fraud prevention header specifications for WEB_APP_VIA_SERVER connection method.
  *
  * Gov-Vendor-Public-IP is the Lambda's outbound IP (detected at cold start via checkip.amazonaws.com).
- * Gov-Client-Public-IP is the end user's IP (extracted from X-Forwarded-For set by CloudFront).
+ * Gov-Client-Public-IP is the end user's IP (computed at the edge by the govClientViewerHeaders CloudFront Function,
+ * falling back to X-Forwarded-For set by CloudFront).
  * These MUST be different values — HMRC rejects submissions where they are the same.
  *
  * @param {object} event – Lambda proxy event containing headers and request context
@@ -81,12 +82,16 @@ export function buildFraudHeaders(event, options = {}) {
     return null;
   };
 
-  // 1. Client public IP – extract the first non-private IP from X-Forwarded-For header
+  // 1. Client public IP – prefer the value computed at the edge by the govClientViewerHeaders CloudFront Function,
+  // otherwise extract the first non-private IP from the X-Forwarded-For header
+  const edgePublicIp = getHeader("x-edge-gov-client-public-ip");
   const xff = getHeader("x-forwarded-for") || "";
-  const clientIps = xff
-    .split(",")
-    .map((s) => s.trim())
-    .filter(Boolean);
+  const clientIps = edgePublicIp
+    ? [edgePublicIp]
+    : xff
+        .split(",")
+        .map((s) => s.trim())
+        .filter(Boolean);
 
   // Find first public IP (excluding private IP ranges)
   const publicClientIp = clientIps.find((ip) => {
@@ -103,17 +108,22 @@ export function buildFraudHeaders(event, options = {}) {
 
   if (publicClientIp) {
     headers["Gov-Client-Public-IP"] = publicClientIp;
-    logger.debug({ message: "Detected public client IP", publicClientIp, xff });
+    logger.debug({ message: "Detected public client IP", publicClientIp, edgePublicIp, xff });
   } else {
     logger.warn({
-      message: "HMRC REQUIRED HEADER MISSING: Gov-Client-Public-IP — no public IP found in X-Forwarded-For",
+      message: "HMRC REQUIRED HEADER MISSING: Gov-Client-Public-IP — no public IP found at the edge or in X-Forwarded-For",
+      edgePublicIp,
       xff,
     });
   }
 
-  // 2. Client public port – extract from CloudFront-Viewer-Address header (format: "ip:port" or "[ipv6]:port")
+  // 2. Client public port – prefer the edge-computed value, otherwise extract from the CloudFront-Viewer-Address
+  // header (format: "ip:port" or "[ipv6]:port")
+  const edgePublicPort = getHeader("x-edge-gov-client-public-port");
   const viewerAddress = getHeader("cloudfront-viewer-address");
-  if (viewerAddress) {
+  if (edgePublicPort && /^\d+$/.test(edgePublicPort)) {
+    headers["Gov-Client-Public-Port"] = edgePublicPort;
+  } else if (viewerAddress) {
     const port = viewerAddress.split(":").pop();
     if (port && /^\d+$/.test(port)) {
       headers["Gov-Client-Public-Port"] = port;
@@ -42,6 +42,73 @@ async function runLocalAsyncProcessing({ processor, payload, tableName, requestI
 
 const MAX_POLL_INTERVAL_MS = 400;
 
+export const LATENCY_METRICS_NAMESPACE = "Submit/AsyncRequests";
+
+/**
+ * Start the timings for one SQS record: when the ingest Lambda enqueued it (carried in the message body, so rate
+ * limit deferrals count as queue wait), when SQS first delivered it and when this worker started on it.
+ * The worker adds hmrcCallStartedAt; complete() and error() add completedAt.
+ *
+ * @param {Object} record - SQS record
+ * @param {Object} body - parsed message body
+ * @returns {Object} epoch millisecond stamps
+ */
+export function startWorkerTimings(record, body) {
+  const dequeuedAt = Number(record?.attributes?.ApproximateFirstReceiveTimestamp);
+  return {
+    ...(Number.isFinite(body?.enqueuedAt) ? { enqueuedAt: body.enqueuedAt } : {}),
+    ...(Number.isFinite(dequeuedAt) && dequeuedAt > 0 ? { dequeuedAt } : {}),
+    workerStartedAt: Date.now(),
+  };
+}
+
+/**
+ * Latency breakdown (milliseconds) for stamped timings. Stages without both stamps are left out.
+ *
+ * @param {Object} timings - output of startWorkerTimings with completedAt
+ * @returns {{QueueWait?: number, ProcessingTime?: number, HmrcCallTime?: number, TimeToResult?: number}}
+ */
+export function asyncLatencyMetrics(timings) {
+  const between = (from, to) => (Number.isFinite(from) && Number.isFinite(to) && to >= from ? to - from : undefined);
+  const metrics = {
+    QueueWait: between(timings.enqueuedAt, timings.dequeuedAt ?? timings.workerStartedAt),
+    ProcessingTime: between(timings.workerStartedAt, timings.completedAt),
+    HmrcCallTime: between(timings.hmrcCallStartedAt, timings.completedAt),
+    TimeToResult: between(timings.enqueuedAt, timings.completedAt),
+  };
+  return Object.fromEntries(Object.entries(metrics).filter(([, value]) => value !== undefined));
+}
+
+function emitAsyncLatencyMetrics(operation, outcome, timings) {
+  try {
+    const metrics = asyncLatencyMetrics(timings);
+    if (Object.keys(metrics).length === 0) return;
+    console.log(
+      JSON.stringify({
+        _aws: {
+          Timestamp: Date.now(),
+          CloudWatchMetrics: [
+            {
+              Namespace: LATENCY_METRICS_NAMESPACE,
+              Dimensions: [["operation"], ["operation", "outcome"]],
+              Metrics: Object.keys(metrics).map((name) => ({ Name: name, Unit: "Milliseconds" })),
+            },
+          ],
+        },
+        operation,
+        outcome,
+        ...metrics,
+      }),
+    );
+  } catch {
+    // EMF emission is best-effort
+  }
+}
+
+function stampCompletion(timings) {
+  return timings ? { ...timings, completedAt: Date.now() } : null;
+}
+
 export class RequestFailedError extends Error {
   constructor(data) {
     super(data?.error || "Request processing failed");
@@ -62,6 +129,7 @@ export class RequestFailedError extends Error {
  * @param {string} params.tableName - The DynamoDB table name for request tracking.
  * @param {string} params.queueUrl - The SQS queue URL for async processing.
  * @param {number} params.maxWaitMs - The threshold for forced synchronous processing.
+ * @param {string} [params.priority] - Lane recorded on the message ("high" for the high priority queue).
  * @returns {Promise<Object|null>} The result if processed synchronously, or null if initiated asynchronously.
  */
 export async function initiateProcessing({
@@ -75,6 +143,7 @@ export async function initiateProcessing({
   tableName, // = process.env.ASYNC_REQUESTS_DYNAMODB_TABLE_NAME,
   queueUrl, // = process.env.SQS_QUEUE_URL,
   maxWaitMs = 25000,
+  priority,
 }) {
   if (tableName) {
     logger.info({ message: "Marking request as processing in DynamoDB", userId, requestId, tableName });
@@ -105,7 +174,15 @@ export async function initiateProcessing({
       await sqs.send(
         new SendMessageCommand({
           QueueUrl: queueUrl,
-          MessageBody: JSON.stringify({ userId, requestId, traceparent, correlationId, payload }),
+          MessageBody: JSON.stringify({
+            userId,
+            requestId,
+            traceparent,
+            correlationId,
+            ...(priority ? { priority } : {}),
+            enqueuedAt: Date.now(),
+            payload,
+          }),
           MessageAttributes: {
             requestId: { DataType: "String", StringValue: requestId },
             userId: { DataType: "String", StringValue: userId },
@@ -135,6 +212,88 @@ export async function initiateProcessing({
   return null;
 }
 
+// Error name the Express state machine's HMRC step throws once its own retries are spent (see AsyncApiLambda)
+export const HMRC_TEMPORARY_ERROR = "HmrcTemporaryError";
+
+/**
+ * HMRC response statuses a worker fails the message on: throttling and every server error. The message is retried
+ * and the failure counts toward the worker's circuit breaker alarm (see app/functions/ops/hmrcCircuitBreaker.js).
+ * @param {number} status
+ * @returns {boolean}
+ */
+export function isHmrcTemporaryStatus(status) {
+  return status === 429 || status >= 500;
+}
+
+async function defaultSfnApi() {
+  const { SFNClient, StartSyncExecutionCommand } = await import("@aws-sdk/client-sfn");
+  const endpoint = process.env.AWS_ENDPOINT_URL_SFN || process.env.AWS_ENDPOINT_URL;
+  const sfn = new SFNClient({ region: process.env.AWS_REGION || "eu-west-2", ...(endpoint ? { endpoint } : {}) });
+  return {
+    startSyncExecution: (stateMachineArn, input) => sfn.send(new StartSyncExecutionCommand({ stateMachineArn, input })),
+  };
+}
+
+/**
+ * Runs a request through a synchronous Express state machine (AsyncApiLambda express mode) so a request that
+ * completes inside the API timeout is answered in one round trip. The state machine records the result on the
+ * async request record itself, so polling clients and retries see the same outcome as the queue path.
+ *
+ * @param {Object} params
+ * @param {string} params.stateMachineArn - STEP_FUNCTIONS_STATE_MACHINE_ARN
+ * @param {string} params.userId - The user ID.
+ * @param {string} params.requestId - The request ID.
+ * @param {Object} params.payload - Generic payload for the state machine's steps.
+ * @param {string} params.tableName - The DynamoDB table name for request tracking.
+ * @param {Object} [params.sfnApi] - injected in tests
+ * @returns {Promise<Object|null>} The result, or null when the execution did not succeed and the request should go to
+ *   the queue. An execution that failed or timed out may have left HMRC holding the submission, so it is never
+ *   recorded as failed here: the worker retries it for longer and records the outcome HMRC gives it.
+ */
+export async function executeStateMachine({
+  stateMachineArn,
+  userId,
+  requestId,
+  traceparent,
+  correlationId,
+  payload,
+  tableName,
+  sfnApi,
+}) {
+  // Awaited so this write cannot land after, and overwrite, the state machine's own record of the outcome
+  if (tableName) {
+    try {
+      await putAsyncRequest(userId, requestId, "processing", null, tableName);
+    } catch (error) {
+      logger.error({ message: "Error storing processing request", error: error.message, requestId, tableName });
+    }
+  }
+
+  logger.info({ message: "Starting synchronous Express execution", userId, requestId, stateMachineArn });
+  const api = sfnApi || (await defaultSfnApi());
+  const execution = await api.startSyncExecution(
+    stateMachineArn,
+    JSON.stringify({ userId, requestId, traceparent, correlationId, enqueuedAt: Date.now(), payload }),
+  );
+  if (execution.status === "SUCCEEDED") {
+    logger.info({ message: "Express execution succeeded", requestId });
+    return JSON.parse(execution.output);
+  }
+  if (execution.status === "FAILED" && execution.error === HMRC_TEMPORARY_ERROR) {
+    logger.warn({ message: "Express execution retries exhausted, falling back to the queue", requestId, cause: execution.cause });
+    return null;
+  }
+
+  logger.warn({
+    message: "Express execution did not succeed, falling back to the queue",
+    requestId,
+    status: execution.status,
+    error: execution.error,
+    cause: execution.cause,
+  });
+  return null;
+}
+
 /**
  * Polls for the completion of an asynchronous request.
  *
@@ -270,10 +429,14 @@ export function respond({ request, requestId, responseHeaders, data, dataKey })
  * @param {string} params.requestId - The request ID.
  * @param {string} params.userSub - The user sub (ID).
  * @param {Object} params.result - The result data to store.
+ * @param {string} [params.operation] - Operation name for latency metrics (e.g. "hmrcVatReturnPost").
+ * @param {Object} [params.timings] - Worker timings (startWorkerTimings), stored on the record with completedAt.
  */
-export async function complete({ asyncRequestsTableName, requestId, userSub, result }) {
+export async function complete({ asyncRequestsTableName, requestId, userSub, result, operation, timings }) {
   logger.info({ message: "Marking async request as completed", requestId, userSub, asyncRequestsTableName });
-  await putAsyncRequest(userSub, requestId, "completed", result, asyncRequestsTableName);
+  const stampedTimings = stampCompletion(timings);
+  await putAsyncRequest(userSub, requestId, "completed", result, asyncRequestsTableName, stampedTimings);
+  if (stampedTimings) emitAsyncLatencyMetrics(operation, "completed", stampedTimings);
 }
 
 /**
@@ -284,13 +447,17 @@ export async function complete({ asyncRequestsTableName, requestId, userSub, res
  * @param {string} params.requestId - The request ID.
  * @param {string} params.userSub - The user sub (ID).
  * @param {Object} params.error - The error object or message.
+ * @param {string} [params.operation] - Operation name for latency metrics.
+ * @param {Object} [params.timings] - Worker timings (startWorkerTimings), stored on the record with completedAt.
  */
-export async function error({ asyncRequestsTableName, requestId, userSub, error }) {
+export async function error({ asyncRequestsTableName, requestId, userSub, error, operation, timings }) {
   logger.info({ message: "Marking async request as failed", requestId, userSub, asyncRequestsTableName, error: error.message || error });
   const errorData = {
     message: error.message || error,
     ...(error.statusCode ? { statusCode: error.statusCode } : {}),
     ...(error.data ? { data: error.data } : {}),
   };
-  await putAsyncRequest(userSub, requestId, "failed", errorData, asyncRequestsTableName);
+  const stampedTimings = stampCompletion(timings);
+  await putAsyncRequest(userSub, requestId, "failed", errorData, asyncRequestsTableName, stampedTimings);
+  if (stampedTimings) emitAsyncLatencyMetrics(operation, "failed", stampedTimings);
 }
@@ -431,9 +431,9 @@ export async function hmrcHttpGet(
     },
   });
 
-  // Add a conservative timeout to avoid hung connections
+  // Add a conservative timeout to avoid hung connections, HMRC_HTTP_TIMEOUT_MS keeps it below the calling Lambda's
   let duration = 0;
-  const timeoutMs = 115000;
+  const timeoutMs = process.env.HMRC_HTTP_TIMEOUT_MS || 115000;
   let hmrcResponse;
   const controller = new AbortController();
   const timeout = setTimeout(() => controller.abort(), Number(timeoutMs));
@@ -498,7 +498,8 @@ export async function hmrcHttpGet(
 
 export async function hmrcHttpPost(hmrcRequestUrl, hmrcRequestHeaders, govClientHeaders, hmrcRequestBody, auditForUserSub) {
   let hmrcResponse;
-  const httpRequestTimeoutMillis = 295000;
+  // HMRC_HTTP_TIMEOUT_MS bounds the call below the timeout of the Lambda or state machine making it
+  const httpRequestTimeoutMillis = process.env.HMRC_HTTP_TIMEOUT_MS || 295000;
   const httpRequest = {
     method: "POST",
     headers: {
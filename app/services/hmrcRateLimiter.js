@@ -0,0 +1,173 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/services/hmrcRateLimiter.js
+// Coordinates HMRC calls across all HMRC SQS workers using the token bucket in dynamoDbHmrcRateLimitRepository.
+// A worker that finds the bucket empty waits briefly if a token is imminent, otherwise it puts its message back
+// on its own queue with a delay instead of calling HMRC and spending the application's rate limit on a 429.
+
+import { createLogger } from "../lib/logger.js";
+import { tryAcquireToken } from "../data/dynamoDbHmrcRateLimitRepository.js";
+
+const logger = createLogger({ source: "app/services/hmrcRateLimiter.js" });
+
+export const METRICS_NAMESPACE = "Submit/HmrcRateLimiter";
+
+// HMRC's default per application limit is 3 requests per second
+const DEFAULT_REQUESTS_PER_SECOND = 3;
+const DEFAULT_BURST = 3;
+// Waits up to this long are spent in the worker, longer waits are deferred to SQS
+const MAX_INLINE_WAIT_MS = 1000;
+// SQS DelaySeconds upper bound
+const MAX_DELAY_SECONDS = 900;
+// Tokens normal priority work leaves in the bucket so high priority work (VAT return submissions) is not starved
+const DEFAULT_HIGH_PRIORITY_RESERVE = 1;
+// After this many deferrals the message is processed regardless, HMRC 429s are still retried by the worker
+const DEFAULT_MAX_DEFERRALS = 10;
+
+function numberFromEnv(name, defaultValue) {
+  const value = Number(process.env[name]);
+  return Number.isFinite(value) && value > 0 ? value : defaultValue;
+}
+
+function getLimits(priority) {
+  const reserve = Number(process.env.HMRC_RATE_LIMIT_HIGH_PRIORITY_RESERVE ?? DEFAULT_HIGH_PRIORITY_RESERVE);
+  return {
+    refillPerSecond: numberFromEnv("HMRC_RATE_LIMIT_REQUESTS_PER_SECOND", DEFAULT_REQUESTS_PER_SECOND),
+    capacity: numberFromEnv("HMRC_RATE_LIMIT_BURST", DEFAULT_BURST),
+    reserve: priority === "high" || !Number.isFinite(reserve) ? 0 : reserve,
+  };
+}
+
+function emitRateLimitMetrics(source, bucketId, metrics) {
+  try {
+    console.log(
+      JSON.stringify({
+        _aws: {
+          Timestamp: Date.now(),
+          CloudWatchMetrics: [
+            {
+              Namespace: METRICS_NAMESPACE,
+              Dimensions: [["bucketId"], ["bucketId", "source"]],
+              Metrics: Object.keys(metrics).map((name) => ({ Name: name, Unit: name === "TokensAvailable" ? "None" : "Count" })),
+            },
+          ],
+        },
+        bucketId,
+        source,
+        ...metrics,
+      }),
+    );
+  } catch {
+    // EMF emission is best-effort
+  }
+}
+
+/**
+ * SQS delay for a deferred message: the time until a token is free plus up to two seconds of jitter so a
+ * backlog of deferred messages does not come back in the same second.
+ * @param {number} waitMs
+ * @param {() => number} [random]
+ * @returns {number}
+ */
+export function deferralDelaySeconds(waitMs, random = Math.random) {
+  const seconds = Math.ceil(waitMs / 1000) + Math.floor(random() * 3);
+  return Math.min(MAX_DELAY_SECONDS, Math.max(1, seconds));
+}
+
+function laneQueueUrl(priority) {
+  return (priority === "high" && process.env.SQS_HIGH_PRIORITY_QUEUE_URL) || process.env.SQS_QUEUE_URL;
+}
+
+async function deferRecord({ queueUrl, body, delaySeconds }) {
+  const { SQSClient, SendMessageCommand } = await import("@aws-sdk/client-sqs");
+  const endpoint = process.env.AWS_ENDPOINT_URL_SQS || process.env.AWS_ENDPOINT_URL;
+  const sqs = new SQSClient({
+    region: process.env.AWS_REGION || "eu-west-2",
+    ...(endpoint ? { endpoint } : {}),
+  });
+  await sqs.send(
+    new SendMessageCommand({
+      QueueUrl: queueUrl,
+      MessageBody: JSON.stringify(body),
+      DelaySeconds: delaySeconds,
+      MessageAttributes: {
+        ...(body.requestId ? { requestId: { DataType: "String", StringValue: body.requestId } } : {}),
+        ...(body.userId ? { userId: { DataType: "String", StringValue: body.userId } } : {}),
+      },
+    }),
+  );
+}
+
+/**
+ * Acquire a token for one HMRC call, waiting inline when one is imminent. Without
+ * HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME (local and test runs) every call is allowed. DynamoDB failures fail open, a
+ * broken limiter must not stop submissions.
+ *
+ * @param {Object} params
+ * @param {string} [params.priority] - "high" may use the reserve
+ * @param {string} [params.hmrcAccount] - "sandbox" or "live", each HMRC application has its own bucket
+ * @param {string} params.source - caller name for metrics
+ * @returns {Promise<{acquired: boolean, waitMs: number, bucketId?: string}>} waitMs until the next token when not acquired
+ */
+export async function acquireHmrcPermit({ priority, hmrcAccount, source }) {
+  if (!process.env.HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME) {
+    return { acquired: true, waitMs: 0 };
+  }
+  const bucketId = `hmrc-${hmrcAccount === "sandbox" ? "sandbox" : "live"}`;
+  const limits = getLimits(priority);
+
+  let acquisition;
+  try {
+    acquisition = await tryAcquireToken(bucketId, limits);
+    if (!acquisition.acquired && acquisition.waitMs <= MAX_INLINE_WAIT_MS) {
+      emitRateLimitMetrics(source, bucketId, { RateLimitWaits: 1 });
+      await new Promise((resolve) => setTimeout(resolve, acquisition.waitMs));
+      acquisition = await tryAcquireToken(bucketId, limits);
+    }
+  } catch (error) {
+    logger.warn({ message: "HMRC rate limiter unavailable, calling HMRC without a token", error: error.message, bucketId });
+    return { acquired: true, waitMs: 0, bucketId };
+  }
+  emitRateLimitMetrics(source, bucketId, { TokensAvailable: Math.max(0, acquisition.tokensAvailable) });
+  return { acquired: acquisition.acquired, waitMs: acquisition.waitMs, bucketId };
+}
+
+/**
+ * Acquire a token for one HMRC call, or re-queue the SQS message with a delay when the bucket is empty.
+ *
+ * @param {Object} params
+ * @param {Object} params.body - parsed SQS message body ({ userId, requestId, traceparent, correlationId, priority,
+ *   payload }), "high" priority messages may use the reserve and are deferred to the high priority lane
+ * @param {string} [params.hmrcAccount] - "sandbox" or "live", each HMRC application has its own bucket
+ * @param {string} [params.queueUrl] - the worker's own queue for the message's lane
+ * @param {string} params.source - worker name for metrics
+ * @returns {Promise<boolean>} true to call HMRC now, false if the message was deferred
+ */
+export async function acquireHmrcPermitOrDefer({ body, hmrcAccount, queueUrl = laneQueueUrl(body.priority), source }) {
+  const acquisition = await acquireHmrcPermit({ priority: body.priority, hmrcAccount, source });
+  if (acquisition.acquired) {
+    return true;
+  }
+  const { bucketId } = acquisition;
+
+  const deferrals = (body.rateLimitDeferrals || 0) + 1;
+  const maxDeferrals = numberFromEnv("HMRC_RATE_LIMIT_MAX_DEFERRALS", DEFAULT_MAX_DEFERRALS);
+  if (deferrals > maxDeferrals || !queueUrl || queueUrl === "none") {
+    logger.warn({ message: "HMRC rate limit bucket empty but message cannot be deferred, calling HMRC", bucketId, deferrals });
+    return true;
+  }
+
+  const delaySeconds = deferralDelaySeconds(acquisition.waitMs);
+  try {
+    await deferRecord({ queueUrl, body: { ...body, rateLimitDeferrals: deferrals }, delaySeconds });
+  } catch (error) {
+    // Let SQS redeliver the original message after its visibility timeout
+    const deferralError = new Error(`HMRC rate limit deferral failed: ${error.message}`);
+    deferralError.retryable = true;
+    throw deferralError;
+  }
+  emitRateLimitMetrics(source, bucketId, { RateLimitDeferrals: 1 });
+  logger.info({ message: "HMRC rate limit bucket empty, deferred message", bucketId, delaySeconds, deferrals, requestId: body.requestId });
+  return false;
+}
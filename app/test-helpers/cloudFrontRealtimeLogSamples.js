@@ -0,0 +1,30 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/test-helpers/cloudFrontRealtimeLogSamples.js
+// Recorded CloudFront real-time log lines (web distribution, anonymised) in the field order configured by
+// EdgeStack's RealtimeLogConfig. Used to exercise distributionRealtimeLogMetrics.js offline.
+
+const row = (...values) => values.join("\t");
+
+export const realtimeLogSamples = [
+  row("1760781601.112", "GET", "/index.html", "200", "5120", "0.002", "0.002", "LHR61-P1", "Hit", "Hit", "Hit", "-", "-", "*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781601.348", "GET", "/bundles.html", "200", "7311", "0.003", "0.004", "LHR61-P1", "Hit", "Hit", "Hit", "-", "-", "*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781602.020", "GET", "/lib/main.js", "200", "20480", "0.041", "0.052", "LHR61-P1", "Miss", "Miss", "Miss", "0.038", "0.049", "*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781602.511", "GET", "/hmrc/vat/submitVat.html", "200", "9024", "0.002", "0.003", "MAN51-P1", "RefreshHit", "RefreshHit", "RefreshHit", "0.021", "0.022", "*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781603.004", "GET", "/api/v1/bundle", "200", "612", "0.118", "0.121", "LHR61-P1", "Miss", "Miss", "Miss", "0.112", "0.114", "/api/v1/*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781603.517", "GET", "/api/v1/bundle", "200", "612", "0.094", "0.096", "LHR61-P1", "Miss", "Miss", "Miss", "0.090", "0.091", "/api/v1/*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781604.230", "POST", "/api/v1/hmrc/vat/return", "202", "214", "0.310", "0.312", "LHR61-P1", "Miss", "Miss", "Miss", "0.305", "0.306", "/api/v1/hmrc/*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781605.901", "GET", "/api/v1/hmrc/vat/return", "200", "1380", "1.204", "1.209", "MAN51-P1", "Miss", "Miss", "Miss", "1.199", "1.201", "/api/v1/hmrc/*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+  row("1760781606.442", "POST", "/api/v1/hmrc/vat/return", "504", "310", "-", "30.001", "LHR61-P1", "Error", "Error", "OriginCommError", "-", "-", "/api/v1/hmrc/*", "-", "GB", "Mozilla/5.0%20(Windows%20NT%2010.0;%20Win64;%20x64)"),
+];
+
+// Session start beacons answered at the edge by sessionBeacon.js: two recorded (one from an AI agent), one crawler
+export const sessionBeaconLogSamples = [
+  row("1760781608.010", "GET", "/api/session/beacon", "204", "180", "0.001", "0.001", "LHR61-P1", "FunctionGeneratedResponse", "FunctionGeneratedResponse", "FunctionGeneratedResponse", "-", "-", "/api/session/beacon", "page=%2Fbundles.html", "GB", "Mozilla/5.0%20(Macintosh;%20Intel%20Mac%20OS%20X%2014_5)"),
+  row("1760781608.420", "GET", "/api/session/beacon", "204", "180", "0.001", "0.001", "DUB56-P1", "FunctionGeneratedResponse", "FunctionGeneratedResponse", "FunctionGeneratedResponse", "-", "-", "/api/session/beacon", "page=%2F", "IE", "Mozilla/5.0%20(compatible;%20ChatGPT-User/1.0)"),
+  row("1760781609.002", "GET", "/api/session/beacon", "200", "180", "0.001", "0.001", "LHR61-P1", "FunctionGeneratedResponse", "FunctionGeneratedResponse", "FunctionGeneratedResponse", "-", "-", "/api/session/beacon", "page=%2F", "US", "Mozilla/5.0%20(compatible;%20Googlebot/2.1)"),
+];
+
+// A truncated line (missing trailing fields) as seen when the distribution's field list changes mid-stream
+export const malformedRealtimeLogSample = row("1760781607.000", "GET", "/index.html", "200");
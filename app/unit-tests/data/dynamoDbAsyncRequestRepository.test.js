@@ -103,4 +103,17 @@ describe("dynamoDbAsyncRequestRepository", () => {
     expect(input.ExpressionAttributeNames["#data"]).toBe("data");
     expect(input.ExpressionAttributeValues[":data"]).toBeUndefined();
   });
+
+  test("putAsyncRequest stores latency timings in the SET clause when provided", async () => {
+    const { putAsyncRequest } = await import("../../../app/data/dynamoDbAsyncRequestRepository.js");
+    const timings = { enqueuedAt: 1000, dequeuedAt: 1200, workerStartedAt: 1250, completedAt: 2000 };
+
+    mockSend.mockResolvedValue({});
+
+    await putAsyncRequest("user-123", "req-456", "completed", null, null, timings);
+
+    const input = mockSend.mock.calls[0][0].input;
+    expect(input.UpdateExpression).toMatch(/^SET .*#timings = :timings REMOVE #data$/);
+    expect(input.ExpressionAttributeValues[":timings"]).toEqual(timings);
+  });
 });
@@ -28,6 +28,22 @@ vi.mock("@aws-sdk/lib-dynamodb", () => {
   };
 });
 
+const mockFirehoseSend = vi.fn();
+
+vi.mock("@aws-sdk/client-firehose", () => {
+  class FirehoseClient {
+    send(cmd) {
+      return mockFirehoseSend(cmd);
+    }
+  }
+  class PutRecordCommand {
+    constructor(input) {
+      this.input = input;
+    }
+  }
+  return { FirehoseClient, PutRecordCommand };
+});
+
 vi.mock("@aws-sdk/client-dynamodb", () => {
   class DynamoDBClient {
     constructor(_config) {
@@ -239,4 +255,53 @@ describe("dynamoDbHmrcApiRequestStore", () => {
     // Assert
     expect(mockSend).toHaveBeenCalledTimes(1);
   });
+
+  test("buffers the Firehose audit record and DynamoDB hot window write until flushed", async () => {
+    process.env.HMRC_API_REQUESTS_DYNAMODB_TABLE_NAME = "unit-test-hmrc-requests";
+    process.env.HMRC_API_REQUESTS_DELIVERY_STREAM_NAME = "unit-test-hmrc-api-requests";
+    const { putHmrcApiRequest, flushHmrcApiRequests } = await import("@app/data/dynamoDbHmrcApiRequestRepository.js");
+    const { hashSub } = await import("@app/services/subHasher.js");
+    let releaseFirehose;
+    mockFirehoseSend.mockImplementation(() => new Promise((resolve) => (releaseFirehose = resolve)));
+    mockSend.mockResolvedValue({});
+
+    await putHmrcApiRequest("user-sub", {
+      url: "https://hmrc.example/api",
+      httpRequest: { method: "POST", headers: { Authorization: "Bearer token" }, body: { x: 1 } },
+      httpResponse: { statusCode: 201, headers: {}, body: { ok: true } },
+      duration: 42,
+    });
+
+    // putHmrcApiRequest returned without waiting for either write
+    let flushed = false;
+    const flush = flushHmrcApiRequests().then(() => (flushed = true));
+    await vi.waitFor(() => expect(mockFirehoseSend).toHaveBeenCalledTimes(1));
+    expect(flushed).toBe(false);
+    releaseFirehose({});
+    await flush;
+
+    expect(mockSend).toHaveBeenCalledTimes(1);
+    const cmd = mockFirehoseSend.mock.calls[0][0];
+    expect(cmd.input.DeliveryStreamName).toBe("unit-test-hmrc-api-requests");
+    const record = JSON.parse(Buffer.from(cmd.input.Record.Data).toString());
+    expect(record).toMatchObject({ hashed_sub: hashSub("user-sub"), method: "POST", status_code: 201, duration: 42 });
+    expect(JSON.parse(record.http_request).headers.Authorization).toBe("***MASKED***");
+  });
+
+  test("buffered write failures are logged, not thrown", async () => {
+    process.env.HMRC_API_REQUESTS_DYNAMODB_TABLE_NAME = "";
+    process.env.HMRC_API_REQUESTS_DELIVERY_STREAM_NAME = "unit-test-hmrc-api-requests";
+    const { putHmrcApiRequest, flushHmrcApiRequests } = await import("@app/data/dynamoDbHmrcApiRequestRepository.js");
+    mockFirehoseSend.mockRejectedValue(new Error("ServiceUnavailableException"));
+
+    await putHmrcApiRequest("user-sub", {
+      url: "https://hmrc.example/api",
+      httpRequest: { method: "GET", headers: {} },
+      httpResponse: { statusCode: 200, headers: {}, body: {} },
+      duration: 5,
+    });
+
+    await expect(flushHmrcApiRequests()).resolves.toBeUndefined();
+    expect(mockSend).not.toHaveBeenCalled();
+  });
 });
@@ -0,0 +1,174 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/unit-tests/data/dynamoDbHmrcRateLimitRepository.test.js
+
+import { describe, test, expect, vi, beforeEach, afterEach } from "vitest";
+
+const mockSend = vi.fn();
+
+vi.mock("@aws-sdk/lib-dynamodb", () => {
+  class GetCommand {
+    constructor(input) {
+      this.input = input;
+    }
+  }
+  class UpdateCommand {
+    constructor(input) {
+      this.input = input;
+    }
+  }
+  return {
+    DynamoDBDocumentClient: { from: () => ({ send: mockSend }) },
+    GetCommand,
+    UpdateCommand,
+  };
+});
+
+vi.mock("@aws-sdk/client-dynamodb", () => {
+  class DynamoDBClient {
+    constructor(_config) {}
+  }
+  return { DynamoDBClient };
+});
+
+const limits = { capacity: 3, refillPerSecond: 3 };
+const now = 1_760_000_000_000;
+
+describe("dynamoDbHmrcRateLimitRepository", () => {
+  const originalEnv = process.env;
+
+  beforeEach(() => {
+    vi.clearAllMocks();
+    process.env = { ...originalEnv };
+    process.env.HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME = "test-hmrc-rate-limit";
+  });
+
+  afterEach(() => {
+    process.env = originalEnv;
+  });
+
+  test("refillTokens starts a missing bucket full and caps refill at capacity", async () => {
+    const { refillTokens } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+
+    expect(refillTokens(null, limits, now)).toBe(3);
+    expect(refillTokens({ tokens: 0, updatedAt: now - 500 }, limits, now)).toBe(1.5);
+    expect(refillTokens({ tokens: 2, updatedAt: now - 10_000 }, limits, now)).toBe(3);
+  });
+
+  test("millisecondsUntilToken is zero with a whole token and rounds up otherwise", async () => {
+    const { millisecondsUntilToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+
+    expect(millisecondsUntilToken(1, 3)).toBe(0);
+    expect(millisecondsUntilToken(0, 3)).toBe(334);
+    expect(millisecondsUntilToken(0.5, 2)).toBe(250);
+  });
+
+  test("tryAcquireToken creates a missing bucket with a conditional put-if-absent", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    mockSend.mockResolvedValueOnce({}).mockResolvedValueOnce({});
+
+    const result = await tryAcquireToken("hmrc-live", limits, () => now);
+
+    expect(result).toEqual({ acquired: true, tokensAvailable: 2, waitMs: 0 });
+    const update = mockSend.mock.calls[1][0].input;
+    expect(update.TableName).toBe("test-hmrc-rate-limit");
+    expect(update.Key).toEqual({ bucketId: "hmrc-live" });
+    expect(update.ConditionExpression).toBe("attribute_not_exists(bucketId)");
+    expect(update.ExpressionAttributeValues).toEqual({ ":tokens": 2, ":now": now, ":version": 1 });
+  });
+
+  test("tryAcquireToken conditions the update on the version it read and increments it", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    mockSend
+      .mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 1, updatedAt: now - 1000, version: 7 } })
+      .mockResolvedValueOnce({});
+
+    const result = await tryAcquireToken("hmrc-live", limits, () => now);
+
+    expect(result.acquired).toBe(true);
+    const update = mockSend.mock.calls[1][0].input;
+    expect(update.ConditionExpression).toBe("#version = :previousVersion");
+    expect(update.ExpressionAttributeNames).toEqual({ "#version": "version" });
+    expect(update.ExpressionAttributeValues[":previousVersion"]).toBe(7);
+    expect(update.ExpressionAttributeValues[":version"]).toBe(8);
+    expect(update.ExpressionAttributeValues[":tokens"]).toBe(2);
+  });
+
+  test("tryAcquireToken claims a bucket written before versioning with the first versioned write", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    mockSend.mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 1, updatedAt: now - 1000 } }).mockResolvedValueOnce({});
+
+    await tryAcquireToken("hmrc-live", limits, () => now);
+
+    const update = mockSend.mock.calls[1][0].input;
+    expect(update.ConditionExpression).toBe("attribute_not_exists(#version)");
+    expect(update.ExpressionAttributeValues[":version"]).toBe(1);
+  });
+
+  test("tryAcquireToken never writes an updatedAt older than the one it read", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    mockSend
+      .mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 2, updatedAt: now + 50, version: 1 } })
+      .mockResolvedValueOnce({});
+
+    await tryAcquireToken("hmrc-live", limits, () => now);
+
+    expect(mockSend.mock.calls[1][0].input.ExpressionAttributeValues[":now"]).toBe(now + 50);
+  });
+
+  test("tryAcquireToken reports the wait without writing when the bucket is empty", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    mockSend.mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 0, updatedAt: now - 100 } });
+
+    const result = await tryAcquireToken("hmrc-live", limits, () => now);
+
+    expect(result.acquired).toBe(false);
+    expect(result.waitMs).toBe(234);
+    expect(mockSend).toHaveBeenCalledTimes(1);
+  });
+
+  test("tryAcquireToken leaves the reserve in the bucket for high priority callers", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    mockSend.mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 1.5, updatedAt: now } });
+
+    const result = await tryAcquireToken("hmrc-live", { ...limits, reserve: 1 }, () => now);
+
+    expect(result.acquired).toBe(false);
+    expect(result.waitMs).toBe(167);
+    expect(mockSend).toHaveBeenCalledTimes(1);
+  });
+
+  test("tryAcquireToken re-reads the bucket after a concurrent update", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    const conditionalFailure = Object.assign(new Error("conditional"), { name: "ConditionalCheckFailedException" });
+    mockSend
+      .mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 1, updatedAt: now, version: 3 } })
+      .mockRejectedValueOnce(conditionalFailure)
+      .mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 0, updatedAt: now, version: 4 } });
+
+    const result = await tryAcquireToken("hmrc-live", limits, () => now);
+
+    expect(result.acquired).toBe(false);
+    expect(mockSend).toHaveBeenCalledTimes(3);
+  });
+
+  test("tryAcquireToken reads the clock again on each attempt", async () => {
+    const { tryAcquireToken } = await import("../../../app/data/dynamoDbHmrcRateLimitRepository.js");
+    const conditionalFailure = Object.assign(new Error("conditional"), { name: "ConditionalCheckFailedException" });
+    const clock = vi.fn().mockReturnValueOnce(now).mockReturnValueOnce(now + 20);
+    mockSend
+      .mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 1, updatedAt: now - 10, version: 3 } })
+      .mockRejectedValueOnce(conditionalFailure)
+      .mockResolvedValueOnce({ Item: { bucketId: "hmrc-live", tokens: 1, updatedAt: now + 10, version: 4 } })
+      .mockResolvedValueOnce({});
+
+    const result = await tryAcquireToken("hmrc-live", limits, clock);
+
+    expect(result.acquired).toBe(true);
+    expect(clock).toHaveBeenCalledTimes(2);
+    const retry = mockSend.mock.calls[3][0].input;
+    expect(retry.ExpressionAttributeValues[":now"]).toBe(now + 20);
+    expect(retry.ExpressionAttributeValues[":previousVersion"]).toBe(4);
+  });
+});
@@ -0,0 +1,82 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+import { describe, test, expect } from "vitest";
+import { readFileSync } from "fs";
+
+// CloudFront Functions are plain scripts with a top level handler, so load the source as the runtime does
+const source = readFileSync(new URL("../../functions/edge/govClientViewerHeaders.js", import.meta.url), "utf-8");
+// eslint-disable-next-line no-new-func
+const handler = new Function(`${source}; return handler;`)();
+
+function buildViewerRequestEvent({ ip = "198.51.100.1", headers = {} } = {}) {
+  return {
+    version: "1.0",
+    context: { eventType: "viewer-request" },
+    viewer: { ip },
+    request: { method: "POST", uri: "/api/v1/hmrc/vat/return", querystring: {}, headers, cookies: {} },
+  };
+}
+
+describe("govClientViewerHeaders", () => {
+  test("sets the edge public IP and port from the viewer connection", () => {
+    const event = buildViewerRequestEvent({
+      headers: { "cloudfront-viewer-address": { value: "198.51.100.1:54321" } },
+    });
+
+    const request = handler(event);
+
+    expect(request.headers["x-edge-gov-client-public-ip"].value).toBe("198.51.100.1");
+    expect(request.headers["x-edge-gov-client-public-port"].value).toBe("54321");
+  });
+
+  test("extracts the port from an IPv6 viewer address", () => {
+    const event = buildViewerRequestEvent({
+      ip: "2001:db8::1",
+      headers: { "cloudfront-viewer-address": { value: "2001:db8::1:54321" } },
+    });
+
+    const request = handler(event);
+
+    expect(request.headers["x-edge-gov-client-public-ip"].value).toBe("2001:db8::1");
+    expect(request.headers["x-edge-gov-client-public-port"].value).toBe("54321");
+  });
+
+  test("overwrites viewer supplied edge headers", () => {
+    const event = buildViewerRequestEvent({
+      headers: {
+        "x-edge-gov-client-public-ip": { value: "203.0.113.99" },
+        "x-edge-gov-client-public-port": { value: "1" },
+      },
+    });
+
+    const request = handler(event);
+
+    expect(request.headers["x-edge-gov-client-public-ip"].value).toBe("198.51.100.1");
+    expect(request.headers["x-edge-gov-client-public-port"]).toBeUndefined();
+  });
+
+  test("forwards only allow-listed and Gov-* headers", () => {
+    const event = buildViewerRequestEvent({
+      headers: {
+        "authorization": { value: "Bearer hmrc" },
+        "x-authorization": { value: "Bearer cognito" },
+        "gov-client-screens": { value: "width=1920&height=1080" },
+        "gov-test-scenario": { value: "QUARTERLY_NONE_MET" },
+        "accept-language": { value: "en-GB" },
+        "sec-ch-ua": { value: "\"Chromium\";v=\"130\"" },
+        "cookie": { value: "session=abc" },
+      },
+    });
+
+    const request = handler(event);
+
+    expect(Object.keys(request.headers).sort()).toEqual([
+      "authorization",
+      "gov-client-screens",
+      "gov-test-scenario",
+      "x-authorization",
+      "x-edge-gov-client-public-ip",
+    ]);
+  });
+});
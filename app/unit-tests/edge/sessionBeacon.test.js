@@ -0,0 +1,46 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+import { describe, test, expect } from "vitest";
+import { readFileSync } from "fs";
+
+// CloudFront Functions are plain scripts with a top level handler, so load the source as the runtime does
+const source = readFileSync(new URL("../../functions/edge/sessionBeacon.js", import.meta.url), "utf-8");
+// eslint-disable-next-line no-new-func
+const handler = new Function(`${source}; return handler;`)();
+
+function buildViewerRequestEvent({ method = "GET", page = "%2Fbundles.html", userAgent = "Mozilla/5.0 (X11; Linux x86_64)" } = {}) {
+  return {
+    version: "1.0",
+    context: { eventType: "viewer-request" },
+    viewer: { ip: "198.51.100.1" },
+    request: {
+      method,
+      uri: "/api/session/beacon",
+      querystring: page === undefined ? {} : { page: { value: page } },
+      headers: { "user-agent": { value: userAgent } },
+      cookies: {},
+    },
+  };
+}
+
+describe("sessionBeacon", () => {
+  test("records a beacon with a 204 answered at the edge", () => {
+    const response = handler(buildViewerRequestEvent());
+
+    expect(response.statusCode).toBe(204);
+    expect(response.headers["cache-control"].value).toBe("no-store");
+  });
+
+  test("accepts crawler beacons without recording them", () => {
+    expect(handler(buildViewerRequestEvent({ userAgent: "Mozilla/5.0 (compatible; Googlebot/2.1)" })).statusCode).toBe(200);
+  });
+
+  test("rejects requests that are not beacons", () => {
+    expect(handler(buildViewerRequestEvent({ method: "POST" })).statusCode).toBe(400);
+    expect(handler(buildViewerRequestEvent({ page: undefined })).statusCode).toBe(400);
+    expect(handler(buildViewerRequestEvent({ page: "https%3A%2F%2Fexample.com" })).statusCode).toBe(400);
+    expect(handler(buildViewerRequestEvent({ page: "%E0%A4%A" })).statusCode).toBe(400);
+    expect(handler(buildViewerRequestEvent({ page: `/${"a".repeat(200)}` })).statusCode).toBe(400);
+  });
+});
@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+import { describe, test, expect, vi, beforeEach, afterEach } from "vitest";
+import { chunk, toPutEventsEntry, handler } from "@app/functions/ops/activityBatchForwarder.js";
+
+function record(messageId, detail = { event: "login" }) {
+  return {
+    messageId,
+    body: JSON.stringify({
+      EventBusName: "publisher-bus",
+      Source: "diy.submit",
+      DetailType: "ActivityEvent",
+      Detail: JSON.stringify(detail),
+    }),
+  };
+}
+
+function records(count) {
+  return Array.from({ length: count }, (_, i) => record(`m-${i}`));
+}
+
+describe("activityBatchForwarder", () => {
+  const originalBusName = process.env.ACTIVITY_TARGET_BUS_NAME;
+
+  beforeEach(() => {
+    process.env.ACTIVITY_TARGET_BUS_NAME = "ci-env-activity-bus";
+  });
+
+  afterEach(() => {
+    if (originalBusName === undefined) {
+      delete process.env.ACTIVITY_TARGET_BUS_NAME;
+    } else {
+      process.env.ACTIVITY_TARGET_BUS_NAME = originalBusName;
+    }
+  });
+
+  test("chunk splits into consecutive batches of at most the given size", () => {
+    expect(chunk([1, 2, 3, 4, 5], 2)).toEqual([[1, 2], [3, 4], [5]]);
+    expect(chunk([], 10)).toEqual([]);
+  });
+
+  test("toPutEventsEntry targets the forwarder's bus and rejects unreadable bodies", () => {
+    expect(toPutEventsEntry(record("m-1"), "ci-env-activity-bus")).toMatchObject({
+      EventBusName: "ci-env-activity-bus",
+      Source: "diy.submit",
+      DetailType: "ActivityEvent",
+    });
+    expect(toPutEventsEntry({ body: "not json" }, "bus")).toBeNull();
+    expect(toPutEventsEntry({ body: JSON.stringify({ Source: "diy.submit" }) }, "bus")).toBeNull();
+  });
+
+  test("puts 25 buffered events in 3 PutEvents calls of at most 10 entries", async () => {
+    const eventsApi = { putEvents: vi.fn(async (entries) => ({ FailedEntryCount: 0, Entries: entries.map(() => ({})) })) };
+
+    await expect(handler({ Records: records(25) }, {}, eventsApi)).resolves.toEqual({ batchItemFailures: [] });
+    expect(eventsApi.putEvents.mock.calls.map((call) => call[0].length)).toEqual([10, 10, 5]);
+    expect(eventsApi.putEvents.mock.calls[0][0][0].EventBusName).toBe("ci-env-activity-bus");
+  });
+
+  test("reports entries EventBridge rejected as batch item failures", async () => {
+    const eventsApi = {
+      putEvents: vi.fn(async () => ({
+        FailedEntryCount: 1,
+        Entries: [{ EventId: "e-0" }, { ErrorCode: "ThrottlingException" }, { EventId: "e-2" }],
+      })),
+    };
+
+    await expect(handler({ Records: records(3) }, {}, eventsApi)).resolves.toEqual({
+      batchItemFailures: [{ itemIdentifier: "m-1" }],
+    });
+  });
+
+  test("reports every message in a batch whose PutEvents call failed", async () => {
+    const eventsApi = {
+      putEvents: vi
+        .fn()
+        .mockResolvedValueOnce({ FailedEntryCount: 0, Entries: Array.from({ length: 10 }, () => ({})) })
+        .mockRejectedValueOnce(new Error("AWS error")),
+    };
+
+    const result = await handler({ Records: records(12) }, {}, eventsApi);
+
+    expect(result.batchItemFailures).toEqual([{ itemIdentifier: "m-10" }, { itemIdentifier: "m-11" }]);
+  });
+
+  test("drops unreadable messages without retrying them", async () => {
+    const eventsApi = { putEvents: vi.fn(async (entries) => ({ FailedEntryCount: 0, Entries: entries.map(() => ({})) })) };
+
+    const result = await handler({ Records: [{ messageId: "bad", body: "{" }, record("m-1")] }, {}, eventsApi);
+
+    expect(result).toEqual({ batchItemFailures: [] });
+    expect(eventsApi.putEvents).toHaveBeenCalledTimes(1);
+    expect(eventsApi.putEvents.mock.calls[0][0]).toHaveLength(1);
+  });
+});
@@ -0,0 +1,155 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+import { describe, test, expect, vi, afterEach } from "vitest";
+import {
+  REALTIME_LOG_FIELDS,
+  parseRealtimeLogLine,
+  percentile,
+  summariseRealtimeLogs,
+  buildMetricDocuments,
+  summariseSessionBeacons,
+  buildSessionBeaconDocuments,
+  handler,
+} from "@app/functions/ops/distributionRealtimeLogMetrics.js";
+import { realtimeLogSamples, sessionBeaconLogSamples, malformedRealtimeLogSample } from "@app/test-helpers/cloudFrontRealtimeLogSamples.js";
+
+const toFirehoseRecord = (line, index) => ({
+  recordId: `record-${index}`,
+  data: Buffer.from(`${line}\n`, "utf-8").toString("base64"),
+});
+
+describe("distributionRealtimeLogMetrics", () => {
+  afterEach(() => {
+    vi.restoreAllMocks();
+  });
+
+  describe("parseRealtimeLogLine", () => {
+    test("maps every configured field to an underscore column", () => {
+      const record = parseRealtimeLogLine(realtimeLogSamples[2]);
+
+      expect(Object.keys(record)).toEqual(REALTIME_LOG_FIELDS.map((f) => f.replace(/-/g, "_")));
+      expect(record.cs_uri_stem).toBe("/lib/main.js");
+      expect(record.sc_status).toBe(200);
+      expect(record.time_taken).toBe(0.052);
+      expect(record.origin_fbl).toBe(0.038);
+    });
+
+    test("converts '-' to null", () => {
+      const record = parseRealtimeLogLine(realtimeLogSamples[0]);
+
+      expect(record.origin_fbl).toBeNull();
+      expect(record.origin_lbl).toBeNull();
+    });
+
+    test("rejects lines with an unexpected field count", () => {
+      expect(parseRealtimeLogLine(malformedRealtimeLogSample)).toBeNull();
+      expect(parseRealtimeLogLine("")).toBeNull();
+    });
+  });
+
+  describe("percentile", () => {
+    test("uses nearest rank", () => {
+      const values = [5, 1, 4, 2, 3, 6, 7, 8, 9, 10];
+      expect(percentile(values, 50)).toBe(5);
+      expect(percentile(values, 95)).toBe(10);
+      expect(percentile(values, 99)).toBe(10);
+      expect(percentile([], 50)).toBeNull();
+    });
+  });
+
+  describe("summariseRealtimeLogs", () => {
+    const summary = summariseRealtimeLogs(realtimeLogSamples.map(parseRealtimeLogLine));
+
+    test("groups by cache behaviour", () => {
+      expect(Object.keys(summary).sort()).toEqual(["*", "/api/v1/*", "/api/v1/hmrc/*"]);
+    });
+
+    test("computes cache hit ratio counting Hit and RefreshHit", () => {
+      expect(summary["*"].requests).toBe(4);
+      expect(summary["*"].cacheHits).toBe(3);
+      expect(summary["*"].cacheHitRatio).toBe(0.75);
+      expect(summary["/api/v1/*"].cacheHitRatio).toBe(0);
+    });
+
+    test("computes time-taken and origin-fbl percentiles", () => {
+      expect(summary["/api/v1/hmrc/*"].timeTaken).toEqual({ p50: 1.209, p95: 30.001, p99: 30.001 });
+      // origin-fbl is absent for the origin error so only two samples contribute
+      expect(summary["/api/v1/hmrc/*"].originFbl).toEqual({ p50: 0.305, p95: 1.199, p99: 1.199 });
+    });
+  });
+
+  describe("buildMetricDocuments", () => {
+    test("publishes counts and millisecond value arrays per behaviour", () => {
+      const summary = summariseRealtimeLogs(realtimeLogSamples.map(parseRealtimeLogLine));
+      const documents = buildMetricDocuments(summary, "ci-test").filter((d) => d.cacheBehavior === "/api/v1/*");
+
+      expect(documents).toHaveLength(2);
+      expect(documents[0]).toMatchObject({ deploymentName: "ci-test", Requests: 2, CacheHits: 0, CacheHitRatio: 0 });
+      expect(documents[1].TimeTaken).toEqual([121, 96]);
+      expect(documents[1].OriginFirstByteLatency).toEqual([112, 90]);
+      expect(documents[1]._aws.CloudWatchMetrics[0].Metrics.map((m) => m.Name)).toEqual(["TimeTaken", "OriginFirstByteLatency"]);
+    });
+
+    test("chunks value arrays to the EMF limit", () => {
+      const records = Array.from({ length: 250 }, () => parseRealtimeLogLine(realtimeLogSamples[4]));
+      const documents = buildMetricDocuments(summariseRealtimeLogs(records), "ci-test");
+
+      expect(documents).toHaveLength(4);
+      expect(documents.slice(1).map((d) => d.TimeTaken.length)).toEqual([100, 100, 50]);
+    });
+  });
+
+  describe("summariseSessionBeacons", () => {
+    test("counts recorded beacons per visitor type and ignores other requests", () => {
+      const records = [...realtimeLogSamples, ...sessionBeaconLogSamples].map(parseRealtimeLogLine);
+
+      expect(summariseSessionBeacons(records)).toEqual({ human: 1, "ai-agent": 1 });
+    });
+
+    test("publishes NewSessions per visitor type", () => {
+      const documents = buildSessionBeaconDocuments({ human: 3 }, "ci-test");
+
+      expect(documents).toHaveLength(1);
+      expect(documents[0]).toMatchObject({ deploymentName: "ci-test", visitorType: "human", NewSessions: 3 });
+      expect(documents[0]._aws.CloudWatchMetrics[0].Namespace).toBe("Submit/SessionBeacon");
+    });
+  });
+
+  describe("handler", () => {
+    test("returns JSON records for Firehose and marks malformed lines as failed", async () => {
+      vi.spyOn(console, "log").mockImplementation(() => {});
+      const event = { records: [...realtimeLogSamples, malformedRealtimeLogSample].map(toFirehoseRecord) };
+
+      const result = await handler(event);
+
+      expect(result.records).toHaveLength(realtimeLogSamples.length + 1);
+      expect(result.records.filter((r) => r.result === "Ok")).toHaveLength(realtimeLogSamples.length);
+      const failed = result.records.find((r) => r.result === "ProcessingFailed");
+      expect(failed.recordId).toBe(`record-${realtimeLogSamples.length}`);
+      const first = JSON.parse(Buffer.from(result.records[0].data, "base64").toString("utf-8"));
+      expect(first.cs_uri_stem).toBe("/index.html");
+    });
+
+    test("emits EMF documents for the batch", async () => {
+      const log = vi.spyOn(console, "log").mockImplementation(() => {});
+
+      await handler({ records: realtimeLogSamples.map(toFirehoseRecord) });
+
+      const emf = log.mock.calls.map(([line]) => JSON.parse(line)).filter((d) => d._aws);
+      expect(emf.some((d) => d.cacheBehavior === "/api/v1/hmrc/*" && d.Requests === 3)).toBe(true);
+    });
+
+    test("emits session beacon counts for the batch", async () => {
+      const log = vi.spyOn(console, "log").mockImplementation(() => {});
+
+      await handler({ records: sessionBeaconLogSamples.map(toFirehoseRecord) });
+
+      const emf = log.mock.calls.map(([line]) => JSON.parse(line)).filter((d) => d._aws);
+      expect(emf.filter((d) => d.NewSessions).map((d) => [d.visitorType, d.NewSessions])).toEqual([
+        ["human", 1],
+        ["ai-agent", 1],
+      ]);
+    });
+  });
+});
@@ -0,0 +1,105 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+import { describe, test, expect, vi, beforeEach, afterEach } from "vitest";
+import { backoffDelayMs, nextRedriveAt, handler } from "@app/functions/ops/dlqRedrive.js";
+
+const minute = 60 * 1000;
+const now = 1_760_000_000_000;
+
+const event = {
+  deadLetterQueueArn: "arn:aws:sqs:eu-west-2:000000000000:ci-submit-hmrc-vat-return-post-dlq",
+  deadLetterQueueUrl: "https://sqs.eu-west-2.amazonaws.com/000000000000/ci-submit-hmrc-vat-return-post-dlq",
+  maxMessagesPerSecond: 2,
+  intervalSeconds: 900,
+  circuitBreakerWorkerAliasArn: "arn:aws:lambda:eu-west-2:000000000000:function:ci-submit-hmrc-vat-return-post-worker:zero",
+};
+
+function fakeAwsApi({ depth = 0, tasks = [], circuitOpen = false } = {}) {
+  return {
+    approximateDepth: vi.fn(async () => depth),
+    listMoveTasks: vi.fn(async () => tasks),
+    startMoveTask: vi.fn(async () => ({ TaskHandle: "task-1" })),
+    circuitOpen: vi.fn(async () => circuitOpen),
+  };
+}
+
+describe("dlqRedrive", () => {
+  beforeEach(() => {
+    vi.useFakeTimers();
+    vi.setSystemTime(now);
+    vi.spyOn(console, "log").mockImplementation(() => {});
+  });
+
+  afterEach(() => {
+    vi.useRealTimers();
+    vi.restoreAllMocks();
+  });
+
+  test("backoffDelayMs doubles per recent redrive and is capped", () => {
+    expect(backoffDelayMs(0, 15 * minute)).toBe(0);
+    expect(backoffDelayMs(1, 15 * minute)).toBe(15 * minute);
+    expect(backoffDelayMs(3, 15 * minute)).toBe(60 * minute);
+    expect(backoffDelayMs(20, 15 * minute)).toBe(360 * minute);
+  });
+
+  test("nextRedriveAt ignores redrives older than a day", () => {
+    const tasks = [
+      { StartedTimestamp: now - 20 * minute, Status: "COMPLETED" },
+      { StartedTimestamp: now - 50 * minute, Status: "COMPLETED" },
+      { StartedTimestamp: now - 2 * 24 * 60 * minute, Status: "COMPLETED" },
+    ];
+
+    expect(nextRedriveAt([], now, 15 * minute)).toBe(now);
+    expect(nextRedriveAt(tasks, now, 15 * minute)).toBe(now + 10 * minute);
+  });
+
+  test("starts a move task at the configured velocity when the DLQ has messages", async () => {
+    const awsApi = fakeAwsApi({ depth: 12 });
+
+    await expect(handler(event, {}, awsApi)).resolves.toEqual({ action: "started" });
+    expect(awsApi.startMoveTask).toHaveBeenCalledWith(event.deadLetterQueueArn, 2);
+    expect(awsApi.circuitOpen).toHaveBeenCalledWith(event.circuitBreakerWorkerAliasArn);
+  });
+
+  test("does nothing when the DLQ is empty", async () => {
+    const awsApi = fakeAwsApi({ depth: 0 });
+
+    await expect(handler(event, {}, awsApi)).resolves.toEqual({ action: "empty" });
+    expect(awsApi.startMoveTask).not.toHaveBeenCalled();
+  });
+
+  test("reports progress and does not start a second task while one is running", async () => {
+    const awsApi = fakeAwsApi({
+      depth: 5,
+      tasks: [
+        { Status: "RUNNING", StartedTimestamp: now - minute, ApproximateNumberOfMessagesMoved: 7, ApproximateNumberOfMessagesToMove: 12 },
+      ],
+    });
+
+    await expect(handler(event, {}, awsApi)).resolves.toEqual({ action: "running" });
+    expect(awsApi.startMoveTask).not.toHaveBeenCalled();
+    const emf = JSON.parse(console.log.mock.calls.find((call) => String(call[0]).includes("Submit/DlqRedrive"))[0]);
+    expect(emf).toMatchObject({ MessagesMoved: 7, MessagesToMove: 12, DlqDepth: 5 });
+  });
+
+  test("waits while the worker's circuit breaker has its event source mappings open", async () => {
+    const awsApi = fakeAwsApi({ depth: 5, circuitOpen: true });
+
+    await expect(handler(event, {}, awsApi)).resolves.toEqual({ action: "unhealthy" });
+    expect(awsApi.startMoveTask).not.toHaveBeenCalled();
+  });
+
+  test("backs off when messages keep returning to the DLQ", async () => {
+    const awsApi = fakeAwsApi({
+      depth: 5,
+      tasks: [
+        { Status: "COMPLETED", StartedTimestamp: now - 20 * minute },
+        { Status: "COMPLETED", StartedTimestamp: now - 40 * minute },
+      ],
+    });
+
+    await expect(handler(event, {}, awsApi)).resolves.toEqual({ action: "backoff" });
+    expect(awsApi.startMoveTask).not.toHaveBeenCalled();
+  });
+});
@@ -0,0 +1,148 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+import { describe, test, expect, vi, beforeEach, afterEach } from "vitest";
+import { workerForAlarm, probeHmrc, isCircuitOpen, handler } from "@app/functions/ops/hmrcCircuitBreaker.js";
+
+const postWorkerArn = "arn:aws:lambda:eu-west-2:000000000000:function:ci-submit-hmrc-vat-return-post-worker:zero";
+const getWorkerArn = "arn:aws:lambda:eu-west-2:000000000000:function:ci-submit-hmrc-vat-return-get-worker:zero";
+
+function fakeLambdaApi(mappingsByArn, tagsByMappingArn = {}) {
+  return {
+    listEventSourceMappings: vi.fn(async (aliasArn) => mappingsByArn[aliasArn] || []),
+    setEnabled: vi.fn(async () => ({})),
+    listTags: vi.fn(async (arn) => tagsByMappingArn[arn] || {}),
+    tag: vi.fn(async () => ({})),
+    untag: vi.fn(async () => ({})),
+  };
+}
+
+const alarmEvent = (alarmName, value = "ALARM") => ({
+  "detail-type": "CloudWatch Alarm State Change",
+  "source": "aws.cloudwatch",
+  "detail": { alarmName, state: { value } },
+});
+
+const scheduledEvent = { "detail-type": "Scheduled Event", "source": "aws.events" };
+
+describe("hmrcCircuitBreaker", () => {
+  const originalEnv = process.env;
+
+  beforeEach(() => {
+    process.env = { ...originalEnv };
+    process.env.CIRCUIT_BREAKER_WORKER_ALIAS_ARNS = `${postWorkerArn},${getWorkerArn}`;
+    process.env.HMRC_BASE_URI = "https://api.service.hmrc.gov.uk";
+    process.env.HMRC_SANDBOX_BASE_URI = "https://test-api.service.hmrc.gov.uk";
+    vi.spyOn(console, "log").mockImplementation(() => {});
+  });
+
+  afterEach(() => {
+    process.env = originalEnv;
+    vi.restoreAllMocks();
+    vi.unstubAllGlobals();
+  });
+
+  test("workerForAlarm matches the worker by function name and ignores other alarms", () => {
+    const arns = [postWorkerArn, getWorkerArn];
+
+    expect(workerForAlarm("ci-submit-hmrc-vat-return-get-worker-circuit-breaker", arns)).toBe(getWorkerArn);
+    expect(workerForAlarm("ci-submit-hmrc-vat-return-get-worker-errors", arns)).toBeNull();
+    expect(workerForAlarm("other-worker-circuit-breaker", arns)).toBeNull();
+  });
+
+  test("opens the circuit by tagging and disabling the worker's enabled mappings", async () => {
+    const lambdaApi = fakeLambdaApi({
+      [postWorkerArn]: [
+        { UUID: "normal", State: "Enabled", EventSourceMappingArn: "esm-normal" },
+        { UUID: "high", State: "Enabled", EventSourceMappingArn: "esm-high" },
+        { UUID: "paused", State: "Disabled", EventSourceMappingArn: "esm-paused" },
+      ],
+    });
+
+    const result = await handler(alarmEvent("ci-submit-hmrc-vat-return-post-worker-circuit-breaker"), {}, lambdaApi);
+
+    expect(result).toEqual({ opened: 2 });
+    expect(lambdaApi.setEnabled.mock.calls).toEqual([
+      ["normal", false],
+      ["high", false],
+    ]);
+    expect(lambdaApi.tag.mock.calls.map((call) => call[0])).toEqual(["esm-normal", "esm-high"]);
+  });
+
+  test("ignores alarms returning to OK", async () => {
+    const lambdaApi = fakeLambdaApi({ [postWorkerArn]: [{ UUID: "normal", State: "Enabled" }] });
+
+    const result = await handler(alarmEvent("ci-submit-hmrc-vat-return-post-worker-circuit-breaker", "OK"), {}, lambdaApi);
+
+    expect(result).toEqual({ opened: 0 });
+    expect(lambdaApi.setEnabled).not.toHaveBeenCalled();
+  });
+
+  test("closes only breaker-opened mappings once every probe succeeds", async () => {
+    const fetchMock = vi.fn(async () => ({ status: 200 }));
+    vi.stubGlobal("fetch", fetchMock);
+    const lambdaApi = fakeLambdaApi(
+      {
+        [postWorkerArn]: [
+          { UUID: "normal", State: "Disabled", EventSourceMappingArn: "esm-normal" },
+          { UUID: "paused", State: "Disabled", EventSourceMappingArn: "esm-paused" },
+        ],
+        [getWorkerArn]: [{ UUID: "get", State: "Disabled", EventSourceMappingArn: "esm-get" }],
+      },
+      { "esm-normal": { "circuit-breaker": "open" }, "esm-get": { "circuit-breaker": "open" } },
+    );
+
+    const result = await handler(scheduledEvent, {}, lambdaApi);
+
+    expect(result).toEqual({ closed: 2 });
+    expect(lambdaApi.setEnabled.mock.calls).toEqual([
+      ["normal", true],
+      ["get", true],
+    ]);
+    expect(lambdaApi.untag.mock.calls.map((call) => call[0])).toEqual(["esm-normal", "esm-get"]);
+    // One set of probes of each HMRC API shared by both workers
+    expect(fetchMock).toHaveBeenCalledTimes(6);
+    expect(fetchMock.mock.calls[0][0]).toBe("https://api.service.hmrc.gov.uk/hello/world");
+    expect(fetchMock.mock.calls[3][0]).toBe("https://test-api.service.hmrc.gov.uk/hello/world");
+  });
+
+  test("keeps the circuit open while HMRC probes fail", async () => {
+    vi.stubGlobal("fetch", vi.fn(async () => ({ status: 503 })));
+    const lambdaApi = fakeLambdaApi(
+      { [postWorkerArn]: [{ UUID: "normal", State: "Disabled", EventSourceMappingArn: "esm-normal" }] },
+      { "esm-normal": { "circuit-breaker": "open" } },
+    );
+
+    const result = await handler(scheduledEvent, {}, lambdaApi);
+
+    expect(result).toEqual({ closed: 0 });
+    expect(lambdaApi.setEnabled).not.toHaveBeenCalled();
+  });
+
+  test("isCircuitOpen is true only while the breaker holds a mapping disabled", async () => {
+    const mappings = { [postWorkerArn]: [{ UUID: "normal", State: "Disabled", EventSourceMappingArn: "esm-normal" }] };
+    const openedByBreaker = fakeLambdaApi(mappings, { "esm-normal": { "circuit-breaker": "open" } });
+    const pausedByHand = fakeLambdaApi(mappings);
+
+    await expect(isCircuitOpen(postWorkerArn, openedByBreaker)).resolves.toBe(true);
+    await expect(isCircuitOpen(postWorkerArn, pausedByHand)).resolves.toBe(false);
+  });
+
+  test("probeHmrc stops at the first failed probe and treats network errors as failures", async () => {
+    const fetchFn = vi.fn().mockResolvedValueOnce({ status: 200 }).mockRejectedValueOnce(new Error("ECONNRESET"));
+
+    await expect(probeHmrc({ fetchFn, count: 3 })).resolves.toBe(false);
+    expect(fetchFn).toHaveBeenCalledTimes(2);
+  });
+
+  test("probeHmrc probes both the live and the sandbox HMRC APIs the workers call", async () => {
+    const fetchFn = vi.fn(async (url) => ({ status: url.startsWith("https://test-api.") ? 500 : 200 }));
+
+    await expect(probeHmrc({ fetchFn, count: 2 })).resolves.toBe(false);
+    expect(fetchFn.mock.calls.map(([url]) => url)).toEqual([
+      "https://api.service.hmrc.gov.uk/hello/world",
+      "https://api.service.hmrc.gov.uk/hello/world",
+      "https://test-api.service.hmrc.gov.uk/hello/world",
+    ]);
+  });
+});
@@ -4,7 +4,7 @@
 // app/unit-tests/functions/hmrcVatReturnPost.test.js
 // NOTE: Test data in this file (test-token, test-client-id, etc.) are not real credentials
 
-import { describe, test, beforeEach, expect, vi } from "vitest";
+import { describe, test, beforeEach, afterEach, expect, vi } from "vitest";
 import { dotenvConfigIfNotBlank } from "@app/lib/env.js";
 import { buildHmrcEvent } from "@app/test-helpers/eventBuilders.js";
 import { setupTestEnv, parseResponseBody, setupFetchMock, mockHmrcSuccess, mockHmrcError } from "@app/test-helpers/mockHelpers.js";
@@ -40,19 +40,42 @@ vi.mock("@aws-sdk/client-sqs", () => {
   return { SQSClient, SendMessageCommand };
 });
 
+const mockSfnSend = vi.fn();
+vi.mock("@aws-sdk/client-sfn", () => {
+  class SFNClient {
+    constructor(_config) {}
+    send(cmd) {
+      return mockSfnSend(cmd);
+    }
+  }
+  class StartSyncExecutionCommand {
+    constructor(input) {
+      this.input = input;
+    }
+  }
+  return { SFNClient, StartSyncExecutionCommand };
+});
+
 // Mock getVatObligations to return obligations for period key resolution
 const mockGetVatObligations = vi.fn();
 vi.mock("@app/functions/hmrc/hmrcVatObligationGet.js", () => ({
   getVatObligations: (...args) => mockGetVatObligations(...args),
 }));
 
+// Spy on the audit flush, keeping the real repository for everything else
+const mockFlushHmrcApiRequests = vi.fn();
+vi.mock("@app/data/dynamoDbHmrcApiRequestRepository.js", async (importOriginal) => ({
+  ...(await importOriginal()),
+  flushHmrcApiRequests: (...args) => mockFlushHmrcApiRequests(...args),
+}));
+
 // Mock token enforcement to always allow submissions in unit tests
 vi.mock("@app/services/tokenEnforcement.js", () => ({
   consumeTokenForActivity: vi.fn().mockResolvedValue({ consumed: true, tokensRemaining: 2, cost: 1 }),
 }));
 
 // Defer importing the ingestHandlers until after mocks are defined
-import { ingestHandler as hmrcVatReturnPostHandler } from "@app/functions/hmrc/hmrcVatReturnPost.js";
+import { ingestHandler as hmrcVatReturnPostHandler, stepHandler, HmrcTemporaryError } from "@app/functions/hmrc/hmrcVatReturnPost.js";
 
 dotenvConfigIfNotBlank({ path: ".env.test" });
 
@@ -208,6 +231,17 @@ describe("hmrcVatReturnPost ingestHandler", () => {
     expect(body.message).toContain("No open VAT obligation found");
   });
 
+  test("flushes the obligations lookup's HMRC audit writes when returning early", async () => {
+    mockObligationsNotFound();
+
+    const event = buildHmrcEvent({
+      body: { vatNumber: "111222333", periodStart: TEST_PERIOD_START, periodEnd: TEST_PERIOD_END, vatDue: 100, accessToken: "test-token" },
+    });
+    const response = await hmrcVatReturnPostHandler(event);
+    expect(response.statusCode).toBe(400);
+    expect(mockFlushHmrcApiRequests).toHaveBeenCalledTimes(1);
+  });
+
   test("returns error when obligations API fails", async () => {
     mockObligationsError(500);
 
@@ -303,4 +337,101 @@ describe("hmrcVatReturnPost ingestHandler", () => {
     expect(body.userMessage).toContain("already been submitted");
     expect(body.actionAdvice).toContain("contact HMRC");
   });
+
+  describe("with an Express state machine", () => {
+    const stateMachineArn = "arn:aws:states:eu-west-2:000000000000:stateMachine:test-hmrc-vat-return-post-express";
+    const body = {
+      vatNumber: "111222333",
+      periodStart: TEST_PERIOD_START,
+      periodEnd: TEST_PERIOD_END,
+      vatDue: 100,
+      accessToken: "test-token",
+    };
+
+    beforeEach(() => {
+      process.env.STEP_FUNCTIONS_STATE_MACHINE_ARN = stateMachineArn;
+      mockSqsSend.mockResolvedValue({ MessageId: "m-1" });
+    });
+
+    afterEach(() => {
+      delete process.env.STEP_FUNCTIONS_STATE_MACHINE_ARN;
+    });
+
+    test("queues a timed out execution for the worker instead of answering that it failed", async () => {
+      mockSfnSend.mockResolvedValue({ status: "TIMED_OUT" });
+
+      const response = await hmrcVatReturnPostHandler(
+        buildHmrcEvent({ body, headers: { "x-wait-time-ms": "1", "x-initial-request": "true" } }),
+      );
+
+      expect(mockSfnSend).toHaveBeenCalledTimes(1);
+      expect(mockSqsSend).toHaveBeenCalledTimes(1);
+      expect(response.statusCode).toBe(202);
+    });
+
+    test("goes straight to the queue when the client asks not to wait", async () => {
+      const response = await hmrcVatReturnPostHandler(
+        buildHmrcEvent({ body, headers: { "x-wait-time-ms": "0", "x-initial-request": "true" } }),
+      );
+
+      expect(mockSfnSend).not.toHaveBeenCalled();
+      expect(mockSqsSend).toHaveBeenCalledTimes(1);
+      expect(response.statusCode).toBe(202);
+    });
+  });
+});
+
+describe("hmrcVatReturnPost stepHandler (Express state machine)", () => {
+  const request = {
+    userId: "test-sub",
+    requestId: "req-express-1",
+    enqueuedAt: Date.now(),
+    payload: {
+      periodKey: TEST_PERIOD_KEY,
+      vatReturnData: { periodKey: TEST_PERIOD_KEY, vatDueSales: 100 },
+      vatNumber: "111222333",
+      hmrcAccount: "sandbox",
+      hmrcAccessToken: "test-token",
+      govClientHeaders: {},
+      userSub: "test-sub",
+      requestId: "req-express-1",
+    },
+  };
+
+  beforeEach(() => {
+    Object.assign(process.env, setupTestEnv());
+    vi.clearAllMocks();
+    mockSend.mockResolvedValue({});
+  });
+
+  test("submit calls HMRC and fixes the receipt id for the parallel steps", async () => {
+    const receipt = { formBundleNumber: "123456789012", processingDate: "2023-01-01T12:00:00.000Z" };
+    mockHmrcSuccess(mockFetch, receipt);
+
+    const { result, timings } = await stepHandler({ step: "submit", request });
+
+    expect(result.hmrcResponse.ok).toBe(true);
+    expect(result.receipt).toEqual(receipt);
+    expect(result.receiptId).toContain(receipt.formBundleNumber);
+    expect(timings).toHaveProperty("hmrcCallStartedAt");
+  });
+
+  test("submit throws HmrcTemporaryError for HMRC 503 so the state machine retries", async () => {
+    mockHmrcError(mockFetch, 503, { code: "SERVER_ERROR" });
+
+    await expect(stepHandler({ step: "submit", request })).rejects.toBeInstanceOf(HmrcTemporaryError);
+  });
+
+  test("receipt stores the receipt under the id chosen by submit", async () => {
+    const submitted = { result: { receipt: { formBundleNumber: "123456789012" }, receiptId: "2023-01-01T12:00:00.000Z-123456789012" } };
+
+    await expect(stepHandler({ step: "receipt", request: { ...request, submitted } })).resolves.toEqual({
+      receiptId: submitted.result.receiptId,
+    });
+    const lib = await import("@aws-sdk/lib-dynamodb");
+    const putCalls = mockSend.mock.calls.filter(
+      (call) => call[0] instanceof lib.PutCommand && call[0].input.TableName === process.env.RECEIPTS_DYNAMODB_TABLE_NAME,
+    );
+    expect(putCalls[0][0].input.Item.receiptId).toBe(submitted.result.receiptId);
+  });
 });
@@ -19,6 +19,20 @@ vi.mock("@aws-sdk/client-eventbridge", () => ({
   },
 }));
 
+const mockSqsSend = vi.fn().mockResolvedValue({});
+vi.mock("@aws-sdk/client-sqs", () => ({
+  SQSClient: class {
+    send(...args) {
+      return mockSqsSend(...args);
+    }
+  },
+  SendMessageCommand: class {
+    constructor(input) {
+      this.input = input;
+    }
+  },
+}));
+
 import { classifyActor, classifyFlow, maskEmail, maskVrn, publishActivityEvent } from "@app/lib/activityAlert.js";
 import { context } from "@app/lib/logger.js";
 
@@ -185,6 +199,58 @@ describe("lib/activityAlert", () => {
       expect(detail.actor).toBe("unknown");
     });
 
+    test("sends the entry to the activity buffer queue when ACTIVITY_QUEUE_URL is set", async () => {
+      process.env.ACTIVITY_BUS_NAME = "test-bus";
+      process.env.ACTIVITY_QUEUE_URL = "https://sqs.eu-west-2.amazonaws.com/000000000000/test-bus-buffer";
+      mockSqsSend.mockClear();
+      try {
+        await publishActivityEvent({ event: "login", summary: "Login" });
+      } finally {
+        delete process.env.ACTIVITY_QUEUE_URL;
+      }
+
+      expect(mockSend).not.toHaveBeenCalled();
+      expect(mockSqsSend).toHaveBeenCalledTimes(1);
+      const { QueueUrl, MessageBody } = mockSqsSend.mock.calls[0][0].input;
+      expect(QueueUrl).toBe("https://sqs.eu-west-2.amazonaws.com/000000000000/test-bus-buffer");
+      const entry = JSON.parse(MessageBody);
+      expect(entry).toMatchObject({ EventBusName: "test-bus", Source: "diy.submit", DetailType: "ActivityEvent" });
+      expect(JSON.parse(entry.Detail).event).toBe("login");
+    });
+
+    test("waits for the activity buffer send before returning, so it is not frozen in flight", async () => {
+      process.env.ACTIVITY_BUS_NAME = "test-bus";
+      process.env.ACTIVITY_QUEUE_URL = "https://sqs.eu-west-2.amazonaws.com/000000000000/test-bus-buffer";
+      mockSqsSend.mockClear();
+      let resolveSend;
+      mockSqsSend.mockImplementationOnce(() => new Promise((resolve) => (resolveSend = resolve)));
+      let settled = false;
+      let published;
+      try {
+        published = publishActivityEvent({ event: "login", summary: "Login" }).then(() => (settled = true));
+        await vi.waitFor(() => expect(mockSqsSend).toHaveBeenCalledTimes(1));
+        expect(settled).toBe(false);
+        resolveSend({});
+        await published;
+      } finally {
+        delete process.env.ACTIVITY_QUEUE_URL;
+      }
+      expect(settled).toBe(true);
+    });
+
+    test("does not throw when the activity buffer send fails", async () => {
+      process.env.ACTIVITY_BUS_NAME = "test-bus";
+      process.env.ACTIVITY_QUEUE_URL = "https://sqs.eu-west-2.amazonaws.com/000000000000/test-bus-buffer";
+      mockSqsSend.mockClear();
+      mockSqsSend.mockRejectedValueOnce(new Error("SQS unavailable"));
+      try {
+        await expect(publishActivityEvent({ event: "login", summary: "Login" })).resolves.toBeUndefined();
+      } finally {
+        delete process.env.ACTIVITY_QUEUE_URL;
+      }
+      expect(mockSqsSend).toHaveBeenCalledTimes(1);
+    });
+
     test("omits requestId from detail when not in context", async () => {
       process.env.ACTIVITY_BUS_NAME = "test-bus";
       await publishActivityEvent({ event: "login", summary: "Login" });
@@ -332,3 +332,48 @@ describe("Gov-Client-Public-Port from CloudFront-Viewer-Address", () => {
     expect(headers["Gov-Client-Public-Port"]).toBeUndefined();
   });
 });
+
+describe("Gov-Client-Public-IP/Port from edge-computed headers", () => {
+  it("should prefer the edge-computed public IP over X-Forwarded-For", () => {
+    const event = {
+      headers: {
+        "x-forwarded-for": "203.0.113.6, 198.51.100.1",
+        "x-edge-gov-client-public-ip": "198.51.100.1",
+      },
+      requestContext: {},
+    };
+
+    const { govClientHeaders: headers } = buildFraudHeaders(event);
+
+    expect(headers["Gov-Client-Public-IP"]).toBe("198.51.100.1");
+  });
+
+  it("should prefer the edge-computed public port over CloudFront-Viewer-Address", () => {
+    const event = {
+      headers: {
+        "x-edge-gov-client-public-ip": "198.51.100.1",
+        "x-edge-gov-client-public-port": "443",
+        "CloudFront-Viewer-Address": "198.51.100.1:54321",
+      },
+      requestContext: {},
+    };
+
+    const { govClientHeaders: headers } = buildFraudHeaders(event);
+
+    expect(headers["Gov-Client-Public-Port"]).toBe("443");
+  });
+
+  it("should fall back to CloudFront-Viewer-Address when the edge port is not numeric", () => {
+    const event = {
+      headers: {
+        "x-edge-gov-client-public-port": "abc",
+        "CloudFront-Viewer-Address": "198.51.100.1:54321",
+      },
+      requestContext: {},
+    };
+
+    const { govClientHeaders: headers } = buildFraudHeaders(event);
+
+    expect(headers["Gov-Client-Public-Port"]).toBe("54321");
+  });
+});
@@ -0,0 +1,152 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/unit-tests/services/asyncApiServices.test.js
+
+import { describe, test, expect, vi, beforeEach, afterEach } from "vitest";
+
+const mockPutAsyncRequest = vi.fn();
+
+vi.mock("@app/data/dynamoDbAsyncRequestRepository.js", () => ({
+  putAsyncRequest: (...args) => mockPutAsyncRequest(...args),
+  getAsyncRequest: vi.fn(),
+}));
+
+import {
+  startWorkerTimings,
+  asyncLatencyMetrics,
+  complete,
+  error,
+  executeStateMachine,
+  isHmrcTemporaryStatus,
+} from "@app/services/asyncApiServices.js";
+
+const now = 1_760_000_010_000;
+
+describe("asyncApiServices latency timings", () => {
+  beforeEach(() => {
+    vi.clearAllMocks();
+    vi.useFakeTimers();
+    vi.setSystemTime(now);
+    vi.spyOn(console, "log").mockImplementation(() => {});
+    mockPutAsyncRequest.mockResolvedValue(undefined);
+  });
+
+  afterEach(() => {
+    vi.useRealTimers();
+    vi.restoreAllMocks();
+  });
+
+  test("startWorkerTimings takes enqueue time from the body and dequeue time from SQS", () => {
+    const record = { attributes: { ApproximateFirstReceiveTimestamp: String(now - 2000) } };
+
+    expect(startWorkerTimings(record, { enqueuedAt: now - 5000 })).toEqual({
+      enqueuedAt: now - 5000,
+      dequeuedAt: now - 2000,
+      workerStartedAt: now,
+    });
+    expect(startWorkerTimings({}, {})).toEqual({ workerStartedAt: now });
+  });
+
+  test("asyncLatencyMetrics reports each stage that has both stamps", () => {
+    const timings = { enqueuedAt: 1000, dequeuedAt: 1500, workerStartedAt: 1600, hmrcCallStartedAt: 1700, completedAt: 2600 };
+
+    expect(asyncLatencyMetrics(timings)).toEqual({ QueueWait: 500, ProcessingTime: 1000, HmrcCallTime: 900, TimeToResult: 1600 });
+    expect(asyncLatencyMetrics({ workerStartedAt: 1600, completedAt: 2600 })).toEqual({ ProcessingTime: 1000 });
+  });
+
+  test("complete stores completedAt with the timings and emits EMF per operation", async () => {
+    const timings = { enqueuedAt: now - 3000, dequeuedAt: now - 2500, workerStartedAt: now - 2400, hmrcCallStartedAt: now - 2000 };
+
+    await complete({
+      asyncRequestsTableName: "async",
+      requestId: "req-1",
+      userSub: "user-1",
+      result: { ok: true },
+      operation: "hmrcVatReturnPost",
+      timings,
+    });
+
+    expect(mockPutAsyncRequest).toHaveBeenCalledWith("user-1", "req-1", "completed", { ok: true }, "async", {
+      ...timings,
+      completedAt: now,
+    });
+    const emf = JSON.parse(console.log.mock.calls.map((call) => String(call[0])).find((line) => line.includes("Submit/AsyncRequests")));
+    expect(emf).toMatchObject({ operation: "hmrcVatReturnPost", outcome: "completed", QueueWait: 500, TimeToResult: 3000 });
+  });
+
+  test("error without timings writes the record as before and emits nothing", async () => {
+    await error({ asyncRequestsTableName: "async", requestId: "req-1", userSub: "user-1", error: new Error("bad request") });
+
+    expect(mockPutAsyncRequest).toHaveBeenCalledWith("user-1", "req-1", "failed", { message: "bad request" }, "async", null);
+    expect(console.log.mock.calls.some((call) => String(call[0]).includes("Submit/AsyncRequests"))).toBe(false);
+  });
+});
+
+describe("asyncApiServices executeStateMachine", () => {
+  const params = {
+    stateMachineArn: "arn:aws:states:eu-west-2:000000000000:stateMachine:ci-app-hmrc-vat-return-post-express",
+    userId: "user-1",
+    requestId: "req-1",
+    payload: { vatNumber: "111222333" },
+    tableName: "async",
+  };
+  const fakeSfnApi = (execution) => ({ startSyncExecution: vi.fn(async () => execution) });
+
+  beforeEach(() => {
+    vi.clearAllMocks();
+    mockPutAsyncRequest.mockResolvedValue(undefined);
+  });
+
+  test("returns the execution output in one round trip", async () => {
+    const sfnApi = fakeSfnApi({ status: "SUCCEEDED", output: JSON.stringify({ receiptId: "r-1" }) });
+
+    await expect(executeStateMachine({ ...params, sfnApi })).resolves.toEqual({ receiptId: "r-1" });
+    const [arn, input] = sfnApi.startSyncExecution.mock.calls[0];
+    expect(arn).toBe(params.stateMachineArn);
+    expect(JSON.parse(input)).toMatchObject({ userId: "user-1", requestId: "req-1", payload: params.payload });
+    expect(mockPutAsyncRequest).toHaveBeenCalledWith("user-1", "req-1", "processing", null, "async");
+  });
+
+  test("stores the processing request before starting the execution", async () => {
+    const order = [];
+    mockPutAsyncRequest.mockImplementation(async (userId, requestId, status) => {
+      await Promise.resolve();
+      order.push(status);
+    });
+    const sfnApi = {
+      startSyncExecution: vi.fn(async () => {
+        order.push("execution");
+        return { status: "SUCCEEDED", output: "{}" };
+      }),
+    };
+
+    await executeStateMachine({ ...params, sfnApi });
+    expect(order).toEqual(["processing", "execution"]);
+  });
+
+  test("returns null to fall back to the queue when HMRC stayed temporarily unavailable", async () => {
+    const sfnApi = fakeSfnApi({ status: "FAILED", error: "HmrcTemporaryError", cause: "HMRC temporary error 503" });
+
+    await expect(executeStateMachine({ ...params, sfnApi })).resolves.toBeNull();
+    expect(mockPutAsyncRequest).not.toHaveBeenCalledWith("user-1", "req-1", "failed", expect.anything(), "async");
+  });
+
+  test("falls back to the queue rather than recording a failure when the execution failed or timed out", async () => {
+    // HMRC may already hold a submission whose execution timed out, so only the worker may record the outcome
+    for (const execution of [{ status: "TIMED_OUT" }, { status: "FAILED", error: "Lambda.Unknown" }, { status: "ABORTED" }]) {
+      mockPutAsyncRequest.mockClear();
+
+      await expect(executeStateMachine({ ...params, sfnApi: fakeSfnApi(execution) })).resolves.toBeNull();
+      expect(mockPutAsyncRequest).toHaveBeenCalledTimes(1);
+      expect(mockPutAsyncRequest).toHaveBeenCalledWith("user-1", "req-1", "processing", null, "async");
+    }
+  });
+});
+
+describe("asyncApiServices isHmrcTemporaryStatus", () => {
+  test("retries throttling and every server error, not client errors", () => {
+    expect([429, 500, 502, 503, 504].every(isHmrcTemporaryStatus)).toBe(true);
+    expect([200, 400, 403, 404].some(isHmrcTemporaryStatus)).toBe(false);
+  });
+});
@@ -0,0 +1,118 @@
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+// app/unit-tests/services/hmrcRateLimiter.test.js
+
+import { describe, test, expect, vi, beforeEach, afterEach } from "vitest";
+
+const mockTryAcquireToken = vi.fn();
+const mockSqsSend = vi.fn();
+
+vi.mock("@app/data/dynamoDbHmrcRateLimitRepository.js", () => ({
+  tryAcquireToken: (...args) => mockTryAcquireToken(...args),
+}));
+
+vi.mock("@aws-sdk/client-sqs", () => {
+  class SQSClient {
+    send(command) {
+      return mockSqsSend(command);
+    }
+  }
+  class SendMessageCommand {
+    constructor(input) {
+      this.input = input;
+    }
+  }
+  return { SQSClient, SendMessageCommand };
+});
+
+import { acquireHmrcPermitOrDefer, deferralDelaySeconds } from "@app/services/hmrcRateLimiter.js";
+
+const body = { userId: "user-1", requestId: "req-1", payload: { vrn: "123456789" } };
+
+describe("hmrcRateLimiter", () => {
+  const originalEnv = process.env;
+
+  beforeEach(() => {
+    vi.clearAllMocks();
+    process.env = { ...originalEnv };
+    process.env.HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME = "test-hmrc-rate-limit";
+    process.env.SQS_QUEUE_URL = "https://sqs.eu-west-2.amazonaws.com/000000000000/test-queue";
+    vi.spyOn(console, "log").mockImplementation(() => {});
+  });
+
+  afterEach(() => {
+    process.env = originalEnv;
+    vi.restoreAllMocks();
+  });
+
+  test("deferralDelaySeconds rounds up, adds jitter and stays within SQS bounds", () => {
+    expect(deferralDelaySeconds(1, () => 0)).toBe(1);
+    expect(deferralDelaySeconds(4200, () => 0)).toBe(5);
+    expect(deferralDelaySeconds(4200, () => 0.99)).toBe(7);
+    expect(deferralDelaySeconds(10_000_000, () => 0)).toBe(900);
+  });
+
+  test("allows every call when no rate limit table is configured", async () => {
+    delete process.env.HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME;
+
+    await expect(acquireHmrcPermitOrDefer({ body, source: "test" })).resolves.toBe(true);
+    expect(mockTryAcquireToken).not.toHaveBeenCalled();
+  });
+
+  test("uses a separate bucket per HMRC account", async () => {
+    mockTryAcquireToken.mockResolvedValue({ acquired: true, tokensAvailable: 2, waitMs: 0 });
+
+    await acquireHmrcPermitOrDefer({ body, hmrcAccount: "sandbox", source: "test" });
+    await acquireHmrcPermitOrDefer({ body, hmrcAccount: "live", source: "test" });
+
+    expect(mockTryAcquireToken.mock.calls.map((call) => call[0])).toEqual(["hmrc-sandbox", "hmrc-live"]);
+    expect(mockTryAcquireToken.mock.calls[0][1]).toEqual({ capacity: 3, refillPerSecond: 3, reserve: 1 });
+  });
+
+  test("lets high priority messages use the reserve and defers them to the high priority lane", async () => {
+    process.env.SQS_HIGH_PRIORITY_QUEUE_URL = "https://sqs.eu-west-2.amazonaws.com/000000000000/test-queue-high";
+    mockTryAcquireToken.mockResolvedValue({ acquired: false, tokensAvailable: 0, waitMs: 5000 });
+    mockSqsSend.mockResolvedValue({});
+
+    await acquireHmrcPermitOrDefer({ body: { ...body, priority: "high" }, source: "test" });
+
+    expect(mockTryAcquireToken.mock.calls[0][1].reserve).toBe(0);
+    expect(mockSqsSend.mock.calls[0][0].input.QueueUrl).toBe(process.env.SQS_HIGH_PRIORITY_QUEUE_URL);
+  });
+
+  test("defers the message back to the queue when the bucket stays empty", async () => {
+    mockTryAcquireToken.mockResolvedValue({ acquired: false, tokensAvailable: 0, waitMs: 5000 });
+    mockSqsSend.mockResolvedValue({});
+
+    const permitted = await acquireHmrcPermitOrDefer({ body, hmrcAccount: "live", source: "test" });
+
+    expect(permitted).toBe(false);
+    const input = mockSqsSend.mock.calls[0][0].input;
+    expect(input.QueueUrl).toBe(process.env.SQS_QUEUE_URL);
+    expect(input.DelaySeconds).toBeGreaterThanOrEqual(5);
+    expect(JSON.parse(input.MessageBody)).toEqual({ ...body, rateLimitDeferrals: 1 });
+  });
+
+  test("calls HMRC after the maximum number of deferrals", async () => {
+    mockTryAcquireToken.mockResolvedValue({ acquired: false, tokensAvailable: 0, waitMs: 5000 });
+
+    const permitted = await acquireHmrcPermitOrDefer({ body: { ...body, rateLimitDeferrals: 10 }, source: "test" });
+
+    expect(permitted).toBe(true);
+    expect(mockSqsSend).not.toHaveBeenCalled();
+  });
+
+  test("marks a failed deferral as retryable so SQS redelivers the original message", async () => {
+    mockTryAcquireToken.mockResolvedValue({ acquired: false, tokensAvailable: 0, waitMs: 5000 });
+    mockSqsSend.mockRejectedValue(new Error("throttled"));
+
+    await expect(acquireHmrcPermitOrDefer({ body, source: "test" })).rejects.toMatchObject({ retryable: true });
+  });
+
+  test("fails open when the rate limit table is unavailable", async () => {
+    mockTryAcquireToken.mockRejectedValue(new Error("ResourceNotFoundException"));
+
+    await expect(acquireHmrcPermitOrDefer({ body, source: "test" })).resolves.toBe(true);
+  });
+});
@@ -0,0 +1,151 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.benchmark;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import co.uk.diyaccounting.submit.SubmitApplicationStacks;
+import co.uk.diyaccounting.submit.SubmitSharedNames;
+import co.uk.diyaccounting.submit.constructs.ApiLambda;
+import co.uk.diyaccounting.submit.constructs.ApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.AsyncApiLambda;
+import co.uk.diyaccounting.submit.constructs.AsyncApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.Lambda;
+import co.uk.diyaccounting.submit.constructs.LambdaProps;
+import co.uk.diyaccounting.submit.utils.PopulatedMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Environment;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.cxapi.CloudAssembly;
+
+/**
+ * One construct of each type in an otherwise empty stack, with the props the application stacks give them: a
+ * Lambda (function, version, alias, log group, its alarms and metric filter), an ApiLambda and an AsyncApiLambda
+ * (adding the queues, worker and event source mappings). EmptyStack is the baseline to subtract.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConstructSynthBenchmark {
+
+    @Param({"EmptyStack", "Lambda", "ApiLambda", "AsyncApiLambda"})
+    public String construct;
+
+    private SubmitSharedNames sharedNames;
+    private Environment primaryEnv;
+
+    @Setup(Level.Trial)
+    public void buildSharedNames() {
+        SubmitApplicationStacks stacks = SynthFixture.applicationStacks(CdkTestFixture.applicationContext());
+        sharedNames = stacks.sharedNames;
+        primaryEnv = stacks.primaryEnv;
+    }
+
+    @Benchmark
+    public App build() {
+        App app = new App();
+        Stack stack = new Stack(
+                app,
+                "ConstructSynthBenchmark",
+                StackProps.builder().env(primaryEnv).build());
+        switch (construct) {
+            case "EmptyStack" -> {}
+            case "Lambda" ->
+                new Lambda(
+                        stack,
+                        LambdaProps.builder()
+                                .idPrefix(sharedNames.activityBatchForwarderLambdaFunctionName)
+                                .baseImageTag("test")
+                                .ecrRepositoryName(sharedNames.ecrRepositoryName)
+                                .ecrRepositoryArn(sharedNames.ecrRepositoryArn)
+                                .ingestFunctionName(sharedNames.activityBatchForwarderLambdaFunctionName)
+                                .ingestHandler(sharedNames.activityBatchForwarderLambdaHandler)
+                                .ingestLambdaArn(sharedNames.activityBatchForwarderLambdaArn)
+                                .ingestProvisionedConcurrencyAliasArn(
+                                        sharedNames.activityBatchForwarderProvisionedConcurrencyLambdaAliasArn)
+                                .ingestLambdaTimeout(Duration.seconds(30))
+                                .provisionedConcurrencyAliasName(sharedNames.provisionedConcurrencyAliasName)
+                                .environment(new PopulatedMap<String, String>().with("ENVIRONMENT_NAME", "test"))
+                                .build());
+            case "ApiLambda" ->
+                new ApiLambda(
+                        stack,
+                        ApiLambdaProps.builder()
+                                .idPrefix(sharedNames.bundleGetIngestLambdaFunctionName)
+                                .baseImageTag("test")
+                                .ecrRepositoryName(sharedNames.ecrRepositoryName)
+                                .ecrRepositoryArn(sharedNames.ecrRepositoryArn)
+                                .ingestFunctionName(sharedNames.bundleGetIngestLambdaFunctionName)
+                                .ingestHandler(sharedNames.bundleGetIngestLambdaHandler)
+                                .ingestLambdaArn(sharedNames.bundleGetIngestLambdaArn)
+                                .ingestProvisionedConcurrencyAliasArn(
+                                        sharedNames.bundleGetIngestProvisionedConcurrencyLambdaAliasArn)
+                                .ingestProvisionedConcurrency(1)
+                                .ingestMemorySize(256)
+                                .provisionedConcurrencyAliasName(sharedNames.provisionedConcurrencyAliasName)
+                                .httpMethod(sharedNames.bundleGetLambdaHttpMethod)
+                                .urlPath(sharedNames.bundleGetLambdaUrlPath)
+                                .jwtAuthorizer(sharedNames.bundleGetLambdaJwtAuthorizer)
+                                .customAuthorizer(sharedNames.bundleGetLambdaCustomAuthorizer)
+                                .environment(new PopulatedMap<String, String>().with("ENVIRONMENT_NAME", "test"))
+                                .build());
+            case "AsyncApiLambda" ->
+                new AsyncApiLambda(
+                        stack,
+                        AsyncApiLambdaProps.builder()
+                                .idPrefix(sharedNames.hmrcVatObligationGetIngestLambdaFunctionName)
+                                .baseImageTag("test")
+                                .ecrRepositoryName(sharedNames.ecrRepositoryName)
+                                .ecrRepositoryArn(sharedNames.ecrRepositoryArn)
+                                .ingestFunctionName(sharedNames.hmrcVatObligationGetIngestLambdaFunctionName)
+                                .ingestHandler(sharedNames.hmrcVatObligationGetIngestLambdaHandler)
+                                .ingestLambdaArn(sharedNames.hmrcVatObligationGetIngestLambdaArn)
+                                .ingestProvisionedConcurrencyAliasArn(
+                                        sharedNames.hmrcVatObligationGetIngestProvisionedConcurrencyLambdaAliasArn)
+                                .workerFunctionName(sharedNames.hmrcVatObligationGetWorkerLambdaFunctionName)
+                                .workerHandler(sharedNames.hmrcVatObligationGetWorkerLambdaHandler)
+                                .workerLambdaArn(sharedNames.hmrcVatObligationGetWorkerLambdaArn)
+                                .workerProvisionedConcurrencyAliasArn(
+                                        sharedNames.hmrcVatObligationGetWorkerProvisionedConcurrencyLambdaAliasArn)
+                                .workerQueueName(sharedNames.hmrcVatObligationGetLambdaQueueName)
+                                .workerDeadLetterQueueName(sharedNames.hmrcVatObligationGetLambdaDeadLetterQueueName)
+                                .workerCircuitBreaker(true)
+                                .workerQueueMaximumConcurrency(5)
+                                .workerLambdaTimeout(Duration.seconds(120))
+                                .provisionedConcurrencyAliasName(sharedNames.provisionedConcurrencyAliasName)
+                                .httpMethod(sharedNames.hmrcVatObligationGetLambdaHttpMethod)
+                                .urlPath(sharedNames.hmrcVatObligationGetLambdaUrlPath)
+                                .jwtAuthorizer(sharedNames.hmrcVatObligationGetLambdaJwtAuthorizer)
+                                .customAuthorizer(sharedNames.hmrcVatObligationGetLambdaCustomAuthorizer)
+                                .environment(new PopulatedMap<String, String>().with("ENVIRONMENT_NAME", "test"))
+                                .build());
+            default -> throw new IllegalArgumentException("Unknown construct " + construct);
+        }
+        return app;
+    }
+
+    @Benchmark
+    public CloudAssembly synth() {
+        return build().synth();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.benchmark;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import co.uk.diyaccounting.submit.SubmitApplicationStacks;
+import co.uk.diyaccounting.submit.SubmitEnvironmentStacks;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.cxapi.CloudAssembly;
+
+/**
+ * One stack at a time, each alone in its App, built by SubmitApplicationStacks or SubmitEnvironmentStacks with the
+ * props SubmitApplication or SubmitEnvironment pass it, so the -prof gc allocation per op is attributable to that
+ * stack. PublishStack, wired from the EdgeStack's distribution, is covered by SubmitSynthBenchmark only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class StackSynthBenchmark {
+
+    @Param({
+        "AuthStack",
+        "HmrcStack",
+        "AccountStack",
+        "BundleStack",
+        "PassStack",
+        "BillingStack",
+        "ApiStack",
+        "OpsStack",
+        "EdgeStack",
+        "DataStack",
+        "ActivityStack"
+    })
+    public String stack;
+
+    private Map<String, Object> applicationContext;
+    private Map<String, Object> environmentContext;
+
+    @Setup(Level.Trial)
+    public void loadContext() {
+        applicationContext = CdkTestFixture.applicationContext();
+        environmentContext = CdkTestFixture.environmentContext();
+    }
+
+    @Benchmark
+    public App build() {
+        return switch (stack) {
+            case "DataStack", "ActivityStack" -> buildEnvironmentStack();
+            default -> buildApplicationStack();
+        };
+    }
+
+    @Benchmark
+    public CloudAssembly synth() {
+        return build().synth();
+    }
+
+    private App buildApplicationStack() {
+        App app = SynthFixture.app(applicationContext);
+        var stacks = new SubmitApplicationStacks(SynthFixture.applicationProps(app));
+        switch (stack) {
+            case "AuthStack" -> stacks.authStack(app);
+            case "HmrcStack" -> stacks.hmrcStack(app);
+            case "AccountStack" -> stacks.accountStack(app);
+            case "BundleStack" -> stacks.bundleStack(app);
+            case "PassStack" -> stacks.passStack(app);
+            case "BillingStack" -> stacks.billingStack(app);
+            case "ApiStack" -> stacks.apiStack(app);
+            case "OpsStack" -> stacks.opsStack(app);
+            case "EdgeStack" -> stacks.edgeStack(app);
+            default -> throw new IllegalArgumentException("Unknown application stack " + stack);
+        }
+        return app;
+    }
+
+    private App buildEnvironmentStack() {
+        App app = SynthFixture.app(environmentContext);
+        var stacks = new SubmitEnvironmentStacks(SynthFixture.environmentProps(app));
+        switch (stack) {
+            case "DataStack" -> stacks.dataStack(app);
+            case "ActivityStack" -> stacks.activityStack(app);
+            default -> throw new IllegalArgumentException("Unknown environment stack " + stack);
+        }
+        return app;
+    }
+}
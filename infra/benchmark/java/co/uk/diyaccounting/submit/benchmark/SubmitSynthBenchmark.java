@@ -0,0 +1,72 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.benchmark;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import co.uk.diyaccounting.submit.SubmitApplication;
+import co.uk.diyaccounting.submit.SubmitEnvironment;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.cxapi.CloudAssembly;
+
+/**
+ * Whole-app construction and synthesis, as `cdk synth` runs the application and environment jars. The build
+ * benchmarks time the construct tree alone (every construct is a jsii object in the node runtime), so the
+ * difference to the synth benchmarks is the template rendering and asset staging done by app.synth().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SubmitSynthBenchmark {
+
+    private Map<String, Object> applicationContext;
+    private Map<String, Object> environmentContext;
+
+    @Setup(Level.Trial)
+    public void loadContext() {
+        applicationContext = CdkTestFixture.applicationContext();
+        environmentContext = CdkTestFixture.environmentContext();
+    }
+
+    @Benchmark
+    public App applicationBuild() {
+        App app = SynthFixture.app(applicationContext);
+        new SubmitApplication(app, SynthFixture.applicationProps(app));
+        return app;
+    }
+
+    @Benchmark
+    public CloudAssembly applicationSynth() {
+        return applicationBuild().synth();
+    }
+
+    @Benchmark
+    public App environmentBuild() {
+        App app = SynthFixture.app(environmentContext);
+        new SubmitEnvironment(app, SynthFixture.environmentProps(app));
+        return app;
+    }
+
+    @Benchmark
+    public CloudAssembly environmentSynth() {
+        return environmentBuild().synth();
+    }
+}
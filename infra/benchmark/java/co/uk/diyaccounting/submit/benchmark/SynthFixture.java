@@ -0,0 +1,40 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.benchmark;
+
+import co.uk.diyaccounting.submit.SubmitApplication;
+import co.uk.diyaccounting.submit.SubmitApplicationStacks;
+import co.uk.diyaccounting.submit.SubmitEnvironment;
+import java.util.HashMap;
+import java.util.Map;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.AppProps;
+
+/**
+ * Builds the Apps the synth benchmarks measure from the cdk.json context of CdkTestFixture, under the fixed
+ * deployment the jmh profile's run-benchmarks execution sources from the same fixture.
+ */
+final class SynthFixture {
+
+    private SynthFixture() {}
+
+    static App app(Map<String, Object> context) {
+        return new App(AppProps.builder().context(new HashMap<>(context)).build());
+    }
+
+    static SubmitApplication.SubmitApplicationProps applicationProps(App app) {
+        return SubmitApplication.loadAppProps(app, "cdk-application/");
+    }
+
+    static SubmitEnvironment.SubmitEnvironmentProps environmentProps(App app) {
+        return SubmitEnvironment.loadAppProps(app, "cdk-environment/");
+    }
+
+    /** The application stacks of the fixed deployment, for their names and environment */
+    static SubmitApplicationStacks applicationStacks(Map<String, Object> applicationContext) {
+        return new SubmitApplicationStacks(applicationProps(app(applicationContext)));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The operations of the OpenAPI spec OpenApiGenerator writes from SubmitSharedNames.publishedApiLambdas
+ * (web/public/docs/api/openapi.json), each able to build a request from the parameter and request body examples the
+ * generator puts in the spec.
+ */
+public class ApiSpec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public record Parameter(String name, String in, boolean required, String example) {}
+
+    public record Operation(
+            String operationId,
+            String method,
+            String path,
+            List<Parameter> parameters,
+            String requestBodyMediaType,
+            String requestBodyExample,
+            boolean cognitoAuth,
+            boolean hmrcAuth) {
+
+        /**
+         * The path as served, e.g. "/api/v1/hmrc/vat/obligation". The generator writes the versioned routes relative to
+         * /api/v1 and the others, e.g. "/api/session/beacon", in full.
+         */
+        public String fullPath() {
+            return path.startsWith("/api/") ? path : "/api/v1" + path;
+        }
+
+        /** The route as API Gateway keys it, e.g. "GET /api/v1/hmrc/vat/obligation" */
+        public String routeKey() {
+            return method + " " + fullPath();
+        }
+    }
+
+    /** The tokens of one virtual user, sent as the web client sends them (see web/public/lib/services) */
+    public record Credentials(String cognitoAccessToken, String hmrcAccessToken) {}
+
+    public final Map<String, Operation> operationsById;
+
+    private ApiSpec(Map<String, Operation> operationsById) {
+        this.operationsById = operationsById;
+    }
+
+    public static ApiSpec read(Path specPath) throws IOException {
+        JsonNode root = MAPPER.readTree(specPath.toFile());
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        for (var pathEntry : root.path("paths").properties()) {
+            for (var methodEntry : pathEntry.getValue().properties()) {
+                JsonNode op = methodEntry.getValue();
+                List<Parameter> parameters = new ArrayList<>();
+                for (JsonNode p : op.path("parameters")) {
+                    JsonNode example = p.path("schema").path("example");
+                    parameters.add(new Parameter(
+                            p.path("name").asText(),
+                            p.path("in").asText(),
+                            p.path("required").asBoolean(false),
+                            example.isMissingNode() ? null : example.asText()));
+                }
+                String mediaType = null;
+                String bodyExample = null;
+                var content =
+                        op.path("requestBody").path("content").properties().iterator();
+                if (content.hasNext()) {
+                    var media = content.next();
+                    mediaType = media.getKey();
+                    JsonNode example = media.getValue().path("example");
+                    bodyExample = example.isMissingNode() ? "{}" : MAPPER.writeValueAsString(example);
+                }
+                boolean cognitoAuth = false;
+                boolean hmrcAuth = false;
+                for (JsonNode requirement : op.path("security")) {
+                    cognitoAuth |= requirement.has("CognitoAuth");
+                    hmrcAuth |= requirement.has("HmrcAuth");
+                }
+                String operationId = op.path("operationId").asText();
+                operations.put(
+                        operationId,
+                        new Operation(
+                                operationId,
+                                methodEntry.getKey().toUpperCase(),
+                                pathEntry.getKey(),
+                                List.copyOf(parameters),
+                                mediaType,
+                                bodyExample,
+                                cognitoAuth,
+                                hmrcAuth));
+            }
+        }
+        return new ApiSpec(operations);
+    }
+
+    public Operation operation(String operationId) {
+        Operation operation = operationsById.get(operationId);
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation %s is not in the OpenAPI spec, known operations: %s"
+                    .formatted(operationId, operationsById.keySet()));
+        }
+        return operation;
+    }
+
+    /**
+     * A request for the operation: path and required query parameters from the spec's examples, the example request
+     * body, and the credentials in the headers the routes' authorizers read. The HMRC routes carry the HMRC token in
+     * Authorization and the Cognito token in X-Authorization for the Lambda authorizer, the others the Cognito token.
+     * The values, e.g. a virtual user's own "vrn", replace the examples of the parameters and top level JSON body
+     * fields of the same name.
+     */
+    public static HttpRequest.Builder request(
+            URI baseUri, Operation operation, Credentials credentials, Map<String, String> values, Duration timeout)
+            throws IOException {
+        String path = operation.fullPath();
+        StringBuilder query = new StringBuilder();
+        for (Parameter p : operation.parameters()) {
+            if (p.example() == null || !p.required()) continue;
+            String value = URLEncoder.encode(values.getOrDefault(p.name(), p.example()), StandardCharsets.UTF_8);
+            switch (p.in()) {
+                case "path" -> path = path.replace("{" + p.name() + "}", value);
+                case "query" ->
+                    query.append(query.isEmpty() ? "?" : "&")
+                            .append(p.name())
+                            .append('=')
+                            .append(value);
+                default -> {}
+            }
+        }
+        var builder = HttpRequest.newBuilder(baseUri.resolve(path.substring(1) + query))
+                .timeout(timeout);
+        if (operation.hmrcAuth() || operation.path().startsWith("/hmrc/vat/")) {
+            builder.header("Authorization", "Bearer " + credentials.hmrcAccessToken());
+            builder.header("X-Authorization", "Bearer " + credentials.cognitoAccessToken());
+        } else if (operation.cognitoAuth()) {
+            builder.header("Authorization", "Bearer " + credentials.cognitoAccessToken());
+        }
+        if (operation.requestBodyMediaType() != null) {
+            builder.header("Content-Type", operation.requestBodyMediaType());
+            builder.method(operation.method(), HttpRequest.BodyPublishers.ofString(body(operation, values)));
+        } else {
+            builder.method(operation.method(), HttpRequest.BodyPublishers.noBody());
+        }
+        return builder;
+    }
+
+    static String body(Operation operation, Map<String, String> values) throws IOException {
+        if (!operation.requestBodyMediaType().contains("json")
+                || !(MAPPER.readTree(operation.requestBodyExample()) instanceof ObjectNode body)) {
+            return operation.requestBodyExample();
+        }
+        values.forEach((name, value) -> {
+            if (body.has(name)) body.put(name, value);
+        });
+        return MAPPER.writeValueAsString(body);
+    }
+}
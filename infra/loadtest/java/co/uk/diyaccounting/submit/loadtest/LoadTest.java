@@ -0,0 +1,363 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.loadtest;
+
+import static co.uk.diyaccounting.submit.utils.Kind.envOr;
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open model load test of the API, driven by the OpenAPI spec. Journeys arrive at the rate of each stage whether or
+ * not earlier journeys have finished, as real users do on VAT deadline day, each on its own virtual thread: log in,
+ * then call the operations of a weighted, randomly picked Scenario in order. Reports HdrHistogram latency
+ * distributions and a per second throughput curve for each route and journey to LOAD_REPORT_DIR.
+ * <p>
+ * Run against the local server (npm start, which runs the http-simulator in place of HMRC and Cognito):
+ * <pre>
+ *   ./mvnw -P loadtest test-compile exec:exec@run-load-test
+ * </pre>
+ * or a deployment, with tokens from a logged in browser session:
+ * <pre>
+ *   LOAD_BASE_URL=https://ci-branch.submit.diyaccounting.co.uk/ LOAD_STAGES=2/60s,20/120s,2/60s \
+ *     LOAD_COGNITO_ACCESS_TOKEN=... LOAD_HMRC_ACCESS_TOKEN=... \
+ *     ./mvnw -P loadtest test-compile exec:exec@run-load-test
+ * </pre>
+ */
+public class LoadTest {
+
+    /**
+     * A period of constant arrival rate, e.g. "20/120s" is 20 journeys a second for two minutes. A rate of 0 is an
+     * idle stage that starts no journeys, e.g. a pause between two steps.
+     */
+    public record Stage(double journeysPerSecond, Duration duration) {
+
+        public Stage {
+            if (!(journeysPerSecond >= 0) || Double.isInfinite(journeysPerSecond)) {
+                throw new IllegalArgumentException(
+                        "Stage rate must be 0 or more journeys a second but was " + journeysPerSecond);
+            }
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Stage duration must be positive but was " + duration);
+            }
+        }
+
+        public static List<Stage> parse(String stages) {
+            List<Stage> parsed = new ArrayList<>();
+            for (String stage : stages.split(",")) {
+                String[] parts = stage.trim().split("/");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Stage '%s' is not rate/duration".formatted(stage));
+                }
+                try {
+                    String duration = parts[1].trim();
+                    long seconds = duration.endsWith("m")
+                            ? Long.parseLong(duration.substring(0, duration.length() - 1)) * 60
+                            : Long.parseLong(duration.replaceFirst("s$", ""));
+                    parsed.add(new Stage(Double.parseDouble(parts[0]), Duration.ofSeconds(seconds)));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Stage '%s' is not rate/duration".formatted(stage), e);
+                }
+            }
+            return List.copyOf(parsed);
+        }
+    }
+
+    private final URI baseUri;
+    private final ApiSpec spec;
+    private final List<Scenario> scenarios;
+    private final List<Stage> stages;
+    private final boolean poissonArrivals;
+    private final int virtualUsers;
+    private final String cognitoAccessToken;
+    private final String hmrcAccessToken;
+    private final Duration requestTimeout;
+    private final Duration asyncTimeout;
+    private final HttpClient httpClient;
+    private final int runSeconds;
+    private final Map<String, RouteStats> statsByRoute = new ConcurrentHashMap<>();
+    private final AtomicLong journeyCount = new AtomicLong();
+    private long runStartNanos;
+
+    public LoadTest(
+            URI baseUri,
+            ApiSpec spec,
+            List<Scenario> scenarios,
+            List<Stage> stages,
+            boolean poissonArrivals,
+            int virtualUsers,
+            String cognitoAccessToken,
+            String hmrcAccessToken,
+            Duration requestTimeout,
+            Duration asyncTimeout) {
+        this.baseUri = baseUri;
+        this.spec = spec;
+        this.scenarios = scenarios;
+        this.stages = stages;
+        this.poissonArrivals = poissonArrivals;
+        this.virtualUsers = virtualUsers;
+        this.cognitoAccessToken = cognitoAccessToken;
+        this.hmrcAccessToken = hmrcAccessToken;
+        this.requestTimeout = requestTimeout;
+        this.asyncTimeout = asyncTimeout;
+        this.runSeconds =
+                (int) stages.stream().mapToLong(s -> s.duration().toSeconds()).sum();
+        this.httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(requestTimeout)
+                .build();
+        // Fail before any load if a scenario names an operation the spec does not have
+        scenarios.forEach(scenario -> scenario.operationIds().forEach(spec::operation));
+    }
+
+    public static void main(String[] args) throws Exception {
+        var baseUrl = envOr("LOAD_BASE_URL", "http://localhost:3000/");
+        var loadTest = new LoadTest(
+                URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/"),
+                ApiSpec.read(Path.of(envOr("LOAD_SPEC_PATH", "web/public/docs/api/openapi.json"))),
+                Scenario.parse(envOr("LOAD_SCENARIOS", Scenario.DEFAULT_SCENARIOS)),
+                Stage.parse(envOr("LOAD_STAGES", "1/30s,5/60s,1/30s")),
+                !"constant".equalsIgnoreCase(envOr("LOAD_ARRIVALS", "poisson")),
+                Integer.parseInt(envOr("LOAD_VIRTUAL_USERS", "1000")),
+                envOr("LOAD_COGNITO_ACCESS_TOKEN", ""),
+                envOr("LOAD_HMRC_ACCESS_TOKEN", ""),
+                Duration.ofSeconds(Long.parseLong(envOr("LOAD_REQUEST_TIMEOUT_SECONDS", "30"))),
+                Duration.ofSeconds(Long.parseLong(envOr("LOAD_ASYNC_TIMEOUT_SECONDS", "90"))));
+        loadTest.run();
+        loadTest.report(Path.of(envOr("LOAD_REPORT_DIR", "target/load-test")));
+    }
+
+    public void run() {
+        infof(
+                "Load test of %s: stages %s, %s arrivals, scenarios %s",
+                baseUri, stages, poissonArrivals ? "poisson" : "constant", scenarios);
+        runStartNanos = System.nanoTime();
+        long dueNanos = runStartNanos;
+        try (ExecutorService journeys = Executors.newVirtualThreadPerTaskExecutor()) {
+            long stageEndNanos = runStartNanos;
+            for (Stage stage : stages) {
+                stageEndNanos += stage.duration().toNanos();
+                if (stage.journeysPerSecond() == 0) {
+                    for (long idleNanos; (idleNanos = stageEndNanos - System.nanoTime()) > 0; ) {
+                        LockSupport.parkNanos(idleNanos);
+                    }
+                    dueNanos = stageEndNanos;
+                    infof("Stage %s done, idle", stage);
+                    continue;
+                }
+                double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / stage.journeysPerSecond();
+                while (true) {
+                    double interval = poissonArrivals
+                            ? -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos
+                            : meanIntervalNanos;
+                    dueNanos += (long) interval;
+                    if (dueNanos >= stageEndNanos) {
+                        dueNanos = stageEndNanos;
+                        break;
+                    }
+                    LockSupport.parkNanos(dueNanos - System.nanoTime());
+                    long intendedStartNanos = dueNanos;
+                    long journeyNumber = journeyCount.incrementAndGet();
+                    journeys.submit(() -> journey(journeyNumber, intendedStartNanos));
+                }
+                infof("Stage %s done, %d journeys started", stage, journeyCount.get());
+            }
+            infof("Arrivals stopped, waiting for the journeys in flight");
+        }
+    }
+
+    private void journey(long journeyNumber, long intendedStartNanos) {
+        Scenario scenario = Scenario.pick(scenarios, ThreadLocalRandom.current());
+        long virtualUser = journeyNumber % virtualUsers;
+        ApiSpec.Credentials credentials = login(virtualUser);
+        Map<String, String> values = userValues(virtualUser, journeyNumber / virtualUsers);
+        long stepIntendedStartNanos = intendedStartNanos;
+        int lastStatus = 0;
+        for (String operationId : scenario.operationIds()) {
+            ApiSpec.Operation operation = spec.operation(operationId);
+            lastStatus = call(operation, credentials, values);
+            long endNanos = System.nanoTime();
+            stats(operation.routeKey()).record(stepIntendedStartNanos, endNanos, lastStatus, runStartNanos);
+            stepIntendedStartNanos = endNanos;
+            if (lastStatus == 0 || lastStatus >= 500) break;
+        }
+        stats("journey " + scenario.name()).record(intendedStartNanos, System.nanoTime(), lastStatus, runStartNanos);
+    }
+
+    /**
+     * The tokens of a virtual user. The local server decodes the Cognito token without verifying it, as the
+     * http-simulator issues unsigned tokens, so each virtual user gets its own subject (and so its own bundles and
+     * receipts). A deployment verifies the tokens, so there every journey uses the tokens it was given.
+     */
+    private ApiSpec.Credentials login(long virtualUser) {
+        String cognito = cognitoAccessToken;
+        if (cognito.isEmpty()) {
+            long now = Instant.now().getEpochSecond();
+            String user = "load-user-" + virtualUser;
+            String claims = "{\"sub\":\"%s\",\"email\":\"%s@test.submit.diyaccounting.co.uk\",\"iat\":%d,\"exp\":%d}";
+            cognito = unsignedJwt(claims.formatted(user, user, now, now + 3600));
+        }
+        String hmrc = hmrcAccessToken.isEmpty() ? "mock-hmrc-access-token-" + UUID.randomUUID() : hmrcAccessToken;
+        return new ApiSpec.Credentials(cognito, hmrc);
+    }
+
+    /**
+     * The parameter and body values of a virtual user's visit in place of the spec's examples. Each virtual user is its
+     * own VAT registered business and each of its visits files another period, so no submission is a duplicate of an
+     * earlier one (HMRC rejects a second return for the same VRN and period).
+     */
+    static Map<String, String> userValues(long virtualUser, long visit) {
+        String vrn = "%09d".formatted(900_000_000L + virtualUser % 100_000_000L);
+        String periodKey = "%02dA%d".formatted(17 + visit / 4 % 80, 1 + visit % 4);
+        return Map.of("vrn", vrn, "vatNumber", vrn, "periodKey", periodKey);
+    }
+
+    private static String unsignedJwt(String payloadJson) {
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payloadJson.getBytes(StandardCharsets.UTF_8)) + ".";
+    }
+
+    /**
+     * Call an operation, polling with the x-request-id while it answers 202 Accepted, as the web client does
+     * (web/public/lib/services/api-client.js). Returns the final status, or 0 when there was no response.
+     */
+    private int call(ApiSpec.Operation operation, ApiSpec.Credentials credentials, Map<String, String> values) {
+        long deadlineNanos = System.nanoTime() + asyncTimeout.toNanos();
+        String requestId = null;
+        int poll = 0;
+        try {
+            while (true) {
+                HttpRequest.Builder request = ApiSpec.request(baseUri, operation, credentials, values, requestTimeout);
+                if (requestId != null) request.header("x-request-id", requestId);
+                HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 202 || System.nanoTime() > deadlineNanos) {
+                    return response.statusCode();
+                }
+                requestId = response.headers().firstValue("x-request-id").orElse(requestId);
+                long delayMillis = operation.path().startsWith("/hmrc/") ? Math.min(1000L << poll, 4000L) : 1000L;
+                poll++;
+                Thread.sleep(delayMillis);
+            }
+        } catch (IOException e) {
+            warnf("%s failed: %s", operation.routeKey(), e.getMessage());
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private RouteStats stats(String routeKey) {
+        return statsByRoute.computeIfAbsent(routeKey, key -> new RouteStats(key, runSeconds));
+    }
+
+    public void report(Path reportDir) throws IOException {
+        Files.createDirectories(reportDir);
+        int curveSeconds = (int) TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - runStartNanos) + 1;
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("baseUrl", baseUri.toString());
+        summary.put("stages", stages.toString());
+        summary.put("journeys", journeyCount.get());
+        var routes = new LinkedHashMap<String, Object>();
+        infof(
+                "%-48s %8s %7s %9s %9s %9s %9s %9s",
+                "route", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (RouteStats stats : statsByRoute.values().stream()
+                .sorted((a, b) -> a.routeKey.compareTo(b.routeKey))
+                .toList()) {
+            var h = stats.latencyMicros;
+            infof(
+                    "%-48s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f",
+                    stats.routeKey,
+                    h.getTotalCount(),
+                    stats.errors(),
+                    h.getValueAtPercentile(50) / 1000.0,
+                    h.getValueAtPercentile(90) / 1000.0,
+                    h.getValueAtPercentile(99) / 1000.0,
+                    h.getValueAtPercentile(99.9) / 1000.0,
+                    h.getMaxValue() / 1000.0);
+            var route = new LinkedHashMap<String, Object>();
+            route.put("count", h.getTotalCount());
+            route.put("countByStatus", stats.countByStatus);
+            for (double percentile : new double[] {50, 90, 99, 99.9}) {
+                route.put("p" + percentile + "Millis", h.getValueAtPercentile(percentile) / 1000.0);
+            }
+            route.put("maxMillis", h.getMaxValue() / 1000.0);
+            route.put("completedPerSecond", stats.throughputCurve(curveSeconds));
+            routes.put(stats.routeKey, route);
+            // The full distribution, in milliseconds, for HdrHistogram's plotter
+            try (var out = new PrintStream(
+                    reportDir
+                            .resolve(stats.routeKey.replaceAll("[^A-Za-z0-9]+", "-") + ".hgrm")
+                            .toFile(),
+                    StandardCharsets.UTF_8)) {
+                h.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        summary.put("routes", routes);
+        new ObjectMapper()
+                .writerWithDefaultPrettyPrinter()
+                .writeValue(reportDir.resolve("load-test.json").toFile(), summary);
+        writeThroughputCsv(reportDir.resolve("throughput.csv"), curveSeconds);
+        infof("Load test report written to %s", reportDir.toAbsolutePath());
+    }
+
+    // One row per second: the arrival rate the stages asked for, then completions of each route and journey
+    private void writeThroughputCsv(Path csv, int seconds) throws IOException {
+        var routes = statsByRoute.values().stream()
+                .sorted((a, b) -> a.routeKey.compareTo(b.routeKey))
+                .toList();
+        var lines = new ArrayList<String>();
+        var header = new StringBuilder("second,targetJourneysPerSecond");
+        routes.forEach(stats -> header.append(',').append(stats.routeKey));
+        lines.add(header.toString());
+        var curves =
+                routes.stream().map(stats -> stats.throughputCurve(seconds)).toList();
+        for (int second = 0; second < seconds; second++) {
+            var line = new StringBuilder().append(second).append(',').append(targetRateAt(second));
+            for (long[] curve : curves) {
+                line.append(',').append(second < curve.length ? curve[second] : 0);
+            }
+            lines.add(line.toString());
+        }
+        Files.write(csv, lines, StandardCharsets.UTF_8);
+    }
+
+    private double targetRateAt(int second) {
+        long stageEnd = 0;
+        for (Stage stage : stages) {
+            stageEnd += stage.duration().toSeconds();
+            if (second < stageEnd) return stage.journeysPerSecond();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency and throughput of one route (or of the whole journey) across a load test run. Latency is recorded in
+ * microseconds from when the request was due to start, so a backed up client does not hide server slowness
+ * (coordinated omission), and includes any polling of an async (202 Accepted) request until its final response.
+ */
+public class RouteStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    public final String routeKey;
+    public final Histogram latencyMicros = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    public final Map<Integer, Long> countByStatus = new ConcurrentHashMap<>();
+
+    /** Completed requests per second of the run, the throughput curve */
+    private final AtomicLongArray completedPerSecond;
+
+    public RouteStats(String routeKey, int runSeconds) {
+        this.routeKey = routeKey;
+        // Requests in flight when the arrivals stop complete after the last second of the run
+        this.completedPerSecond = new AtomicLongArray(runSeconds + 120);
+    }
+
+    public void record(long intendedStartNanos, long endNanos, int status, long runStartNanos) {
+        latencyMicros.recordValue(
+                Math.min(TimeUnit.NANOSECONDS.toMicros(endNanos - intendedStartNanos), HIGHEST_TRACKABLE_MICROS));
+        countByStatus.merge(status, 1L, Long::sum);
+        int second = (int) TimeUnit.NANOSECONDS.toSeconds(endNanos - runStartNanos);
+        if (second < completedPerSecond.length()) {
+            completedPerSecond.incrementAndGet(second);
+        }
+    }
+
+    public long[] throughputCurve(int seconds) {
+        long[] curve = new long[Math.min(seconds, completedPerSecond.length())];
+        for (int i = 0; i < curve.length; i++) {
+            curve[i] = completedPerSecond.get(i);
+        }
+        return curve;
+    }
+
+    public long errors() {
+        return countByStatus.entrySet().stream()
+                .filter(e -> e.getKey() == 0 || e.getKey() >= 500)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A user journey: the operations (OpenAPI operationIds) one virtual user calls in order after logging in, and how
+ * often it is picked relative to the other journeys.
+ */
+public record Scenario(String name, int weight, List<String> operationIds) {
+
+    /**
+     * The deadline-day mix: most visitors check their obligations, fewer go on to submit, and some come back for a
+     * receipt. Format as LOAD_SCENARIOS: name:weight:operationId,operationId;...
+     */
+    public static final String DEFAULT_SCENARIOS = "submit:2:getBundles,getVatObligations,submitVatReturn,getReceipts;"
+            + "obligations:5:getBundles,getVatObligations;"
+            + "receipts:1:getBundles,getReceipts";
+
+    public static List<Scenario> parse(String scenarios) {
+        List<Scenario> parsed = new ArrayList<>();
+        for (String entry : scenarios.split(";")) {
+            if (entry.isBlank()) continue;
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Scenario '%s' is not name:weight:operationId,...".formatted(entry));
+            }
+            int weight;
+            try {
+                weight = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Scenario '%s' weight is not a number".formatted(entry), e);
+            }
+            if (weight < 1) {
+                throw new IllegalArgumentException("Scenario '%s' weight must be 1 or more".formatted(entry));
+            }
+            parsed.add(new Scenario(
+                    parts[0].trim(),
+                    weight,
+                    Arrays.stream(parts[2].split(",")).map(String::trim).toList()));
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No scenarios in '%s'".formatted(scenarios));
+        }
+        return List.copyOf(parsed);
+    }
+
+    /** Pick a scenario at random in proportion to the weights */
+    public static Scenario pick(List<Scenario> scenarios, RandomGenerator random) {
+        int total = scenarios.stream().mapToInt(Scenario::weight).sum();
+        int ticket = random.nextInt(total);
+        for (Scenario scenario : scenarios) {
+            ticket -= scenario.weight();
+            if (ticket < 0) return scenario;
+        }
+        return scenarios.getLast();
+    }
+}
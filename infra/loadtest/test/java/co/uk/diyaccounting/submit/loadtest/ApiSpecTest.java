@@ -0,0 +1,125 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.loadtest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ApiSpecTest {
+
+    private static final String SPEC =
+            """
+            {
+              "paths": {
+                "/hmrc/vat/obligation": {
+                  "get": {
+                    "operationId": "getVatObligations",
+                    "parameters": [
+                      { "name": "vrn", "in": "query", "required": true, "schema": { "example": "983238295" } },
+                      { "name": "status", "in": "query", "required": false, "schema": { "example": "O" } }
+                    ],
+                    "security": [ { "CognitoAuth": [] } ]
+                  }
+                },
+                "/hmrc/vat/return": {
+                  "post": {
+                    "operationId": "submitVatReturn",
+                    "requestBody": {
+                      "content": {
+                        "application/json": {
+                          "example": { "vatNumber": "983238295", "periodKey": "24A1", "vatDue": 2400.0 }
+                        }
+                      }
+                    },
+                    "security": [ { "HmrcAuth": [] } ]
+                  }
+                },
+                "/api/session/beacon": {
+                  "get": {
+                    "operationId": "sessionBeacon",
+                    "parameters": [
+                      { "name": "page", "in": "query", "required": true, "schema": { "example": "/index.html" } }
+                    ]
+                  }
+                }
+              }
+            }
+            """;
+
+    private static final URI BASE_URI = URI.create("https://submit.example.com/");
+    private static final ApiSpec.Credentials CREDENTIALS = new ApiSpec.Credentials("cognito-token", "hmrc-token");
+
+    @Test
+    void readCollectsOperationsWithParametersBodiesAndAuth(@TempDir Path dir) throws Exception {
+        ApiSpec spec = ApiSpec.read(Files.writeString(dir.resolve("openapi.json"), SPEC));
+
+        assertEquals(
+                List.of("getVatObligations", "submitVatReturn", "sessionBeacon"),
+                List.copyOf(spec.operationsById.keySet()));
+        ApiSpec.Operation obligations = spec.operation("getVatObligations");
+        assertEquals("GET", obligations.method());
+        assertEquals(
+                List.of(
+                        new ApiSpec.Parameter("vrn", "query", true, "983238295"),
+                        new ApiSpec.Parameter("status", "query", false, "O")),
+                obligations.parameters());
+        assertTrue(obligations.cognitoAuth());
+        assertFalse(obligations.hmrcAuth());
+
+        ApiSpec.Operation submit = spec.operation("submitVatReturn");
+        assertEquals("application/json", submit.requestBodyMediaType());
+        assertEquals(
+                "{\"vatNumber\":\"983238295\",\"periodKey\":\"24A1\",\"vatDue\":2400.0}", submit.requestBodyExample());
+        assertTrue(submit.hmrcAuth());
+
+        assertThrows(IllegalArgumentException.class, () -> spec.operation("unknownOperation"));
+    }
+
+    @Test
+    void routeKeysPrefixOnlyTheVersionedRoutes(@TempDir Path dir) throws Exception {
+        ApiSpec spec = ApiSpec.read(Files.writeString(dir.resolve("openapi.json"), SPEC));
+
+        assertEquals(
+                "GET /api/v1/hmrc/vat/obligation",
+                spec.operation("getVatObligations").routeKey());
+        assertEquals("GET /api/session/beacon", spec.operation("sessionBeacon").routeKey());
+        assertEquals(
+                URI.create("https://submit.example.com/api/session/beacon?page=%2Findex.html"),
+                ApiSpec.request(BASE_URI, spec.operation("sessionBeacon"), CREDENTIALS, Map.of(), Duration.ofSeconds(1))
+                        .build()
+                        .uri());
+    }
+
+    @Test
+    void requestUsesTheUsersValuesInPlaceOfTheExamples(@TempDir Path dir) throws Exception {
+        ApiSpec spec = ApiSpec.read(Files.writeString(dir.resolve("openapi.json"), SPEC));
+        Map<String, String> values = LoadTest.userValues(3, 5);
+
+        var obligations = ApiSpec.request(
+                        BASE_URI, spec.operation("getVatObligations"), CREDENTIALS, values, Duration.ofSeconds(1))
+                .build();
+        assertEquals(
+                URI.create("https://submit.example.com/api/v1/hmrc/vat/obligation?vrn=900000003"), obligations.uri());
+        assertEquals(
+                "Bearer hmrc-token",
+                obligations.headers().firstValue("Authorization").orElseThrow());
+        assertEquals(
+                "Bearer cognito-token",
+                obligations.headers().firstValue("X-Authorization").orElseThrow());
+
+        assertEquals(
+                "{\"vatNumber\":\"900000003\",\"periodKey\":\"18A2\",\"vatDue\":2400.0}",
+                ApiSpec.body(spec.operation("submitVatReturn"), values));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.loadtest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class LoadTestTest {
+
+    @Test
+    void stagesParseAsRateAndDuration() {
+        assertEquals(
+                List.of(
+                        new LoadTest.Stage(5, Duration.ofSeconds(60)),
+                        new LoadTest.Stage(20.5, Duration.ofMinutes(2)),
+                        new LoadTest.Stage(0, Duration.ofSeconds(30))),
+                LoadTest.Stage.parse("5/60s, 20.5/2m,0/30"));
+    }
+
+    @Test
+    void stagesRejectNegativeRatesAndMalformedEntries() {
+        for (String stages : List.of("-1/60s", "NaN/60s", "Infinity/60s", "5/0s", "5", "5/60s/1", "x/60s", "5/ys")) {
+            assertThrows(IllegalArgumentException.class, () -> LoadTest.Stage.parse(stages), stages);
+        }
+    }
+
+    @Test
+    void userValuesDifferPerUserAndVisit() {
+        var first = LoadTest.userValues(0, 0);
+        assertEquals("900000000", first.get("vrn"));
+        assertEquals(first.get("vrn"), first.get("vatNumber"));
+        assertEquals("17A1", first.get("periodKey"));
+        assertNotEquals(first.get("vrn"), LoadTest.userValues(1, 0).get("vrn"));
+
+        Set<String> periodKeys = new HashSet<>();
+        for (int visit = 0; visit < 100; visit++) {
+            String periodKey = LoadTest.userValues(7, visit).get("periodKey");
+            assertTrue(periodKey.matches("\\d{2}A[1-4]"), periodKey);
+            periodKeys.add(periodKey);
+        }
+        assertEquals(100, periodKeys.size());
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.loadtest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class ScenarioTest {
+
+    @Test
+    void scenariosParseAsNameWeightAndOperations() {
+        assertEquals(
+                List.of(
+                        new Scenario("submit", 2, List.of("getBundles", "submitVatReturn")),
+                        new Scenario("receipts", 1, List.of("getReceipts"))),
+                Scenario.parse("submit:2:getBundles, submitVatReturn; receipts:1:getReceipts;"));
+    }
+
+    @Test
+    void scenariosRejectMalformedEntries() {
+        for (String scenarios : List.of("", "submit:2", "submit:x:getBundles", "submit:0:getBundles")) {
+            assertThrows(IllegalArgumentException.class, () -> Scenario.parse(scenarios), scenarios);
+        }
+    }
+
+    @Test
+    void pickFollowsTheWeights() {
+        List<Scenario> scenarios = Scenario.parse("rare:1:getBundles;common:3:getBundles");
+        var random = new SplittableRandom(42);
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 40_000; i++) {
+            picks.merge(Scenario.pick(scenarios, random).name(), 1, Integer::sum);
+        }
+        assertEquals(10_000, picks.get("rare"), 500);
+        assertEquals(30_000, picks.get("common"), 500);
+    }
+
+    @Test
+    void defaultScenariosCallOperationsOfThePublishedSpec() throws Exception {
+        ApiSpec spec = ApiSpec.read(Path.of("web/public/docs/api/openapi.json"));
+        for (Scenario scenario : Scenario.parse(Scenario.DEFAULT_SCENARIOS)) {
+            scenario.operationIds().forEach(spec::operation);
+        }
+    }
+}
@@ -5,28 +5,34 @@
 
 package co.uk.diyaccounting.submit;
 
-import static co.uk.diyaccounting.submit.utils.Kind.envOr;
 import static co.uk.diyaccounting.submit.utils.Kind.infof;
 import static co.uk.diyaccounting.submit.utils.Kind.warnf;
 
 import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.ApiRoutes;
+import co.uk.diyaccounting.submit.constructs.ApiRoutesProps;
+import co.uk.diyaccounting.submit.nag.PerformanceChecks;
 import co.uk.diyaccounting.submit.stacks.AccountStack;
 import co.uk.diyaccounting.submit.stacks.ApiStack;
 import co.uk.diyaccounting.submit.stacks.AuthStack;
 import co.uk.diyaccounting.submit.stacks.BillingStack;
+import co.uk.diyaccounting.submit.stacks.BundleStack;
 import co.uk.diyaccounting.submit.stacks.EdgeStack;
 import co.uk.diyaccounting.submit.stacks.HmrcStack;
 import co.uk.diyaccounting.submit.stacks.OpsStack;
+import co.uk.diyaccounting.submit.stacks.PassStack;
 import co.uk.diyaccounting.submit.stacks.PublishStack;
 import co.uk.diyaccounting.submit.stacks.SelfDestructStack;
 import co.uk.diyaccounting.submit.utils.KindCdk;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
 import java.lang.reflect.Field;
 import java.nio.file.Paths;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import software.amazon.awscdk.App;
-import software.amazon.awscdk.Environment;
+import software.amazon.awscdk.Aspects;
+import software.amazon.awscdk.Stack;
 import software.constructs.Construct;
 
 public class SubmitApplication {
@@ -34,15 +40,19 @@ public class SubmitApplication {
     public final AuthStack authStack;
     public final HmrcStack hmrcStack;
     public final AccountStack accountStack;
+    public final BundleStack bundleStack;
+    public final PassStack passStack;
     public final BillingStack billingStack;
     public final ApiStack apiStack;
     public final OpsStack opsStack;
     public final EdgeStack edgeStack;
     public final PublishStack publishStack;
+    public final PerformanceProfile performanceProfile;
+    public final SubmitSharedNames sharedNames;
     public final SelfDestructStack selfDestructStack;
 
     public static class SubmitApplicationProps {
-        // Fields match cdk.json context keys (camelCase). Environment overrides are applied in SubmitApplication
+        // Fields match cdk.json context keys (camelCase). Environment overrides are applied in SubmitApplicationStacks
         public String envName;
         public String deploymentName;
         public String hostedZoneName;
@@ -62,6 +72,11 @@ public class SubmitApplication {
         public String hostedZoneId;
         public String certificateArn;
         public String docRootPath;
+        public String performanceProfilePath;
+        public String edgeFunctionAssetPath;
+        public String stagingDistributionTraffic;
+        public String stagingDistributionWeight;
+        public String stagingBehaviors;
         public String httpApiUrl;
         public String regionalCertificateArn;
         public String githubTokenSecretArn;
@@ -108,6 +123,7 @@ public class SubmitApplication {
         var submitApplication = new SubmitApplication(app, appProps);
         app.synth();
         infof("CDK synth complete");
+        submitApplication.performanceProfile.report(app.getOutdir());
         if (submitApplication.selfDestructStack != null) {
             infof("Created stack: %s", submitApplication.selfDestructStack.getStackName());
         } else {
@@ -117,329 +133,59 @@ public class SubmitApplication {
 
     public SubmitApplication(App app, SubmitApplicationProps appProps) {
 
-        // Determine environment and deployment name from env or appProps
-        String envName = envOr("ENVIRONMENT_NAME", appProps.envName);
-        String deploymentName = envOr("DEPLOYMENT_NAME", appProps.deploymentName);
+        var stacks = new SubmitApplicationStacks(appProps);
+        this.sharedNames = stacks.sharedNames;
+        Aspects.of(app).add(PerformanceChecks.of(sharedNames));
+        this.performanceProfile = stacks.performanceProfile;
+        this.performanceProfile.validate(sharedNames.profiledLambdaFunctionNames());
+
+        this.authStack = stacks.authStack(app);
+        this.hmrcStack = stacks.hmrcStack(app);
+        this.accountStack = stacks.accountStack(app);
+        this.bundleStack = stacks.bundleStack(app);
+        this.passStack = stacks.passStack(app);
+        this.billingStack = stacks.billingStack(app);
+        this.apiStack = stacks.apiStack(app);
+
+        // Each domain stack attaches its own routes to the HttpApi using the IDs the ApiStack publishes to SSM, so
+        // they depend on the ApiStack (rather than it on all of them) and deploy in parallel with each other
+        Map<String, String> stackIdByRouteKey = new HashMap<>();
+        attachRoutes(authStack, authStack.lambdaFunctionProps, sharedNames, stackIdByRouteKey);
+        attachRoutes(hmrcStack, hmrcStack.lambdaFunctionProps, sharedNames, stackIdByRouteKey);
+        attachRoutes(accountStack, accountStack.lambdaFunctionProps, sharedNames, stackIdByRouteKey);
+        attachRoutes(bundleStack, bundleStack.lambdaFunctionProps, sharedNames, stackIdByRouteKey);
+        attachRoutes(passStack, passStack.lambdaFunctionProps, sharedNames, stackIdByRouteKey);
+        attachRoutes(billingStack, billingStack.lambdaFunctionProps, sharedNames, stackIdByRouteKey);
+
+        this.opsStack = stacks.opsStack(app);
+        this.edgeStack = stacks.edgeStack(app);
+        this.publishStack = stacks.publishStack(app, edgeStack);
 
-        // Determine primary environment (account/region) from CDK env
-        Environment primaryEnv = KindCdk.buildPrimaryEnvironment();
-        Environment usEast1Env = Environment.builder()
-                .region("us-east-1")
-                .account(primaryEnv.getAccount())
-                .build();
-
-        var nameProps = new SubmitSharedNames.SubmitSharedNamesProps();
-        nameProps.envName = envName;
-        nameProps.deploymentName = deploymentName;
-        nameProps.hostedZoneName = appProps.hostedZoneName;
-        nameProps.subDomainName = appProps.subDomainName;
-        nameProps.regionName = primaryEnv.getRegion();
-        nameProps.awsAccount = primaryEnv.getAccount();
-        var sharedNames = new SubmitSharedNames(nameProps);
-
-        // Allow environment variables to override some appProps values
-        var cognitoUserPoolArn = envOr("COGNITO_USER_POOL_ARN", appProps.userPoolArn, "(from userPoolArn in cdk.json)");
-        var cognitoUserPoolClientId =
-                envOr("COGNITO_CLIENT_ID", appProps.userPoolClientId, "(from userPoolClientId in cdk.json)");
-        var cognitoUserPoolId = cognitoUserPoolArn != null
-                ? cognitoUserPoolArn.split("/")[1]
-                : "(unknown cognitoUserPoolId because no cognitoUserPoolArn)";
-        var hmrcClientSecretArn =
-                envOr("HMRC_CLIENT_SECRET_ARN", appProps.hmrcClientSecretArn, "(from hmrcClientSecretArn in cdk.json)");
-        var hmrcSandboxClientSecretArn = envOr(
-                "HMRC_SANDBOX_CLIENT_SECRET_ARN",
-                appProps.hmrcSandboxClientSecretArn,
-                "(from hmrcSandboxClientSecretArn in cdk.json)");
-        var baseImageTag = envOr("BASE_IMAGE_TAG", appProps.baseImageTag, "(from baseImageTag in cdk.json)");
-        var selfDestructDelayHoursString = envOr(
-                "SELF_DESTRUCT_DELAY_HOURS",
-                appProps.selfDestructDelayHours,
-                "(from selfDestructDelayHours in cdk.json)");
-        int selfDestructDelayHours = Integer.parseInt(selfDestructDelayHoursString);
-        var selfDestructStartDatetimeIso = envOr(
-                "SELF_DESTRUCT_START_DATETIME",
-                ZonedDateTime.now().plusHours(selfDestructDelayHours).format(DateTimeFormatter.ISO_DATE_TIME),
-                "(from current time plus delay hours)");
-        ZonedDateTime selfDestructStartDatetime = ZonedDateTime.parse(selfDestructStartDatetimeIso);
-        infof("Self-destruct start datetime: %s", selfDestructStartDatetime);
-        var cloudTrailEnabled =
-                envOr("CLOUD_TRAIL_ENABLED", appProps.cloudTrailEnabled, "(from cloudTrailEnabled in cdk.json)");
-        var httpApiUrl = envOr("HTTP_API_URL", appProps.httpApiUrl, "(from httpApiUrl in cdk.json)");
-        var stripeSecretKeyArn =
-                envOr("STRIPE_SECRET_KEY_ARN", appProps.stripeSecretKeyArn, "(from stripeSecretKeyArn in cdk.json)");
-        var stripeTestSecretKeyArn = envOr(
-                "STRIPE_TEST_SECRET_KEY_ARN",
-                appProps.stripeTestSecretKeyArn,
-                "(from stripeTestSecretKeyArn in cdk.json)");
-        var stripePriceIdResidentPro = envOr(
-                "STRIPE_PRICE_ID_RESIDENT_PRO",
-                appProps.stripePriceIdResidentPro,
-                "(from stripePriceIdResidentPro in cdk.json)");
-        var stripeTestPriceIdResidentPro = envOr(
-                "STRIPE_TEST_PRICE_ID_RESIDENT_PRO",
-                appProps.stripeTestPriceIdResidentPro,
-                "(from stripeTestPriceIdResidentPro in cdk.json)");
-        var stripePriceIdResidentVat = envOr(
-                "STRIPE_PRICE_ID_RESIDENT_VAT",
-                appProps.stripePriceIdResidentVat,
-                "(from stripePriceIdResidentVat in cdk.json)");
-        var stripeTestPriceIdResidentVat = envOr(
-                "STRIPE_TEST_PRICE_ID_RESIDENT_VAT",
-                appProps.stripeTestPriceIdResidentVat,
-                "(from stripeTestPriceIdResidentVat in cdk.json)");
-        var stripeWebhookSecretArn = envOr(
-                "STRIPE_WEBHOOK_SECRET_ARN",
-                appProps.stripeWebhookSecretArn,
-                "(from stripeWebhookSecretArn in cdk.json)");
-        var stripeTestWebhookSecretArn = envOr(
-                "STRIPE_TEST_WEBHOOK_SECRET_ARN",
-                appProps.stripeTestWebhookSecretArn,
-                "(from stripeTestWebhookSecretArn in cdk.json)");
-        var telegramBotTokenArn =
-                envOr("TELEGRAM_BOT_TOKEN_ARN", appProps.telegramBotTokenArn, "(from telegramBotTokenArn in cdk.json)");
-        var telegramTestChatId =
-                envOr("TELEGRAM_TEST_CHAT_ID", appProps.telegramTestChatId, "(from telegramTestChatId in cdk.json)");
-        var telegramLiveChatId =
-                envOr("TELEGRAM_LIVE_CHAT_ID", appProps.telegramLiveChatId, "(from telegramLiveChatId in cdk.json)");
-        var telegramOpsChatId =
-                envOr("TELEGRAM_OPS_CHAT_ID", appProps.telegramOpsChatId, "(from telegramOpsChatId in cdk.json)");
-        var certificateArn = envOr("CERTIFICATE_ARN", appProps.certificateArn, "(from certificateArn in cdk.json)");
-        var regionalCertificateArn = envOr(
-                "REGIONAL_CERTIFICATE_ARN",
-                appProps.regionalCertificateArn,
-                "(from regionalCertificateArn in cdk.json)");
-        var commitHash = envOr("COMMIT_HASH", "local");
-        var websiteHash = envOr("WEBSITE_HASH", "local");
-        var buildNumber = envOr("BUILD_NUMBER", "local");
-        var docRootPath = envOr("DOC_ROOT_PATH", appProps.docRootPath, "(from docRootPath in cdk.json)");
-
-        // Create the AuthStack with resources used in authentication and authorisation
-        infof(
-                "Synthesizing stack %s for deployment %s to environment %s",
-                sharedNames.authStackId, deploymentName, envName);
-        this.authStack = new AuthStack(
-                app,
-                sharedNames.authStackId,
-                AuthStack.AuthStackProps.builder()
-                        .env(primaryEnv)
-                        .crossRegionReferences(false)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
-                        .sharedNames(sharedNames)
-                        .baseImageTag(baseImageTag)
-                        .cognitoClientId(cognitoUserPoolClientId)
-                        .cognitoUserPoolId(cognitoUserPoolId)
-                        .cognitoUserPoolClientId(cognitoUserPoolClientId)
-                        .build());
-
-        // Create the HmrcStack
-        infof(
-                "Synthesizing stack %s for deployment %s to environment %s",
-                sharedNames.hmrcStackId, deploymentName, envName);
-        this.hmrcStack = new HmrcStack(
-                app,
-                sharedNames.hmrcStackId,
-                HmrcStack.HmrcStackProps.builder()
-                        .env(primaryEnv)
-                        .crossRegionReferences(false)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
-                        .sharedNames(sharedNames)
-                        .baseImageTag(baseImageTag)
-                        .hmrcBaseUri(appProps.hmrcBaseUri)
-                        .hmrcClientId(appProps.hmrcClientId)
-                        .hmrcClientSecretArn(hmrcClientSecretArn)
-                        .hmrcSandboxBaseUri(appProps.hmrcSandboxBaseUri)
-                        .hmrcSandboxClientId(appProps.hmrcSandboxClientId)
-                        .hmrcSandboxClientSecretArn(hmrcSandboxClientSecretArn)
-                        .cognitoUserPoolId(cognitoUserPoolId)
-                        .build());
-
-        // Create the AccountStack
-        infof(
-                "Synthesizing stack %s for deployment %s to environment %s",
-                sharedNames.accountStackId, deploymentName, envName);
-        var githubTokenSecretArn = envOr(
-                "GITHUB_TOKEN_SECRET_ARN", appProps.githubTokenSecretArn, "(from githubTokenSecretArn in cdk.json)");
-        this.accountStack = new AccountStack(
-                app,
-                sharedNames.accountStackId,
-                AccountStack.AccountStackProps.builder()
-                        .env(primaryEnv)
-                        .crossRegionReferences(false)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
-                        .sharedNames(sharedNames)
-                        .baseImageTag(baseImageTag)
-                        .cognitoUserPoolArn(cognitoUserPoolArn)
-                        .githubTokenSecretArn(githubTokenSecretArn != null ? githubTokenSecretArn : "")
-                        .feedbackEngagementEnabled("true".equalsIgnoreCase(appProps.feedbackEngagementEnabled))
-                        .build());
-
-        // Create the BillingStack
-        infof(
-                "Synthesizing stack %s for deployment %s to environment %s",
-                sharedNames.billingStackId, deploymentName, envName);
-        this.billingStack = new BillingStack(
-                app,
-                sharedNames.billingStackId,
-                BillingStack.BillingStackProps.builder()
-                        .env(primaryEnv)
-                        .crossRegionReferences(false)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
-                        .sharedNames(sharedNames)
-                        .baseImageTag(baseImageTag)
-                        .stripeSecretKeyArn(stripeSecretKeyArn != null ? stripeSecretKeyArn : "")
-                        .stripeTestSecretKeyArn(stripeTestSecretKeyArn != null ? stripeTestSecretKeyArn : "")
-                        .stripePriceIdResidentPro(stripePriceIdResidentPro != null ? stripePriceIdResidentPro : "")
-                        .stripeTestPriceIdResidentPro(
-                                stripeTestPriceIdResidentPro != null ? stripeTestPriceIdResidentPro : "")
-                        .stripePriceIdResidentVat(stripePriceIdResidentVat != null ? stripePriceIdResidentVat : "")
-                        .stripeTestPriceIdResidentVat(
-                                stripeTestPriceIdResidentVat != null ? stripeTestPriceIdResidentVat : "")
-                        .baseUrl(sharedNames.publicBaseUrl)
-                        .build());
-
-        // Create the ApiStack with API Gateway v2 for all Lambda endpoints
-        infof(
-                "Synthesizing stack %s for deployment %s to environment %s",
-                sharedNames.apiStackId, deploymentName, envName);
-
-        // Create a map of Lambda function references from other stacks
-        List<AbstractApiLambdaProps> lambdaFunctions = new java.util.ArrayList<>();
-        lambdaFunctions.addAll(this.authStack.lambdaFunctionProps);
-        lambdaFunctions.addAll(this.hmrcStack.lambdaFunctionProps);
-        lambdaFunctions.addAll(this.accountStack.lambdaFunctionProps);
-        lambdaFunctions.addAll(this.billingStack.lambdaFunctionProps);
+        // Create the SelfDestruct stack only for non-prod deployments
+        this.selfDestructStack = !"prod".equals(stacks.envName) ? stacks.selfDestructStack(app, edgeStack) : null;
+    }
 
-        this.apiStack = new ApiStack(
-                app,
-                sharedNames.apiStackId,
-                ApiStack.ApiStackProps.builder()
-                        .env(primaryEnv)
-                        .crossRegionReferences(false)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
+    private void attachRoutes(
+            Stack routeStack,
+            List<AbstractApiLambdaProps> lambdaFunctions,
+            SubmitSharedNames sharedNames,
+            Map<String, String> stackIdByRouteKey) {
+        var routes = new ApiRoutes(
+                routeStack,
+                ApiRoutesProps.builder()
                         .sharedNames(sharedNames)
                         .lambdaFunctions(lambdaFunctions)
-                        .userPoolId(cognitoUserPoolId)
-                        .userPoolClientId(cognitoUserPoolClientId)
-                        .customAuthorizerLambdaArn(authStack.customAuthorizerLambda.getFunctionArn())
-                        .buildNumber(buildNumber)
-                        .regionalCertificateArn(regionalCertificateArn)
-                        .build());
-        this.apiStack.addDependency(accountStack);
-        this.apiStack.addDependency(hmrcStack);
-        this.apiStack.addDependency(authStack);
-        this.apiStack.addDependency(billingStack);
-
-        // Get optional alert email from environment variable
-        String alertEmail = envOr("ALERT_EMAIL", "");
-
-        this.opsStack = new OpsStack(
-                app,
-                sharedNames.opsStackId,
-                OpsStack.OpsStackProps.builder()
-                        .env(primaryEnv)
-                        .crossRegionReferences(false)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
-                        .sharedNames(sharedNames)
-                        .baseImageTag(baseImageTag)
-                        .baseUrl(sharedNames.baseUrl)
-                        .apexDomain(sharedNames.envDomainName)
-                        .alertEmail(alertEmail)
-                        .telegramBotTokenArn(telegramBotTokenArn != null ? telegramBotTokenArn : "")
-                        .telegramTestChatId(telegramTestChatId != null ? telegramTestChatId : "")
-                        .telegramLiveChatId(telegramLiveChatId != null ? telegramLiveChatId : "")
-                        .telegramOpsChatId(telegramOpsChatId != null ? telegramOpsChatId : "")
-                        .build());
-        // this.opsStack.addDependency(hmrcStack);
-        // this.opsStack.addDependency(apiStack);
-
-        // Create the Edge stack (CloudFront, Route53)
-        infof(
-                "Synthesizing stack %s for deployment %s to environment %s",
-                sharedNames.edgeStackId, deploymentName, envName);
-        this.edgeStack = new EdgeStack(
-                app,
-                sharedNames.edgeStackId,
-                EdgeStack.EdgeStackProps.builder()
-                        .env(usEast1Env)
-                        .crossRegionReferences(true)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
-                        .sharedNames(sharedNames)
-                        .hostedZoneName(appProps.hostedZoneName)
-                        .hostedZoneId(appProps.hostedZoneId)
-                        .certificateArn(certificateArn)
-                        .apiGatewayUrl(httpApiUrl)
-                        .build());
-
-        // Create the Publish stack (Bucket Deployments to CloudFront)
-        infof(
-                "Synthesizing stack %s for deployment %s to environment %s",
-                sharedNames.publishStackId, deploymentName, envName);
-        String distributionId = this.edgeStack.distribution.getDistributionId();
-        String originBucketName = this.edgeStack.originBucket.getBucketName();
-        this.publishStack = new PublishStack(
-                app,
-                sharedNames.publishStackId,
-                PublishStack.PublishStackProps.builder()
-                        .env(usEast1Env)
-                        .crossRegionReferences(false)
-                        .envName(envName)
-                        .deploymentName(deploymentName)
-                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                        .cloudTrailEnabled(cloudTrailEnabled)
-                        .sharedNames(sharedNames)
-                        .distributionId(distributionId)
-                        .originBucketName(originBucketName)
-                        .commitHash(commitHash)
-                        .websiteHash(websiteHash)
-                        .buildNumber(buildNumber)
-                        .docRootPath(docRootPath)
                         .build());
-        // this.publishStack.addDependency(this.edgeStack);
-
-        // Create the SelfDestruct stack only for non-prod deployments
-        if (!"prod".equals(envName)) {
-            this.selfDestructStack = new SelfDestructStack(
-                    app,
-                    sharedNames.selfDestructStackId,
-                    SelfDestructStack.SelfDestructStackProps.builder()
-                            .env(primaryEnv)
-                            .crossRegionReferences(false)
-                            .envName(envName)
-                            .deploymentName(deploymentName)
-                            .resourceNamePrefix(sharedNames.appResourceNamePrefix)
-                            .cloudTrailEnabled(cloudTrailEnabled)
-                            .sharedNames(sharedNames)
-                            .baseImageTag(baseImageTag)
-                            .selfDestructLogGroupName(sharedNames.ew2SelfDestructLogGroupName)
-                            .selfDestructStartDatetime(selfDestructStartDatetime)
-                            .selfDestructDelayHours(selfDestructDelayHours)
-                            .isApplicationStack(true)
-                            .originBucketName(originBucketName)
-                            .build());
-        } else {
-            this.selfDestructStack = null;
+        // A route key can only exist once on the HttpApi, and stacks deploy independently so cannot share one
+        for (String routeKey : routes.creatorByRouteKey.keySet()) {
+            String otherStackId =
+                    stackIdByRouteKey.putIfAbsent(routeKey, routeStack.getNode().getId());
+            if (otherStackId != null) {
+                throw new IllegalStateException("Route %s is attached by both %s and %s"
+                        .formatted(routeKey, otherStackId, routeStack.getNode().getId()));
+            }
         }
+        routeStack.addDependency(this.apiStack);
     }
 
     // populate from cdk.json context using exact camelCase keys
@@ -0,0 +1,451 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import static co.uk.diyaccounting.submit.utils.Kind.envOr;
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+
+import co.uk.diyaccounting.submit.stacks.AccountStack;
+import co.uk.diyaccounting.submit.stacks.ApiStack;
+import co.uk.diyaccounting.submit.stacks.AuthStack;
+import co.uk.diyaccounting.submit.stacks.BillingStack;
+import co.uk.diyaccounting.submit.stacks.BundleStack;
+import co.uk.diyaccounting.submit.stacks.EdgeStack;
+import co.uk.diyaccounting.submit.stacks.HmrcStack;
+import co.uk.diyaccounting.submit.stacks.OpsStack;
+import co.uk.diyaccounting.submit.stacks.PassStack;
+import co.uk.diyaccounting.submit.stacks.PublishStack;
+import co.uk.diyaccounting.submit.stacks.SelfDestructStack;
+import co.uk.diyaccounting.submit.utils.KindCdk;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import software.amazon.awscdk.Environment;
+import software.constructs.Construct;
+
+/**
+ * The stacks of the application deployment, each with the props SubmitApplication passes it. The deployment's
+ * settings are resolved once, from cdk.json with environment variable overrides, and each stack can then be built
+ * into any scope: SubmitApplication builds them all into one App, StackSynthBenchmark one at a time.
+ */
+public class SubmitApplicationStacks {
+
+    public final String envName;
+    public final String deploymentName;
+    public final Environment primaryEnv;
+    public final Environment usEast1Env;
+    public final SubmitSharedNames sharedNames;
+    public final PerformanceProfile performanceProfile;
+
+    private final SubmitApplication.SubmitApplicationProps appProps;
+    private final String cognitoUserPoolArn;
+    private final String cognitoUserPoolClientId;
+    private final String cognitoUserPoolId;
+    private final String hmrcClientSecretArn;
+    private final String hmrcSandboxClientSecretArn;
+    private final String baseImageTag;
+    private final int selfDestructDelayHours;
+    private final ZonedDateTime selfDestructStartDatetime;
+    private final String cloudTrailEnabled;
+    private final String httpApiUrl;
+    private final String githubTokenSecretArn;
+    private final String stripeSecretKeyArn;
+    private final String stripeTestSecretKeyArn;
+    private final String stripePriceIdResidentPro;
+    private final String stripeTestPriceIdResidentPro;
+    private final String stripePriceIdResidentVat;
+    private final String stripeTestPriceIdResidentVat;
+    private final String telegramBotTokenArn;
+    private final String telegramTestChatId;
+    private final String telegramLiveChatId;
+    private final String telegramOpsChatId;
+    private final String alertEmail;
+    private final String certificateArn;
+    private final String regionalCertificateArn;
+    private final String commitHash;
+    private final String websiteHash;
+    private final String buildNumber;
+    private final String docRootPath;
+    private final String edgeFunctionAssetPath;
+    private final String stagingDistributionTraffic;
+    private final String stagingDistributionWeight;
+    private final String stagingBehaviors;
+
+    public SubmitApplicationStacks(SubmitApplication.SubmitApplicationProps appProps) {
+        this.appProps = appProps;
+
+        // Determine environment and deployment name from env or appProps
+        this.envName = envOr("ENVIRONMENT_NAME", appProps.envName);
+        this.deploymentName = envOr("DEPLOYMENT_NAME", appProps.deploymentName);
+
+        // Determine primary environment (account/region) from CDK env
+        this.primaryEnv = KindCdk.buildPrimaryEnvironment();
+        this.usEast1Env = Environment.builder()
+                .region("us-east-1")
+                .account(primaryEnv.getAccount())
+                .build();
+
+        var nameProps = new SubmitSharedNames.SubmitSharedNamesProps();
+        nameProps.envName = envName;
+        nameProps.deploymentName = deploymentName;
+        nameProps.hostedZoneName = appProps.hostedZoneName;
+        nameProps.subDomainName = appProps.subDomainName;
+        nameProps.regionName = primaryEnv.getRegion();
+        nameProps.awsAccount = primaryEnv.getAccount();
+        this.sharedNames = new SubmitSharedNames(nameProps);
+
+        // Allow environment variables to override some appProps values
+        this.cognitoUserPoolArn =
+                envOr("COGNITO_USER_POOL_ARN", appProps.userPoolArn, "(from userPoolArn in cdk.json)");
+        this.cognitoUserPoolClientId =
+                envOr("COGNITO_CLIENT_ID", appProps.userPoolClientId, "(from userPoolClientId in cdk.json)");
+        this.cognitoUserPoolId = cognitoUserPoolArn != null
+                ? cognitoUserPoolArn.split("/")[1]
+                : "(unknown cognitoUserPoolId because no cognitoUserPoolArn)";
+        this.hmrcClientSecretArn =
+                envOr("HMRC_CLIENT_SECRET_ARN", appProps.hmrcClientSecretArn, "(from hmrcClientSecretArn in cdk.json)");
+        this.hmrcSandboxClientSecretArn = envOr(
+                "HMRC_SANDBOX_CLIENT_SECRET_ARN",
+                appProps.hmrcSandboxClientSecretArn,
+                "(from hmrcSandboxClientSecretArn in cdk.json)");
+        this.baseImageTag = envOr("BASE_IMAGE_TAG", appProps.baseImageTag, "(from baseImageTag in cdk.json)");
+        var selfDestructDelayHoursString = envOr(
+                "SELF_DESTRUCT_DELAY_HOURS",
+                appProps.selfDestructDelayHours,
+                "(from selfDestructDelayHours in cdk.json)");
+        this.selfDestructDelayHours = Integer.parseInt(selfDestructDelayHoursString);
+        var selfDestructStartDatetimeIso = envOr(
+                "SELF_DESTRUCT_START_DATETIME",
+                ZonedDateTime.now().plusHours(selfDestructDelayHours).format(DateTimeFormatter.ISO_DATE_TIME),
+                "(from current time plus delay hours)");
+        this.selfDestructStartDatetime = ZonedDateTime.parse(selfDestructStartDatetimeIso);
+        infof("Self-destruct start datetime: %s", selfDestructStartDatetime);
+        this.cloudTrailEnabled =
+                envOr("CLOUD_TRAIL_ENABLED", appProps.cloudTrailEnabled, "(from cloudTrailEnabled in cdk.json)");
+        this.httpApiUrl = envOr("HTTP_API_URL", appProps.httpApiUrl, "(from httpApiUrl in cdk.json)");
+        this.githubTokenSecretArn = envOr(
+                "GITHUB_TOKEN_SECRET_ARN", appProps.githubTokenSecretArn, "(from githubTokenSecretArn in cdk.json)");
+        this.stripeSecretKeyArn =
+                envOr("STRIPE_SECRET_KEY_ARN", appProps.stripeSecretKeyArn, "(from stripeSecretKeyArn in cdk.json)");
+        this.stripeTestSecretKeyArn = envOr(
+                "STRIPE_TEST_SECRET_KEY_ARN",
+                appProps.stripeTestSecretKeyArn,
+                "(from stripeTestSecretKeyArn in cdk.json)");
+        this.stripePriceIdResidentPro = envOr(
+                "STRIPE_PRICE_ID_RESIDENT_PRO",
+                appProps.stripePriceIdResidentPro,
+                "(from stripePriceIdResidentPro in cdk.json)");
+        this.stripeTestPriceIdResidentPro = envOr(
+                "STRIPE_TEST_PRICE_ID_RESIDENT_PRO",
+                appProps.stripeTestPriceIdResidentPro,
+                "(from stripeTestPriceIdResidentPro in cdk.json)");
+        this.stripePriceIdResidentVat = envOr(
+                "STRIPE_PRICE_ID_RESIDENT_VAT",
+                appProps.stripePriceIdResidentVat,
+                "(from stripePriceIdResidentVat in cdk.json)");
+        this.stripeTestPriceIdResidentVat = envOr(
+                "STRIPE_TEST_PRICE_ID_RESIDENT_VAT",
+                appProps.stripeTestPriceIdResidentVat,
+                "(from stripeTestPriceIdResidentVat in cdk.json)");
+        this.telegramBotTokenArn =
+                envOr("TELEGRAM_BOT_TOKEN_ARN", appProps.telegramBotTokenArn, "(from telegramBotTokenArn in cdk.json)");
+        this.telegramTestChatId =
+                envOr("TELEGRAM_TEST_CHAT_ID", appProps.telegramTestChatId, "(from telegramTestChatId in cdk.json)");
+        this.telegramLiveChatId =
+                envOr("TELEGRAM_LIVE_CHAT_ID", appProps.telegramLiveChatId, "(from telegramLiveChatId in cdk.json)");
+        this.telegramOpsChatId =
+                envOr("TELEGRAM_OPS_CHAT_ID", appProps.telegramOpsChatId, "(from telegramOpsChatId in cdk.json)");
+        // Get optional alert email from environment variable
+        this.alertEmail = envOr("ALERT_EMAIL", "");
+        this.certificateArn = envOr("CERTIFICATE_ARN", appProps.certificateArn, "(from certificateArn in cdk.json)");
+        this.regionalCertificateArn = envOr(
+                "REGIONAL_CERTIFICATE_ARN",
+                appProps.regionalCertificateArn,
+                "(from regionalCertificateArn in cdk.json)");
+        this.commitHash = envOr("COMMIT_HASH", "local");
+        this.websiteHash = envOr("WEBSITE_HASH", "local");
+        this.buildNumber = envOr("BUILD_NUMBER", "local");
+        this.docRootPath = envOr("DOC_ROOT_PATH", appProps.docRootPath, "(from docRootPath in cdk.json)");
+        this.edgeFunctionAssetPath = envOr(
+                "EDGE_FUNCTION_ASSET_PATH", appProps.edgeFunctionAssetPath, "(from edgeFunctionAssetPath in cdk.json)");
+        this.stagingDistributionTraffic = envOr(
+                "STAGING_DISTRIBUTION_TRAFFIC",
+                appProps.stagingDistributionTraffic,
+                "(from stagingDistributionTraffic in cdk.json)");
+        this.stagingDistributionWeight = envOr(
+                "STAGING_DISTRIBUTION_WEIGHT",
+                appProps.stagingDistributionWeight,
+                "(from stagingDistributionWeight in cdk.json)");
+        this.stagingBehaviors =
+                envOr("STAGING_BEHAVIORS", appProps.stagingBehaviors, "(from stagingBehaviors in cdk.json)");
+        var performanceProfilePath = envOr(
+                "PERFORMANCE_PROFILE_PATH",
+                appProps.performanceProfilePath,
+                "(from performanceProfilePath in cdk.json)");
+        this.performanceProfile =
+                PerformanceProfile.load(performanceProfilePath, envName, sharedNames.appResourceNamePrefix);
+    }
+
+    /** The AuthStack with resources used in authentication and authorisation */
+    public AuthStack authStack(Construct scope) {
+        logSynthesizing(sharedNames.authStackId);
+        return new AuthStack(
+                scope,
+                sharedNames.authStackId,
+                AuthStack.AuthStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .cognitoClientId(cognitoUserPoolClientId)
+                        .cognitoUserPoolId(cognitoUserPoolId)
+                        .cognitoUserPoolClientId(cognitoUserPoolClientId)
+                        .build());
+    }
+
+    public HmrcStack hmrcStack(Construct scope) {
+        logSynthesizing(sharedNames.hmrcStackId);
+        return new HmrcStack(
+                scope,
+                sharedNames.hmrcStackId,
+                HmrcStack.HmrcStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .hmrcBaseUri(appProps.hmrcBaseUri)
+                        .hmrcClientId(appProps.hmrcClientId)
+                        .hmrcClientSecretArn(hmrcClientSecretArn)
+                        .hmrcSandboxBaseUri(appProps.hmrcSandboxBaseUri)
+                        .hmrcSandboxClientId(appProps.hmrcSandboxClientId)
+                        .hmrcSandboxClientSecretArn(hmrcSandboxClientSecretArn)
+                        .cognitoUserPoolId(cognitoUserPoolId)
+                        .build());
+    }
+
+    public AccountStack accountStack(Construct scope) {
+        logSynthesizing(sharedNames.accountStackId);
+        return new AccountStack(
+                scope,
+                sharedNames.accountStackId,
+                AccountStack.AccountStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .githubTokenSecretArn(orEmpty(githubTokenSecretArn))
+                        .feedbackEngagementEnabled("true".equalsIgnoreCase(appProps.feedbackEngagementEnabled))
+                        .build());
+    }
+
+    public BundleStack bundleStack(Construct scope) {
+        logSynthesizing(sharedNames.bundleStackId);
+        return new BundleStack(
+                scope,
+                sharedNames.bundleStackId,
+                BundleStack.BundleStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .cognitoUserPoolArn(cognitoUserPoolArn)
+                        .build());
+    }
+
+    public PassStack passStack(Construct scope) {
+        logSynthesizing(sharedNames.passStackId);
+        return new PassStack(
+                scope,
+                sharedNames.passStackId,
+                PassStack.PassStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .build());
+    }
+
+    public BillingStack billingStack(Construct scope) {
+        logSynthesizing(sharedNames.billingStackId);
+        return new BillingStack(
+                scope,
+                sharedNames.billingStackId,
+                BillingStack.BillingStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .stripeSecretKeyArn(orEmpty(stripeSecretKeyArn))
+                        .stripeTestSecretKeyArn(orEmpty(stripeTestSecretKeyArn))
+                        .stripePriceIdResidentPro(orEmpty(stripePriceIdResidentPro))
+                        .stripeTestPriceIdResidentPro(orEmpty(stripeTestPriceIdResidentPro))
+                        .stripePriceIdResidentVat(orEmpty(stripePriceIdResidentVat))
+                        .stripeTestPriceIdResidentVat(orEmpty(stripeTestPriceIdResidentVat))
+                        .baseUrl(sharedNames.publicBaseUrl)
+                        .build());
+    }
+
+    /** The ApiStack with the API Gateway v2 HttpApi and authorizers shared by all Lambda endpoints */
+    public ApiStack apiStack(Construct scope) {
+        logSynthesizing(sharedNames.apiStackId);
+        return new ApiStack(
+                scope,
+                sharedNames.apiStackId,
+                ApiStack.ApiStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .userPoolId(cognitoUserPoolId)
+                        .userPoolClientId(cognitoUserPoolClientId)
+                        .customAuthorizerLambdaArn(sharedNames.customAuthorizerIngestLambdaArn)
+                        .buildNumber(buildNumber)
+                        .regionalCertificateArn(regionalCertificateArn)
+                        .build());
+    }
+
+    public OpsStack opsStack(Construct scope) {
+        logSynthesizing(sharedNames.opsStackId);
+        return new OpsStack(
+                scope,
+                sharedNames.opsStackId,
+                OpsStack.OpsStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .baseUrl(sharedNames.baseUrl)
+                        .apexDomain(sharedNames.envDomainName)
+                        .alertEmail(alertEmail)
+                        .telegramBotTokenArn(orEmpty(telegramBotTokenArn))
+                        .telegramTestChatId(orEmpty(telegramTestChatId))
+                        .telegramLiveChatId(orEmpty(telegramLiveChatId))
+                        .telegramOpsChatId(orEmpty(telegramOpsChatId))
+                        .build());
+    }
+
+    /** The Edge stack (CloudFront, Route53) */
+    public EdgeStack edgeStack(Construct scope) {
+        logSynthesizing(sharedNames.edgeStackId);
+        return new EdgeStack(
+                scope,
+                sharedNames.edgeStackId,
+                EdgeStack.EdgeStackProps.builder()
+                        .env(usEast1Env)
+                        .crossRegionReferences(true)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .hostedZoneName(appProps.hostedZoneName)
+                        .hostedZoneId(appProps.hostedZoneId)
+                        .certificateArn(certificateArn)
+                        .apiGatewayUrl(httpApiUrl)
+                        .baseImageTag(baseImageTag)
+                        .edgeFunctionAssetPath(edgeFunctionAssetPath)
+                        .stagingDistributionTraffic(orEmpty(stagingDistributionTraffic))
+                        .stagingDistributionWeight(
+                                stagingDistributionWeight != null && !stagingDistributionWeight.isBlank()
+                                        ? stagingDistributionWeight
+                                        : "0.05")
+                        .stagingBehaviors(orEmpty(stagingBehaviors))
+                        .build());
+    }
+
+    /** The Publish stack (Bucket Deployments to CloudFront), deploying to the distribution of the Edge stack */
+    public PublishStack publishStack(Construct scope, EdgeStack edgeStack) {
+        logSynthesizing(sharedNames.publishStackId);
+        return new PublishStack(
+                scope,
+                sharedNames.publishStackId,
+                PublishStack.PublishStackProps.builder()
+                        .env(usEast1Env)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .distributionId(edgeStack.distribution.getDistributionId())
+                        .originBucketName(edgeStack.originBucket.getBucketName())
+                        .commitHash(commitHash)
+                        .websiteHash(websiteHash)
+                        .buildNumber(buildNumber)
+                        .docRootPath(docRootPath)
+                        .build());
+    }
+
+    /** The SelfDestruct stack of a non-prod deployment, emptying the origin bucket of the Edge stack */
+    public SelfDestructStack selfDestructStack(Construct scope, EdgeStack edgeStack) {
+        return new SelfDestructStack(
+                scope,
+                sharedNames.selfDestructStackId,
+                SelfDestructStack.SelfDestructStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.appResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .performanceProfile(performanceProfile)
+                        .baseImageTag(baseImageTag)
+                        .selfDestructLogGroupName(sharedNames.ew2SelfDestructLogGroupName)
+                        .selfDestructStartDatetime(selfDestructStartDatetime)
+                        .selfDestructDelayHours(selfDestructDelayHours)
+                        .isApplicationStack(true)
+                        .originBucketName(edgeStack.originBucket.getBucketName())
+                        .build());
+    }
+
+    private void logSynthesizing(String stackId) {
+        infof("Synthesizing stack %s for deployment %s to environment %s", stackId, deploymentName, envName);
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
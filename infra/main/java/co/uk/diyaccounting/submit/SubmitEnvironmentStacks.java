@@ -0,0 +1,373 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import static co.uk.diyaccounting.submit.utils.Kind.envOr;
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import co.uk.diyaccounting.submit.stacks.ActivityStack;
+import co.uk.diyaccounting.submit.stacks.ApexStack;
+import co.uk.diyaccounting.submit.stacks.BackupStack;
+import co.uk.diyaccounting.submit.stacks.BillingWebhookStack;
+import co.uk.diyaccounting.submit.stacks.DataStack;
+import co.uk.diyaccounting.submit.stacks.EcrStack;
+import co.uk.diyaccounting.submit.stacks.IdentityStack;
+import co.uk.diyaccounting.submit.stacks.ObservabilityStack;
+import co.uk.diyaccounting.submit.stacks.ObservabilityUE1Stack;
+import co.uk.diyaccounting.submit.stacks.SimulatorStack;
+import co.uk.diyaccounting.submit.utils.KindCdk;
+import java.nio.file.Paths;
+import software.amazon.awscdk.Environment;
+import software.constructs.Construct;
+
+/**
+ * The stacks of the environment, each with the props SubmitEnvironment passes it, built into any scope from
+ * settings resolved once like SubmitApplicationStacks.
+ */
+public class SubmitEnvironmentStacks {
+
+    public final String envName;
+    public final String deploymentName;
+    public final Environment primaryEnv;
+    public final Environment usEast1Env;
+    public final SubmitSharedNames sharedNames;
+
+    private final SubmitEnvironment.SubmitEnvironmentProps appProps;
+    private final String googleClientSecretArn;
+    private final String cloudTrailEnabled;
+    private final int accessLogGroupRetentionPeriodDays;
+    private final String holdingDocRootPath;
+    private final boolean securityServicesEnabled;
+    private final String certificateArn;
+    private final String authCertificateArn;
+    private final String simulatorCertificateArn;
+    private final String simulatorCodePath;
+    private final String regionalCertificateArn;
+    private final String stripeSecretKeyArn;
+    private final String stripeTestSecretKeyArn;
+    private final String stripeWebhookSecretArn;
+    private final String stripeTestWebhookSecretArn;
+    private final String baseImageTag;
+
+    public SubmitEnvironmentStacks(SubmitEnvironment.SubmitEnvironmentProps appProps) {
+        this.appProps = appProps;
+
+        // Determine environment and deployment name from env or appProps
+        this.envName = envOr("ENVIRONMENT_NAME", appProps.envName);
+        this.deploymentName = envOr("DEPLOYMENT_NAME", envName);
+
+        // Determine primary environment (account/region) from CDK env
+        this.primaryEnv = KindCdk.buildPrimaryEnvironment();
+        this.usEast1Env = Environment.builder()
+                .region("us-east-1")
+                .account(primaryEnv.getAccount())
+                .build();
+
+        var nameProps = new SubmitSharedNames.SubmitSharedNamesProps();
+        nameProps.envName = envName;
+        nameProps.deploymentName = deploymentName;
+        nameProps.hostedZoneName = appProps.hostedZoneName;
+        nameProps.subDomainName = appProps.subDomainName;
+        nameProps.regionName = primaryEnv.getRegion();
+        nameProps.awsAccount = primaryEnv.getAccount();
+        this.sharedNames = new SubmitSharedNames(nameProps);
+
+        // Load configuration from environment variables not defaulted in the cdk.json
+        this.googleClientSecretArn = envOr(
+                "GOOGLE_CLIENT_SECRET_ARN", appProps.googleClientSecretArn, "(from googleClientSecretArn in cdk.json)");
+        this.cloudTrailEnabled =
+                envOr("CLOUD_TRAIL_ENABLED", appProps.cloudTrailEnabled, "(from cloudTrailEnabled in cdk.json)");
+        this.accessLogGroupRetentionPeriodDays = Integer.parseInt(
+                envOr("ACCESS_LOG_GROUP_RETENTION_PERIOD_DAYS", appProps.accessLogGroupRetentionPeriodDays, "30"));
+        this.holdingDocRootPath =
+                envOr("HOLDING_DOC_ROOT_PATH", appProps.holdingDocRootPath, "(from holdingDocRootPath in cdk.json)");
+        this.securityServicesEnabled =
+                Boolean.parseBoolean(envOr("SECURITY_SERVICES_ENABLED", appProps.securityServicesEnabled, "true"));
+        this.certificateArn = envOr("CERTIFICATE_ARN", appProps.certificateArn, "(from certificateArn in cdk.json)");
+        this.authCertificateArn =
+                envOr("AUTH_CERTIFICATE_ARN", appProps.authCertificateArn, "(from authCertificateArn in cdk.json)");
+        this.simulatorCertificateArn = envOr(
+                "SIMULATOR_CERTIFICATE_ARN",
+                appProps.simulatorCertificateArn,
+                "(from simulatorCertificateArn in cdk.json)");
+        this.simulatorCodePath = envOr("SIMULATOR_CODE_PATH", appProps.simulatorCodePath, "web/public-simulator");
+        this.regionalCertificateArn = envOr(
+                "REGIONAL_CERTIFICATE_ARN",
+                appProps.regionalCertificateArn,
+                "(from regionalCertificateArn in cdk.json)");
+        this.stripeSecretKeyArn =
+                envOr("STRIPE_SECRET_KEY_ARN", appProps.stripeSecretKeyArn, "(from stripeSecretKeyArn in cdk.json)");
+        this.stripeTestSecretKeyArn = envOr(
+                "STRIPE_TEST_SECRET_KEY_ARN",
+                appProps.stripeTestSecretKeyArn,
+                "(from stripeTestSecretKeyArn in cdk.json)");
+        this.stripeWebhookSecretArn = envOr(
+                "STRIPE_WEBHOOK_SECRET_ARN",
+                appProps.stripeWebhookSecretArn,
+                "(from stripeWebhookSecretArn in cdk.json)");
+        this.stripeTestWebhookSecretArn = envOr(
+                "STRIPE_TEST_WEBHOOK_SECRET_ARN",
+                appProps.stripeTestWebhookSecretArn,
+                "(from stripeTestWebhookSecretArn in cdk.json)");
+        this.baseImageTag = envOr("BASE_IMAGE_TAG", appProps.baseImageTag, "latest");
+    }
+
+    /** The ObservabilityStack with resources used in monitoring the application */
+    public ObservabilityStack observabilityStack(Construct scope) {
+        logSynthesizing(sharedNames.observabilityStackId);
+        return new ObservabilityStack(
+                scope,
+                sharedNames.observabilityStackId,
+                ObservabilityStack.ObservabilityStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .cloudTrailLogGroupPrefix(appProps.cloudTrailLogGroupPrefix)
+                        .cloudTrailLogGroupRetentionPeriodDays(appProps.cloudTrailLogGroupRetentionPeriodDays)
+                        .accessLogGroupRetentionPeriodDays(accessLogGroupRetentionPeriodDays)
+                        .apexDomain(sharedNames.hostedZoneName)
+                        .securityServicesEnabled(securityServicesEnabled)
+                        .build());
+    }
+
+    /** The ObservabilityUE1Stack with resources used in monitoring the application in us-east-1 */
+    public ObservabilityUE1Stack observabilityUE1Stack(Construct scope) {
+        logSynthesizing(sharedNames.observabilityUE1StackId);
+        return new ObservabilityUE1Stack(
+                scope,
+                sharedNames.observabilityUE1StackId,
+                ObservabilityUE1Stack.ObservabilityUE1StackProps.builder()
+                        .env(usEast1Env)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .logGroupRetentionPeriodDays(accessLogGroupRetentionPeriodDays)
+                        .build());
+    }
+
+    /** The DataStack with shared persistence for all deployments */
+    public DataStack dataStack(Construct scope) {
+        logSynthesizing(sharedNames.dataStackId);
+        return new DataStack(
+                scope,
+                sharedNames.dataStackId,
+                DataStack.DataStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .build());
+    }
+
+    /**
+     * The BackupStack for AWS Backup infrastructure, depending on the DataStack tables. The alertTopic is configured
+     * at application level (OpsStack), not here.
+     */
+    public BackupStack backupStack(Construct scope, DataStack dataStack) {
+        logSynthesizing(sharedNames.backupStackId);
+        var backupStack = new BackupStack(
+                scope,
+                sharedNames.backupStackId,
+                BackupStack.BackupStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .build());
+        backupStack.addDependency(dataStack);
+        return backupStack;
+    }
+
+    /** The ActivityStack with the shared EventBridge bus */
+    public ActivityStack activityStack(Construct scope) {
+        logSynthesizing(sharedNames.activityStackId);
+        return new ActivityStack(
+                scope,
+                sharedNames.activityStackId,
+                ActivityStack.ActivityStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .build());
+    }
+
+    /** The identity stack, built before any user-aware services */
+    public IdentityStack identityStack(Construct scope) {
+        logSynthesizing(sharedNames.identityStackId);
+        return new IdentityStack(
+                scope,
+                sharedNames.identityStackId,
+                IdentityStack.IdentityStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .hostedZoneName(appProps.hostedZoneName)
+                        .hostedZoneId(appProps.hostedZoneId)
+                        .certificateArn(
+                                authCertificateArn != null && !authCertificateArn.isBlank()
+                                        ? authCertificateArn
+                                        : certificateArn)
+                        .googleClientId(appProps.googleClientId)
+                        .googleClientSecretArn(googleClientSecretArn)
+                        .build());
+    }
+
+    public ApexStack apexStack(Construct scope) {
+        return new ApexStack(
+                scope,
+                sharedNames.apexStackId,
+                ApexStack.ApexStackProps.builder()
+                        .env(usEast1Env)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(envName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .hostedZoneName(appProps.hostedZoneName)
+                        .hostedZoneId(appProps.hostedZoneId)
+                        .certificateArn(certificateArn)
+                        .accessLogGroupRetentionPeriodDays(accessLogGroupRetentionPeriodDays)
+                        .holdingDocRootPath(holdingDocRootPath)
+                        .build());
+    }
+
+    /** The SimulatorStack for the public demo simulator, or null if the simulator code path does not exist */
+    public SimulatorStack simulatorStack(Construct scope) {
+        var simulatorCodeDir = Paths.get(simulatorCodePath).toFile();
+        if (!simulatorCodeDir.exists() || !simulatorCodeDir.isDirectory()) {
+            warnf(
+                    "Skipping SimulatorStack synthesis - simulator code path %s does not exist (run 'npm run build:simulator' first)",
+                    simulatorCodePath);
+            return null;
+        }
+        logSynthesizing(sharedNames.simulatorStackId);
+        return new SimulatorStack(
+                scope,
+                sharedNames.simulatorStackId,
+                SimulatorStack.SimulatorStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .simulatorCodePath(simulatorCodePath)
+                        .simulatorBaseUrl("https://%s".formatted(sharedNames.simulatorDomainName))
+                        .hostedZoneName(appProps.hostedZoneName)
+                        .hostedZoneId(appProps.hostedZoneId)
+                        .certificateArn(
+                                simulatorCertificateArn != null && !simulatorCertificateArn.isBlank()
+                                        ? simulatorCertificateArn
+                                        : certificateArn)
+                        .build());
+    }
+
+    /**
+     * The BillingWebhookStack for an always-available Stripe webhook endpoint, or null without the regional
+     * certificate its API Gateway custom domain needs
+     */
+    public BillingWebhookStack billingWebhookStack(Construct scope) {
+        if (regionalCertificateArn == null
+                || regionalCertificateArn.isBlank()
+                || regionalCertificateArn.startsWith("(from")
+                || baseImageTag == null
+                || baseImageTag.isBlank()
+                || baseImageTag.startsWith("(from")) {
+            warnf(
+                    "Skipping BillingWebhookStack synthesis — REGIONAL_CERTIFICATE_ARN not set (required for API Gateway custom domain)");
+            return null;
+        }
+        infof("Synthesizing stack %s for environment %s", sharedNames.billingWebhookStackId, envName);
+        return new BillingWebhookStack(
+                scope,
+                sharedNames.billingWebhookStackId,
+                BillingWebhookStack.BillingWebhookStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .baseImageTag(baseImageTag)
+                        .hostedZoneName(appProps.hostedZoneName)
+                        .hostedZoneId(appProps.hostedZoneId)
+                        .regionalCertificateArn(regionalCertificateArn)
+                        .stripeSecretKeyArn(orEmpty(stripeSecretKeyArn))
+                        .stripeTestSecretKeyArn(orEmpty(stripeTestSecretKeyArn))
+                        .stripeWebhookSecretArn(orEmpty(stripeWebhookSecretArn))
+                        .stripeTestWebhookSecretArn(orEmpty(stripeTestWebhookSecretArn))
+                        .build());
+    }
+
+    /** The EcrStack for the ECR repositories of the primary region */
+    public EcrStack ecrStack(Construct scope) {
+        infof(
+                "Synthesizing stack %s for environment %s in region %s",
+                sharedNames.ecrStackId, envName, primaryEnv.getRegion());
+        return new EcrStack(
+                scope,
+                sharedNames.ecrStackId,
+                EcrStack.EcrStackProps.builder()
+                        .env(primaryEnv)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .build());
+    }
+
+    /** The EcrStack for us-east-1 (for edge Lambda images) */
+    public EcrStack ue1EcrStack(Construct scope) {
+        infof("Synthesizing stack %s for environment %s in region us-east-1", sharedNames.ue1EcrStackId, envName);
+        return new EcrStack(
+                scope,
+                sharedNames.ue1EcrStackId,
+                EcrStack.EcrStackProps.builder()
+                        .env(usEast1Env)
+                        .crossRegionReferences(false)
+                        .envName(envName)
+                        .deploymentName(deploymentName)
+                        .resourceNamePrefix(sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled(cloudTrailEnabled)
+                        .sharedNames(sharedNames)
+                        .build());
+    }
+
+    private void logSynthesizing(String stackId) {
+        infof("Synthesizing stack %s for deployment %s to environment %s", stackId, deploymentName, envName);
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
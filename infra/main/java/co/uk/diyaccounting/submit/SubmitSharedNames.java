@@ -9,6 +9,7 @@ import static co.uk.diyaccounting.submit.utils.ResourceNameUtils.buildDashedDoma
 import static co.uk.diyaccounting.submit.utils.ResourceNameUtils.convertDotSeparatedToDashSeparated;
 
 import co.uk.diyaccounting.submit.utils.ResourceNameUtils;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import software.amazon.awscdk.services.apigatewayv2.HttpMethod;
@@ -60,6 +61,12 @@ public class SubmitSharedNames {
 
     public final List<PublishedLambda> publishedApiLambdas = new ArrayList<>();
 
+    // Inputs to the performance NagPack (co.uk.diyaccounting.submit.nag.PerformanceChecks)
+    public List<String> hotRouteLambdaFunctionNames;
+    public List<String> transientTableNames;
+    public List<String> edgeCacheableUrlPaths;
+    public List<String> highVolumeQueueNames;
+
     public String hostedZoneName;
     public String deploymentDomainName;
     public String envDomainName;
@@ -85,13 +92,19 @@ public class SubmitSharedNames {
     public String hmrcVatReturnGetAsyncRequestsTableName;
     public String hmrcVatObligationGetAsyncRequestsTableName;
     public String hmrcApiRequestsTableName;
+    public String hmrcApiRequestsDeliveryStreamName;
     public String passesTableName;
     public String bundleCapacityTableName;
+    public String hmrcRateLimitTableName;
     public String activityBusName;
+    public String activityBufferQueueName;
+    public String activityBufferDeadLetterQueueName;
     public String subscriptionsTableName;
     public String holdingBucketName;
     public String originBucketName;
     public String originAccessLogBucketName;
+    public String distributionRealtimeLogStreamName;
+    public String distributionRealtimeLogDeliveryStreamName;
     public String distributionAccessLogGroupName;
     public String distributionAccessLogDeliveryHoldingSourceName;
     public String distributionAccessLogDeliveryOriginSourceName;
@@ -132,7 +145,12 @@ public class SubmitSharedNames {
     public String authStackId;
     public String hmrcStackId;
     public String accountStackId;
+    public String bundleStackId;
+    public String passStackId;
     public String apiStackId;
+    public String httpApiIdParameterName;
+    public String httpApiJwtAuthorizerIdParameterName;
+    public String httpApiCustomAuthorizerIdParameterName;
     public String opsStackId;
     public String selfDestructStackId;
 
@@ -208,6 +226,7 @@ public class SubmitSharedNames {
     public String hmrcVatReturnPostWorkerLambdaFunctionName;
     public String hmrcVatReturnPostWorkerLambdaArn;
     public String hmrcVatReturnPostWorkerProvisionedConcurrencyLambdaAliasArn;
+    public String hmrcVatReturnPostExpressStepLambdaHandler;
     public String hmrcVatReturnPostLambdaQueueName;
     public String hmrcVatReturnPostLambdaDeadLetterQueueName;
     public HttpMethod hmrcVatReturnPostLambdaHttpMethod;
@@ -325,15 +344,8 @@ public class SubmitSharedNames {
     public String bundleCapacityReconcileLambdaArn;
     public String bundleCapacityReconcileProvisionedConcurrencyLambdaAliasArn;
 
-    // Session Beacon POST Lambda (public, no auth)
-    public String sessionBeaconPostIngestLambdaHandler;
-    public String sessionBeaconPostIngestLambdaFunctionName;
-    public String sessionBeaconPostIngestLambdaArn;
-    public String sessionBeaconPostIngestProvisionedConcurrencyLambdaAliasArn;
-    public HttpMethod sessionBeaconPostLambdaHttpMethod;
-    public String sessionBeaconPostLambdaUrlPath;
-    public boolean sessionBeaconPostLambdaJwtAuthorizer;
-    public boolean sessionBeaconPostLambdaCustomAuthorizer;
+    // Session start beacon (edge, no Lambda)
+    public String sessionBeaconUrlPath;
 
     // Billing Lambda names
     public String billingCheckoutPostIngestLambdaHandler;
@@ -380,6 +392,30 @@ public class SubmitSharedNames {
     public String activityTelegramForwarderLambdaArn;
     public String activityTelegramForwarderProvisionedConcurrencyLambdaAliasArn;
 
+    // Activity batch forwarder Lambda (SQS target, drains the activity buffer queue onto the bus, not API)
+    public String activityBatchForwarderLambdaHandler;
+    public String activityBatchForwarderLambdaFunctionName;
+    public String activityBatchForwarderLambdaArn;
+    public String activityBatchForwarderProvisionedConcurrencyLambdaAliasArn;
+
+    // CloudFront real-time log metrics Lambda (Firehose transformation in the us-east-1 EdgeStack, not API)
+    public String distributionRealtimeLogMetricsLambdaHandler;
+    public String distributionRealtimeLogMetricsLambdaFunctionName;
+    public String distributionRealtimeLogMetricsLambdaArn;
+    public String distributionRealtimeLogMetricsProvisionedConcurrencyLambdaAliasArn;
+
+    // HMRC worker circuit breaker controller (EventBridge target in the HmrcStack, not API)
+    public String hmrcCircuitBreakerLambdaHandler;
+    public String hmrcCircuitBreakerLambdaFunctionName;
+    public String hmrcCircuitBreakerLambdaArn;
+    public String hmrcCircuitBreakerProvisionedConcurrencyLambdaAliasArn;
+
+    // Scheduled DLQ redrive controller shared by the DlqRedrive constructs (not API)
+    public String dlqRedriveLambdaHandler;
+    public String dlqRedriveLambdaFunctionName;
+    public String dlqRedriveLambdaArn;
+    public String dlqRedriveProvisionedConcurrencyLambdaAliasArn;
+
     public String selfDestructLambdaHandler;
     public String selfDestructLambdaFunctionName;
     public String selfDestructLambdaArn;
@@ -409,6 +445,36 @@ public class SubmitSharedNames {
         public static final String SERVER_ERROR = "500";
     }
 
+    /** Every Lambda function name of the application deployment, from the *LambdaFunctionName fields */
+    public List<String> appLambdaFunctionNames() {
+        return appLambdaFunctionNames(false);
+    }
+
+    /**
+     * The application functions a performance profile entry can name, those the Lambda constructs look up: every
+     * function but the SQS workers, whose settings are read from the entry of their ingest function
+     */
+    public List<String> profiledLambdaFunctionNames() {
+        return appLambdaFunctionNames(true);
+    }
+
+    private List<String> appLambdaFunctionNames(boolean withoutWorkers) {
+        List<String> functionNames = new ArrayList<>();
+        for (Field field : SubmitSharedNames.class.getFields()) {
+            try {
+                if (field.getName().endsWith("LambdaFunctionName")
+                        && !(withoutWorkers && field.getName().endsWith("WorkerLambdaFunctionName"))
+                        && field.get(this) instanceof String functionName
+                        && functionName.startsWith(this.appResourceNamePrefix + "-")) {
+                    functionNames.add(functionName);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return List.copyOf(functionNames);
+    }
+
     public static SubmitSharedNames forDocs() {
         SubmitSharedNamesProps p = new SubmitSharedNamesProps();
         p.hostedZoneName = "example.com";
@@ -490,9 +556,14 @@ public class SubmitSharedNames {
         this.hmrcVatObligationGetAsyncRequestsTableName =
                 "%s-hmrc-vat-obligation-get-async-requests".formatted(this.envResourceNamePrefix);
         this.hmrcApiRequestsTableName = "%s-hmrc-api-requests".formatted(this.envResourceNamePrefix);
+        this.hmrcApiRequestsDeliveryStreamName = "%s-hmrc-api-requests-s3".formatted(this.envResourceNamePrefix);
         this.passesTableName = "%s-passes".formatted(this.envResourceNamePrefix);
         this.bundleCapacityTableName = "%s-bundle-capacity".formatted(this.envResourceNamePrefix);
+        this.hmrcRateLimitTableName = "%s-hmrc-rate-limit".formatted(this.envResourceNamePrefix);
         this.activityBusName = "%s-activity-bus".formatted(this.envResourceNamePrefix);
+        // Lambda derives the same name from ACTIVITY_BUS_NAME to wire publishers to the buffer
+        this.activityBufferQueueName = "%s-buffer".formatted(this.activityBusName);
+        this.activityBufferDeadLetterQueueName = "%s-buffer-dlq".formatted(this.activityBusName);
         this.subscriptionsTableName = "%s-subscriptions".formatted(this.envResourceNamePrefix);
         this.distributionAccessLogGroupName = "distribution-%s-logs".formatted(this.envResourceNamePrefix);
         this.distributionAccessLogDeliveryHoldingSourceName =
@@ -512,8 +583,15 @@ public class SubmitSharedNames {
         this.authStackId = "%s-app-AuthStack".formatted(props.deploymentName);
         this.hmrcStackId = "%s-app-HmrcStack".formatted(props.deploymentName);
         this.accountStackId = "%s-app-AccountStack".formatted(props.deploymentName);
+        this.bundleStackId = "%s-app-BundleStack".formatted(props.deploymentName);
+        this.passStackId = "%s-app-PassStack".formatted(props.deploymentName);
         this.billingStackId = "%s-app-BillingStack".formatted(props.deploymentName);
         this.apiStackId = "%s-app-ApiStack".formatted(props.deploymentName);
+        // Published by the ApiStack, read at deploy time by each stack that attaches routes to the HttpApi
+        this.httpApiIdParameterName = "/%s/api/http-api-id".formatted(this.appResourceNamePrefix);
+        this.httpApiJwtAuthorizerIdParameterName = "/%s/api/jwt-authorizer-id".formatted(this.appResourceNamePrefix);
+        this.httpApiCustomAuthorizerIdParameterName =
+                "/%s/api/custom-authorizer-id".formatted(this.appResourceNamePrefix);
         this.opsStackId = "%s-app-OpsStack".formatted(props.deploymentName);
         this.selfDestructStackId = "%s-app-SelfDestructStack".formatted(props.deploymentName);
 
@@ -526,6 +604,9 @@ public class SubmitSharedNames {
         this.originBucketName =
                 convertDotSeparatedToDashSeparated("%s-origin-us-east-1".formatted(this.appResourceNamePrefix));
         this.originAccessLogBucketName = "%s-origin-access-logs".formatted(this.appResourceNamePrefix);
+        this.distributionRealtimeLogStreamName = "%s-dist-realtime-logs".formatted(this.appResourceNamePrefix);
+        this.distributionRealtimeLogDeliveryStreamName =
+                "%s-dist-realtime-logs-s3".formatted(this.appResourceNamePrefix);
 
         var appLambdaHandlerPrefix = "app/functions";
         var appLambdaArnPrefix = "arn:aws:lambda:%s:%s:function:%s"
@@ -723,6 +804,7 @@ public class SubmitSharedNames {
         this.hmrcVatReturnPostLambdaCustomAuthorizer = true;
         var hmrcVatReturnPostLambdaHandlerName = "hmrcVatReturnPost.ingestHandler";
         var hmrcVatReturnPostLambdaWorkerHandlerName = "hmrcVatReturnPost.workerHandler";
+        var hmrcVatReturnPostLambdaExpressStepHandlerName = "hmrcVatReturnPost.stepHandler";
         var hmrcVatReturnPostLambdaHandlerDashed =
                 ResourceNameUtils.convertCamelCaseToDashSeparated(hmrcVatReturnPostLambdaHandlerName);
         this.hmrcVatReturnPostIngestLambdaFunctionName =
@@ -740,6 +822,8 @@ public class SubmitSharedNames {
         this.hmrcVatReturnPostWorkerLambdaArn = "%s-worker".formatted(this.hmrcVatReturnPostIngestLambdaArn);
         this.hmrcVatReturnPostWorkerProvisionedConcurrencyLambdaAliasArn =
                 "%s:%s".formatted(this.hmrcVatReturnPostWorkerLambdaArn, this.provisionedConcurrencyAliasName);
+        this.hmrcVatReturnPostExpressStepLambdaHandler =
+                "%s/hmrc/%s".formatted(appLambdaHandlerPrefix, hmrcVatReturnPostLambdaExpressStepHandlerName);
         this.hmrcVatReturnPostLambdaQueueName = "%s-queue".formatted(this.hmrcVatReturnPostIngestLambdaFunctionName);
         this.hmrcVatReturnPostLambdaDeadLetterQueueName =
                 "%s-dlq".formatted(this.hmrcVatReturnPostIngestLambdaFunctionName);
@@ -1045,28 +1129,15 @@ public class SubmitSharedNames {
         this.bundleCapacityReconcileProvisionedConcurrencyLambdaAliasArn =
                 "%s:%s".formatted(this.bundleCapacityReconcileLambdaArn, this.provisionedConcurrencyAliasName);
 
-        // Session Beacon POST Lambda (public, no auth)
-        this.sessionBeaconPostLambdaHttpMethod = HttpMethod.POST;
-        this.sessionBeaconPostLambdaUrlPath = "/api/session/beacon";
-        this.sessionBeaconPostLambdaJwtAuthorizer = false;
-        this.sessionBeaconPostLambdaCustomAuthorizer = false;
-        var sessionBeaconPostLambdaHandlerName = "sessionBeaconPost.ingestHandler";
-        var sessionBeaconPostLambdaHandlerDashed =
-                ResourceNameUtils.convertCamelCaseToDashSeparated(sessionBeaconPostLambdaHandlerName);
-        this.sessionBeaconPostIngestLambdaFunctionName =
-                "%s-%s".formatted(this.appResourceNamePrefix, sessionBeaconPostLambdaHandlerDashed);
-        this.sessionBeaconPostIngestLambdaHandler =
-                "%s/account/%s".formatted(appLambdaHandlerPrefix, sessionBeaconPostLambdaHandlerName);
-        this.sessionBeaconPostIngestLambdaArn =
-                "%s-%s".formatted(appLambdaArnPrefix, sessionBeaconPostLambdaHandlerDashed);
-        this.sessionBeaconPostIngestProvisionedConcurrencyLambdaAliasArn =
-                "%s:%s".formatted(this.sessionBeaconPostIngestLambdaArn, this.provisionedConcurrencyAliasName);
+        // Session start beacon (answered at the edge by a CloudFront Function, see EdgeStack)
+        this.sessionBeaconUrlPath = "/api/session/beacon";
         publishedApiLambdas.add(new PublishedLambda(
-                this.sessionBeaconPostLambdaHttpMethod,
-                this.sessionBeaconPostLambdaUrlPath,
+                HttpMethod.GET,
+                this.sessionBeaconUrlPath,
                 "Session beacon",
                 "Records a new browser session for activity monitoring",
-                "sessionBeacon"));
+                "sessionBeacon",
+                List.of(new ApiParameter("page", "query", true, "Path of the page the session started on"))));
 
         // Billing Checkout POST Lambda (JWT auth)
         this.billingCheckoutPostLambdaHttpMethod = HttpMethod.POST;
@@ -1173,6 +1244,56 @@ public class SubmitSharedNames {
         this.activityTelegramForwarderProvisionedConcurrencyLambdaAliasArn =
                 "%s:%s".formatted(this.activityTelegramForwarderLambdaArn, this.provisionedConcurrencyAliasName);
 
+        // Activity batch forwarder Lambda (SQS target, not API)
+        var activityBatchForwarderLambdaHandlerName = "activityBatchForwarder.handler";
+        var activityBatchForwarderLambdaHandlerDashed =
+                ResourceNameUtils.convertCamelCaseToDashSeparated(activityBatchForwarderLambdaHandlerName);
+        this.activityBatchForwarderLambdaFunctionName =
+                "%s-%s".formatted(this.appResourceNamePrefix, activityBatchForwarderLambdaHandlerDashed);
+        this.activityBatchForwarderLambdaHandler =
+                "%s/ops/%s".formatted(appLambdaHandlerPrefix, activityBatchForwarderLambdaHandlerName);
+        this.activityBatchForwarderLambdaArn =
+                "%s-%s".formatted(appLambdaArnPrefix, activityBatchForwarderLambdaHandlerDashed);
+        this.activityBatchForwarderProvisionedConcurrencyLambdaAliasArn =
+                "%s:%s".formatted(this.activityBatchForwarderLambdaArn, this.provisionedConcurrencyAliasName);
+
+        // CloudFront real-time log metrics Lambda (Firehose transformation, not API)
+        var distributionRealtimeLogMetricsLambdaHandlerName = "distributionRealtimeLogMetrics.handler";
+        var distributionRealtimeLogMetricsLambdaHandlerDashed =
+                ResourceNameUtils.convertCamelCaseToDashSeparated(distributionRealtimeLogMetricsLambdaHandlerName);
+        this.distributionRealtimeLogMetricsLambdaFunctionName =
+                "%s-%s".formatted(this.appResourceNamePrefix, distributionRealtimeLogMetricsLambdaHandlerDashed);
+        this.distributionRealtimeLogMetricsLambdaHandler =
+                "%s/ops/%s".formatted(appLambdaHandlerPrefix, distributionRealtimeLogMetricsLambdaHandlerName);
+        // Deployed alongside the distribution in us-east-1 (image from the us-east-1 ECR repository)
+        this.distributionRealtimeLogMetricsLambdaArn = "arn:aws:lambda:us-east-1:%s:function:%s"
+                .formatted(props.awsAccount, this.distributionRealtimeLogMetricsLambdaFunctionName);
+        this.distributionRealtimeLogMetricsProvisionedConcurrencyLambdaAliasArn =
+                "%s:%s".formatted(this.distributionRealtimeLogMetricsLambdaArn, this.provisionedConcurrencyAliasName);
+
+        // HMRC worker circuit breaker controller (EventBridge target, not API)
+        var hmrcCircuitBreakerLambdaHandlerName = "hmrcCircuitBreaker.handler";
+        var hmrcCircuitBreakerLambdaHandlerDashed =
+                ResourceNameUtils.convertCamelCaseToDashSeparated(hmrcCircuitBreakerLambdaHandlerName);
+        this.hmrcCircuitBreakerLambdaFunctionName =
+                "%s-%s".formatted(this.appResourceNamePrefix, hmrcCircuitBreakerLambdaHandlerDashed);
+        this.hmrcCircuitBreakerLambdaHandler =
+                "%s/ops/%s".formatted(appLambdaHandlerPrefix, hmrcCircuitBreakerLambdaHandlerName);
+        this.hmrcCircuitBreakerLambdaArn = "%s-%s".formatted(appLambdaArnPrefix, hmrcCircuitBreakerLambdaHandlerDashed);
+        this.hmrcCircuitBreakerProvisionedConcurrencyLambdaAliasArn =
+                "%s:%s".formatted(this.hmrcCircuitBreakerLambdaArn, this.provisionedConcurrencyAliasName);
+
+        // Scheduled DLQ redrive controller (EventBridge target, not API)
+        var dlqRedriveLambdaHandlerName = "dlqRedrive.handler";
+        var dlqRedriveLambdaHandlerDashed =
+                ResourceNameUtils.convertCamelCaseToDashSeparated(dlqRedriveLambdaHandlerName);
+        this.dlqRedriveLambdaFunctionName =
+                "%s-%s".formatted(this.appResourceNamePrefix, dlqRedriveLambdaHandlerDashed);
+        this.dlqRedriveLambdaHandler = "%s/ops/%s".formatted(appLambdaHandlerPrefix, dlqRedriveLambdaHandlerName);
+        this.dlqRedriveLambdaArn = "%s-%s".formatted(appLambdaArnPrefix, dlqRedriveLambdaHandlerDashed);
+        this.dlqRedriveProvisionedConcurrencyLambdaAliasArn =
+                "%s:%s".formatted(this.dlqRedriveLambdaArn, this.provisionedConcurrencyAliasName);
+
         var appSelfDestructLambdaHandlerName = "selfDestruct.ingestHandler";
         var appSelfDestructLambdaHandlerDashed =
                 ResourceNameUtils.convertCamelCaseToDashSeparated(appSelfDestructLambdaHandlerName);
@@ -1183,5 +1304,27 @@ public class SubmitSharedNames {
         this.selfDestructLambdaArn = "%s-%s".formatted(appLambdaArnPrefix, appSelfDestructLambdaHandlerDashed);
         this.selfDestructProvisionedConcurrencyLambdaAliasArn =
                 "%s:%s".formatted(this.selfDestructLambdaArn, this.provisionedConcurrencyAliasName);
+
+        // Functions a user waits on: sign in, the bundle check on every page and the VAT return submission
+        this.hotRouteLambdaFunctionNames = List.of(
+                this.cognitoTokenPostIngestLambdaFunctionName,
+                this.customAuthorizerIngestLambdaFunctionName,
+                this.bundleGetIngestLambdaFunctionName,
+                this.hmrcTokenPostIngestLambdaFunctionName,
+                this.hmrcVatReturnPostIngestLambdaFunctionName);
+        this.transientTableNames = List.of(
+                this.bundlePostAsyncRequestsTableName,
+                this.bundleDeleteAsyncRequestsTableName,
+                this.hmrcVatReturnPostAsyncRequestsTableName,
+                this.hmrcVatReturnGetAsyncRequestsTableName,
+                this.hmrcVatObligationGetAsyncRequestsTableName,
+                this.hmrcApiRequestsTableName);
+        // Static files the same for every viewer. Every GET under /api/v1 answers per user (bearer token) or per
+        // deployment state, so none of those are listed.
+        this.edgeCacheableUrlPaths =
+                List.of("/index.html", "/submit.css", "/submit.catalogue.toml", "/docs/api/openapi.json");
+        // One message per activity event from every Lambda. The HMRC and bundle worker queues carry one message per
+        // user request, each a rate limited downstream call retried on its own, so those are consumed one at a time.
+        this.highVolumeQueueNames = List.of(this.activityBufferQueueName);
     }
 }
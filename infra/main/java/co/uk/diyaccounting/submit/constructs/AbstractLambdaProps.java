@@ -5,6 +5,7 @@
 
 package co.uk.diyaccounting.submit.constructs;
 
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
 import java.util.Map;
 import java.util.Optional;
 import org.immutables.value.Value;
@@ -44,6 +45,12 @@ public interface AbstractLambdaProps {
         return 1024;
     }
 
+    /** submit.performance.toml, its entry for this function replaces the sizing and concurrency above */
+    @Value.Default
+    default PerformanceProfile performanceProfile() {
+        return PerformanceProfile.none();
+    }
+
     @Value.Default
     default Architecture ingestArchitecture() {
         return Architecture.ARM_64;
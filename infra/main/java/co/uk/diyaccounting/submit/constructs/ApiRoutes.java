@@ -0,0 +1,195 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.constructs;
+
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+
+import java.util.Map;
+import java.util.TreeMap;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.aws_apigatewayv2_integrations.HttpLambdaIntegration;
+import software.amazon.awscdk.services.apigatewayv2.HttpApi;
+import software.amazon.awscdk.services.apigatewayv2.HttpApiAttributes;
+import software.amazon.awscdk.services.apigatewayv2.HttpAuthorizer;
+import software.amazon.awscdk.services.apigatewayv2.HttpAuthorizerAttributes;
+import software.amazon.awscdk.services.apigatewayv2.HttpMethod;
+import software.amazon.awscdk.services.apigatewayv2.HttpRoute;
+import software.amazon.awscdk.services.apigatewayv2.HttpRouteKey;
+import software.amazon.awscdk.services.apigatewayv2.IHttpApi;
+import software.amazon.awscdk.services.apigatewayv2.IHttpRouteAuthorizer;
+import software.amazon.awscdk.services.cloudwatch.Alarm;
+import software.amazon.awscdk.services.cloudwatch.ComparisonOperator;
+import software.amazon.awscdk.services.cloudwatch.TreatMissingData;
+import software.amazon.awscdk.services.iam.ServicePrincipal;
+import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.lambda.FunctionAttributes;
+import software.amazon.awscdk.services.lambda.IFunction;
+import software.amazon.awscdk.services.lambda.Permission;
+import software.amazon.awscdk.services.ssm.StringParameter;
+import software.constructs.Construct;
+
+/**
+ * Attaches a stack's API routes to the shared HttpApi. The HttpApi and authorizer IDs are read from the SSM
+ * parameters the ApiStack publishes, resolved at deploy time, so the ApiStack holds no per route resources and
+ * takes no CloudFormation exports: each route stack depends only on the ApiStack and deploys in parallel with the
+ * others, and a change to one domain's routes updates only that domain's stack.
+ */
+public class ApiRoutes {
+
+    public final IHttpApi httpApi;
+
+    /** Route keys ("GET /api/v1/bundle") created in this stack, mapped to the function that created them */
+    public final Map<String, String> creatorByRouteKey = new TreeMap<>();
+
+    private final Construct scope;
+    private final ApiRoutesProps props;
+    private IHttpRouteAuthorizer jwtAuthorizer;
+    private IHttpRouteAuthorizer customAuthorizer;
+
+    public ApiRoutes(final Construct scope, ApiRoutesProps props) {
+        this.scope = scope;
+        this.props = props;
+        this.httpApi = HttpApi.fromHttpApiAttributes(
+                scope,
+                "ImportedHttpApi",
+                HttpApiAttributes.builder()
+                        .httpApiId(StringParameter.valueForStringParameter(
+                                scope, props.sharedNames().httpApiIdParameterName))
+                        .build());
+
+        for (AbstractApiLambdaProps apiLambdaProps : props.lambdaFunctions()) {
+            String routeKeyStr = apiLambdaProps.httpMethod().toString() + " " + apiLambdaProps.urlPath();
+            if (creatorByRouteKey.containsKey(routeKeyStr)) {
+                infof(
+                        "Skipping duplicate route %s (attempted by %s, first created by %s)",
+                        routeKeyStr, apiLambdaProps.ingestFunctionName(), creatorByRouteKey.get(routeKeyStr));
+                continue;
+            }
+            creatorByRouteKey.put(routeKeyStr, apiLambdaProps.ingestFunctionName());
+            createRouteForLambda(apiLambdaProps);
+        }
+
+        infof(
+                "Routes attached to the HttpApi by %s: %d",
+                Stack.of(scope).getNode().getId(), creatorByRouteKey.size());
+        creatorByRouteKey.forEach((routeKey, creator) -> infof(" - %s (by %s)", routeKey, creator));
+    }
+
+    private void createRouteForLambda(AbstractApiLambdaProps apiLambdaProps) {
+        var stack = Stack.of(scope);
+
+        // Build stable, unique construct IDs per route using method+path signature
+        String keySuffix = (apiLambdaProps.httpMethod().toString() + "-" + apiLambdaProps.urlPath())
+                .replaceAll("[^A-Za-z0-9]+", "-")
+                .replaceAll("^-+|-+$", "");
+
+        String importedFnId = apiLambdaProps.ingestFunctionName() + "-imported-" + keySuffix;
+        String integrationId = apiLambdaProps.ingestFunctionName() + "-Integration-" + keySuffix;
+        String routeId = apiLambdaProps.ingestFunctionName() + "-Route-" + keySuffix;
+
+        IFunction fn = Function.fromFunctionAttributes(
+                scope,
+                importedFnId,
+                FunctionAttributes.builder()
+                        .functionArn(apiLambdaProps.ingestProvisionedConcurrencyAliasArn())
+                        .sameEnvironment(true)
+                        .build());
+
+        // Create HTTP Lambda integration
+        HttpLambdaIntegration integration = HttpLambdaIntegration.Builder.create(integrationId, fn)
+                .timeout(Duration.seconds(29))
+                .build();
+
+        // Create HTTP route with the appropriate authoriser
+        IHttpRouteAuthorizer authorizer = authorizerFor(apiLambdaProps);
+        var routeKey = HttpRouteKey.with(apiLambdaProps.urlPath(), apiLambdaProps.httpMethod());
+        route(routeId, routeKey, integration, authorizer);
+        infof(
+                "Created route %s %s for function %s",
+                apiLambdaProps.httpMethod().toString(), apiLambdaProps.urlPath(), fn.getFunctionName());
+
+        // Explicitly allow API Gateway to invoke this Lambda (defensive against region/env mismatches)
+        fn.addPermission(
+                apiLambdaProps.ingestFunctionName() + "-AllowInvokeFromHttpApi-" + keySuffix,
+                Permission.builder()
+                        .action("lambda:InvokeFunction")
+                        .principal(new ServicePrincipal("apigateway.amazonaws.com"))
+                        .sourceArn("arn:aws:execute-api:" + stack.getRegion() + ":" + stack.getAccount() + ":"
+                                + this.httpApi.getApiId() + "/*")
+                        .build());
+
+        // Per-function error alarm (>=1 error in 5 minutes)
+        Alarm.Builder.create(scope, apiLambdaProps.ingestFunctionName() + "-LambdaErrors-" + keySuffix)
+                .alarmName(apiLambdaProps.ingestFunctionName() + "-lambda-errors-" + keySuffix)
+                .metric(fn.metricErrors())
+                .threshold(1.0)
+                .evaluationPeriods(1)
+                .comparisonOperator(ComparisonOperator.GREATER_THAN_OR_EQUAL_TO_THRESHOLD)
+                .treatMissingData(TreatMissingData.NOT_BREACHING)
+                .alarmDescription(
+                        "Lambda errors >= 1 for " + apiLambdaProps.urlPath() + " " + apiLambdaProps.httpMethod())
+                .build();
+
+        // Additionally create a HEAD route for the same path to ensure HEAD requests are accepted across the API.
+        // Only create if the primary route isn't already HEAD and there's no explicit HEAD route defined elsewhere.
+        if (apiLambdaProps.httpMethod() != HttpMethod.HEAD) {
+            String headRouteKeyStr = "HEAD " + apiLambdaProps.urlPath();
+            if (!creatorByRouteKey.containsKey(headRouteKeyStr)) {
+                // Track so we don't double-create if encountered again
+                creatorByRouteKey.put(headRouteKeyStr, apiLambdaProps.ingestFunctionName());
+                String headRouteId = apiLambdaProps.ingestFunctionName() + "-Route-HEAD-" + keySuffix;
+                var headRouteKey = HttpRouteKey.with(apiLambdaProps.urlPath(), HttpMethod.HEAD);
+                route(headRouteId, headRouteKey, integration, authorizer);
+                infof(
+                        "Created route HEAD %s for function %s (via auto-HEAD)",
+                        apiLambdaProps.urlPath(), fn.getFunctionName());
+            }
+        }
+    }
+
+    private void route(
+            String id, HttpRouteKey routeKey, HttpLambdaIntegration integration, IHttpRouteAuthorizer authorizer) {
+        var builder = HttpRoute.Builder.create(scope, id)
+                .httpApi(this.httpApi)
+                .routeKey(routeKey)
+                .integration(integration);
+        if (authorizer != null) {
+            builder.authorizer(authorizer);
+        }
+        builder.build();
+    }
+
+    // The authorizers are imported on first use, so a stack only reads the SSM parameters it needs
+    private IHttpRouteAuthorizer authorizerFor(AbstractApiLambdaProps apiLambdaProps) {
+        if (apiLambdaProps.customAuthorizer()) {
+            if (customAuthorizer == null) {
+                customAuthorizer = importAuthorizer(
+                        "ImportedCustomAuthorizer",
+                        props.sharedNames().httpApiCustomAuthorizerIdParameterName,
+                        "CUSTOM");
+            }
+            return customAuthorizer;
+        } else if (apiLambdaProps.jwtAuthorizer()) {
+            if (jwtAuthorizer == null) {
+                jwtAuthorizer = importAuthorizer(
+                        "ImportedJwtAuthorizer", props.sharedNames().httpApiJwtAuthorizerIdParameterName, "JWT");
+            }
+            return jwtAuthorizer;
+        }
+        return null;
+    }
+
+    private IHttpRouteAuthorizer importAuthorizer(String id, String parameterName, String authorizerType) {
+        return HttpAuthorizer.fromHttpAuthorizerAttributes(
+                scope,
+                id,
+                HttpAuthorizerAttributes.builder()
+                        .authorizerId(StringParameter.valueForStringParameter(scope, parameterName))
+                        .authorizerType(authorizerType)
+                        .build());
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.constructs;
+
+import co.uk.diyaccounting.submit.SubmitSharedNames;
+import java.util.List;
+import org.immutables.value.Value;
+
+/**
+ * Properties for the API Gateway routes a stack attaches to the shared HttpApi of the ApiStack.
+ */
+@Value.Immutable
+public interface ApiRoutesProps {
+
+    /** SSM parameter names the ApiStack publishes the HttpApi and authorizer IDs under */
+    SubmitSharedNames sharedNames();
+
+    /** One route (plus an automatic HEAD route) per entry, to the entry's provisioned concurrency alias */
+    List<AbstractApiLambdaProps> lambdaFunctions();
+
+    static ImmutableApiRoutesProps.Builder builder() {
+        return ImmutableApiRoutesProps.builder();
+    }
+}
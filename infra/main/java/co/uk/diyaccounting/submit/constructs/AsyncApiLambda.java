@@ -7,10 +7,16 @@ package co.uk.diyaccounting.submit.constructs;
 
 import static co.uk.diyaccounting.submit.utils.Kind.infof;
 
+import co.uk.diyaccounting.submit.utils.PerformanceProfile.LambdaSettings;
 import java.util.List;
+import java.util.Map;
+import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.RemovalPolicy;
 import software.amazon.awscdk.services.cloudwatch.Alarm;
 import software.amazon.awscdk.services.cloudwatch.ComparisonOperator;
+import software.amazon.awscdk.services.cloudwatch.MathExpression;
+import software.amazon.awscdk.services.cloudwatch.MetricOptions;
+import software.amazon.awscdk.services.cloudwatch.TreatMissingData;
 import software.amazon.awscdk.services.ecr.IRepository;
 import software.amazon.awscdk.services.ecr.Repository;
 import software.amazon.awscdk.services.ecr.RepositoryAttributes;
@@ -21,9 +27,25 @@ import software.amazon.awscdk.services.lambda.EcrImageCodeProps;
 import software.amazon.awscdk.services.lambda.Function;
 import software.amazon.awscdk.services.lambda.Tracing;
 import software.amazon.awscdk.services.lambda.Version;
+import software.amazon.awscdk.services.lambda.eventsources.ProvisionedPollerConfig;
 import software.amazon.awscdk.services.lambda.eventsources.SqsEventSource;
+import software.amazon.awscdk.services.logs.LogGroup;
 import software.amazon.awscdk.services.sqs.DeadLetterQueue;
 import software.amazon.awscdk.services.sqs.Queue;
+import software.amazon.awscdk.services.stepfunctions.DefinitionBody;
+import software.amazon.awscdk.services.stepfunctions.Errors;
+import software.amazon.awscdk.services.stepfunctions.JitterType;
+import software.amazon.awscdk.services.stepfunctions.JsonPath;
+import software.amazon.awscdk.services.stepfunctions.LogLevel;
+import software.amazon.awscdk.services.stepfunctions.LogOptions;
+import software.amazon.awscdk.services.stepfunctions.Parallel;
+import software.amazon.awscdk.services.stepfunctions.RetryProps;
+import software.amazon.awscdk.services.stepfunctions.StateMachine;
+import software.amazon.awscdk.services.stepfunctions.StateMachineType;
+import software.amazon.awscdk.services.stepfunctions.TaskInput;
+import software.amazon.awscdk.services.stepfunctions.tasks.LambdaInvoke;
+import software.amazon.awscdk.services.xray.CfnSamplingRule;
+import software.amazon.awscdk.services.xray.CfnSamplingRule.SamplingRuleProperty;
 import software.constructs.Construct;
 
 public class AsyncApiLambda extends ApiLambda {
@@ -33,7 +55,11 @@ public class AsyncApiLambda extends ApiLambda {
     public final Alias workerLambdaAlias;
     public final String workerLambdaAliasArn;
     public final Queue queue;
+    public final Queue highPriorityQueue;
     public final Queue dlq;
+    public final Alarm workerCircuitBreakerAlarm;
+    public final Function expressStepLambda;
+    public final StateMachine expressStateMachine;
 
     public AsyncApiLambda(final Construct scope, AsyncApiLambdaProps props) {
         super(scope, props);
@@ -53,10 +79,24 @@ public class AsyncApiLambda extends ApiLambda {
                 .alarmDescription("SQS DLQ for " + props.ingestFunctionName() + " has items")
                 .build();
 
+        var workerSettings = props.performanceProfile()
+                .worker(
+                        props.ingestFunctionName(),
+                        props.workerFunctionName(),
+                        new LambdaSettings(
+                                props.workerMemorySize(),
+                                props.workerLambdaTimeout(),
+                                props.workerArchitecture(),
+                                props.workerProvisionedConcurrency()));
+        // A profile may lengthen the worker timeout, keep the visibility timeout at least six times it
+        var queueVisibilityTimeout = Duration.seconds(Math.max(
+                props.queueVisibilityTimeout().toSeconds().intValue(),
+                6 * workerSettings.timeout().toSeconds().intValue()));
+
         // 2. Create Main Queue
         this.queue = Queue.Builder.create(scope, props.idPrefix() + "-queue")
                 .queueName(props.workerQueueName())
-                .visibilityTimeout(props.queueVisibilityTimeout())
+                .visibilityTimeout(queueVisibilityTimeout)
                 .deadLetterQueue(DeadLetterQueue.builder()
                         .maxReceiveCount(props.workerMaxReceiveCount())
                         .queue(this.dlq)
@@ -80,12 +120,15 @@ public class AsyncApiLambda extends ApiLambda {
                 .code(DockerImageCode.fromEcr(repository, imageCodeProps))
                 .environment(props.environment())
                 .functionName(props.workerFunctionName())
-                .timeout(props.workerLambdaTimeout())
-                .memorySize(props.workerMemorySize())
-                .architecture(props.workerArchitecture())
+                .timeout(workerSettings.timeout())
+                .memorySize(workerSettings.memorySize())
+                .architecture(workerSettings.architecture())
                 .logGroup(this.logGroup)
                 .tracing(Tracing.ACTIVE)
                 .build();
+        wireActivityBuffer(this.workerLambda, props.environment());
+        // The downstream call gives up before the worker does, so a hung call fails as a retryable error
+        this.workerLambda.addEnvironment("HMRC_HTTP_TIMEOUT_MS", downstreamTimeoutMillis(workerSettings.timeout()));
 
         this.workerLambdaVersion = Version.Builder.create(scope, props.idPrefix() + "-worker-version")
                 .lambda(this.workerLambda)
@@ -95,7 +138,7 @@ public class AsyncApiLambda extends ApiLambda {
         this.workerLambdaAlias = Alias.Builder.create(scope, props.idPrefix() + "-worker-zero-alias")
                 .aliasName("zero")
                 .version(this.workerLambdaVersion)
-                .provisionedConcurrentExecutions(props.workerProvisionedConcurrency())
+                .provisionedConcurrentExecutions(workerSettings.provisionedConcurrency())
                 .build();
         this.workerLambdaAliasArn =
                 "%s:%s".formatted(this.workerLambda.getFunctionArn(), this.workerLambdaAlias.getAliasName());
@@ -105,10 +148,35 @@ public class AsyncApiLambda extends ApiLambda {
                 this.workerLambdaVersion.getVersion(),
                 props.workerProvisionedConcurrencyAliasArn());
 
-        // 4. Set up SQS trigger
-        this.workerLambdaAlias.addEventSource(
-                SqsEventSource.Builder.create(this.queue).batchSize(1).build());
-
+        // 4. Set up SQS trigger, with an optional high priority lane feeding the same worker. Each lane has its
+        // own maximum concurrency so a burst on one lane cannot take all of the worker's concurrency.
+        this.workerLambdaAlias.addEventSource(sqsEventSource(
+                this.queue,
+                props.workerQueueMaximumConcurrency(),
+                props.workerQueueMinimumPollers(),
+                props.workerQueueMaximumPollers()));
+        if (props.highPriorityQueueMaximumConcurrency() > 0) {
+            this.highPriorityQueue = Queue.Builder.create(scope, props.idPrefix() + "-high-priority-queue")
+                    .queueName(props.workerQueueName() + "-high")
+                    .visibilityTimeout(queueVisibilityTimeout)
+                    .deadLetterQueue(DeadLetterQueue.builder()
+                            .maxReceiveCount(props.workerMaxReceiveCount())
+                            .queue(this.dlq)
+                            .build())
+                    .build();
+            this.workerLambdaAlias.addEventSource(sqsEventSource(
+                    this.highPriorityQueue,
+                    props.highPriorityQueueMaximumConcurrency(),
+                    props.highPriorityQueueMinimumPollers(),
+                    props.highPriorityQueueMaximumPollers()));
+            infof(
+                    "Added high priority lane %s (max concurrency %d) to worker %s",
+                    props.workerQueueName() + "-high",
+                    props.highPriorityQueueMaximumConcurrency(),
+                    props.workerFunctionName());
+        } else {
+            this.highPriorityQueue = null;
+        }
         // Alarms for worker lambda
         Alarm.Builder.create(scope, props.idPrefix() + "-WorkerErrorsAlarm")
                 .alarmName(this.workerLambda.getFunctionName() + "-errors")
@@ -119,11 +187,218 @@ public class AsyncApiLambda extends ApiLambda {
                 .alarmDescription("Worker Lambda errors for " + this.workerLambda.getFunctionName())
                 .build();
 
+        // Queue wait alarms: the async pipeline's enqueue-to-worker latency shows up here before it shows in
+        // the Submit/AsyncRequests QueueWait metric (which is only emitted once a request completes)
+        queueAgeAlarm(scope, props, this.queue, "-QueueAgeAlarm");
+        if (this.highPriorityQueue != null) {
+            queueAgeAlarm(scope, props, this.highPriorityQueue, "-HighPriorityQueueAgeAlarm");
+        }
+
+        // Circuit breaker alarm: most invocations failing for 3 consecutive minutes (e.g. HMRC 5xx). Quiet minutes
+        // are not breaching so the alarm returns to OK while the event source mappings are paused.
+        if (props.workerCircuitBreaker()) {
+            var perMinute = MetricOptions.builder().period(Duration.minutes(1)).build();
+            this.workerCircuitBreakerAlarm = Alarm.Builder.create(
+                            scope, props.idPrefix() + "-WorkerCircuitBreakerAlarm")
+                    .alarmName(props.workerFunctionName() + "-circuit-breaker")
+                    .metric(MathExpression.Builder.create()
+                            .expression("IF(invocations >= 5, 100 * errors / invocations, 0)")
+                            .usingMetrics(Map.of(
+                                    "errors", this.workerLambda.metricErrors(perMinute),
+                                    "invocations", this.workerLambda.metricInvocations(perMinute)))
+                            .period(Duration.minutes(1))
+                            .label("Worker error rate (%)")
+                            .build())
+                    .threshold(50)
+                    .evaluationPeriods(3)
+                    .datapointsToAlarm(3)
+                    .comparisonOperator(ComparisonOperator.GREATER_THAN_OR_EQUAL_TO_THRESHOLD)
+                    .treatMissingData(TreatMissingData.NOT_BREACHING)
+                    .alarmDescription("Worker error rate for " + props.workerFunctionName()
+                            + " is sustained, its event source mappings are paused until HMRC probes succeed")
+                    .build();
+        } else {
+            this.workerCircuitBreakerAlarm = null;
+        }
+
         // Grant API Lambda permission to send messages to the queue
         this.queue.grantSendMessages(this.ingestLambda);
 
         // Pass queue URL to both lambdas
         this.ingestLambda.addEnvironment("SQS_QUEUE_URL", this.queue.getQueueUrl());
         this.workerLambda.addEnvironment("SQS_QUEUE_URL", this.queue.getQueueUrl());
+        if (this.highPriorityQueue != null) {
+            this.highPriorityQueue.grantSendMessages(this.ingestLambda);
+            this.ingestLambda.addEnvironment("SQS_HIGH_PRIORITY_QUEUE_URL", this.highPriorityQueue.getQueueUrl());
+            this.workerLambda.addEnvironment("SQS_HIGH_PRIORITY_QUEUE_URL", this.highPriorityQueue.getQueueUrl());
+        }
+
+        // 5. Optional Express execution mode: the ingest Lambda runs a synchronous Express state machine and answers
+        // in one round trip, the queue above remains the fallback when the execution fails
+        if (!props.expressStepHandler().isBlank()) {
+            this.expressStepLambda = DockerImageFunction.Builder.create(scope, props.idPrefix() + "-express-step-fn")
+                    .code(DockerImageCode.fromEcr(
+                            repository,
+                            EcrImageCodeProps.builder()
+                                    .tagOrDigest(props.baseImageTag())
+                                    .cmd(List.of(props.expressStepHandler()))
+                                    .build()))
+                    .environment(props.environment())
+                    .functionName(props.workerFunctionName() + "-step")
+                    .timeout(props.expressExecutionTimeout())
+                    .memorySize(workerSettings.memorySize())
+                    .architecture(workerSettings.architecture())
+                    .logGroup(this.logGroup)
+                    .tracing(Tracing.ACTIVE)
+                    .build();
+            wireActivityBuffer(this.expressStepLambda, props.environment());
+            // The downstream call gives up before the execution does, so the step ends with a named error and the
+            // ingest Lambda still has time to hand the request to the queue
+            this.expressStepLambda.addEnvironment(
+                    "HMRC_HTTP_TIMEOUT_MS", downstreamTimeoutMillis(props.expressExecutionTimeout()));
+            this.expressStateMachine = expressStateMachine(scope, props, this.expressStepLambda);
+            this.expressStateMachine.grantStartSyncExecution(this.ingestLambda);
+            this.ingestLambda.addEnvironment(
+                    "STEP_FUNCTIONS_STATE_MACHINE_ARN", this.expressStateMachine.getStateMachineArn());
+            infof(
+                    "Created Express state machine %s with step handler %s",
+                    props.workerFunctionName() + "-express", props.expressStepHandler());
+        } else {
+            this.expressStepLambda = null;
+            this.expressStateMachine = null;
+        }
+    }
+
+    // submit (HMRC call, retried with back-off on HmrcTemporaryError) then receipt || record, output is the result
+    private static StateMachine expressStateMachine(Construct scope, AsyncApiLambdaProps props, Function stepLambda) {
+        // A submission is not idempotent, so the submit step is only retried where HMRC cannot have accepted it:
+        // HmrcTemporaryError (HMRC refused or never answered) and Lambda throttling (the step never ran). Lambda
+        // service errors, which can follow a successful HMRC POST, fail the execution rather than re-submit.
+        var submit = expressStep(scope, props, stepLambda, "submit", false)
+                .resultPath("$.submitted")
+                .build();
+        submit.addRetry(RetryProps.builder()
+                .errors(List.of("HmrcTemporaryError"))
+                .interval(Duration.seconds(1))
+                .maxAttempts(3)
+                .backoffRate(2)
+                .jitterStrategy(JitterType.FULL)
+                .build());
+        submit.addRetry(RetryProps.builder()
+                .errors(List.of("Lambda.TooManyRequestsException"))
+                .interval(Duration.millis(200))
+                .maxAttempts(3)
+                .backoffRate(2)
+                .jitterStrategy(JitterType.FULL)
+                .build());
+
+        var writes = Parallel.Builder.create(scope, props.idPrefix() + "-express-writes")
+                .resultPath(JsonPath.DISCARD)
+                .outputPath("$.submitted.result")
+                .build();
+        for (var step : List.of("receipt", "record")) {
+            var write = expressStep(scope, props, stepLambda, step, true)
+                    .resultPath(JsonPath.DISCARD)
+                    .build();
+            write.addRetry(RetryProps.builder()
+                    .errors(List.of(Errors.TASKS_FAILED))
+                    .interval(Duration.millis(200))
+                    .maxAttempts(3)
+                    .backoffRate(2)
+                    .jitterStrategy(JitterType.FULL)
+                    .build());
+            writes.branch(write);
+        }
+
+        var stateMachineName = props.workerFunctionName() + "-express";
+        var logGroup = LogGroup.Builder.create(scope, props.idPrefix() + "-express-log-group")
+                .logGroupName("/aws/vendedlogs/states/" + stateMachineName)
+                .retention(props.logGroupRetention())
+                .removalPolicy(props.logGroupRemovalPolicy())
+                .build();
+        // At the rate users submit VAT returns every execution falls in the reservoir and is traced, under a load
+        // test 5% of the rest are. Rule names are at most 32 characters and unique per account and region.
+        CfnSamplingRule.Builder.create(scope, props.idPrefix() + "-express-sampling-rule")
+                .samplingRule(SamplingRuleProperty.builder()
+                        .ruleName("express-" + Integer.toHexString(stateMachineName.hashCode()))
+                        .priority(1000)
+                        .reservoirSize(1)
+                        .fixedRate(0.05)
+                        .serviceName(stateMachineName)
+                        .serviceType("AWS::StepFunctions::StateMachine")
+                        .host("*")
+                        .httpMethod("*")
+                        .urlPath("*")
+                        .resourceArn("*")
+                        .version(1)
+                        .build())
+                .build();
+        return StateMachine.Builder.create(scope, props.idPrefix() + "-express-state-machine")
+                .stateMachineName(stateMachineName)
+                .stateMachineType(StateMachineType.EXPRESS)
+                .definitionBody(DefinitionBody.fromChainable(submit.next(writes)))
+                .timeout(props.expressExecutionTimeout())
+                .tracingEnabled(true)
+                // The execution input carries the HMRC access token, keep it out of the logs
+                .logs(LogOptions.builder()
+                        .destination(logGroup)
+                        .level(LogLevel.ERROR)
+                        .includeExecutionData(false)
+                        .build())
+                .build();
+    }
+
+    private static LambdaInvoke.Builder expressStep(
+            Construct scope,
+            AsyncApiLambdaProps props,
+            Function stepLambda,
+            String step,
+            boolean retryOnServiceExceptions) {
+        return LambdaInvoke.Builder.create(scope, props.idPrefix() + "-express-" + step)
+                .lambdaFunction(stepLambda)
+                .payload(TaskInput.fromObject(Map.of("step", step, "request", JsonPath.objectAt("$"))))
+                .payloadResponseOnly(true)
+                .retryOnServiceExceptions(retryOnServiceExceptions);
+    }
+
+    // Five seconds under the Lambda or execution timeout, leaving time to record the failure
+    private static String downstreamTimeoutMillis(Duration timeout) {
+        return String.valueOf(Math.max(1, timeout.toSeconds().intValue() - 5) * 1000);
+    }
+
+    private static void queueAgeAlarm(Construct scope, AsyncApiLambdaProps props, Queue queue, String idSuffix) {
+        Alarm.Builder.create(scope, props.idPrefix() + idSuffix)
+                .alarmName(queue.getQueueName() + "-oldest-message-age")
+                .metric(queue.metricApproximateAgeOfOldestMessage(
+                        MetricOptions.builder().period(Duration.minutes(1)).build()))
+                .threshold(props.queueAgeAlarmThreshold().toSeconds())
+                .evaluationPeriods(3)
+                .datapointsToAlarm(3)
+                .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
+                .treatMissingData(TreatMissingData.NOT_BREACHING)
+                .alarmDescription("Oldest message on " + queue.getQueueName() + " has waited more than "
+                        + props.queueAgeAlarmThreshold().toHumanString())
+                .build();
+    }
+
+    private static SqsEventSource sqsEventSource(
+            Queue queue, int maximumConcurrency, int minimumPollers, int maximumPollers) {
+        var builder = SqsEventSource.Builder.create(queue).batchSize(1);
+        // The lane cap holds with provisioned pollers too, warm pollers must not lift it
+        if (maximumConcurrency > 0) {
+            builder.maxConcurrency(maximumConcurrency);
+        }
+        if (minimumPollers > 0) {
+            builder.provisionedPollerConfig(ProvisionedPollerConfig.builder()
+                    .minimumPollers(minimumPollers)
+                    .maximumPollers(Math.max(minimumPollers, maximumPollers))
+                    .build());
+            infof(
+                    "Provisioned %d-%d SQS pollers for queue %s",
+                    minimumPollers,
+                    Math.max(minimumPollers, maximumPollers),
+                    queue.getNode().getId());
+        }
+        return builder.build();
     }
 }
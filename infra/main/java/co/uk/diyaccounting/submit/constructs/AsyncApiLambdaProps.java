@@ -34,9 +34,11 @@ public interface AsyncApiLambdaProps extends AbstractApiLambdaProps {
         return Duration.seconds(10);
     }
 
+    // Six times the worker timeout (see PerformanceChecks QueueVisibilityTimeout), so a message the poller holds
+    // while Lambda throttles the worker is not delivered a second time. It is also the retry delay of a failed message.
     @Value.Default
     default Duration queueVisibilityTimeout() {
-        return Duration.seconds(30);
+        return Duration.seconds(6 * workerLambdaTimeout().toSeconds().intValue());
     }
 
     @Value.Default
@@ -54,6 +56,69 @@ public interface AsyncApiLambdaProps extends AbstractApiLambdaProps {
         return Architecture.ARM_64;
     }
 
+    // Alarm when the oldest message on a worker queue (either lane) has waited longer than this
+    @Value.Default
+    default Duration queueAgeAlarmThreshold() {
+        return Duration.minutes(5);
+    }
+
+    // Maximum concurrent worker invocations from the (normal) worker queue, 0 for no limit (SQS minimum is 2)
+    @Value.Default
+    default int workerQueueMaximumConcurrency() {
+        return 0;
+    }
+
+    // > 0 adds a high priority lane: a second queue feeding the same worker with its own concurrency share.
+    // The ingest Lambda enqueues to SQS_HIGH_PRIORITY_QUEUE_URL when it is set.
+    @Value.Default
+    default int highPriorityQueueMaximumConcurrency() {
+        return 0;
+    }
+
+    // SQS event source provisioned mode: pollers kept warm for the lane so first-message latency does not wait on
+    // the default poller scale-up. 0 leaves the lane in on-demand mode (provisioned minimum is 2). The lane's
+    // maximum concurrency still caps the worker invocations the pollers make.
+    @Value.Default
+    default int workerQueueMinimumPollers() {
+        return 0;
+    }
+
+    @Value.Default
+    default int workerQueueMaximumPollers() {
+        return 0;
+    }
+
+    @Value.Default
+    default int highPriorityQueueMinimumPollers() {
+        return 0;
+    }
+
+    @Value.Default
+    default int highPriorityQueueMaximumPollers() {
+        return 0;
+    }
+
+    // Adds the "<worker function name>-circuit-breaker" alarm on sustained worker error rate. A controller outside
+    // the construct (see HmrcStack) pauses the worker's event source mappings while it is in ALARM.
+    @Value.Default
+    default boolean workerCircuitBreaker() {
+        return false;
+    }
+
+    // Non-empty adds an Express execution mode: a synchronous Express state machine whose states invoke this handler
+    // (same image as the worker) for the downstream call and then, in parallel, the receipt and result writes. The
+    // ingest Lambda runs it via STEP_FUNCTIONS_STATE_MACHINE_ARN and falls back to the queue when it fails.
+    @Value.Default
+    default String expressStepHandler() {
+        return "";
+    }
+
+    // Must leave the ingest Lambda time to fall back to the queue inside the API timeout
+    @Value.Default
+    default Duration expressExecutionTimeout() {
+        return Duration.seconds(20);
+    }
+
     static ImmutableAsyncApiLambdaProps.Builder builder() {
         return ImmutableAsyncApiLambdaProps.builder();
     }
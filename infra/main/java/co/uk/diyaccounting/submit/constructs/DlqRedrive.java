@@ -0,0 +1,76 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.constructs;
+
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+
+import java.util.List;
+import java.util.Map;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.events.Rule;
+import software.amazon.awscdk.services.events.RuleTargetInput;
+import software.amazon.awscdk.services.events.Schedule;
+import software.amazon.awscdk.services.events.targets.LambdaFunction;
+import software.amazon.awscdk.services.iam.Effect;
+import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.constructs.Construct;
+
+/**
+ * Scheduled redrive of one dead letter queue. On each tick the shared controller starts an SQS message move
+ * task at the configured velocity when the DLQ has messages, the worker's circuit breaker is closed and the
+ * exponential back-off since the previous redrive has elapsed (see app/functions/ops/dlqRedrive.js).
+ */
+public class DlqRedrive {
+
+    public final Rule rule;
+
+    public DlqRedrive(final Construct scope, DlqRedriveProps props) {
+        var deadLetterQueue = props.deadLetterQueue();
+        // Rule name left to CloudFormation, "<dlq name>-redrive" can exceed the 64 character limit
+        this.rule = Rule.Builder.create(scope, props.idPrefix() + "-DlqRedriveRule")
+                .schedule(Schedule.rate(props.interval()))
+                .targets(List.of(LambdaFunction.Builder.create(props.controller())
+                        .event(RuleTargetInput.fromObject(Map.of(
+                                "deadLetterQueueArn", deadLetterQueue.getQueueArn(),
+                                "deadLetterQueueUrl", deadLetterQueue.getQueueUrl(),
+                                "maxMessagesPerSecond", props.maxMessagesPerSecond(),
+                                "intervalSeconds", props.interval().toSeconds(),
+                                "circuitBreakerWorkerAliasArn", props.circuitBreakerWorkerAliasArn())))
+                        .build()))
+                .build();
+
+        // A message move task reads from the DLQ as the caller and sends to each message's source queue
+        deadLetterQueue.grantConsumeMessages(props.controller());
+        deadLetterQueue.grant(
+                props.controller(),
+                "sqs:StartMessageMoveTask",
+                "sqs:ListMessageMoveTasks",
+                "sqs:CancelMessageMoveTask");
+        props.sourceQueues().forEach(queue -> queue.grantSendMessages(props.controller()));
+        if (!props.circuitBreakerWorkerAliasArn().isBlank()) {
+            var stack = Stack.of(scope);
+            // ListEventSourceMappings does not support resource-level permissions
+            props.controller()
+                    .addToRolePolicy(PolicyStatement.Builder.create()
+                            .effect(Effect.ALLOW)
+                            .actions(List.of("lambda:ListEventSourceMappings"))
+                            .resources(List.of("*"))
+                            .build());
+            props.controller()
+                    .addToRolePolicy(PolicyStatement.Builder.create()
+                            .effect(Effect.ALLOW)
+                            .actions(List.of("lambda:ListTags"))
+                            .resources(List.of("arn:aws:lambda:%s:%s:event-source-mapping:*"
+                                    .formatted(stack.getRegion(), stack.getAccount())))
+                            .build());
+        }
+        infof(
+                "Created DLQ redrive rule %s at %d messages per second every %s",
+                this.rule.getNode().getId(),
+                props.maxMessagesPerSecond(),
+                props.interval().toHumanString());
+    }
+}
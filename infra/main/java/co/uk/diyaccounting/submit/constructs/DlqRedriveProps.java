@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.constructs;
+
+import java.util.List;
+import org.immutables.value.Value;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.lambda.IFunction;
+import software.amazon.awscdk.services.sqs.IQueue;
+
+/**
+ * Properties for a scheduled, rate limited redrive of a dead letter queue back to its source queues.
+ */
+@Value.Immutable
+public interface DlqRedriveProps {
+
+    /** Prefix for CDK construct IDs */
+    String idPrefix();
+
+    IQueue deadLetterQueue();
+
+    /** Queues that dead letter into deadLetterQueue, messages are moved back to the queue they came from */
+    List<IQueue> sourceQueues();
+
+    /** Shared redrive controller (app/functions/ops/dlqRedrive.js) */
+    IFunction controller();
+
+    /** SQS message move task velocity, keep it below the rate the downstream API tolerates */
+    @Value.Default
+    default int maxMessagesPerSecond() {
+        return 1;
+    }
+
+    /** How often the controller checks the DLQ, also the base of the exponential back-off between redrives */
+    @Value.Default
+    default Duration interval() {
+        return Duration.minutes(15);
+    }
+
+    /**
+     * Worker alias whose event source mappings must not be held open by the HMRC circuit breaker when a redrive
+     * starts, "" for none. The mappings are read rather than the breaker's alarm, which returns to OK once the paused
+     * worker stops emitting metrics.
+     */
+    @Value.Default
+    default String circuitBreakerWorkerAliasArn() {
+        return "";
+    }
+
+    static ImmutableDlqRedriveProps.Builder builder() {
+        return ImmutableDlqRedriveProps.builder();
+    }
+}
@@ -7,9 +7,12 @@ package co.uk.diyaccounting.submit.constructs;
 
 import static co.uk.diyaccounting.submit.utils.Kind.infof;
 
+import co.uk.diyaccounting.submit.utils.PerformanceProfile.LambdaSettings;
 import java.util.List;
+import java.util.Map;
 import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.RemovalPolicy;
+import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.services.cloudwatch.Alarm;
 import software.amazon.awscdk.services.cloudwatch.ComparisonOperator;
 import software.amazon.awscdk.services.cloudwatch.Metric;
@@ -18,6 +21,8 @@ import software.amazon.awscdk.services.cloudwatch.TreatMissingData;
 import software.amazon.awscdk.services.ecr.IRepository;
 import software.amazon.awscdk.services.ecr.Repository;
 import software.amazon.awscdk.services.ecr.RepositoryAttributes;
+import software.amazon.awscdk.services.iam.Effect;
+import software.amazon.awscdk.services.iam.PolicyStatement;
 import software.amazon.awscdk.services.lambda.Alias;
 import software.amazon.awscdk.services.lambda.DockerImageCode;
 import software.amazon.awscdk.services.lambda.DockerImageFunction;
@@ -81,13 +86,21 @@ public class Lambda {
         // Add X-Ray environment variables if enabled
         var environment = new java.util.HashMap<>(props.environment());
         environment.put("AWS_XRAY_TRACING_NAME", props.ingestFunctionName());
+        var settings = props.performanceProfile()
+                .ingest(
+                        props.ingestFunctionName(),
+                        new LambdaSettings(
+                                props.ingestMemorySize(),
+                                props.ingestLambdaTimeout(),
+                                props.ingestArchitecture(),
+                                props.ingestProvisionedConcurrency()));
         var dockerFunctionBuilder = DockerImageFunction.Builder.create(scope, props.idPrefix() + "-fn")
                 .code(this.dockerImage)
                 .environment(environment)
                 .functionName(props.ingestFunctionName())
-                .timeout(props.ingestLambdaTimeout())
-                .memorySize(props.ingestMemorySize())
-                .architecture(props.ingestArchitecture())
+                .timeout(settings.timeout())
+                .memorySize(settings.memorySize())
+                .architecture(settings.architecture())
                 .logGroup(this.logGroup)
                 .tracing(Tracing.ACTIVE);
         if (props.role().isPresent()) {
@@ -95,6 +108,7 @@ public class Lambda {
         }
         this.ingestLambda = dockerFunctionBuilder.build();
         infof("Created Lambda %s with function %s", this.ingestLambda.getNode().getId(), this.ingestLambda.toString());
+        wireActivityBuffer(this.ingestLambda, props.environment());
 
         this.ingestLambdaVersion = Version.Builder.create(scope, props.idPrefix() + "-ingest-version")
                 .lambda(this.ingestLambda)
@@ -109,7 +123,7 @@ public class Lambda {
         this.ingestLambdaAlias = Alias.Builder.create(scope, props.idPrefix() + "-ingest-alias")
                 .aliasName(props.provisionedConcurrencyAliasName())
                 .version(this.ingestLambdaVersion)
-                .provisionedConcurrentExecutions(props.ingestProvisionedConcurrency())
+                .provisionedConcurrentExecutions(settings.provisionedConcurrency())
                 .build();
         this.ingestLambdaAliasArn =
                 "%s:%s".formatted(this.ingestLambda.getFunctionArn(), this.ingestLambdaAlias.getAliasName());
@@ -152,7 +166,7 @@ public class Lambda {
 
         // 3) High duration (p95) approaching timeout (>= 80% of configured timeout)
         // Lambda Duration metric unit is milliseconds. Convert timeout to ms and apply 80% threshold.
-        double timeoutMs = props.ingestLambdaTimeout().toSeconds().doubleValue() * 1000.0;
+        double timeoutMs = settings.timeout().toSeconds().doubleValue() * 1000.0;
         double highDurationThresholdMs = timeoutMs * 0.8;
         Alarm.Builder.create(scope, props.idPrefix() + "-HighDurationP95Alarm")
                 .alarmName(props.ingestFunctionName() + "-high-duration-p95")
@@ -202,4 +216,29 @@ public class Lambda {
                         + this.ingestLambda.getFunctionName())
                 .build();
     }
+
+    /**
+     * A function publishing activity events (ACTIVITY_BUS_NAME in its environment) sends them to the bus's buffer
+     * queue, the bus name + "-buffer" in the same account and region (see ActivityStack), instead of calling
+     * PutEvents inline; the activity batch forwarder drains the queue onto the bus.
+     */
+    public static void wireActivityBuffer(Function function, Map<String, String> environment) {
+        var busName = environment.get("ACTIVITY_BUS_NAME");
+        if (busName == null || busName.isBlank() || environment.containsKey("ACTIVITY_QUEUE_URL")) {
+            return;
+        }
+        var stack = Stack.of(function);
+        var queueName = busName + "-buffer";
+        function.addEnvironment(
+                "ACTIVITY_QUEUE_URL",
+                "https://sqs.%s.amazonaws.com/%s/%s".formatted(stack.getRegion(), stack.getAccount(), queueName));
+        function.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("sqs:SendMessage"))
+                .resources(List.of("arn:aws:sqs:%s:%s:%s".formatted(stack.getRegion(), stack.getAccount(), queueName)))
+                .build());
+        infof(
+                "Wired activity events from %s to buffer queue %s",
+                function.getNode().getId(), queueName);
+    }
 }
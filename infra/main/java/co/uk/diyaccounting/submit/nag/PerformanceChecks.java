@@ -0,0 +1,413 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.nag;
+
+import co.uk.diyaccounting.submit.SubmitSharedNames;
+import co.uk.diyaccounting.submit.utils.KindCdk;
+import io.github.cdklabs.cdknag.IApplyRule;
+import io.github.cdklabs.cdknag.NagMessageLevel;
+import io.github.cdklabs.cdknag.NagPack;
+import io.github.cdklabs.cdknag.NagRuleCompliance;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import software.amazon.awscdk.CfnResource;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.cloudfront.CfnDistribution;
+import software.amazon.awscdk.services.lambda.CfnAlias;
+import software.amazon.awscdk.services.lambda.CfnEventSourceMapping;
+import software.amazon.awscdk.services.lambda.CfnFunction;
+import software.amazon.awscdk.services.lambda.CfnVersion;
+import software.amazon.awscdk.services.sqs.CfnQueue;
+import software.amazon.awscdk.services.stepfunctions.CfnStateMachine;
+import software.amazon.awscdk.services.xray.CfnSamplingRule;
+import software.constructs.IConstruct;
+
+/**
+ * cdk-nag rule pack for the performance settings the security packs do not look at. Applied as an Aspect to both
+ * CDK apps, violations are error annotations so synth fails (and so does the CDK CLI in CI). A deliberate exception
+ * is recorded next to the construct with NagSuppressions.addResourceSuppressions and a reason, as for any nag rule.
+ *
+ * <p>Rules only follow references within a stack, a queue or function imported from another stack is not checked.
+ */
+public class PerformanceChecks extends NagPack {
+
+    // Managed CachePolicy.CACHING_DISABLED
+    static final String CACHING_DISABLED_POLICY_ID = "4135ea2d-6df8-44a3-9df3-4b5a84be39ad";
+
+    private static final int DEFAULT_MEMORY_SIZE = 128;
+    private static final int DEFAULT_FUNCTION_TIMEOUT = 3;
+    private static final int DEFAULT_VISIBILITY_TIMEOUT = 30;
+    private static final int DEFAULT_SQS_BATCH_SIZE = 10;
+
+    private final PerformanceChecksProps props;
+
+    // Resources by logical id, per stack path, built on the first visit to the stack
+    private final Map<String, Map<String, CfnResource>> resourcesByStack = new HashMap<>();
+
+    public PerformanceChecks(PerformanceChecksProps props) {
+        super();
+        this.setPackName("Performance");
+        this.props = props;
+    }
+
+    public static PerformanceChecks of(SubmitSharedNames sharedNames) {
+        return new PerformanceChecks(PerformanceChecksProps.builder()
+                .hotRouteFunctionNames(sharedNames.hotRouteLambdaFunctionNames)
+                .transientTableNames(sharedNames.transientTableNames)
+                .edgeCacheableUrlPaths(sharedNames.edgeCacheableUrlPaths)
+                .highVolumeQueueNames(sharedNames.highVolumeQueueNames)
+                .build());
+    }
+
+    @Override
+    public void visit(final @NotNull IConstruct node) {
+        if (node instanceof CfnFunction function) {
+            applyRule(new Check(
+                    "HotRouteProvisionedConcurrency",
+                    "The hot route Lambda function has no alias with provisioned concurrency.",
+                    "Cold starts of a container image function take seconds and land on a user waiting for a response."
+                            + " Give functions on the request path a provisioned concurrency alias of at least 1.",
+                    function,
+                    this::hotRouteProvisionedConcurrency));
+            applyRule(new Check(
+                    "HotRouteMemorySize",
+                    "The hot route Lambda function has less than %d MB of memory."
+                            .formatted(props.hotRouteMemorySizeFloor()),
+                    "Lambda allocates CPU in proportion to memory, below the floor the handler and its SDK clients"
+                            + " initialise and run on a fraction of a vCPU.",
+                    function,
+                    this::hotRouteMemorySize));
+        } else if (node instanceof CfnEventSourceMapping mapping) {
+            applyRule(new Check(
+                    "QueueVisibilityTimeout",
+                    "The SQS queue visibility timeout is less than %d times the consuming function timeout."
+                            .formatted(props.visibilityTimeoutMultiple()),
+                    "When Lambda is throttled the poller keeps messages invisible while it retries, a shorter"
+                            + " visibility timeout returns them to the queue early and the same message is processed"
+                            + " twice. Use the function timeout times the multiple plus the maximum batching window.",
+                    mapping,
+                    this::queueVisibilityTimeout));
+            applyRule(new Check(
+                    "SqsBatchSize",
+                    "The SQS event source mapping of a high volume queue has a batch size of 1.",
+                    "Each message is a separate invocation, so the queue drains at one message per concurrent"
+                            + " execution. Use a larger batch with reportBatchItemFailures.",
+                    mapping,
+                    this::sqsBatchSize));
+        } else if (node instanceof CfnDistribution distribution) {
+            applyRule(new Check(
+                    "EdgeCacheableCachingDisabled",
+                    "An edge cacheable path is served by a behavior with caching disabled.",
+                    "GET responses on the edge cacheable paths are safe to share between viewers, the behavior that"
+                            + " matches them first should use a cache policy that lets CloudFront answer them.",
+                    distribution,
+                    this::edgeCacheableCachingDisabled));
+        } else if (node instanceof CfnStateMachine stateMachine) {
+            applyRule(new Check(
+                    "TracingWithoutSamplingRule",
+                    "The state machine has X-Ray tracing enabled and the app defines no sampling rule.",
+                    "Without a sampling rule X-Ray applies the account default of 1 request per second and 5% of the"
+                            + " rest, which under load records far more traces than anyone reads. Add an"
+                            + " AWS::XRay::SamplingRule matching the service, or record why the default is right."
+                            + " Lambda active tracing is not checked as Lambda does not apply custom sampling rules.",
+                    stateMachine,
+                    this::tracingWithoutSamplingRule));
+        } else if (node instanceof CfnResource resource && "Custom::AWS".equals(resource.getCfnResourceType())) {
+            applyRule(new Check(
+                    "TransientTableTimeToLive",
+                    "The table holds transient items and TTL is not enabled on it.",
+                    "Items that are only read for minutes stay in the table, and in its storage cost, scans and"
+                            + " backups, until something deletes them. Ensure TTL with KindCdk.ensureTimeToLive.",
+                    resource,
+                    this::transientTableTimeToLive));
+        }
+    }
+
+    private NagRuleCompliance hotRouteProvisionedConcurrency(CfnResource node) {
+        var function = (CfnFunction) node;
+        if (!isHotRoute(function)) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        var stack = Stack.of(function);
+        var functionLogicalId = stack.getLogicalId(function);
+        for (var resource : resources(stack).values()) {
+            if (resource instanceof CfnAlias alias
+                    && references(stack.resolve(alias.getFunctionName())).contains(functionLogicalId)
+                    && provisionedConcurrentExecutions(stack, alias) >= 1) {
+                return NagRuleCompliance.COMPLIANT;
+            }
+        }
+        return NagRuleCompliance.NON_COMPLIANT;
+    }
+
+    private static int provisionedConcurrentExecutions(Stack stack, CfnAlias alias) {
+        var config = stack.resolve(alias.getProvisionedConcurrencyConfig());
+        return config instanceof Map<?, ?> c ? number(c.get("provisionedConcurrentExecutions"), 0) : 0;
+    }
+
+    private NagRuleCompliance hotRouteMemorySize(CfnResource node) {
+        var function = (CfnFunction) node;
+        if (!isHotRoute(function)) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        var memorySize = number(Stack.of(function).resolve(function.getMemorySize()), DEFAULT_MEMORY_SIZE);
+        return memorySize >= props.hotRouteMemorySizeFloor()
+                ? NagRuleCompliance.COMPLIANT
+                : NagRuleCompliance.NON_COMPLIANT;
+    }
+
+    private NagRuleCompliance queueVisibilityTimeout(CfnResource node) {
+        var mapping = (CfnEventSourceMapping) node;
+        var stack = Stack.of(mapping);
+        var queue = queueOf(mapping);
+        var functions = functionsReferencedBy(stack, mapping.getFunctionName());
+        if (queue == null || functions.isEmpty()) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        var visibilityTimeout = number(stack.resolve(queue.getVisibilityTimeout()), DEFAULT_VISIBILITY_TIMEOUT);
+        var batchingWindow = number(stack.resolve(mapping.getMaximumBatchingWindowInSeconds()), 0);
+        for (var function : functions) {
+            var timeout = number(stack.resolve(function.getTimeout()), DEFAULT_FUNCTION_TIMEOUT);
+            if (visibilityTimeout < props.visibilityTimeoutMultiple() * timeout + batchingWindow) {
+                return NagRuleCompliance.NON_COMPLIANT;
+            }
+        }
+        return NagRuleCompliance.COMPLIANT;
+    }
+
+    private NagRuleCompliance sqsBatchSize(CfnResource node) {
+        var mapping = (CfnEventSourceMapping) node;
+        var queueName = queueNameOf(mapping);
+        if (queueName == null || !props.highVolumeQueueNames().contains(queueName)) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        var batchSize = number(Stack.of(mapping).resolve(mapping.getBatchSize()), DEFAULT_SQS_BATCH_SIZE);
+        return batchSize > 1 ? NagRuleCompliance.COMPLIANT : NagRuleCompliance.NON_COMPLIANT;
+    }
+
+    private NagRuleCompliance edgeCacheableCachingDisabled(CfnResource node) {
+        if (props.edgeCacheableUrlPaths().isEmpty()) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        var distribution = (CfnDistribution) node;
+        if (!(Stack.of(distribution).resolve(distribution.getDistributionConfig()) instanceof Map<?, ?> config)) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        var behaviors = config.get("cacheBehaviors") instanceof List<?> list ? list : List.of();
+        for (var urlPath : props.edgeCacheableUrlPaths()) {
+            // CloudFront uses the first behavior whose path pattern matches, then the default behavior
+            Object cachePolicyId = config.get("defaultCacheBehavior") instanceof Map<?, ?> defaultBehavior
+                    ? defaultBehavior.get("cachePolicyId")
+                    : null;
+            for (var behavior : behaviors) {
+                if (behavior instanceof Map<?, ?> b
+                        && b.get("pathPattern") instanceof String pathPattern
+                        && pathPatternMatches(pathPattern, urlPath)) {
+                    cachePolicyId = b.get("cachePolicyId");
+                    break;
+                }
+            }
+            if (CACHING_DISABLED_POLICY_ID.equals(cachePolicyId)) {
+                return NagRuleCompliance.NON_COMPLIANT;
+            }
+        }
+        return NagRuleCompliance.COMPLIANT;
+    }
+
+    private NagRuleCompliance tracingWithoutSamplingRule(CfnResource node) {
+        var stateMachine = (CfnStateMachine) node;
+        var tracing = Stack.of(stateMachine).resolve(stateMachine.getTracingConfiguration());
+        if (!(tracing instanceof Map<?, ?> t && Boolean.TRUE.equals(t.get("enabled")))) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        var app = stateMachine.getNode().getRoot();
+        return app.getNode().findAll().stream().anyMatch(c -> c instanceof CfnSamplingRule)
+                ? NagRuleCompliance.COMPLIANT
+                : NagRuleCompliance.NON_COMPLIANT;
+    }
+
+    private NagRuleCompliance transientTableTimeToLive(CfnResource node) {
+        var tableName = metadata(node, KindCdk.TABLE_METADATA_TYPE);
+        if (tableName == null || !props.transientTableNames().contains(tableName)) {
+            return NagRuleCompliance.NOT_APPLICABLE;
+        }
+        return Stack.of(node).getNode().findAll().stream().anyMatch(c -> c.getNode().getMetadata().stream()
+                        .anyMatch(m -> KindCdk.TIME_TO_LIVE_METADATA_TYPE.equals(m.getType())
+                                && tableName.equals(m.getData())))
+                ? NagRuleCompliance.COMPLIANT
+                : NagRuleCompliance.NON_COMPLIANT;
+    }
+
+    private boolean isHotRoute(CfnFunction function) {
+        return Stack.of(function).resolve(function.getFunctionName()) instanceof String functionName
+                && props.hotRouteFunctionNames().contains(functionName);
+    }
+
+    private CfnQueue queueOf(CfnEventSourceMapping mapping) {
+        var stack = Stack.of(mapping);
+        for (var logicalId : references(stack.resolve(mapping.getEventSourceArn()))) {
+            if (resources(stack).get(logicalId) instanceof CfnQueue queue) {
+                return queue;
+            }
+        }
+        return null;
+    }
+
+    // The name of the queue in the stack, or of a queue imported by ARN (the name is the literal end of the ARN)
+    private String queueNameOf(CfnEventSourceMapping mapping) {
+        var stack = Stack.of(mapping);
+        var queue = queueOf(mapping);
+        if (queue != null) {
+            return stack.resolve(queue.getQueueName()) instanceof String queueName ? queueName : null;
+        }
+        Object arnEnd = stack.resolve(mapping.getEventSourceArn());
+        if (arnEnd instanceof Map<?, ?> map
+                && map.get("Fn::Join") instanceof List<?> join
+                && join.size() == 2
+                && join.get(1) instanceof List<?> parts
+                && !parts.isEmpty()) {
+            arnEnd = parts.getLast();
+        }
+        return arnEnd instanceof String arn ? arn.substring(arn.lastIndexOf(':') + 1) : null;
+    }
+
+    // The functions behind a function name or ARN, following aliases and versions to their function
+    private List<CfnFunction> functionsReferencedBy(Stack stack, Object functionNameOrArn) {
+        var functions = new ArrayList<CfnFunction>();
+        for (var logicalId : references(stack.resolve(functionNameOrArn))) {
+            switch (resources(stack).get(logicalId)) {
+                case CfnFunction function -> functions.add(function);
+                case CfnAlias alias -> functions.addAll(functionsReferencedBy(stack, alias.getFunctionName()));
+                case CfnVersion version -> functions.addAll(functionsReferencedBy(stack, version.getFunctionName()));
+                case null, default -> {}
+            }
+        }
+        return functions;
+    }
+
+    private Map<String, CfnResource> resources(Stack stack) {
+        return resourcesByStack.computeIfAbsent(stack.getNode().getPath(), path -> {
+            var resources = new HashMap<String, CfnResource>();
+            for (var construct : stack.getNode().findAll()) {
+                if (construct instanceof CfnResource resource) {
+                    resources.put(stack.getLogicalId(resource), resource);
+                }
+            }
+            return resources;
+        });
+    }
+
+    // Logical ids named by Ref and Fn::GetAtt anywhere in a resolved value
+    static Set<String> references(Object resolved) {
+        var logicalIds = new LinkedHashSet<String>();
+        collectReferences(resolved, logicalIds);
+        return logicalIds;
+    }
+
+    private static void collectReferences(Object resolved, Set<String> logicalIds) {
+        if (resolved instanceof Map<?, ?> map) {
+            if (map.get("Ref") instanceof String ref) {
+                logicalIds.add(ref);
+            }
+            if (map.get("Fn::GetAtt") instanceof List<?> getAtt
+                    && !getAtt.isEmpty()
+                    && getAtt.getFirst() instanceof String logicalId) {
+                logicalIds.add(logicalId);
+            }
+            map.values().forEach(value -> collectReferences(value, logicalIds));
+        } else if (resolved instanceof List<?> list) {
+            list.forEach(value -> collectReferences(value, logicalIds));
+        }
+    }
+
+    // CloudFront path patterns: * matches any run of characters, ? exactly one, case sensitive
+    static boolean pathPatternMatches(String pathPattern, String urlPath) {
+        var regex = new StringBuilder();
+        for (var c : pathPattern.toCharArray()) {
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        var relative = pathPattern.startsWith("/") ? urlPath : urlPath.replaceFirst("^/", "");
+        return Pattern.matches(regex.toString(), relative);
+    }
+
+    private static int number(Object resolved, int defaultValue) {
+        return resolved instanceof Number n ? n.intValue() : defaultValue;
+    }
+
+    // Metadata KindCdk records on the construct that owns the resource, e.g. the AwsCustomResource of ensureTable
+    private static String metadata(CfnResource resource, String type) {
+        for (var scope : resource.getNode().getScopes().reversed()) {
+            for (var entry : scope.getNode().getMetadata()) {
+                if (type.equals(entry.getType()) && entry.getData() instanceof String data) {
+                    return data;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Check implements IApplyRule {
+        private final String ruleSuffixOverride;
+        private final String info;
+        private final String explanation;
+        private final CfnResource node;
+        private final Function<CfnResource, NagRuleCompliance> rule;
+
+        Check(
+                String ruleSuffixOverride,
+                String info,
+                String explanation,
+                CfnResource node,
+                Function<CfnResource, NagRuleCompliance> rule) {
+            this.ruleSuffixOverride = ruleSuffixOverride;
+            this.info = info;
+            this.explanation = explanation;
+            this.node = node;
+            this.rule = rule;
+        }
+
+        @Override
+        public String getRuleSuffixOverride() {
+            return ruleSuffixOverride;
+        }
+
+        @Override
+        public @NotNull String getInfo() {
+            return info;
+        }
+
+        @Override
+        public @NotNull String getExplanation() {
+            return explanation;
+        }
+
+        @Override
+        public @NotNull NagMessageLevel getLevel() {
+            return NagMessageLevel.ERROR;
+        }
+
+        @Override
+        public @NotNull CfnResource getNode() {
+            return node;
+        }
+
+        @Override
+        public @NotNull Object rule(final @NotNull CfnResource node) {
+            return rule.apply(node);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.nag;
+
+import java.util.List;
+import org.immutables.value.Value;
+
+/**
+ * What the performance rules need to know that is not in the template: which functions, tables and paths matter.
+ */
+@Value.Immutable
+public interface PerformanceChecksProps {
+
+    /** Function names on a user facing request path, these need a provisioned concurrency alias and enough memory */
+    List<String> hotRouteFunctionNames();
+
+    /** Tables holding short lived items (async request state, API request logs), these need TTL enabled */
+    List<String> transientTableNames();
+
+    /** Viewer paths (e.g. "/api/v1/catalog") whose GET responses may be cached at the edge */
+    List<String> edgeCacheableUrlPaths();
+
+    /** Queues that carry many small messages per user action, these should be consumed in batches */
+    List<String> highVolumeQueueNames();
+
+    /** Below this a hot route Lambda spends its latency budget on CPU, as Lambda allocates CPU by memory */
+    @Value.Default
+    default int hotRouteMemorySizeFloor() {
+        return 256;
+    }
+
+    /** AWS recommends an SQS visibility timeout of at least 6x the timeout of the function consuming the queue */
+    @Value.Default
+    default int visibilityTimeoutMultiple() {
+        return 6;
+    }
+
+    static ImmutablePerformanceChecksProps.Builder builder() {
+        return ImmutablePerformanceChecksProps.builder();
+    }
+}
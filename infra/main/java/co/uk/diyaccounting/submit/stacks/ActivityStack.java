@@ -10,16 +10,21 @@ import static co.uk.diyaccounting.submit.utils.KindCdk.cfnOutput;
 
 import co.uk.diyaccounting.submit.SubmitSharedNames;
 import org.immutables.value.Value;
+import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.Environment;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
 import software.amazon.awscdk.Tags;
 import software.amazon.awscdk.services.events.EventBus;
+import software.amazon.awscdk.services.sqs.DeadLetterQueue;
+import software.amazon.awscdk.services.sqs.Queue;
 import software.constructs.Construct;
 
 public class ActivityStack extends Stack {
 
     public final EventBus activityBus;
+    public final Queue activityBufferQueue;
+    public final Queue activityBufferDeadLetterQueue;
 
     @Value.Immutable
     public interface ActivityStackProps extends StackProps, SubmitStackProps {
@@ -76,6 +81,30 @@ public class ActivityStack extends Stack {
         cfnOutput(this, "ActivityBusName", this.activityBus.getEventBusName());
         cfnOutput(this, "ActivityBusArn", this.activityBus.getEventBusArn());
 
+        // ============================================================================
+        // Activity Buffer Queue
+        // ============================================================================
+        // Lambdas built with the Lambda construct and ACTIVITY_BUS_NAME send activity events here (ACTIVITY_QUEUE_URL)
+        // rather than calling PutEvents inline. The batch forwarder in each deployment's OpsStack drains the queue
+        // onto the bus 10 entries per PutEvents call.
+        this.activityBufferDeadLetterQueue = Queue.Builder.create(
+                        this, props.resourceNamePrefix() + "-ActivityBufferDlq")
+                .queueName(props.sharedNames().activityBufferDeadLetterQueueName)
+                .retentionPeriod(Duration.days(14))
+                .build();
+        this.activityBufferQueue = Queue.Builder.create(this, props.resourceNamePrefix() + "-ActivityBufferQueue")
+                .queueName(props.sharedNames().activityBufferQueueName)
+                .retentionPeriod(Duration.days(4))
+                .visibilityTimeout(Duration.seconds(60))
+                .deadLetterQueue(DeadLetterQueue.builder()
+                        .queue(this.activityBufferDeadLetterQueue)
+                        .maxReceiveCount(3)
+                        .build())
+                .build();
+
+        cfnOutput(this, "ActivityBufferQueueUrl", this.activityBufferQueue.getQueueUrl());
+        cfnOutput(this, "ActivityBufferQueueArn", this.activityBufferQueue.getQueueArn());
+
         infof("ActivityStack %s created successfully for %s", this.getNode().getId(), props.resourceNamePrefix());
     }
 }
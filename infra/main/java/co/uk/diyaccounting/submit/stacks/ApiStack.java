@@ -10,7 +10,6 @@ import static co.uk.diyaccounting.submit.utils.KindCdk.cfnOutput;
 import static co.uk.diyaccounting.submit.utils.KindCdk.ensureLogGroupWithDependency;
 
 import co.uk.diyaccounting.submit.SubmitSharedNames;
-import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
 import co.uk.diyaccounting.submit.utils.KindCdk.EnsuredLogGroup;
 import java.util.List;
 import java.util.Map;
@@ -22,18 +21,15 @@ import software.amazon.awscdk.Environment;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
 import software.amazon.awscdk.Tags;
-import software.amazon.awscdk.aws_apigatewayv2_authorizers.HttpJwtAuthorizer;
-import software.amazon.awscdk.aws_apigatewayv2_authorizers.HttpLambdaAuthorizer;
-import software.amazon.awscdk.aws_apigatewayv2_authorizers.HttpLambdaResponseType;
-import software.amazon.awscdk.aws_apigatewayv2_integrations.HttpLambdaIntegration;
 import software.amazon.awscdk.customresources.Provider;
 import software.amazon.awscdk.services.apigatewayv2.ApiMapping;
+import software.amazon.awscdk.services.apigatewayv2.AuthorizerPayloadVersion;
 import software.amazon.awscdk.services.apigatewayv2.CfnStage;
 import software.amazon.awscdk.services.apigatewayv2.DomainName;
 import software.amazon.awscdk.services.apigatewayv2.HttpApi;
+import software.amazon.awscdk.services.apigatewayv2.HttpAuthorizer;
+import software.amazon.awscdk.services.apigatewayv2.HttpAuthorizerType;
 import software.amazon.awscdk.services.apigatewayv2.HttpMethod;
-import software.amazon.awscdk.services.apigatewayv2.HttpRoute;
-import software.amazon.awscdk.services.apigatewayv2.HttpRouteKey;
 import software.amazon.awscdk.services.certificatemanager.Certificate;
 import software.amazon.awscdk.services.certificatemanager.ICertificate;
 import software.amazon.awscdk.services.cloudwatch.Alarm;
@@ -42,13 +38,10 @@ import software.amazon.awscdk.services.cloudwatch.MetricOptions;
 import software.amazon.awscdk.services.cloudwatch.TreatMissingData;
 import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
-import software.amazon.awscdk.services.iam.ServicePrincipal;
 import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
-import software.amazon.awscdk.services.lambda.FunctionAttributes;
-import software.amazon.awscdk.services.lambda.IFunction;
-import software.amazon.awscdk.services.lambda.Permission;
 import software.amazon.awscdk.services.lambda.Runtime;
+import software.amazon.awscdk.services.ssm.StringParameter;
 import software.constructs.Construct;
 
 public class ApiStack extends Stack {
@@ -82,8 +75,6 @@ public class ApiStack extends Stack {
         @Override
         SubmitSharedNames sharedNames();
 
-        List<AbstractApiLambdaProps> lambdaFunctions();
-
         static ImmutableApiStackProps.Builder builder() {
             return ImmutableApiStackProps.builder();
         }
@@ -229,69 +220,46 @@ public class ApiStack extends Stack {
                 .alarmDescription("API Gateway 5xx errors >= 1 for API " + this.httpApi.getApiId())
                 .build();
 
-        // Create authorizers to selectively apply to routes
+        // Authorizers for the routes the domain stacks attach (see ApiRoutes). They are created here, with the
+        // HttpApi, so every route stack reads the same authorizer IDs and none of them owns a shared resource.
         String issuer = "https://cognito-idp.%s.amazonaws.com/%s".formatted(getRegion(), props.userPoolId());
-        HttpJwtAuthorizer jwtAuthorizer = HttpJwtAuthorizer.Builder.create(
-                        props.resourceNamePrefix() + "-CognitoAuthorizer", issuer)
+        HttpAuthorizer jwtAuthorizer = HttpAuthorizer.Builder.create(
+                        this, props.resourceNamePrefix() + "-CognitoAuthorizer")
+                .httpApi(this.httpApi)
+                .authorizerName(props.resourceNamePrefix() + "-CognitoAuthorizer")
+                .type(HttpAuthorizerType.JWT)
+                .identitySource(List.of("$request.header.Authorization"))
+                .jwtIssuer(issuer)
                 .jwtAudience(List.of(props.userPoolClientId()))
                 .build();
 
-        // Create custom Lambda authorizer for X-Authorization header
-        IFunction customAuthorizerLambda = Function.fromFunctionAttributes(
-                this,
-                props.resourceNamePrefix() + "-CustomAuthorizerLambda",
-                FunctionAttributes.builder()
-                        .functionArn(props.customAuthorizerLambdaArn())
-                        .sameEnvironment(true)
-                        .build());
-
-        HttpLambdaAuthorizer customAuthorizer = HttpLambdaAuthorizer.Builder.create(
-                        props.resourceNamePrefix() + "-CustomAuthorizer", customAuthorizerLambda)
-                .responseTypes(List.of(HttpLambdaResponseType.IAM))
+        // Custom Lambda authorizer for the X-Authorization header. The function is named, not referenced, so this
+        // stack does not wait on the AuthStack; the AuthStack grants API Gateway permission to invoke it.
+        HttpAuthorizer customAuthorizer = HttpAuthorizer.Builder.create(
+                        this, props.resourceNamePrefix() + "-CustomAuthorizer")
+                .httpApi(this.httpApi)
+                .authorizerName(props.resourceNamePrefix() + "-CustomAuthorizer")
+                .type(HttpAuthorizerType.LAMBDA)
                 .identitySource(List.of("$request.header.X-Authorization"))
+                .authorizerUri("arn:aws:apigateway:%s:lambda:path/2015-03-31/functions/%s/invocations"
+                        .formatted(getRegion(), props.customAuthorizerLambdaArn()))
+                .payloadFormatVersion(AuthorizerPayloadVersion.VERSION_1_0)
                 .resultsCacheTtl(Duration.minutes(5))
                 .build();
 
-        // Ensure API Gateway can invoke the custom authorizer Lambda explicitly (robust across regions)
-        customAuthorizerLambda.addPermission(
-                props.resourceNamePrefix() + "-AllowInvokeAuthorizerFromHttpApi",
-                Permission.builder()
-                        .action("lambda:InvokeFunction")
-                        .principal(new ServicePrincipal("apigateway.amazonaws.com"))
-                        .sourceArn("arn:aws:execute-api:" + this.getRegion() + ":" + this.getAccount() + ":"
-                                + this.httpApi.getApiId() + "/*")
-                        .build());
-
-        java.util.Set<String> createdRouteKeys = new java.util.HashSet<>();
-        java.util.Map<String, String> firstCreatorByRoute = new java.util.HashMap<>();
-        for (int i = 0; i < props.lambdaFunctions().size(); i++) {
-            AbstractApiLambdaProps apiLambdaProps = props.lambdaFunctions().get(i);
-            String routeKeyStr = apiLambdaProps.httpMethod().toString() + " " + apiLambdaProps.urlPath();
-            if (createdRouteKeys.contains(routeKeyStr)) {
-                String firstCreator = firstCreatorByRoute.getOrDefault(routeKeyStr, "<unknown>");
-                infof(
-                        "Skipping duplicate route %s (attempted by %s, first created by %s)",
-                        routeKeyStr, apiLambdaProps.ingestFunctionName(), firstCreator);
-                continue;
-            }
-            createdRouteKeys.add(routeKeyStr);
-            firstCreatorByRoute.put(routeKeyStr, apiLambdaProps.ingestFunctionName());
-            createRouteForLambda(
-                    apiLambdaProps, jwtAuthorizer, customAuthorizer, createdRouteKeys, firstCreatorByRoute);
-        }
-
-        // Synthesis-time diagnostics: list all created routes
-        if (!createdRouteKeys.isEmpty()) {
-            var sorted = new java.util.ArrayList<>(createdRouteKeys);
-            java.util.Collections.sort(sorted);
-            infof("Total unique API routes synthesized: %d", sorted.size());
-            for (String rk : sorted) {
-                String creator = firstCreatorByRoute.getOrDefault(rk, "<unknown>");
-                infof(" - %s (by %s)", rk, creator);
-            }
-        } else {
-            infof("No API routes synthesized");
-        }
+        // Publish the IDs for the route stacks, resolved at their deploy time rather than through exports
+        StringParameter.Builder.create(this, props.resourceNamePrefix() + "-HttpApiIdParameter")
+                .parameterName(props.sharedNames().httpApiIdParameterName)
+                .stringValue(this.httpApi.getHttpApiId())
+                .build();
+        StringParameter.Builder.create(this, props.resourceNamePrefix() + "-JwtAuthorizerIdParameter")
+                .parameterName(props.sharedNames().httpApiJwtAuthorizerIdParameterName)
+                .stringValue(jwtAuthorizer.getAuthorizerId())
+                .build();
+        StringParameter.Builder.create(this, props.resourceNamePrefix() + "-CustomAuthorizerIdParameter")
+                .parameterName(props.sharedNames().httpApiCustomAuthorizerIdParameterName)
+                .stringValue(customAuthorizer.getAuthorizerId())
+                .build();
 
         // Outputs
         cfnOutput(this, "HttpApiId", this.httpApi.getHttpApiId());
@@ -358,124 +326,4 @@ public class ApiStack extends Stack {
               return { PhysicalResourceId: event.PhysicalResourceId || "cleanup-noop" };
             };
             """;
-
-    private void createRouteForLambda(
-            AbstractApiLambdaProps apiLambdaProps,
-            HttpJwtAuthorizer jwtAuthorizer,
-            HttpLambdaAuthorizer customAuthorizer,
-            java.util.Set<String> createdRouteKeys,
-            java.util.Map<String, String> firstCreatorByRoute) {
-
-        // Build stable, unique construct IDs per route using method+path signature
-        String keySuffix = (apiLambdaProps.httpMethod().toString() + "-" + apiLambdaProps.urlPath())
-                .replaceAll("[^A-Za-z0-9]+", "-")
-                .replaceAll("^-+|-+$", "");
-
-        String importedFnId = apiLambdaProps.ingestFunctionName() + "-imported-" + keySuffix;
-        String integrationId = apiLambdaProps.ingestFunctionName() + "-Integration-" + keySuffix;
-        String routeId = apiLambdaProps.ingestFunctionName() + "-Route-" + keySuffix;
-
-        IFunction fn = Function.fromFunctionAttributes(
-                this,
-                importedFnId,
-                FunctionAttributes.builder()
-                        .functionArn(apiLambdaProps.ingestProvisionedConcurrencyAliasArn())
-                        .sameEnvironment(true)
-                        .build());
-
-        // Create HTTP Lambda integration
-        HttpLambdaIntegration integration = HttpLambdaIntegration.Builder.create(integrationId, fn)
-                .timeout(Duration.seconds(29))
-                .build();
-
-        // Create HTTP route with the appropriate authoriser
-        var routeKey = HttpRouteKey.with(apiLambdaProps.urlPath(), apiLambdaProps.httpMethod());
-        if (apiLambdaProps.customAuthorizer()) {
-            HttpRoute.Builder.create(this, routeId)
-                    .httpApi(this.httpApi)
-                    .routeKey(routeKey)
-                    .integration(integration)
-                    .authorizer(customAuthorizer)
-                    .build();
-        } else if (apiLambdaProps.jwtAuthorizer()) {
-            HttpRoute.Builder.create(this, routeId)
-                    .httpApi(this.httpApi)
-                    .routeKey(routeKey)
-                    .integration(integration)
-                    .authorizer(jwtAuthorizer)
-                    .build();
-        } else {
-            HttpRoute.Builder.create(this, routeId)
-                    .httpApi(this.httpApi)
-                    .routeKey(routeKey)
-                    .integration(integration)
-                    .build();
-        }
-
-        infof(
-                "Created route %s %s for function %s",
-                apiLambdaProps.httpMethod().toString(), apiLambdaProps.urlPath(), fn.getFunctionName());
-
-        // Explicitly allow API Gateway to invoke this Lambda (defensive against region/env mismatches)
-        fn.addPermission(
-                apiLambdaProps.ingestFunctionName() + "-AllowInvokeFromHttpApi-" + keySuffix,
-                Permission.builder()
-                        .action("lambda:InvokeFunction")
-                        .principal(new ServicePrincipal("apigateway.amazonaws.com"))
-                        .sourceArn("arn:aws:execute-api:" + this.getRegion() + ":" + this.getAccount() + ":"
-                                + this.httpApi.getApiId() + "/*")
-                        .build());
-
-        // Per-function error alarm (>=1 error in 5 minutes)
-        Alarm.Builder.create(this, apiLambdaProps.ingestFunctionName() + "-LambdaErrors-" + keySuffix)
-                .alarmName(apiLambdaProps.ingestFunctionName() + "-lambda-errors-" + keySuffix)
-                .metric(fn.metricErrors())
-                .threshold(1.0)
-                .evaluationPeriods(1)
-                .comparisonOperator(ComparisonOperator.GREATER_THAN_OR_EQUAL_TO_THRESHOLD)
-                .treatMissingData(TreatMissingData.NOT_BREACHING)
-                .alarmDescription(
-                        "Lambda errors >= 1 for " + apiLambdaProps.urlPath() + " " + apiLambdaProps.httpMethod())
-                .build();
-
-        // Additionally create a HEAD route for the same path to ensure HEAD requests are accepted across the API.
-        // Only create if the primary route isn't already HEAD and there's no explicit HEAD route defined elsewhere.
-        if (apiLambdaProps.httpMethod() != HttpMethod.HEAD) {
-            String headRouteKeyStr = "HEAD " + apiLambdaProps.urlPath();
-            if (!createdRouteKeys.contains(headRouteKeyStr)) {
-                // Track so we don't double-create if encountered again
-                createdRouteKeys.add(headRouteKeyStr);
-                firstCreatorByRoute.put(headRouteKeyStr, apiLambdaProps.ingestFunctionName());
-
-                String headRouteId = apiLambdaProps.ingestFunctionName() + "-Route-HEAD-" + keySuffix;
-                var headRouteKey = HttpRouteKey.with(apiLambdaProps.urlPath(), HttpMethod.HEAD);
-
-                if (apiLambdaProps.customAuthorizer()) {
-                    HttpRoute.Builder.create(this, headRouteId)
-                            .httpApi(this.httpApi)
-                            .routeKey(headRouteKey)
-                            .integration(integration)
-                            .authorizer(customAuthorizer)
-                            .build();
-                } else if (apiLambdaProps.jwtAuthorizer()) {
-                    HttpRoute.Builder.create(this, headRouteId)
-                            .httpApi(this.httpApi)
-                            .routeKey(headRouteKey)
-                            .integration(integration)
-                            .authorizer(jwtAuthorizer)
-                            .build();
-                } else {
-                    HttpRoute.Builder.create(this, headRouteId)
-                            .httpApi(this.httpApi)
-                            .routeKey(headRouteKey)
-                            .integration(integration)
-                            .build();
-                }
-
-                infof(
-                        "Created route HEAD %s for function %s (via auto-HEAD)",
-                        apiLambdaProps.urlPath(), fn.getFunctionName());
-            }
-        }
-    }
 }
@@ -12,6 +12,7 @@ import co.uk.diyaccounting.submit.SubmitSharedNames;
 import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
 import co.uk.diyaccounting.submit.constructs.ApiLambda;
 import co.uk.diyaccounting.submit.constructs.ApiLambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
 import co.uk.diyaccounting.submit.utils.PopulatedMap;
 import co.uk.diyaccounting.submit.utils.SubHashSaltHelper;
 import java.util.List;
@@ -25,8 +26,11 @@ import software.amazon.awscdk.services.dynamodb.ITable;
 import software.amazon.awscdk.services.dynamodb.Table;
 import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.amazon.awscdk.services.iam.ServicePrincipal;
 import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.lambda.Permission;
 import software.amazon.awscdk.services.logs.ILogGroup;
+import software.amazon.awscdk.services.ssm.StringParameter;
 import software.amazon.awssdk.utils.StringUtils;
 import software.constructs.Construct;
 
@@ -70,6 +74,12 @@ public class AuthStack extends Stack {
         @Override
         SubmitSharedNames sharedNames();
 
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
         String baseImageTag();
 
         String cognitoClientId();
@@ -133,11 +143,10 @@ public class AuthStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().cognitoTokenPostIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().cognitoTokenPostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().cognitoTokenPostIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().cognitoTokenPostIngestProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(1)
-                        .ingestMemorySize(256)
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().cognitoTokenPostLambdaHttpMethod)
                         .urlPath(props.sharedNames().cognitoTokenPostLambdaUrlPath)
@@ -186,11 +195,10 @@ public class AuthStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().customAuthorizerIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().customAuthorizerIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().customAuthorizerIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().customAuthorizerIngestProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(1)
-                        .ingestMemorySize(256)
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(HttpMethod.GET) // Not used for authorizers but required by props
                         .urlPath("/") // Not used for authorizers but required by props
@@ -222,6 +230,18 @@ public class AuthStack extends Stack {
                 .resources(List.of(activityBusArn))
                 .build());
 
+        // Allow the HttpApi's custom authorizer (created by the ApiStack, ID published to SSM) to invoke this Lambda
+        this.customAuthorizerLambda.addPermission(
+                props.resourceNamePrefix() + "-AllowInvokeAuthorizerFromHttpApi",
+                Permission.builder()
+                        .action("lambda:InvokeFunction")
+                        .principal(new ServicePrincipal("apigateway.amazonaws.com"))
+                        .sourceArn("arn:aws:execute-api:" + this.getRegion() + ":" + this.getAccount() + ":"
+                                + StringParameter.valueForStringParameter(
+                                        this, props.sharedNames().httpApiIdParameterName)
+                                + "/authorizers/*")
+                        .build());
+
         // cfnOutput(this, "AuthUrlCognitoLambdaArn", this.cognitoAuthUrlGetLambda.getFunctionArn());
         cfnOutput(this, "ExchangeCognitoTokenLambdaArn", this.cognitoTokenPostLambda.getFunctionArn());
         cfnOutput(this, "CustomAuthorizerLambdaArn", this.customAuthorizerLambda.getFunctionArn());
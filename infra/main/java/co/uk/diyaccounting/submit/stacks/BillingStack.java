@@ -12,6 +12,7 @@ import co.uk.diyaccounting.submit.SubmitSharedNames;
 import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
 import co.uk.diyaccounting.submit.constructs.ApiLambda;
 import co.uk.diyaccounting.submit.constructs.ApiLambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
 import co.uk.diyaccounting.submit.utils.PopulatedMap;
 import co.uk.diyaccounting.submit.utils.SubHashSaltHelper;
 import java.util.List;
@@ -70,6 +71,12 @@ public class BillingStack extends Stack {
         @Override
         SubmitSharedNames sharedNames();
 
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
         String baseImageTag();
 
         @Value.Default
@@ -188,10 +195,10 @@ public class BillingStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().billingCheckoutPostIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().billingCheckoutPostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().billingCheckoutPostIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().billingCheckoutPostIngestProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(0)
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().billingCheckoutPostLambdaHttpMethod)
                         .urlPath(props.sharedNames().billingCheckoutPostLambdaUrlPath)
@@ -269,10 +276,10 @@ public class BillingStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().billingPortalGetIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().billingPortalGetIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().billingPortalGetIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().billingPortalGetIngestProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(0)
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().billingPortalGetLambdaHttpMethod)
                         .urlPath(props.sharedNames().billingPortalGetLambdaUrlPath)
@@ -340,10 +347,10 @@ public class BillingStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().billingRecoverPostIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().billingRecoverPostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().billingRecoverPostIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().billingRecoverPostIngestProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(0)
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().billingRecoverPostLambdaHttpMethod)
                         .urlPath(props.sharedNames().billingRecoverPostLambdaUrlPath)
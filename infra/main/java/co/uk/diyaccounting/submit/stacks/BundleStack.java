@@ -0,0 +1,475 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.stacks;
+
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.KindCdk.cfnOutput;
+
+import co.uk.diyaccounting.submit.SubmitSharedNames;
+import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.ApiLambda;
+import co.uk.diyaccounting.submit.constructs.ApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.AsyncApiLambda;
+import co.uk.diyaccounting.submit.constructs.AsyncApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.Lambda;
+import co.uk.diyaccounting.submit.constructs.LambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
+import co.uk.diyaccounting.submit.utils.PopulatedMap;
+import co.uk.diyaccounting.submit.utils.SubHashSaltHelper;
+import java.util.List;
+import org.immutables.value.Value;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Environment;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.services.cognito.IUserPool;
+import software.amazon.awscdk.services.cognito.UserPool;
+import software.amazon.awscdk.services.dynamodb.ITable;
+import software.amazon.awscdk.services.dynamodb.Table;
+import software.amazon.awscdk.services.events.Rule;
+import software.amazon.awscdk.services.events.Schedule;
+import software.amazon.awscdk.services.events.targets.LambdaFunction;
+import software.amazon.awscdk.services.iam.Effect;
+import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.logs.ILogGroup;
+import software.constructs.Construct;
+
+/**
+ * Bundle API (get, request and delete a bundle) and the scheduled bundle capacity reconciliation, split out of the
+ * AccountStack so it deploys in parallel with the pass and other account Lambdas.
+ */
+public class BundleStack extends Stack {
+
+    public AbstractApiLambdaProps bundleGetLambdaProps;
+    public Function bundleGetLambda;
+    public ILogGroup bundleGetLambdaLogGroup;
+
+    public AbstractApiLambdaProps bundlePostLambdaProps;
+    public Function bundlePostLambda;
+    public ILogGroup bundlePostLambdaLogGroup;
+
+    public AbstractApiLambdaProps bundleDeleteLambdaProps;
+    public Function bundleDeleteLambda;
+    public ILogGroup bundleDeleteLambdaLogGroup;
+
+    public Function bundleCapacityReconcileLambda;
+    public ILogGroup bundleCapacityReconcileLambdaLogGroup;
+    public Rule bundleCapacityReconcileSchedule;
+
+    public List<AbstractApiLambdaProps> lambdaFunctionProps;
+
+    @Value.Immutable
+    public interface BundleStackProps extends StackProps, SubmitStackProps {
+
+        @Override
+        Environment getEnv();
+
+        @Override
+        @Value.Default
+        default Boolean getCrossRegionReferences() {
+            return null;
+        }
+
+        @Override
+        String envName();
+
+        @Override
+        String deploymentName();
+
+        @Override
+        String resourceNamePrefix();
+
+        @Override
+        String cloudTrailEnabled();
+
+        @Override
+        SubmitSharedNames sharedNames();
+
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
+        String baseImageTag();
+
+        String cognitoUserPoolArn();
+
+        static ImmutableBundleStackProps.Builder builder() {
+            return ImmutableBundleStackProps.builder();
+        }
+    }
+
+    public BundleStack(Construct scope, String id, BundleStackProps props) {
+        this(scope, id, null, props);
+    }
+
+    public BundleStack(Construct scope, String id, StackProps stackProps, BundleStackProps props) {
+        super(scope, id, stackProps);
+
+        // Lookup existing Cognito UserPool
+        // TODO: Remove this and the the BUNDLE_DYNAMODB_TABLE_NAME from customAuthorizerLambdaEnv once otherwise stable
+        IUserPool userPool = UserPool.fromUserPoolArn(
+                this, "ImportedUserPool-%s".formatted(props.deploymentName()), props.cognitoUserPoolArn());
+
+        // Lookup existing DynamoDB Bundle Capacity Table
+        ITable bundleCapacityTable = Table.fromTableName(
+                this,
+                "ImportedBundleCapacityTable-%s".formatted(props.deploymentName()),
+                props.sharedNames().bundleCapacityTableName);
+
+        // Lookup existing DynamoDB Bundles Table
+        ITable bundlesTable = Table.fromTableName(
+                this,
+                "ImportedBundlesTable-%s".formatted(props.deploymentName()),
+                props.sharedNames().bundlesTableName);
+
+        // Lookup existing DynamoDB Bundle POST Async Requests Table
+        ITable bundlePostAsyncRequestsTable = Table.fromTableName(
+                this,
+                "ImportedBundlePostAsyncRequestsTable-%s".formatted(props.deploymentName()),
+                props.sharedNames().bundlePostAsyncRequestsTableName);
+
+        // Lookup existing DynamoDB Bundle DELETE Async Requests Table
+        ITable bundleDeleteAsyncRequestsTable = Table.fromTableName(
+                this,
+                "ImportedBundleDeleteAsyncRequestsTable-%s".formatted(props.deploymentName()),
+                props.sharedNames().bundleDeleteAsyncRequestsTableName);
+
+        // Lambdas
+
+        this.lambdaFunctionProps = new java.util.ArrayList<>();
+
+        // Construct Cognito User Pool ARN for IAM policies
+        var region = props.getEnv() != null ? props.getEnv().getRegion() : "us-east-1";
+        var account = props.getEnv() != null ? props.getEnv().getAccount() : "";
+        var cognitoUserPoolArn =
+                String.format("arn:aws:cognito-idp:%s:%s:userpool/%s", region, account, userPool.getUserPoolId());
+
+        // Construct EventBridge activity bus ARN for IAM policies
+        var activityBusArn = String.format(
+                "arn:aws:events:%s:%s:event-bus/%s", region, account, props.sharedNames().activityBusName);
+
+        // Get Bundles Lambda
+        var getBundlesLambdaEnv = new PopulatedMap<String, String>()
+                .with("BUNDLE_DYNAMODB_TABLE_NAME", bundlesTable.getTableName())
+                .with("BUNDLE_CAPACITY_DYNAMODB_TABLE_NAME", bundleCapacityTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName());
+        // .with("ASYNC_REQUESTS_DYNAMODB_TABLE_NAME", asyncRequestsTable.getTableName());
+        var getBundlesAsyncLambda = new ApiLambda(
+                this,
+                ApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().bundleGetIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().bundleGetIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().bundleGetIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().bundleGetIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().bundleGetIngestProvisionedConcurrencyLambdaAliasArn)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().bundleGetLambdaHttpMethod)
+                        .urlPath(props.sharedNames().bundleGetLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().bundleGetLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().bundleGetLambdaCustomAuthorizer)
+                        .environment(getBundlesLambdaEnv)
+                        .build());
+
+        this.bundleGetLambdaProps = getBundlesAsyncLambda.apiProps;
+        this.bundleGetLambda = getBundlesAsyncLambda.ingestLambda;
+        this.bundleGetLambdaLogGroup = getBundlesAsyncLambda.logGroup;
+        this.lambdaFunctionProps.add(this.bundleGetLambdaProps);
+        infof(
+                "Created Async API Lambda %s for get bundles with ingestHandler %s",
+                this.bundleGetLambda.getNode().getId(), props.sharedNames().bundleGetIngestLambdaHandler);
+
+        // Grant the GetBundlesLambda permission to access Cognito User Pool
+        var getBundlesLambdaGrantPrincipal = this.bundleGetLambda.getGrantPrincipal();
+        userPool.grant(getBundlesLambdaGrantPrincipal, "cognito-idp:AdminGetUser");
+        this.bundleGetLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("cognito-idp:AdminGetUser"))
+                .resources(List.of(cognitoUserPoolArn))
+                .build());
+
+        infof(
+                "Granted Cognito permissions to %s for User Pool %s",
+                this.bundleGetLambda.getFunctionName(), userPool.getUserPoolId());
+
+        // Grant DynamoDB permissions to both API and Worker Lambdas
+        // bundleGet performs lazy token refresh (UpdateItem) when a bundle's tokenResetAt has elapsed.
+        bundlesTable.grantReadWriteData(this.bundleGetLambda);
+        bundleCapacityTable.grantReadData(this.bundleGetLambda);
+
+        infof(
+                "Granted DynamoDB permissions to %s for Bundles and Bundle Capacity Tables",
+                this.bundleGetLambda.getFunctionName());
+
+        // Grant access to user sub hash salt secret in Secrets Manager
+        SubHashSaltHelper.grantSaltAccess(this.bundleGetLambda, region, account, props.envName());
+        infof("Granted Secrets Manager salt access to %s", this.bundleGetLambda.getFunctionName());
+
+        // Grant EventBridge PutEvents permission
+        this.bundleGetLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("events:PutEvents"))
+                .resources(List.of(activityBusArn))
+                .build());
+
+        // Request Bundles Lambda
+        var requestBundlesLambdaEnv = new PopulatedMap<String, String>()
+                .with("BUNDLE_DYNAMODB_TABLE_NAME", bundlesTable.getTableName())
+                .with("BUNDLE_CAPACITY_DYNAMODB_TABLE_NAME", bundleCapacityTable.getTableName())
+                .with("ASYNC_REQUESTS_DYNAMODB_TABLE_NAME", bundlePostAsyncRequestsTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName())
+                .with("TEST_BUNDLE_EXPIRY_DATE", "2025-12-31")
+                .with("TEST_BUNDLE_USER_LIMIT", "10");
+        var requestBundlesAsyncLambda = new AsyncApiLambda(
+                this,
+                AsyncApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().bundlePostIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().bundlePostIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().bundlePostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().bundlePostIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().bundlePostIngestProvisionedConcurrencyLambdaAliasArn)
+                        .workerFunctionName(props.sharedNames().bundlePostWorkerLambdaFunctionName)
+                        .workerHandler(props.sharedNames().bundlePostWorkerLambdaHandler)
+                        .workerLambdaArn(props.sharedNames().bundlePostWorkerLambdaArn)
+                        .workerProvisionedConcurrencyAliasArn(
+                                props.sharedNames().bundlePostWorkerProvisionedConcurrencyLambdaAliasArn)
+                        .workerQueueName(props.sharedNames().bundlePostLambdaQueueName)
+                        .workerDeadLetterQueueName(props.sharedNames().bundlePostLambdaDeadLetterQueueName)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().bundlePostLambdaHttpMethod)
+                        .urlPath(props.sharedNames().bundlePostLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().bundlePostLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().bundlePostLambdaCustomAuthorizer)
+                        .environment(requestBundlesLambdaEnv)
+                        .build());
+
+        // Update API environment with SQS queue URL
+        requestBundlesLambdaEnv.put("SQS_QUEUE_URL", requestBundlesAsyncLambda.queue.getQueueUrl());
+
+        this.bundlePostLambdaProps = requestBundlesAsyncLambda.apiProps;
+        this.bundlePostLambda = requestBundlesAsyncLambda.ingestLambda;
+        this.bundlePostLambdaLogGroup = requestBundlesAsyncLambda.logGroup;
+        this.lambdaFunctionProps.add(this.bundlePostLambdaProps);
+        infof(
+                "Created Async API Lambda %s for request bundles with ingestHandler %s and worker %s",
+                this.bundlePostLambda.getNode().getId(),
+                props.sharedNames().bundlePostIngestLambdaHandler,
+                props.sharedNames().bundlePostWorkerLambdaHandler);
+
+        // Grant permissions to both API and Worker Lambdas
+        List.of(this.bundlePostLambda, requestBundlesAsyncLambda.workerLambda).forEach(fn -> {
+            // Grant Cognito permissions
+            userPool.grant(
+                    fn, "cognito-idp:AdminGetUser", "cognito-idp:AdminUpdateUserAttributes", "cognito-idp:ListUsers");
+            fn.addToRolePolicy(PolicyStatement.Builder.create()
+                    .effect(Effect.ALLOW)
+                    .actions(List.of(
+                            "cognito-idp:AdminGetUser",
+                            "cognito-idp:AdminUpdateUserAttributes",
+                            "cognito-idp:ListUsers"))
+                    .resources(List.of(cognitoUserPoolArn))
+                    .build());
+
+            // Grant DynamoDB permissions
+            bundlesTable.grantReadWriteData(fn);
+            bundlePostAsyncRequestsTable.grantReadWriteData(fn);
+            bundleCapacityTable.grantReadWriteData(fn);
+
+            // Grant access to user sub hash salt secret in Secrets Manager
+            SubHashSaltHelper.grantSaltAccess(fn, region, account, props.envName());
+
+            // Grant EventBridge PutEvents permission
+            fn.addToRolePolicy(PolicyStatement.Builder.create()
+                    .effect(Effect.ALLOW)
+                    .actions(List.of("events:PutEvents"))
+                    .resources(List.of(activityBusArn))
+                    .build());
+        });
+
+        infof(
+                "Granted Cognito, DynamoDB, and Secrets Manager salt permissions to %s and its worker",
+                this.bundlePostLambda.getFunctionName());
+
+        // Delete Bundles Lambda
+        var bundleDeleteLambdaEnv = new PopulatedMap<String, String>()
+                .with("BUNDLE_DYNAMODB_TABLE_NAME", bundlesTable.getTableName())
+                .with("ASYNC_REQUESTS_DYNAMODB_TABLE_NAME", bundleDeleteAsyncRequestsTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName())
+                .with("TEST_BUNDLE_EXPIRY_DATE", "2025-12-31")
+                .with("TEST_BUNDLE_USER_LIMIT", "10");
+        var bundleDeleteAsyncLambda = new AsyncApiLambda(
+                this,
+                AsyncApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().bundleDeleteIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().bundleDeleteIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().bundleDeleteIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().bundleDeleteIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().bundleDeleteIngestProvisionedConcurrencyLambdaAliasArn)
+                        .workerFunctionName(props.sharedNames().bundleDeleteWorkerLambdaFunctionName)
+                        .workerHandler(props.sharedNames().bundleDeleteWorkerLambdaHandler)
+                        .workerLambdaArn(props.sharedNames().bundleDeleteWorkerLambdaArn)
+                        .workerProvisionedConcurrencyAliasArn(
+                                props.sharedNames().bundleDeleteWorkerProvisionedConcurrencyLambdaAliasArn)
+                        .workerQueueName(props.sharedNames().bundleDeleteLambdaQueueName)
+                        .workerDeadLetterQueueName(props.sharedNames().bundleDeleteLambdaDeadLetterQueueName)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().bundleDeleteLambdaHttpMethod)
+                        .urlPath(props.sharedNames().bundleDeleteLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().bundleDeleteLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().bundleDeleteLambdaCustomAuthorizer)
+                        .environment(bundleDeleteLambdaEnv)
+                        .build());
+
+        // Update API environment with SQS queue URL
+        bundleDeleteLambdaEnv.put("SQS_QUEUE_URL", bundleDeleteAsyncLambda.queue.getQueueUrl());
+
+        this.bundleDeleteLambdaProps = bundleDeleteAsyncLambda.apiProps;
+        this.bundleDeleteLambda = bundleDeleteAsyncLambda.ingestLambda;
+        this.bundleDeleteLambdaLogGroup = bundleDeleteAsyncLambda.logGroup;
+        this.lambdaFunctionProps.add(this.bundleDeleteLambdaProps);
+
+        // Also expose a second route for deleting a bundle by path parameter {id}
+        this.lambdaFunctionProps.add(AsyncApiLambdaProps.builder()
+                .idPrefix(props.sharedNames().bundleDeleteIngestLambdaFunctionName + "-ByIdRoute")
+                .baseImageTag(props.baseImageTag())
+                .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                .ingestFunctionName(props.sharedNames().bundleDeleteIngestLambdaFunctionName)
+                .ingestHandler(props.sharedNames().bundleDeleteIngestLambdaHandler)
+                .performanceProfile(props.performanceProfile())
+                .ingestLambdaArn(props.sharedNames().bundleDeleteIngestLambdaArn)
+                .ingestProvisionedConcurrencyAliasArn(
+                        props.sharedNames().bundleDeleteIngestProvisionedConcurrencyLambdaAliasArn)
+                .workerFunctionName(props.sharedNames().bundleDeleteWorkerLambdaFunctionName)
+                .workerHandler(props.sharedNames().bundleDeleteWorkerLambdaHandler)
+                .workerLambdaArn(props.sharedNames().bundleDeleteWorkerLambdaArn)
+                .workerProvisionedConcurrencyAliasArn(
+                        props.sharedNames().bundleDeleteWorkerProvisionedConcurrencyLambdaAliasArn)
+                .workerQueueName(props.sharedNames().bundleDeleteLambdaQueueName)
+                .workerDeadLetterQueueName(props.sharedNames().bundleDeleteLambdaDeadLetterQueueName)
+                .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                .httpMethod(props.sharedNames().bundleDeleteLambdaHttpMethod)
+                .urlPath("/api/v1/bundle/{id}")
+                .jwtAuthorizer(props.sharedNames().bundleDeleteLambdaJwtAuthorizer)
+                .customAuthorizer(props.sharedNames().bundleDeleteLambdaCustomAuthorizer)
+                .build());
+        infof(
+                "Created Async API Lambda %s for delete bundles with ingestHandler %s and worker %s",
+                this.bundleDeleteLambda.getNode().getId(),
+                props.sharedNames().bundleDeleteIngestLambdaHandler,
+                props.sharedNames().bundleDeleteWorkerLambdaHandler);
+
+        // Grant permissions to both API and Worker Lambdas
+        List.of(this.bundleDeleteLambda, bundleDeleteAsyncLambda.workerLambda).forEach(fn -> {
+            // Grant Cognito permissions
+            userPool.grant(
+                    fn, "cognito-idp:AdminGetUser", "cognito-idp:AdminUpdateUserAttributes", "cognito-idp:ListUsers");
+            fn.addToRolePolicy(PolicyStatement.Builder.create()
+                    .effect(Effect.ALLOW)
+                    .actions(List.of(
+                            "cognito-idp:AdminGetUser",
+                            "cognito-idp:AdminUpdateUserAttributes",
+                            "cognito-idp:ListUsers"))
+                    .resources(List.of(cognitoUserPoolArn))
+                    .build());
+
+            // Grant DynamoDB permissions
+            bundlesTable.grantReadWriteData(fn);
+            bundleDeleteAsyncRequestsTable.grantReadWriteData(fn);
+
+            // Grant access to user sub hash salt secret in Secrets Manager
+            SubHashSaltHelper.grantSaltAccess(fn, region, account, props.envName());
+
+            // Grant EventBridge PutEvents permission
+            fn.addToRolePolicy(PolicyStatement.Builder.create()
+                    .effect(Effect.ALLOW)
+                    .actions(List.of("events:PutEvents"))
+                    .resources(List.of(activityBusArn))
+                    .build());
+        });
+
+        infof(
+                "Granted Cognito, DynamoDB, and Secrets Manager salt permissions to %s and its worker",
+                this.bundleDeleteLambda.getFunctionName());
+
+        // ============================================================================
+        // Bundle Capacity Reconciliation Lambda (EventBridge scheduled, every 5 minutes)
+        // ============================================================================
+        var reconcileLambdaEnv = new PopulatedMap<String, String>()
+                .with("BUNDLE_DYNAMODB_TABLE_NAME", bundlesTable.getTableName())
+                .with("BUNDLE_CAPACITY_DYNAMODB_TABLE_NAME", bundleCapacityTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName());
+        var reconcileLambda = new Lambda(
+                this,
+                LambdaProps.builder()
+                        .idPrefix(props.sharedNames().bundleCapacityReconcileLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().bundleCapacityReconcileLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().bundleCapacityReconcileLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().bundleCapacityReconcileLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().bundleCapacityReconcileProvisionedConcurrencyLambdaAliasArn)
+                        .ingestLambdaTimeout(Duration.minutes(5))
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .environment(reconcileLambdaEnv)
+                        .build());
+        this.bundleCapacityReconcileLambda = reconcileLambda.ingestLambda;
+        this.bundleCapacityReconcileLambdaLogGroup = reconcileLambda.logGroup;
+        bundlesTable.grantReadData(this.bundleCapacityReconcileLambda);
+        bundleCapacityTable.grantReadWriteData(this.bundleCapacityReconcileLambda);
+        this.bundleCapacityReconcileLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("events:PutEvents"))
+                .resources(List.of(activityBusArn))
+                .build());
+
+        // EventBridge Rule: trigger reconciliation every hour
+        this.bundleCapacityReconcileSchedule = Rule.Builder.create(
+                        this, props.sharedNames().bundleCapacityReconcileLambdaFunctionName + "-Schedule")
+                .ruleName(props.sharedNames().bundleCapacityReconcileLambdaFunctionName + "-schedule")
+                .description("Reconcile bundle capacity counters every hour")
+                .schedule(Schedule.rate(Duration.hours(1)))
+                .targets(List.of(LambdaFunction.Builder.create(this.bundleCapacityReconcileLambda)
+                        .build()))
+                .build();
+        infof(
+                "Created Bundle Capacity Reconciliation Lambda %s with hourly schedule",
+                this.bundleCapacityReconcileLambda.getNode().getId());
+
+        cfnOutput(this, "GetBundlesLambdaArn", this.bundleGetLambda.getFunctionArn());
+        cfnOutput(this, "RequestBundlesLambdaArn", this.bundlePostLambda.getFunctionArn());
+        cfnOutput(this, "BundleDeleteLambdaArn", this.bundleDeleteLambda.getFunctionArn());
+        cfnOutput(this, "BundleCapacityReconcileLambdaArn", this.bundleCapacityReconcileLambda.getFunctionArn());
+
+        infof(
+                "BundleStack %s created successfully for %s",
+                this.getNode().getId(), props.sharedNames().dashedDeploymentDomainName);
+    }
+}
@@ -12,6 +12,10 @@ import static co.uk.diyaccounting.submit.utils.KindCdk.ensureTable;
 import static co.uk.diyaccounting.submit.utils.KindCdk.ensureTimeToLive;
 
 import co.uk.diyaccounting.submit.SubmitSharedNames;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.immutables.value.Value;
 import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.Environment;
@@ -19,7 +23,20 @@ import software.amazon.awscdk.RemovalPolicy;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
 import software.amazon.awscdk.services.dynamodb.ITable;
+import software.amazon.awscdk.services.glue.CfnDatabase;
+import software.amazon.awscdk.services.glue.CfnTable;
+import software.amazon.awscdk.services.iam.Effect;
+import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.amazon.awscdk.services.iam.Role;
+import software.amazon.awscdk.services.iam.ServicePrincipal;
+import software.amazon.awscdk.services.kinesisfirehose.CfnDeliveryStream;
 import software.amazon.awscdk.services.kms.Key;
+import software.amazon.awscdk.services.s3.BlockPublicAccess;
+import software.amazon.awscdk.services.s3.Bucket;
+import software.amazon.awscdk.services.s3.BucketEncryption;
+import software.amazon.awscdk.services.s3.LifecycleRule;
+import software.amazon.awscdk.services.s3.StorageClass;
+import software.amazon.awscdk.services.s3.Transition;
 import software.constructs.Construct;
 
 public class DataStack extends Stack {
@@ -32,8 +49,11 @@ public class DataStack extends Stack {
     public ITable hmrcVatReturnGetAsyncRequestsTable;
     public ITable hmrcVatObligationGetAsyncRequestsTable;
     public ITable hmrcApiRequestsTable;
+    public Bucket hmrcApiRequestsAuditBucket;
+    public CfnDeliveryStream hmrcApiRequestsDeliveryStream;
     public ITable passesTable;
     public ITable bundleCapacityTable;
+    public ITable hmrcRateLimitTable;
     public ITable subscriptionsTable;
     public Key saltEncryptionKey;
 
@@ -198,6 +218,10 @@ public class DataStack extends Stack {
                 "ttl");
         infof("Ensured HMRC API Requests DynamoDB table with name %s", props.sharedNames().hmrcApiRequestsTableName);
 
+        // HMRC API requests long term audit trail: buffered Firehose -> S3 Parquet, the table above is the 28-day
+        // hot window
+        createHmrcApiRequestsAuditTrail(props);
+
         // Passes table for storing invitation pass codes
         // Pass codes are four-word passphrases that grant bundle access when redeemed.
         // PK-only table (no sort key) - passes are looked up by code.
@@ -235,6 +259,18 @@ public class DataStack extends Stack {
                 null);
         infof("Ensured bundle capacity DynamoDB table with name %s", props.sharedNames().bundleCapacityTableName);
 
+        // HMRC rate limit token bucket shared by all HMRC workers in the environment
+        // PK-only table (no sort key) - one item per HMRC application ("hmrc-live", "hmrc-sandbox").
+        // Refill is computed on read and written with a conditional update on updatedAt.
+        // No PITR needed - a lost bucket starts full again.
+        this.hmrcRateLimitTable = ensureTable(
+                this,
+                props.resourceNamePrefix() + "-HmrcRateLimitTable",
+                props.sharedNames().hmrcRateLimitTableName,
+                "bucketId",
+                null);
+        infof("Ensured HMRC rate limit DynamoDB table with name %s", props.sharedNames().hmrcRateLimitTableName);
+
         // Subscriptions table (subscription data)
         this.subscriptionsTable = ensureTable(
                 this,
@@ -271,10 +307,14 @@ public class DataStack extends Stack {
                 this.hmrcVatObligationGetAsyncRequestsTable.getTableArn());
         cfnOutput(this, "HmrcApiRequestsTableName", this.hmrcApiRequestsTable.getTableName());
         cfnOutput(this, "HmrcApiRequestsArn", this.hmrcApiRequestsTable.getTableArn());
+        cfnOutput(this, "HmrcApiRequestsAuditBucketName", this.hmrcApiRequestsAuditBucket.getBucketName());
+        cfnOutput(this, "HmrcApiRequestsDeliveryStreamArn", this.hmrcApiRequestsDeliveryStream.getAttrArn());
         cfnOutput(this, "PassesTableName", this.passesTable.getTableName());
         cfnOutput(this, "PassesTableArn", this.passesTable.getTableArn());
         cfnOutput(this, "BundleCapacityTableName", this.bundleCapacityTable.getTableName());
         cfnOutput(this, "BundleCapacityTableArn", this.bundleCapacityTable.getTableArn());
+        cfnOutput(this, "HmrcRateLimitTableName", this.hmrcRateLimitTable.getTableName());
+        cfnOutput(this, "HmrcRateLimitTableArn", this.hmrcRateLimitTable.getTableArn());
         cfnOutput(this, "SubscriptionsTableName", this.subscriptionsTable.getTableName());
         cfnOutput(this, "SubscriptionsTableArn", this.subscriptionsTable.getTableArn());
 
@@ -295,4 +335,193 @@ public class DataStack extends Stack {
                 "DataStack %s created successfully for %s",
                 this.getNode().getId(), props.sharedNames().dashedDeploymentDomainName);
     }
+
+    /**
+     * Direct put Firehose -> S3 Parquet audit trail for HMRC API requests. app/data/dynamoDbHmrcApiRequestRepository.js
+     * writes one record per HMRC call when HMRC_API_REQUESTS_DELIVERY_STREAM_NAME is set. Partitioned by day and the
+     * first two hex characters of hashedSub so one user's history is read from 1/256 of a day's objects.
+     */
+    private void createHmrcApiRequestsAuditTrail(DataStackProps props) {
+        String region = this.getRegion();
+        String account = this.getAccount();
+
+        // No explicit bucketName (globally unique; collisions during account migration). Retained: VAT records
+        // must be kept for 6 years, so the audit trail outlives the stack.
+        this.hmrcApiRequestsAuditBucket = Bucket.Builder.create(
+                        this, props.resourceNamePrefix() + "-HmrcApiRequestsAuditBucket")
+                .encryption(BucketEncryption.S3_MANAGED)
+                .blockPublicAccess(BlockPublicAccess.BLOCK_ALL)
+                .enforceSsl(true)
+                .removalPolicy(RemovalPolicy.RETAIN)
+                .lifecycleRules(List.of(LifecycleRule.builder()
+                        .transitions(List.of(Transition.builder()
+                                .storageClass(StorageClass.INFREQUENT_ACCESS)
+                                .transitionAfter(Duration.days(30))
+                                .build()))
+                        .expiration(Duration.days(7 * 365))
+                        .build()))
+                .build();
+
+        // Glue schema used by Firehose for Parquet conversion (and by Athena for ad-hoc queries).
+        // Column names follow toAuditTrailRecord() in app/data/dynamoDbHmrcApiRequestRepository.js
+        String glueDatabaseName = props.resourceNamePrefix().replace('-', '_') + "_hmrc_audit";
+        String glueTableName = "hmrc_api_requests";
+        String auditPrefix = "hmrc-api-requests/";
+        String subPrefixes =
+                IntStream.range(0, 256).mapToObj(i -> "%02x".formatted(i)).collect(Collectors.joining(","));
+        CfnDatabase glueDatabase = CfnDatabase.Builder.create(
+                        this, props.resourceNamePrefix() + "-HmrcApiRequestsAuditDatabase")
+                .catalogId(account)
+                .databaseInput(CfnDatabase.DatabaseInputProperty.builder()
+                        .name(glueDatabaseName)
+                        .build())
+                .build();
+        CfnTable glueTable = CfnTable.Builder.create(this, props.resourceNamePrefix() + "-HmrcApiRequestsAuditTable")
+                .catalogId(account)
+                .databaseName(glueDatabaseName)
+                .tableInput(CfnTable.TableInputProperty.builder()
+                        .name(glueTableName)
+                        .tableType("EXTERNAL_TABLE")
+                        .partitionKeys(List.of(glueColumn("dt", "string"), glueColumn("sub", "string")))
+                        .parameters(Map.of(
+                                "classification", "parquet",
+                                "projection.enabled", "true",
+                                "projection.dt.type", "date",
+                                "projection.dt.format", "yyyy-MM-dd",
+                                "projection.dt.range", "2026-01-01,NOW",
+                                "projection.sub.type", "enum",
+                                "projection.sub.values", subPrefixes,
+                                "storage.location.template",
+                                        "s3://%s/%sdt=${dt}/sub=${sub}/"
+                                                .formatted(
+                                                        this.hmrcApiRequestsAuditBucket.getBucketName(), auditPrefix)))
+                        .storageDescriptor(CfnTable.StorageDescriptorProperty.builder()
+                                .location("s3://%s/%s"
+                                        .formatted(this.hmrcApiRequestsAuditBucket.getBucketName(), auditPrefix))
+                                .inputFormat("org.apache.hadoop.hive.ql.io.parquet.MapredParquetInputFormat")
+                                .outputFormat("org.apache.hadoop.hive.ql.io.parquet.MapredParquetOutputFormat")
+                                .serdeInfo(CfnTable.SerdeInfoProperty.builder()
+                                        .serializationLibrary(
+                                                "org.apache.hadoop.hive.ql.io.parquet.serde.ParquetHiveSerDe")
+                                        .build())
+                                .columns(List.of(
+                                        glueColumn("hashed_sub", "string"),
+                                        glueColumn("id", "string"),
+                                        glueColumn("request_id", "string"),
+                                        glueColumn("amzn_trace_id", "string"),
+                                        glueColumn("traceparent", "string"),
+                                        glueColumn("url", "string"),
+                                        glueColumn("method", "string"),
+                                        glueColumn("status_code", "int"),
+                                        glueColumn("duration", "bigint"),
+                                        glueColumn("http_request", "string"),
+                                        glueColumn("http_response", "string"),
+                                        glueColumn("salt_version", "string"),
+                                        glueColumn("created_at", "string")))
+                                .build())
+                        .build())
+                .build();
+        glueTable.addDependency(glueDatabase);
+
+        Role firehoseRole = Role.Builder.create(this, props.resourceNamePrefix() + "-HmrcApiRequestsAuditFirehoseRole")
+                .assumedBy(new ServicePrincipal("firehose.amazonaws.com"))
+                .build();
+        this.hmrcApiRequestsAuditBucket.grantReadWrite(firehoseRole);
+        firehoseRole.addToPolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("glue:GetTable", "glue:GetTableVersion", "glue:GetTableVersions"))
+                .resources(List.of(
+                        "arn:aws:glue:%s:%s:catalog".formatted(region, account),
+                        "arn:aws:glue:%s:%s:database/%s".formatted(region, account, glueDatabaseName),
+                        "arn:aws:glue:%s:%s:table/%s/%s".formatted(region, account, glueDatabaseName, glueTableName)))
+                .build());
+
+        // Parquet conversion requires a buffer of at least 64 MiB; the interval bounds how stale S3 can be.
+        // Dynamic partitioning takes the hashedSub prefix from each record with a JQ query.
+        this.hmrcApiRequestsDeliveryStream = CfnDeliveryStream.Builder.create(
+                        this, props.resourceNamePrefix() + "-HmrcApiRequestsDeliveryStream")
+                .deliveryStreamName(props.sharedNames().hmrcApiRequestsDeliveryStreamName)
+                .deliveryStreamType("DirectPut")
+                .extendedS3DestinationConfiguration(
+                        CfnDeliveryStream.ExtendedS3DestinationConfigurationProperty.builder()
+                                .bucketArn(this.hmrcApiRequestsAuditBucket.getBucketArn())
+                                .roleArn(firehoseRole.getRoleArn())
+                                .prefix(auditPrefix + "dt=!{timestamp:yyyy-MM-dd}/sub=!{partitionKeyFromQuery:sub}/")
+                                .errorOutputPrefix(
+                                        "hmrc-api-requests-errors/!{firehose:error-output-type}/dt=!{timestamp:yyyy-MM-dd}/")
+                                .bufferingHints(CfnDeliveryStream.BufferingHintsProperty.builder()
+                                        .sizeInMBs(64)
+                                        .intervalInSeconds(300)
+                                        .build())
+                                .compressionFormat("UNCOMPRESSED")
+                                .dynamicPartitioningConfiguration(
+                                        CfnDeliveryStream.DynamicPartitioningConfigurationProperty.builder()
+                                                .enabled(true)
+                                                .build())
+                                .processingConfiguration(CfnDeliveryStream.ProcessingConfigurationProperty.builder()
+                                        .enabled(true)
+                                        .processors(List.of(CfnDeliveryStream.ProcessorProperty.builder()
+                                                .type("MetadataExtraction")
+                                                .parameters(List.of(
+                                                        CfnDeliveryStream.ProcessorParameterProperty.builder()
+                                                                .parameterName("MetadataExtractionQuery")
+                                                                .parameterValue("{sub: .hashed_sub[0:2]}")
+                                                                .build(),
+                                                        CfnDeliveryStream.ProcessorParameterProperty.builder()
+                                                                .parameterName("JsonParsingEngine")
+                                                                .parameterValue("JQ-1.6")
+                                                                .build()))
+                                                .build()))
+                                        .build())
+                                .dataFormatConversionConfiguration(
+                                        CfnDeliveryStream.DataFormatConversionConfigurationProperty.builder()
+                                                .enabled(true)
+                                                .inputFormatConfiguration(
+                                                        CfnDeliveryStream.InputFormatConfigurationProperty.builder()
+                                                                .deserializer(
+                                                                        CfnDeliveryStream.DeserializerProperty.builder()
+                                                                                .openXJsonSerDe(
+                                                                                        CfnDeliveryStream
+                                                                                                .OpenXJsonSerDeProperty
+                                                                                                .builder()
+                                                                                                .build())
+                                                                                .build())
+                                                                .build())
+                                                .outputFormatConfiguration(
+                                                        CfnDeliveryStream.OutputFormatConfigurationProperty.builder()
+                                                                .serializer(
+                                                                        CfnDeliveryStream.SerializerProperty.builder()
+                                                                                .parquetSerDe(
+                                                                                        CfnDeliveryStream
+                                                                                                .ParquetSerDeProperty
+                                                                                                .builder()
+                                                                                                .compression("SNAPPY")
+                                                                                                .build())
+                                                                                .build())
+                                                                .build())
+                                                .schemaConfiguration(
+                                                        CfnDeliveryStream.SchemaConfigurationProperty.builder()
+                                                                .catalogId(account)
+                                                                .region(region)
+                                                                .databaseName(glueDatabaseName)
+                                                                .tableName(glueTableName)
+                                                                .roleArn(firehoseRole.getRoleArn())
+                                                                .versionId("LATEST")
+                                                                .build())
+                                                .build())
+                                .build())
+                .build();
+        this.hmrcApiRequestsDeliveryStream.getNode().addDependency(firehoseRole);
+        this.hmrcApiRequestsDeliveryStream.addDependency(glueTable);
+
+        infof(
+                "Created HMRC API requests audit trail %s -> s3://%s/%s",
+                props.sharedNames().hmrcApiRequestsDeliveryStreamName,
+                this.hmrcApiRequestsAuditBucket.getNode().getId(),
+                auditPrefix);
+    }
+
+    private static CfnTable.ColumnProperty glueColumn(String name, String type) {
+        return CfnTable.ColumnProperty.builder().name(name).type(type).build();
+    }
 }
@@ -6,25 +6,49 @@
 package co.uk.diyaccounting.submit.stacks;
 
 import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
 import static co.uk.diyaccounting.submit.utils.KindCdk.cfnOutput;
 
 import co.uk.diyaccounting.submit.SubmitSharedNames;
-import java.util.HashMap;
+import co.uk.diyaccounting.submit.constructs.Lambda;
+import co.uk.diyaccounting.submit.constructs.LambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
+import co.uk.diyaccounting.submit.utils.PopulatedMap;
+import co.uk.diyaccounting.submit.utils.ResourceNameUtils;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 import org.immutables.value.Value;
 import software.amazon.awscdk.ArnComponents;
+import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.Environment;
 import software.amazon.awscdk.PhysicalName;
 import software.amazon.awscdk.RemovalPolicy;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
 import software.amazon.awscdk.Tags;
+import software.amazon.awscdk.services.apigatewayv2.HttpMethod;
 import software.amazon.awscdk.services.certificatemanager.Certificate;
 import software.amazon.awscdk.services.cloudfront.AllowedMethods;
 import software.amazon.awscdk.services.cloudfront.BehaviorOptions;
 import software.amazon.awscdk.services.cloudfront.CachePolicy;
+import software.amazon.awscdk.services.cloudfront.CfnContinuousDeploymentPolicy;
+import software.amazon.awscdk.services.cloudfront.CfnDistribution;
+import software.amazon.awscdk.services.cloudfront.CfnMonitoringSubscription;
 import software.amazon.awscdk.services.cloudfront.Distribution;
+import software.amazon.awscdk.services.cloudfront.Endpoint;
+import software.amazon.awscdk.services.cloudfront.FileCodeOptions;
+import software.amazon.awscdk.services.cloudfront.Function;
+import software.amazon.awscdk.services.cloudfront.FunctionAssociation;
+import software.amazon.awscdk.services.cloudfront.FunctionCode;
+import software.amazon.awscdk.services.cloudfront.FunctionEventType;
+import software.amazon.awscdk.services.cloudfront.FunctionRuntime;
 import software.amazon.awscdk.services.cloudfront.HeadersFrameOption;
 import software.amazon.awscdk.services.cloudfront.IOrigin;
 import software.amazon.awscdk.services.cloudfront.OriginProtocolPolicy;
@@ -32,6 +56,7 @@ import software.amazon.awscdk.services.cloudfront.OriginRequestCookieBehavior;
 import software.amazon.awscdk.services.cloudfront.OriginRequestHeaderBehavior;
 import software.amazon.awscdk.services.cloudfront.OriginRequestPolicy;
 import software.amazon.awscdk.services.cloudfront.OriginRequestQueryStringBehavior;
+import software.amazon.awscdk.services.cloudfront.RealtimeLogConfig;
 import software.amazon.awscdk.services.cloudfront.ResponseCustomHeader;
 import software.amazon.awscdk.services.cloudfront.ResponseCustomHeadersBehavior;
 import software.amazon.awscdk.services.cloudfront.ResponseHeadersContentSecurityPolicy;
@@ -52,10 +77,22 @@ import software.amazon.awscdk.services.cloudfront.origins.S3BucketOrigin;
 import software.amazon.awscdk.services.cloudfront.origins.S3BucketOriginWithOACProps;
 import software.amazon.awscdk.services.cloudwatch.Alarm;
 import software.amazon.awscdk.services.cloudwatch.ComparisonOperator;
+import software.amazon.awscdk.services.cloudwatch.Dashboard;
+import software.amazon.awscdk.services.cloudwatch.GraphWidget;
+import software.amazon.awscdk.services.cloudwatch.IMetric;
+import software.amazon.awscdk.services.cloudwatch.IWidget;
 import software.amazon.awscdk.services.cloudwatch.Metric;
 import software.amazon.awscdk.services.cloudwatch.TreatMissingData;
+import software.amazon.awscdk.services.glue.CfnDatabase;
+import software.amazon.awscdk.services.glue.CfnTable;
+import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.amazon.awscdk.services.iam.Role;
 import software.amazon.awscdk.services.iam.ServicePrincipal;
+import software.amazon.awscdk.services.kinesis.Stream;
+import software.amazon.awscdk.services.kinesis.StreamEncryption;
+import software.amazon.awscdk.services.kinesis.StreamMode;
+import software.amazon.awscdk.services.kinesisfirehose.CfnDeliveryStream;
 import software.amazon.awscdk.services.lambda.FunctionUrlAuthType;
 import software.amazon.awscdk.services.lambda.Permission;
 import software.amazon.awscdk.services.route53.HostedZone;
@@ -64,6 +101,7 @@ import software.amazon.awscdk.services.route53.IHostedZone;
 import software.amazon.awscdk.services.s3.BlockPublicAccess;
 import software.amazon.awscdk.services.s3.Bucket;
 import software.amazon.awscdk.services.s3.BucketEncryption;
+import software.amazon.awscdk.services.s3.LifecycleRule;
 import software.amazon.awscdk.services.wafv2.CfnWebACL;
 import software.constructs.Construct;
 
@@ -72,10 +110,45 @@ public class EdgeStack extends Stack {
     public Bucket originBucket;
     // public IBucket originAccessLogBucket;
     public final Distribution distribution;
+    public Distribution stagingDistribution;
+    public CfnContinuousDeploymentPolicy continuousDeploymentPolicy;
+    public final Function govClientViewerHeadersFunction;
+    public final Function sessionBeaconFunction;
+    public final RealtimeLogConfig distributionRealtimeLogConfig;
+    public Stream distributionRealtimeLogStream;
+    public Bucket distributionRealtimeLogBucket;
+    public CfnDeliveryStream distributionRealtimeLogDeliveryStream;
+    public Lambda distributionRealtimeLogMetricsLambda;
     public final Permission distributionInvokeFnUrl;
     public final String aliasRecordDomainName;
     public final String aliasRecordV6DomainName;
 
+    /**
+     * A WAF rate limit for one API route. The limit is per 5 minute window, aggregated either by client IP ("IP")
+     * or by the Cognito access token ("X-Authorization") so users behind a shared NAT do not share a budget.
+     */
+    public record RouteRateLimit(HttpMethod method, String urlPath, long limit, String aggregateKey) {
+        public String ruleName() {
+            return "RouteRateLimit"
+                    + Arrays.stream(urlPath.replaceAll("\\{[^}]*}", "").split("[/-]"))
+                            .filter(part -> !part.isBlank() && !part.equals("api") && !part.equals("v1"))
+                            .map(part -> part.substring(0, 1).toUpperCase() + part.substring(1))
+                            .collect(Collectors.joining())
+                    + method.name().substring(0, 1)
+                    + method.name().substring(1).toLowerCase();
+        }
+    }
+
+    // Expensive routes (HMRC calls, pass generation, bundle grants) with their own budget. Every entry must match
+    // a route in SubmitSharedNames.publishedApiLambdas; the global RateLimitRule still applies to everything.
+    public static final List<RouteRateLimit> ROUTE_RATE_LIMITS = List.of(
+            new RouteRateLimit(HttpMethod.POST, "/api/v1/hmrc/vat/return", 20L, "X-Authorization"),
+            new RouteRateLimit(HttpMethod.GET, "/api/v1/hmrc/vat/return", 100L, "X-Authorization"),
+            new RouteRateLimit(HttpMethod.GET, "/api/v1/hmrc/vat/obligation", 100L, "X-Authorization"),
+            new RouteRateLimit(HttpMethod.POST, "/api/v1/hmrc/token", 30L, "IP"),
+            new RouteRateLimit(HttpMethod.POST, "/api/v1/pass/generate", 20L, "X-Authorization"),
+            new RouteRateLimit(HttpMethod.POST, "/api/v1/bundle", 20L, "X-Authorization"));
+
     // private static final String CF_LOGS_SOURCE_NAME = "cf-src";
     // private static final String CF_LOGS_DEST_NAME = "cf-dest";
 
@@ -106,6 +179,12 @@ public class EdgeStack extends Stack {
         @Override
         SubmitSharedNames sharedNames();
 
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
         String hostedZoneName();
 
         String hostedZoneId();
@@ -114,6 +193,40 @@ public class EdgeStack extends Stack {
 
         String apiGatewayUrl();
 
+        String baseImageTag();
+
+        @Value.Default
+        default String edgeFunctionAssetPath() {
+            return "app/functions/edge";
+        }
+
+        // Continuous deployment: "" (no staging distribution), "weight" or "header"
+        @Value.Default
+        default String stagingDistributionTraffic() {
+            return "";
+        }
+
+        // Share of viewer traffic routed to the staging distribution when stagingDistributionTraffic is "weight"
+        // (CloudFront allows at most 0.15)
+        @Value.Default
+        default String stagingDistributionWeight() {
+            return "0.05";
+        }
+
+        // Candidate staging cache and compression settings, see stagingBehaviors(String), applied over
+        // stagingBehaviorOverrides: "<path pattern>:<setting>=<value>,..." entries separated by ";"
+        @Value.Default
+        default String stagingBehaviors() {
+            return "";
+        }
+
+        // Candidate staging behaviours, keyed by path pattern ("*" for the default behaviour), each derived from
+        // the primary's behaviour for that path. Behaviours without an entry are served as the primary's.
+        @Value.Default
+        default Map<String, UnaryOperator<BehaviorOptions>> stagingBehaviorOverrides() {
+            return Map.of();
+        }
+
         static ImmutableEdgeStackProps.Builder builder() {
             return ImmutableEdgeStackProps.builder();
         }
@@ -179,75 +292,75 @@ public class EdgeStack extends Stack {
                 Certificate.fromCertificateArn(this, props.resourceNamePrefix() + "-WebCert", props.certificateArn());
 
         // AWS WAF WebACL for CloudFront protection against common attacks and rate limiting
+        List<CfnWebACL.RuleProperty> webAclRules = new ArrayList<>(List.of(
+                // Rate limiting rule - 2000 requests per 5 minutes per IP
+                CfnWebACL.RuleProperty.builder()
+                        .name("RateLimitRule")
+                        .priority(1)
+                        .statement(CfnWebACL.StatementProperty.builder()
+                                .rateBasedStatement(CfnWebACL.RateBasedStatementProperty.builder()
+                                        .limit(2000L) // requests per 5 minutes
+                                        .aggregateKeyType("IP")
+                                        .build())
+                                .build())
+                        .action(CfnWebACL.RuleActionProperty.builder()
+                                .block(CfnWebACL.BlockActionProperty.builder().build())
+                                .build())
+                        .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
+                                .cloudWatchMetricsEnabled(true)
+                                .metricName("RateLimitRule")
+                                .sampledRequestsEnabled(true)
+                                .build())
+                        .build(),
+                // AWS managed rule for known bad inputs
+                CfnWebACL.RuleProperty.builder()
+                        .name("AWSManagedRulesKnownBadInputsRuleSet")
+                        .priority(2)
+                        .statement(CfnWebACL.StatementProperty.builder()
+                                .managedRuleGroupStatement(CfnWebACL.ManagedRuleGroupStatementProperty.builder()
+                                        .name("AWSManagedRulesKnownBadInputsRuleSet")
+                                        .vendorName("AWS")
+                                        .ruleActionOverrides(List.of()) // Empty override list to prevent conflicts
+                                        .build())
+                                .build())
+                        .overrideAction(CfnWebACL.OverrideActionProperty.builder()
+                                .none(Map.of())
+                                .build())
+                        .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
+                                .cloudWatchMetricsEnabled(true)
+                                .metricName("AWSManagedRulesKnownBadInputsRuleSet")
+                                .sampledRequestsEnabled(true)
+                                .build())
+                        .build(),
+                // AWS managed rule for common rule set (SQL injection, XSS, etc.)
+                CfnWebACL.RuleProperty.builder()
+                        .name("AWSManagedRulesCommonRuleSet")
+                        .priority(3)
+                        .statement(CfnWebACL.StatementProperty.builder()
+                                .managedRuleGroupStatement(CfnWebACL.ManagedRuleGroupStatementProperty.builder()
+                                        .name("AWSManagedRulesCommonRuleSet")
+                                        .vendorName("AWS")
+                                        .ruleActionOverrides(List.of()) // Empty override list to prevent conflicts
+                                        .build())
+                                .build())
+                        .overrideAction(CfnWebACL.OverrideActionProperty.builder()
+                                .none(Map.of())
+                                .build())
+                        .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
+                                .cloudWatchMetricsEnabled(true)
+                                .metricName("AWSManagedRulesCommonRuleSet")
+                                .sampledRequestsEnabled(true)
+                                .build())
+                        .build()));
+        // Per route rate limits for the expensive endpoints, so bursts on them are shed before the global budget
+        webAclRules.addAll(createRouteRateLimitRules(props));
         CfnWebACL webAcl = CfnWebACL.Builder.create(this, props.resourceNamePrefix() + "-WebAcl")
                 .name(props.resourceNamePrefix() + "-waf")
                 .scope("CLOUDFRONT")
                 .defaultAction(CfnWebACL.DefaultActionProperty.builder()
                         .allow(CfnWebACL.AllowActionProperty.builder().build())
                         .build())
-                .rules(List.of(
-                        // Rate limiting rule - 2000 requests per 5 minutes per IP
-                        CfnWebACL.RuleProperty.builder()
-                                .name("RateLimitRule")
-                                .priority(1)
-                                .statement(CfnWebACL.StatementProperty.builder()
-                                        .rateBasedStatement(CfnWebACL.RateBasedStatementProperty.builder()
-                                                .limit(2000L) // requests per 5 minutes
-                                                .aggregateKeyType("IP")
-                                                .build())
-                                        .build())
-                                .action(CfnWebACL.RuleActionProperty.builder()
-                                        .block(CfnWebACL.BlockActionProperty.builder()
-                                                .build())
-                                        .build())
-                                .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
-                                        .cloudWatchMetricsEnabled(true)
-                                        .metricName("RateLimitRule")
-                                        .sampledRequestsEnabled(true)
-                                        .build())
-                                .build(),
-                        // AWS managed rule for known bad inputs
-                        CfnWebACL.RuleProperty.builder()
-                                .name("AWSManagedRulesKnownBadInputsRuleSet")
-                                .priority(2)
-                                .statement(CfnWebACL.StatementProperty.builder()
-                                        .managedRuleGroupStatement(CfnWebACL.ManagedRuleGroupStatementProperty.builder()
-                                                .name("AWSManagedRulesKnownBadInputsRuleSet")
-                                                .vendorName("AWS")
-                                                .ruleActionOverrides(
-                                                        List.of()) // Empty override list to prevent conflicts
-                                                .build())
-                                        .build())
-                                .overrideAction(CfnWebACL.OverrideActionProperty.builder()
-                                        .none(Map.of())
-                                        .build())
-                                .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
-                                        .cloudWatchMetricsEnabled(true)
-                                        .metricName("AWSManagedRulesKnownBadInputsRuleSet")
-                                        .sampledRequestsEnabled(true)
-                                        .build())
-                                .build(),
-                        // AWS managed rule for common rule set (SQL injection, XSS, etc.)
-                        CfnWebACL.RuleProperty.builder()
-                                .name("AWSManagedRulesCommonRuleSet")
-                                .priority(3)
-                                .statement(CfnWebACL.StatementProperty.builder()
-                                        .managedRuleGroupStatement(CfnWebACL.ManagedRuleGroupStatementProperty.builder()
-                                                .name("AWSManagedRulesCommonRuleSet")
-                                                .vendorName("AWS")
-                                                .ruleActionOverrides(
-                                                        List.of()) // Empty override list to prevent conflicts
-                                                .build())
-                                        .build())
-                                .overrideAction(CfnWebACL.OverrideActionProperty.builder()
-                                        .none(Map.of())
-                                        .build())
-                                .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
-                                        .cloudWatchMetricsEnabled(true)
-                                        .metricName("AWSManagedRulesCommonRuleSet")
-                                        .sampledRequestsEnabled(true)
-                                        .build())
-                                .build()))
+                .rules(webAclRules)
                 .description(
                         "WAF WebACL for OIDC provider CloudFront distribution - provides rate limiting and protection against common attacks")
                 .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
@@ -325,6 +438,38 @@ public class EdgeStack extends Stack {
                 .treatMissingData(TreatMissingData.NOT_BREACHING)
                 .build();
 
+        // Per route rate limit alarms - sustained blocking on an expensive endpoint
+        for (RouteRateLimit routeRateLimit : ROUTE_RATE_LIMITS) {
+            String ruleName = routeRateLimit.ruleName();
+            String dashedRuleName = ResourceNameUtils.convertCamelCaseToDashSeparated(ruleName);
+            Alarm.Builder.create(this, props.resourceNamePrefix() + "-" + ruleName + "Alarm")
+                    .alarmName(props.resourceNamePrefix() + "-waf-" + dashedRuleName)
+                    .alarmDescription("WAF per route rate limit blocked 10+ requests in 5min on %s %s (limit %d per %s)"
+                            .formatted(
+                                    routeRateLimit.method(),
+                                    routeRateLimit.urlPath(),
+                                    routeRateLimit.limit(),
+                                    routeRateLimit.aggregateKey()))
+                    .metric(Metric.Builder.create()
+                            .namespace("AWS/WAFV2")
+                            .metricName("BlockedRequests")
+                            .dimensionsMap(Map.of(
+                                    "WebACL",
+                                    props.resourceNamePrefix() + "-waf",
+                                    "Region",
+                                    "Global",
+                                    "Rule",
+                                    ruleName))
+                            .statistic("Sum")
+                            .period(software.amazon.awscdk.Duration.minutes(5))
+                            .build())
+                    .threshold(10)
+                    .evaluationPeriods(1)
+                    .comparisonOperator(ComparisonOperator.GREATER_THAN_OR_EQUAL_TO_THRESHOLD)
+                    .treatMissingData(TreatMissingData.NOT_BREACHING)
+                    .build();
+        }
+
         infof("Created WAF security alarms: rate-limit, attack-signatures, known-bad-inputs");
 
         // Create the origin bucket — GENERATE_IF_NEEDED produces a unique-per-stack physical name
@@ -445,6 +590,41 @@ public class EdgeStack extends Stack {
                         .build())
                 .build();
 
+        // Real-time logs for every behaviour: Kinesis -> Firehose (metrics transform) -> S3 Parquet.
+        // The field order MUST match REALTIME_LOG_FIELDS in app/functions/ops/distributionRealtimeLogMetrics.js
+        createDistributionRealtimeLogPipeline(props);
+        Role realtimeLogRole = Role.Builder.create(this, props.resourceNamePrefix() + "-RealtimeLogRole")
+                .assumedBy(new ServicePrincipal("cloudfront.amazonaws.com"))
+                .build();
+        realtimeLogRole.addToPolicy(PolicyStatement.Builder.create()
+                .actions(List.of("kinesis:DescribeStreamSummary", "kinesis:DescribeStream"))
+                .resources(List.of(this.distributionRealtimeLogStream.getStreamArn()))
+                .build());
+        this.distributionRealtimeLogConfig = RealtimeLogConfig.Builder.create(
+                        this, props.resourceNamePrefix() + "-RealtimeLogConfig")
+                .realtimeLogConfigName(props.resourceNamePrefix() + "-realtime-logs")
+                .endpoints(List.of(Endpoint.fromKinesisStream(this.distributionRealtimeLogStream, realtimeLogRole)))
+                .fields(List.of(
+                        "timestamp",
+                        "cs-method",
+                        "cs-uri-stem",
+                        "sc-status",
+                        "sc-bytes",
+                        "time-to-first-byte",
+                        "time-taken",
+                        "x-edge-location",
+                        "x-edge-result-type",
+                        "x-edge-response-result-type",
+                        "x-edge-detailed-result-type",
+                        "origin-fbl",
+                        "origin-lbl",
+                        "cache-behavior-path-pattern",
+                        "cs-uri-query",
+                        "c-country",
+                        "cs-user-agent"))
+                .samplingRate(100)
+                .build();
+
         // Custom error pages are served as static files via CloudFront error responses
         // This replaces Lambda@Edge which has problematic deletion behavior in CI/CD
         // API routes (/api/*) return JSON errors - CloudFront error responses only apply to S3 origin errors
@@ -454,6 +634,7 @@ public class EdgeStack extends Stack {
                 .originRequestPolicy(OriginRequestPolicy.CORS_S3_ORIGIN)
                 .viewerProtocolPolicy(ViewerProtocolPolicy.REDIRECT_TO_HTTPS)
                 .responseHeadersPolicy(webResponseHeadersPolicy)
+                .realtimeLogConfig(this.distributionRealtimeLogConfig)
                 .compress(true)
                 .build();
 
@@ -474,11 +655,13 @@ public class EdgeStack extends Stack {
                 .viewerProtocolPolicy(ViewerProtocolPolicy.REDIRECT_TO_HTTPS)
                 .responseHeadersPolicy(webResponseHeadersPolicy)
                 .cachePolicy(testsAndDocsCachePolicy)
+                .realtimeLogConfig(this.distributionRealtimeLogConfig)
                 .compress(true)
                 .build();
 
         // Create a custom OriginRequestPolicy for API Gateway that forwards HMRC fraud prevention headers
         // These Gov-Client-* headers are sent by the browser and must reach the Lambda functions
+        // (/api/v1/hmrc/* uses the edge-trimmed policy below; this one covers the remaining /api/v1/* routes)
         // Note: CloudFront limits custom OriginRequestPolicy to 10 headers maximum
         OriginRequestPolicy fraudPreventionHeadersPolicy = OriginRequestPolicy.Builder.create(
                         this, props.resourceNamePrefix() + "-FraudPreventionORP")
@@ -497,13 +680,74 @@ public class EdgeStack extends Stack {
                 .cookieBehavior(OriginRequestCookieBehavior.all())
                 .build();
 
-        // Create additional behaviours for the API Gateway Lambda origins
-        HashMap<String, BehaviorOptions> additionalBehaviors = new HashMap<String, BehaviorOptions>();
+        // HMRC routes: a CloudFront Function computes the viewer-derived fraud prevention values
+        // (x-edge-gov-client-public-ip/port) at the edge and strips the request down to the allow-list of
+        // headers the HMRC Lambdas read. The allow-list (15 headers plus Gov-*) exceeds the 10 header quota
+        // of an origin request policy, so the policy forwards the already-trimmed viewer headers and the
+        // function is the allow-list. Cookies are not read by the HMRC Lambdas and are no longer forwarded.
+        var govClientViewerHeadersPath = edgeFunctionPath(props, "govClientViewerHeaders.js");
+        this.govClientViewerHeadersFunction = Function.Builder.create(
+                        this, props.resourceNamePrefix() + "-GovClientViewerHeadersFn")
+                .functionName(props.resourceNamePrefix() + "-gov-client-viewer-headers")
+                .comment("Computes HMRC Gov-Client viewer headers at the edge and forwards only an allow-list")
+                .runtime(FunctionRuntime.JS_2_0)
+                .code(FunctionCode.fromFile(FileCodeOptions.builder()
+                        .filePath(govClientViewerHeadersPath)
+                        .build()))
+                .build();
+        OriginRequestPolicy hmrcFraudPreventionHeadersPolicy = OriginRequestPolicy.Builder.create(
+                        this, props.resourceNamePrefix() + "-HmrcFraudPreventionORP")
+                .originRequestPolicyName(props.resourceNamePrefix() + "-hmrc-fraud-prevention-orp")
+                .comment("Origin request policy for HMRC routes: edge-trimmed viewer headers, no cookies")
+                .headerBehavior(OriginRequestHeaderBehavior.all("CloudFront-Viewer-Address"))
+                .queryStringBehavior(OriginRequestQueryStringBehavior.all())
+                .cookieBehavior(OriginRequestCookieBehavior.none())
+                .build();
+
+        // Create additional behaviours for the API Gateway Lambda origins. CloudFront evaluates cache behaviours
+        // in the order they are listed, so they are kept in insertion order with the more specific paths first.
+        Map<String, BehaviorOptions> additionalBehaviors = new LinkedHashMap<>();
+        BehaviorOptions hmrcApiGatewayBehavior = createBehaviorOptionsForApiGateway(
+                props.apiGatewayUrl(),
+                webResponseHeadersPolicy,
+                hmrcFraudPreventionHeadersPolicy,
+                List.of(FunctionAssociation.builder()
+                        .function(this.govClientViewerHeadersFunction)
+                        .eventType(FunctionEventType.VIEWER_REQUEST)
+                        .build()));
+        additionalBehaviors.put("/api/v1/hmrc/*", hmrcApiGatewayBehavior);
+        infof("Added API Gateway behavior for /api/v1/hmrc/* with edge Gov-Client headers");
         BehaviorOptions apiGatewayBehavior = createBehaviorOptionsForApiGateway(
                 props.apiGatewayUrl(), webResponseHeadersPolicy, fraudPreventionHeadersPolicy);
         additionalBehaviors.put("/api/v1/*", apiGatewayBehavior);
         infof("Added API Gateway behavior for /api/v1/* pointing to %s", props.apiGatewayUrl());
 
+        // Session start beacon: answered by a CloudFront Function at the edge and recorded only through the
+        // real-time logs above (counted into Submit/SessionBeacon by the metrics Lambda), so a page view does not
+        // invoke a Lambda. The origin is never reached, the function returns the response for every request.
+        var sessionBeaconPath = edgeFunctionPath(props, "sessionBeacon.js");
+        this.sessionBeaconFunction = Function.Builder.create(this, props.resourceNamePrefix() + "-SessionBeaconFn")
+                .functionName(props.resourceNamePrefix() + "-session-beacon")
+                .comment("Validates, samples and answers the session start beacon at the edge")
+                .runtime(FunctionRuntime.JS_2_0)
+                .code(FunctionCode.fromFile(
+                        FileCodeOptions.builder().filePath(sessionBeaconPath).build()))
+                .build();
+        BehaviorOptions sessionBeaconBehaviorOptions = BehaviorOptions.builder()
+                .origin(localOrigin)
+                .allowedMethods(AllowedMethods.ALLOW_GET_HEAD_OPTIONS)
+                .cachePolicy(CachePolicy.CACHING_DISABLED)
+                .viewerProtocolPolicy(ViewerProtocolPolicy.REDIRECT_TO_HTTPS)
+                .responseHeadersPolicy(webResponseHeadersPolicy)
+                .functionAssociations(List.of(FunctionAssociation.builder()
+                        .function(this.sessionBeaconFunction)
+                        .eventType(FunctionEventType.VIEWER_REQUEST)
+                        .build()))
+                .realtimeLogConfig(this.distributionRealtimeLogConfig)
+                .build();
+        additionalBehaviors.put(props.sharedNames().sessionBeaconUrlPath, sessionBeaconBehaviorOptions);
+        infof("Added edge-answered session beacon behavior for %s", props.sharedNames().sessionBeaconUrlPath);
+
         // Add behaviour for /tests/* and /docs/* with short TTL cache policy
         additionalBehaviors.put("/tests/*", testsAndDocsBehaviorOptions);
         infof("Added /tests/* behavior with short TTL cache policy");
@@ -530,6 +774,12 @@ public class EdgeStack extends Stack {
                 .build();
         Tags.of(this.distribution).add("OriginFor", props.sharedNames().deploymentDomainName);
 
+        // Optional staging distribution behind a continuous deployment policy, to trial cache, origin and
+        // response header policy changes against a slice of live traffic before promoting them
+        if (!props.stagingDistributionTraffic().isBlank()) {
+            createStagingDistribution(props, localBehaviorOptions, additionalBehaviors, webAcl);
+        }
+
         // 2. Compute the CloudFront distribution ARN for the delivery source
         String distributionArn = Stack.of(this)
                 .formatArn(ArnComponents.builder()
@@ -562,6 +812,13 @@ public class EdgeStack extends Stack {
         cfnOutput(this, "WebAclId", webAcl.getAttrArn());
         cfnOutput(this, "WebDistributionDomainName", this.distribution.getDomainName());
         cfnOutput(this, "DistributionId", this.distribution.getDistributionId());
+        if (this.stagingDistribution != null) {
+            cfnOutput(this, "StagingDistributionId", this.stagingDistribution.getDistributionId());
+            cfnOutput(this, "StagingDistributionDomainName", this.stagingDistribution.getDomainName());
+            cfnOutput(this, "ContinuousDeploymentPolicyId", this.continuousDeploymentPolicy.getAttrId());
+        }
+        cfnOutput(this, "RealtimeLogConfigArn", this.distributionRealtimeLogConfig.getRealtimeLogConfigArn());
+        cfnOutput(this, "RealtimeLogBucketName", this.distributionRealtimeLogBucket.getBucketName());
         cfnOutput(this, "AliasRecord", this.aliasRecordDomainName);
         cfnOutput(this, "AliasRecordV6", this.aliasRecordV6DomainName);
         cfnOutput(this, "OriginBucketName", this.originBucket.getBucketName());
@@ -572,10 +829,615 @@ public class EdgeStack extends Stack {
         infof("EdgeStack %s created successfully for %s", this.getNode().getId(), props.sharedNames().baseUrl);
     }
 
+    /**
+     * Rate based rules for ROUTE_RATE_LIMITS, scoped down to the route's method and path. Routes are resolved
+     * against the published API Lambdas so the table cannot drift from the API that is actually deployed.
+     */
+    private static List<CfnWebACL.RuleProperty> createRouteRateLimitRules(EdgeStackProps props) {
+        List<CfnWebACL.RuleProperty> rules = new ArrayList<>();
+        int priority = 10;
+        for (RouteRateLimit routeRateLimit : ROUTE_RATE_LIMITS) {
+            boolean published = props.sharedNames().publishedApiLambdas.stream()
+                    .anyMatch(lambda -> lambda.method == routeRateLimit.method()
+                            && lambda.urlPath.equals(routeRateLimit.urlPath()));
+            if (!published) {
+                throw new IllegalStateException("WAF route rate limit for %s %s does not match a published API route"
+                        .formatted(routeRateLimit.method(), routeRateLimit.urlPath()));
+            }
+            CfnWebACL.RateBasedStatementProperty.Builder rateBasedStatement =
+                    CfnWebACL.RateBasedStatementProperty.builder()
+                            .limit(routeRateLimit.limit())
+                            .evaluationWindowSec(300L)
+                            .scopeDownStatement(CfnWebACL.StatementProperty.builder()
+                                    .andStatement(CfnWebACL.AndStatementProperty.builder()
+                                            .statements(List.of(
+                                                    byteMatchStatement(
+                                                            CfnWebACL.FieldToMatchProperty.builder()
+                                                                    .method(Map.of())
+                                                                    .build(),
+                                                            routeRateLimit
+                                                                    .method()
+                                                                    .name(),
+                                                            "EXACTLY"),
+                                                    byteMatchStatement(
+                                                            CfnWebACL.FieldToMatchProperty.builder()
+                                                                    .uriPath(Map.of())
+                                                                    .build(),
+                                                            routeRateLimit.urlPath(),
+                                                            "EXACTLY")))
+                                            .build())
+                                    .build());
+            if ("IP".equals(routeRateLimit.aggregateKey())) {
+                rateBasedStatement.aggregateKeyType("IP");
+            } else {
+                // Requests without the header are not counted here, but are still subject to RateLimitRule
+                rateBasedStatement
+                        .aggregateKeyType("CUSTOM_KEYS")
+                        .customKeys(List.of(CfnWebACL.RateBasedStatementCustomKeyProperty.builder()
+                                .header(CfnWebACL.RateLimitHeaderProperty.builder()
+                                        .name(routeRateLimit.aggregateKey())
+                                        .textTransformations(List.of(CfnWebACL.TextTransformationProperty.builder()
+                                                .priority(0)
+                                                .type("NONE")
+                                                .build()))
+                                        .build())
+                                .build()));
+            }
+            String ruleName = routeRateLimit.ruleName();
+            rules.add(CfnWebACL.RuleProperty.builder()
+                    .name(ruleName)
+                    .priority(priority++)
+                    .statement(CfnWebACL.StatementProperty.builder()
+                            .rateBasedStatement(rateBasedStatement.build())
+                            .build())
+                    .action(CfnWebACL.RuleActionProperty.builder()
+                            .block(CfnWebACL.BlockActionProperty.builder().build())
+                            .build())
+                    .visibilityConfig(CfnWebACL.VisibilityConfigProperty.builder()
+                            .cloudWatchMetricsEnabled(true)
+                            .metricName(ruleName)
+                            .sampledRequestsEnabled(true)
+                            .build())
+                    .build());
+        }
+        return rules;
+    }
+
+    private static CfnWebACL.StatementProperty byteMatchStatement(
+            CfnWebACL.FieldToMatchProperty fieldToMatch, String searchString, String positionalConstraint) {
+        return CfnWebACL.StatementProperty.builder()
+                .byteMatchStatement(CfnWebACL.ByteMatchStatementProperty.builder()
+                        .fieldToMatch(fieldToMatch)
+                        .searchString(searchString)
+                        .positionalConstraint(positionalConstraint)
+                        .textTransformations(List.of(CfnWebACL.TextTransformationProperty.builder()
+                                .priority(0)
+                                .type("NONE")
+                                .build()))
+                        .build())
+                .build();
+    }
+
+    /** Candidate settings for one staging behaviour, a null compress or TTLs keep the primary's */
+    public record StagingBehavior(
+            Boolean compress, Integer minTtlSeconds, Integer defaultTtlSeconds, Integer maxTtlSeconds) {
+
+        public static final Set<String> SETTINGS =
+                Set.of("compress", "minTtlSeconds", "defaultTtlSeconds", "maxTtlSeconds");
+    }
+
+    /**
+     * Staging distribution with the primary's behaviours, except those replaced by stagingBehaviorOverrides or
+     * given candidate settings by stagingBehaviors, attached to it by a continuous deployment policy that routes
+     * either a weighted share of viewers (sticky per session) or requests carrying "aws-cf-cd-staging: true" to
+     * staging. Candidate cache, origin request or response headers policy changes are made to the staging behaviours
+     * first, compared on the continuous-deployment dashboard, then promoted with "aws cloudfront
+     * update-distribution-with-staging-config" and copied into the primary behaviours here.
+     */
+    private void createStagingDistribution(
+            EdgeStackProps props,
+            BehaviorOptions defaultBehaviorOptions,
+            Map<String, BehaviorOptions> additionalBehaviors,
+            CfnWebACL webAcl) {
+        var overrides = props.stagingBehaviorOverrides();
+        var candidates = stagingBehaviors(props.stagingBehaviors());
+        for (var setting : Map.of(
+                        "stagingBehaviorOverrides", overrides.keySet(), "stagingBehaviors", candidates.keySet())
+                .entrySet()) {
+            for (String pathPattern : setting.getValue()) {
+                if (!"*".equals(pathPattern) && !additionalBehaviors.containsKey(pathPattern)) {
+                    throw new IllegalArgumentException(setting.getKey() + " has no primary behaviour for " + pathPattern
+                            + ", expected \"*\" or one of " + additionalBehaviors.keySet());
+                }
+            }
+        }
+        if (overrides.isEmpty() && candidates.isEmpty()) {
+            warnf("The staging distribution has the primary's behaviours, set stagingBehaviors or"
+                    + " stagingBehaviorOverrides to compare a candidate");
+        }
+        BehaviorOptions stagingDefaultBehaviorOptions =
+                overrides.getOrDefault("*", UnaryOperator.identity()).apply(defaultBehaviorOptions);
+        Map<String, BehaviorOptions> stagingAdditionalBehaviors = new LinkedHashMap<>();
+        additionalBehaviors.forEach((pathPattern, behavior) -> stagingAdditionalBehaviors.put(
+                pathPattern,
+                overrides.getOrDefault(pathPattern, UnaryOperator.identity()).apply(behavior)));
+        double weight = stagingDistributionWeight(props);
+
+        // Staging distributions serve the primary's alternate domain name, so have none (and no certificate)
+        this.stagingDistribution = Distribution.Builder.create(this, props.resourceNamePrefix() + "-StagingWebDist")
+                .defaultBehavior(stagingDefaultBehaviorOptions)
+                .additionalBehaviors(stagingAdditionalBehaviors)
+                .defaultRootObject("index.html")
+                .enableLogging(false)
+                .enableIpv6(true)
+                .webAclId(webAcl.getAttrArn())
+                .comment("Staging (continuous deployment) for " + props.sharedNames().deploymentDomainName)
+                .build();
+        Tags.of(this.stagingDistribution).add("OriginFor", props.sharedNames().deploymentDomainName);
+        CfnDistribution cfnStagingDistribution =
+                (CfnDistribution) this.stagingDistribution.getNode().getDefaultChild();
+        cfnStagingDistribution.addPropertyOverride("DistributionConfig.Staging", true);
+        // Keep staging requests out of the primary's real-time log metrics, which are keyed by cache behaviour only
+        cfnStagingDistribution.addPropertyDeletionOverride(
+                "DistributionConfig.DefaultCacheBehavior.RealtimeLogConfigArn");
+        for (int i = 0; i < stagingAdditionalBehaviors.size(); i++) {
+            cfnStagingDistribution.addPropertyDeletionOverride(
+                    "DistributionConfig.CacheBehaviors." + i + ".RealtimeLogConfigArn");
+        }
+        // Candidate settings from stagingBehaviors, CacheBehaviors being in the order of additionalBehaviors. A
+        // candidate TTL gets its own cache policy, keyed (and compressed) like CachingOptimized.
+        List<String> pathPatterns = new ArrayList<>(stagingAdditionalBehaviors.keySet());
+        candidates.forEach((pathPattern, candidate) -> {
+            String label = "*".equals(pathPattern) ? "default" : String.valueOf(pathPatterns.indexOf(pathPattern));
+            String behavior = "*".equals(pathPattern)
+                    ? "DistributionConfig.DefaultCacheBehavior"
+                    : "DistributionConfig.CacheBehaviors." + label;
+            if (candidate.compress() != null) {
+                cfnStagingDistribution.addPropertyOverride(behavior + ".Compress", candidate.compress());
+            }
+            if (candidate.defaultTtlSeconds() != null) {
+                CachePolicy cachePolicy = CachePolicy.Builder.create(
+                                this, props.resourceNamePrefix() + "-Staging" + label + "CP")
+                        .cachePolicyName(props.resourceNamePrefix() + "-staging-" + label + "-cp")
+                        .comment("Candidate cache policy for the staging " + pathPattern + " behaviour")
+                        .minTtl(Duration.seconds(candidate.minTtlSeconds()))
+                        .defaultTtl(Duration.seconds(candidate.defaultTtlSeconds()))
+                        .maxTtl(Duration.seconds(candidate.maxTtlSeconds()))
+                        .enableAcceptEncodingGzip(true)
+                        .enableAcceptEncodingBrotli(true)
+                        .build();
+                cfnStagingDistribution.addPropertyOverride(behavior + ".CachePolicyId", cachePolicy.getCachePolicyId());
+            }
+            infof("Staging %s behaviour candidate: %s", pathPattern, candidate);
+        });
+
+        CfnContinuousDeploymentPolicy.TrafficConfigProperty trafficConfig;
+        if ("header".equalsIgnoreCase(props.stagingDistributionTraffic())) {
+            trafficConfig = CfnContinuousDeploymentPolicy.TrafficConfigProperty.builder()
+                    .type("SingleHeader")
+                    .singleHeaderConfig(CfnContinuousDeploymentPolicy.SingleHeaderConfigProperty.builder()
+                            .header("aws-cf-cd-staging")
+                            .value("true")
+                            .build())
+                    .build();
+        } else if ("weight".equalsIgnoreCase(props.stagingDistributionTraffic())) {
+            trafficConfig = CfnContinuousDeploymentPolicy.TrafficConfigProperty.builder()
+                    .type("SingleWeight")
+                    .singleWeightConfig(CfnContinuousDeploymentPolicy.SingleWeightConfigProperty.builder()
+                            .weight(weight)
+                            .sessionStickinessConfig(
+                                    CfnContinuousDeploymentPolicy.SessionStickinessConfigProperty.builder()
+                                            .idleTtl(300)
+                                            .maximumTtl(3600)
+                                            .build())
+                            .build())
+                    .build();
+        } else {
+            throw new IllegalArgumentException(
+                    "stagingDistributionTraffic must be blank, \"weight\" or \"header\" but was: "
+                            + props.stagingDistributionTraffic());
+        }
+        this.continuousDeploymentPolicy = CfnContinuousDeploymentPolicy.Builder.create(
+                        this, props.resourceNamePrefix() + "-ContinuousDeploymentPolicy")
+                .continuousDeploymentPolicyConfig(
+                        CfnContinuousDeploymentPolicy.ContinuousDeploymentPolicyConfigProperty.builder()
+                                .enabled(true)
+                                .stagingDistributionDnsNames(List.of(this.stagingDistribution.getDomainName()))
+                                .trafficConfig(trafficConfig)
+                                .build())
+                .build();
+        ((CfnDistribution) this.distribution.getNode().getDefaultChild())
+                .addPropertyOverride(
+                        "DistributionConfig.ContinuousDeploymentPolicyId", this.continuousDeploymentPolicy.getAttrId());
+        infof(
+                "Added staging distribution with %s continuous deployment policy for %s",
+                props.stagingDistributionTraffic(), props.sharedNames().deploymentDomainName);
+
+        // Additional CloudFront metrics (cache hit rate, origin latency, error rates) for both distributions
+        List<Distribution> distributions = List.of(this.distribution, this.stagingDistribution);
+        for (Distribution dist : distributions) {
+            String label = dist == this.distribution ? "Primary" : "Staging";
+            CfnMonitoringSubscription.Builder.create(
+                            this, props.resourceNamePrefix() + "-" + label + "MonitoringSubscription")
+                    .distributionId(dist.getDistributionId())
+                    .monitoringSubscription(CfnMonitoringSubscription.MonitoringSubscriptionProperty.builder()
+                            .realtimeMetricsSubscriptionConfig(
+                                    CfnMonitoringSubscription.RealtimeMetricsSubscriptionConfigProperty.builder()
+                                            .realtimeMetricsSubscriptionStatus("Enabled")
+                                            .build())
+                            .build())
+                    .build();
+        }
+        Map<String, String> statistics =
+                Map.of("Requests", "Sum", "CacheHitRate", "Average", "OriginLatency", "p90", "5xxErrorRate", "Average");
+        List<IWidget> widgets = new ArrayList<>();
+        for (String metricName : List.of("Requests", "CacheHitRate", "OriginLatency", "5xxErrorRate")) {
+            String statistic = statistics.get(metricName);
+            widgets.add(GraphWidget.Builder.create()
+                    .title(metricName + " (" + statistic + ") primary vs staging")
+                    .left(distributions.stream()
+                            .map(dist -> (IMetric) Metric.Builder.create()
+                                    .namespace("AWS/CloudFront")
+                                    .metricName(metricName)
+                                    .dimensionsMap(
+                                            Map.of("DistributionId", dist.getDistributionId(), "Region", "Global"))
+                                    .statistic(statistic)
+                                    .period(Duration.minutes(5))
+                                    .label(dist == this.distribution ? "primary" : "staging")
+                                    .build())
+                            .toList())
+                    .width(12)
+                    .height(6)
+                    .build());
+        }
+        Dashboard.Builder.create(this, props.resourceNamePrefix() + "-ContinuousDeploymentDashboard")
+                .dashboardName(props.resourceNamePrefix() + "-continuous-deployment")
+                .widgets(List.of(widgets.subList(0, 2), widgets.subList(2, 4)))
+                .build();
+    }
+
+    /**
+     * Kinesis Data Stream (written by the distribution's RealtimeLogConfig) -> Firehose -> S3 Parquet,
+     * partitioned by hour. Firehose invokes the metrics Lambda as its transformation step, which converts the
+     * tab-separated log lines to JSON for Parquet conversion and publishes per cache behaviour EMF metrics
+     * (namespace Submit/CloudFrontRealtime).
+     */
+    private void createDistributionRealtimeLogPipeline(EdgeStackProps props) {
+        String region = this.getRegion();
+        String account = this.getAccount();
+
+        this.distributionRealtimeLogStream = Stream.Builder.create(
+                        this, props.resourceNamePrefix() + "-DistributionRealtimeLogStream")
+                .streamName(props.sharedNames().distributionRealtimeLogStreamName)
+                .streamMode(StreamMode.PROVISIONED)
+                .shardCount(1)
+                .retentionPeriod(Duration.hours(24))
+                .encryption(StreamEncryption.MANAGED)
+                .removalPolicy(RemovalPolicy.DESTROY)
+                .build();
+
+        // No explicit bucketName (globally unique; collisions during account migration)
+        this.distributionRealtimeLogBucket = Bucket.Builder.create(
+                        this, props.resourceNamePrefix() + "-DistributionRealtimeLogBucket")
+                .encryption(BucketEncryption.S3_MANAGED)
+                .blockPublicAccess(BlockPublicAccess.BLOCK_ALL)
+                .enforceSsl(true)
+                .removalPolicy(RemovalPolicy.DESTROY)
+                .autoDeleteObjects(true)
+                .lifecycleRules(List.of(
+                        LifecycleRule.builder().expiration(Duration.days(30)).build()))
+                .build();
+
+        // Glue schema used by Firehose for Parquet conversion (and by Athena for ad-hoc queries).
+        // Column order and names follow REALTIME_LOG_FIELDS in app/functions/ops/distributionRealtimeLogMetrics.js
+        String glueDatabaseName = props.resourceNamePrefix().replace('-', '_') + "_cloudfront";
+        String glueTableName = "distribution_realtime_logs";
+        String logPrefix = "realtime-logs/";
+        CfnDatabase glueDatabase = CfnDatabase.Builder.create(
+                        this, props.resourceNamePrefix() + "-DistributionRealtimeLogDatabase")
+                .catalogId(account)
+                .databaseInput(CfnDatabase.DatabaseInputProperty.builder()
+                        .name(glueDatabaseName)
+                        .build())
+                .build();
+        CfnTable glueTable = CfnTable.Builder.create(this, props.resourceNamePrefix() + "-DistributionRealtimeLogTable")
+                .catalogId(account)
+                .databaseName(glueDatabaseName)
+                .tableInput(CfnTable.TableInputProperty.builder()
+                        .name(glueTableName)
+                        .tableType("EXTERNAL_TABLE")
+                        .partitionKeys(List.of(glueColumn("dt", "string"), glueColumn("hour", "string")))
+                        .parameters(Map.of(
+                                "classification", "parquet",
+                                "projection.enabled", "true",
+                                "projection.dt.type", "date",
+                                "projection.dt.format", "yyyy-MM-dd",
+                                "projection.dt.range", "NOW-30DAYS,NOW",
+                                "projection.hour.type", "integer",
+                                "projection.hour.range", "0,23",
+                                "projection.hour.digits", "2",
+                                "storage.location.template",
+                                        "s3://%s/%sdt=${dt}/hour=${hour}/"
+                                                .formatted(
+                                                        this.distributionRealtimeLogBucket.getBucketName(), logPrefix)))
+                        .storageDescriptor(CfnTable.StorageDescriptorProperty.builder()
+                                .location("s3://%s/%s"
+                                        .formatted(this.distributionRealtimeLogBucket.getBucketName(), logPrefix))
+                                .inputFormat("org.apache.hadoop.hive.ql.io.parquet.MapredParquetInputFormat")
+                                .outputFormat("org.apache.hadoop.hive.ql.io.parquet.MapredParquetOutputFormat")
+                                .serdeInfo(CfnTable.SerdeInfoProperty.builder()
+                                        .serializationLibrary(
+                                                "org.apache.hadoop.hive.ql.io.parquet.serde.ParquetHiveSerDe")
+                                        .build())
+                                .columns(List.of(
+                                        glueColumn("timestamp", "double"),
+                                        glueColumn("cs_method", "string"),
+                                        glueColumn("cs_uri_stem", "string"),
+                                        glueColumn("sc_status", "int"),
+                                        glueColumn("sc_bytes", "bigint"),
+                                        glueColumn("time_to_first_byte", "double"),
+                                        glueColumn("time_taken", "double"),
+                                        glueColumn("x_edge_location", "string"),
+                                        glueColumn("x_edge_result_type", "string"),
+                                        glueColumn("x_edge_response_result_type", "string"),
+                                        glueColumn("x_edge_detailed_result_type", "string"),
+                                        glueColumn("origin_fbl", "double"),
+                                        glueColumn("origin_lbl", "double"),
+                                        glueColumn("cache_behavior_path_pattern", "string"),
+                                        glueColumn("cs_uri_query", "string"),
+                                        glueColumn("c_country", "string"),
+                                        glueColumn("cs_user_agent", "string")))
+                                .build())
+                        .build())
+                .build();
+        glueTable.addDependency(glueDatabase);
+
+        // Firehose transformation Lambda: TSV -> JSON plus per cache behaviour metrics
+        this.distributionRealtimeLogMetricsLambda = new Lambda(
+                this,
+                LambdaProps.builder()
+                        .idPrefix(props.sharedNames().distributionRealtimeLogMetricsLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ue1EcrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ue1EcrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().distributionRealtimeLogMetricsLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().distributionRealtimeLogMetricsLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().distributionRealtimeLogMetricsLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().distributionRealtimeLogMetricsProvisionedConcurrencyLambdaAliasArn)
+                        .ingestLambdaTimeout(Duration.seconds(60))
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .environment(new PopulatedMap<String, String>()
+                                .with("ENVIRONMENT_NAME", props.envName())
+                                .with("DEPLOYMENT_NAME", props.deploymentName()))
+                        .build());
+
+        Role firehoseRole = Role.Builder.create(
+                        this, props.resourceNamePrefix() + "-DistributionRealtimeLogFirehoseRole")
+                .assumedBy(new ServicePrincipal("firehose.amazonaws.com"))
+                .build();
+        this.distributionRealtimeLogStream.grantRead(firehoseRole);
+        this.distributionRealtimeLogBucket.grantReadWrite(firehoseRole);
+        this.distributionRealtimeLogMetricsLambda.ingestLambdaAlias.grantInvoke(firehoseRole);
+        firehoseRole.addToPolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("lambda:GetFunctionConfiguration"))
+                .resources(List.of(this.distributionRealtimeLogMetricsLambda.ingestLambdaAlias.getFunctionArn()))
+                .build());
+        firehoseRole.addToPolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("glue:GetTable", "glue:GetTableVersion", "glue:GetTableVersions"))
+                .resources(List.of(
+                        "arn:aws:glue:%s:%s:catalog".formatted(region, account),
+                        "arn:aws:glue:%s:%s:database/%s".formatted(region, account, glueDatabaseName),
+                        "arn:aws:glue:%s:%s:table/%s/%s".formatted(region, account, glueDatabaseName, glueTableName)))
+                .build());
+
+        // Parquet conversion requires a buffer of at least 64 MiB; the interval bounds how stale S3 can be.
+        this.distributionRealtimeLogDeliveryStream = CfnDeliveryStream.Builder.create(
+                        this, props.resourceNamePrefix() + "-DistributionRealtimeLogDeliveryStream")
+                .deliveryStreamName(props.sharedNames().distributionRealtimeLogDeliveryStreamName)
+                .deliveryStreamType("KinesisStreamAsSource")
+                .kinesisStreamSourceConfiguration(CfnDeliveryStream.KinesisStreamSourceConfigurationProperty.builder()
+                        .kinesisStreamArn(this.distributionRealtimeLogStream.getStreamArn())
+                        .roleArn(firehoseRole.getRoleArn())
+                        .build())
+                .extendedS3DestinationConfiguration(
+                        CfnDeliveryStream.ExtendedS3DestinationConfigurationProperty.builder()
+                                .bucketArn(this.distributionRealtimeLogBucket.getBucketArn())
+                                .roleArn(firehoseRole.getRoleArn())
+                                .prefix(logPrefix + "dt=!{timestamp:yyyy-MM-dd}/hour=!{timestamp:HH}/")
+                                .errorOutputPrefix(
+                                        "realtime-logs-errors/!{firehose:error-output-type}/dt=!{timestamp:yyyy-MM-dd}/hour=!{timestamp:HH}/")
+                                .bufferingHints(CfnDeliveryStream.BufferingHintsProperty.builder()
+                                        .sizeInMBs(64)
+                                        .intervalInSeconds(300)
+                                        .build())
+                                .compressionFormat("UNCOMPRESSED")
+                                .processingConfiguration(CfnDeliveryStream.ProcessingConfigurationProperty.builder()
+                                        .enabled(true)
+                                        .processors(List.of(CfnDeliveryStream.ProcessorProperty.builder()
+                                                .type("Lambda")
+                                                .parameters(List.of(
+                                                        CfnDeliveryStream.ProcessorParameterProperty.builder()
+                                                                .parameterName("LambdaArn")
+                                                                .parameterValue(
+                                                                        this.distributionRealtimeLogMetricsLambda
+                                                                                .ingestLambdaAlias.getFunctionArn())
+                                                                .build(),
+                                                        CfnDeliveryStream.ProcessorParameterProperty.builder()
+                                                                .parameterName("BufferIntervalInSeconds")
+                                                                .parameterValue("60")
+                                                                .build()))
+                                                .build()))
+                                        .build())
+                                .dataFormatConversionConfiguration(
+                                        CfnDeliveryStream.DataFormatConversionConfigurationProperty.builder()
+                                                .enabled(true)
+                                                .inputFormatConfiguration(
+                                                        CfnDeliveryStream.InputFormatConfigurationProperty.builder()
+                                                                .deserializer(
+                                                                        CfnDeliveryStream.DeserializerProperty.builder()
+                                                                                .openXJsonSerDe(
+                                                                                        CfnDeliveryStream
+                                                                                                .OpenXJsonSerDeProperty
+                                                                                                .builder()
+                                                                                                .build())
+                                                                                .build())
+                                                                .build())
+                                                .outputFormatConfiguration(
+                                                        CfnDeliveryStream.OutputFormatConfigurationProperty.builder()
+                                                                .serializer(
+                                                                        CfnDeliveryStream.SerializerProperty.builder()
+                                                                                .parquetSerDe(
+                                                                                        CfnDeliveryStream
+                                                                                                .ParquetSerDeProperty
+                                                                                                .builder()
+                                                                                                .compression("SNAPPY")
+                                                                                                .build())
+                                                                                .build())
+                                                                .build())
+                                                .schemaConfiguration(
+                                                        CfnDeliveryStream.SchemaConfigurationProperty.builder()
+                                                                .catalogId(account)
+                                                                .region(region)
+                                                                .databaseName(glueDatabaseName)
+                                                                .tableName(glueTableName)
+                                                                .roleArn(firehoseRole.getRoleArn())
+                                                                .versionId("LATEST")
+                                                                .build())
+                                                .build())
+                                .build())
+                .build();
+        this.distributionRealtimeLogDeliveryStream.getNode().addDependency(firehoseRole);
+        this.distributionRealtimeLogDeliveryStream.addDependency(glueTable);
+
+        infof(
+                "Created CloudFront real-time log pipeline %s -> %s",
+                props.sharedNames().distributionRealtimeLogStreamName,
+                props.sharedNames().distributionRealtimeLogDeliveryStreamName);
+    }
+
+    /**
+     * The candidate staging settings of stagingBehaviors by path pattern, e.g. "*:compress=false,defaultTtlSeconds=300;
+     * /docs/*:defaultTtlSeconds=60,maxTtlSeconds=600". Settings are compress (true or false) and minTtlSeconds,
+     * defaultTtlSeconds and maxTtlSeconds, any TTL left out of an entry with TTLs taking the CachePolicy default (0, 1
+     * day, 1 year). Checked at synth, so a mistyped setting fails there rather than being ignored or rejected by
+     * CloudFront.
+     */
+    public static Map<String, StagingBehavior> stagingBehaviors(String config) {
+        Map<String, StagingBehavior> candidates = new LinkedHashMap<>();
+        if (config == null || config.isBlank()) return candidates;
+        for (String entry : config.split(";")) {
+            if (entry.isBlank()) continue;
+            int colon = entry.indexOf(':');
+            if (colon < 1) {
+                throw new IllegalArgumentException(
+                        "stagingBehaviors entries must be <path pattern>:<setting>=<value>,... but one was: "
+                                + entry.strip());
+            }
+            String pathPattern = entry.substring(0, colon).strip();
+            Map<String, String> settings = new LinkedHashMap<>();
+            for (String setting : entry.substring(colon + 1).split(",")) {
+                if (setting.isBlank()) continue;
+                int equals = setting.indexOf('=');
+                String name = (equals < 0 ? setting : setting.substring(0, equals)).strip();
+                if (equals < 0 || !StagingBehavior.SETTINGS.contains(name)) {
+                    throw new IllegalArgumentException("Unknown stagingBehaviors setting %s for %s, expected one of %s"
+                            .formatted(setting.strip(), pathPattern, StagingBehavior.SETTINGS));
+                }
+                settings.put(name, setting.substring(equals + 1).strip());
+            }
+            String compress = settings.get("compress");
+            if (compress != null && !"true".equals(compress) && !"false".equals(compress)) {
+                throw new IllegalArgumentException("stagingBehaviors compress for %s must be true or false but was: %s"
+                        .formatted(pathPattern, compress));
+            }
+            Integer minTtl = ttlSeconds(pathPattern, settings, "minTtlSeconds");
+            Integer defaultTtl = ttlSeconds(pathPattern, settings, "defaultTtlSeconds");
+            Integer maxTtl = ttlSeconds(pathPattern, settings, "maxTtlSeconds");
+            if (minTtl != null || defaultTtl != null || maxTtl != null) {
+                minTtl = minTtl != null ? minTtl : 0;
+                defaultTtl = defaultTtl != null ? defaultTtl : 86400;
+                maxTtl = maxTtl != null ? maxTtl : 31536000;
+                if (minTtl > defaultTtl || defaultTtl > maxTtl) {
+                    throw new IllegalArgumentException(("stagingBehaviors TTLs for %s must be minTtlSeconds <="
+                                    + " defaultTtlSeconds <= maxTtlSeconds but were %d, %d and %d")
+                            .formatted(pathPattern, minTtl, defaultTtl, maxTtl));
+                }
+            }
+            if (candidates.containsKey(pathPattern)) {
+                throw new IllegalArgumentException("stagingBehaviors has more than one entry for " + pathPattern);
+            }
+            candidates.put(
+                    pathPattern,
+                    new StagingBehavior(
+                            compress != null ? Boolean.valueOf(compress) : null, minTtl, defaultTtl, maxTtl));
+        }
+        return candidates;
+    }
+
+    private static Integer ttlSeconds(String pathPattern, Map<String, String> settings, String setting) {
+        String value = settings.get(setting);
+        if (value == null) return null;
+        int seconds;
+        try {
+            seconds = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            seconds = -1;
+        }
+        if (seconds < 0) {
+            throw new IllegalArgumentException(
+                    "stagingBehaviors %s for %s must be a whole number of seconds but was: %s"
+                            .formatted(setting, pathPattern, value));
+        }
+        return seconds;
+    }
+
+    // Checked at synth, CloudFront rejects a continuous deployment policy weight outside (0, 0.15] at deploy time
+    private static double stagingDistributionWeight(EdgeStackProps props) {
+        double weight;
+        try {
+            weight = Double.parseDouble(props.stagingDistributionWeight());
+        } catch (NumberFormatException e) {
+            weight = Double.NaN;
+        }
+        if ("weight".equalsIgnoreCase(props.stagingDistributionTraffic()) && !(weight > 0 && weight <= 0.15)) {
+            throw new IllegalArgumentException(
+                    "stagingDistributionWeight must be a share of traffic greater than 0 and at most 0.15 (the"
+                            + " CloudFront maximum) but was: " + props.stagingDistributionWeight());
+        }
+        return weight;
+    }
+
+    // Resolve a CloudFront Function's source from either project root (Maven test) or cdk-application/ (cdk synth)
+    private static String edgeFunctionPath(EdgeStackProps props, String fileName) {
+        var path = Paths.get(props.edgeFunctionAssetPath(), fileName)
+                .toAbsolutePath()
+                .normalize();
+        if (!path.toFile().isFile()) {
+            path = Paths.get("../app/functions/edge", fileName).toAbsolutePath().normalize();
+        }
+        return path.toString();
+    }
+
+    private static CfnTable.ColumnProperty glueColumn(String name, String type) {
+        return CfnTable.ColumnProperty.builder().name(name).type(type).build();
+    }
+
     public BehaviorOptions createBehaviorOptionsForApiGateway(
             String apiGatewayUrl,
             ResponseHeadersPolicy responseHeadersPolicy,
             OriginRequestPolicy originRequestPolicy) {
+        return createBehaviorOptionsForApiGateway(apiGatewayUrl, responseHeadersPolicy, originRequestPolicy, List.of());
+    }
+
+    public BehaviorOptions createBehaviorOptionsForApiGateway(
+            String apiGatewayUrl,
+            ResponseHeadersPolicy responseHeadersPolicy,
+            OriginRequestPolicy originRequestPolicy,
+            List<FunctionAssociation> functionAssociations) {
         // Extract the host from the API Gateway URL (e.g., "https://abc123.execute-api.us-east-1.amazonaws.com/" ->
         // "abc123.execute-api.us-east-1.amazonaws.com")
         var apiGatewayHost = getHostFromUrl(apiGatewayUrl);
@@ -589,6 +1451,8 @@ public class EdgeStack extends Stack {
                 .originRequestPolicy(originRequestPolicy)
                 .viewerProtocolPolicy(ViewerProtocolPolicy.REDIRECT_TO_HTTPS)
                 .responseHeadersPolicy(responseHeadersPolicy)
+                .functionAssociations(functionAssociations)
+                .realtimeLogConfig(this.distributionRealtimeLogConfig)
                 .build();
     }
 
@@ -14,9 +14,17 @@ import co.uk.diyaccounting.submit.constructs.ApiLambda;
 import co.uk.diyaccounting.submit.constructs.ApiLambdaProps;
 import co.uk.diyaccounting.submit.constructs.AsyncApiLambda;
 import co.uk.diyaccounting.submit.constructs.AsyncApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.DlqRedrive;
+import co.uk.diyaccounting.submit.constructs.DlqRedriveProps;
+import co.uk.diyaccounting.submit.constructs.Lambda;
+import co.uk.diyaccounting.submit.constructs.LambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
 import co.uk.diyaccounting.submit.utils.PopulatedMap;
 import co.uk.diyaccounting.submit.utils.SubHashSaltHelper;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.immutables.value.Value;
 import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.Environment;
@@ -24,10 +32,16 @@ import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
 import software.amazon.awscdk.services.dynamodb.ITable;
 import software.amazon.awscdk.services.dynamodb.Table;
+import software.amazon.awscdk.services.events.EventPattern;
+import software.amazon.awscdk.services.events.Rule;
+import software.amazon.awscdk.services.events.Schedule;
+import software.amazon.awscdk.services.events.targets.LambdaFunction;
 import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
 import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.lambda.IFunction;
 import software.amazon.awscdk.services.logs.ILogGroup;
+import software.amazon.awscdk.services.sqs.IQueue;
 import software.amazon.awssdk.utils.StringUtils;
 import software.constructs.Construct;
 
@@ -99,6 +113,12 @@ public class HmrcStack extends Stack {
         @Override
         SubmitSharedNames sharedNames();
 
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
         static ImmutableHmrcStackProps.Builder builder() {
             return ImmutableHmrcStackProps.builder();
         }
@@ -141,6 +161,12 @@ public class HmrcStack extends Stack {
                 "ImportedHmrcVatObligationGetAsyncRequestsTable-%s".formatted(props.deploymentName()),
                 props.sharedNames().hmrcVatObligationGetAsyncRequestsTableName);
 
+        // Lookup existing DynamoDB HMRC rate limit Table (token bucket shared by the HMRC workers)
+        ITable hmrcRateLimitTable = Table.fromTableName(
+                this,
+                "ImportedHmrcRateLimitTable-%s".formatted(props.deploymentName()),
+                props.sharedNames().hmrcRateLimitTableName);
+
         // Lookup existing DynamoDB Receipts Table
         ITable receiptsTable = Table.fromTableName(
                 this,
@@ -159,6 +185,10 @@ public class HmrcStack extends Stack {
         var activityBusArn = String.format(
                 "arn:aws:events:%s:%s:event-bus/%s", region, account, props.sharedNames().activityBusName);
 
+        // HMRC API request audit trail written by the async workers (DataStack), buffered off the latency path
+        var hmrcApiRequestsDeliveryStreamArn = "arn:aws:firehose:%s:%s:deliverystream/%s"
+                .formatted(region, account, props.sharedNames().hmrcApiRequestsDeliveryStreamName);
+
         // exchangeToken - HMRC
         var exchangeHmrcTokenLambdaEnv = new PopulatedMap<String, String>()
                 .with("DIY_SUBMIT_BASE_URL", props.sharedNames().publicBaseUrl)
@@ -186,11 +216,10 @@ public class HmrcStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().hmrcTokenPostIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().hmrcTokenPostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().hmrcTokenPostIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().hmrcTokenPostIngestProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(1)
-                        .ingestMemorySize(256)
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().hmrcTokenPostLambdaHttpMethod)
                         .urlPath(props.sharedNames().hmrcTokenPostLambdaUrlPath)
@@ -263,10 +292,12 @@ public class HmrcStack extends Stack {
         // submitVat
         var submitVatLambdaEnv = new PopulatedMap<String, String>()
                 .with("DIY_SUBMIT_BASE_URL", props.sharedNames().publicBaseUrl)
+                .with("HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME", hmrcRateLimitTable.getTableName())
                 .with("HMRC_BASE_URI", props.hmrcBaseUri())
                 .with("HMRC_SANDBOX_BASE_URI", props.hmrcSandboxBaseUri())
                 .with("BUNDLE_DYNAMODB_TABLE_NAME", props.sharedNames().bundlesTableName)
                 .with("HMRC_API_REQUESTS_DYNAMODB_TABLE_NAME", hmrcApiRequestsTable.getTableName())
+                .with("HMRC_API_REQUESTS_DELIVERY_STREAM_NAME", props.sharedNames().hmrcApiRequestsDeliveryStreamName)
                 .with("RECEIPTS_DYNAMODB_TABLE_NAME", props.sharedNames().receiptsTableName)
                 .with(
                         "HMRC_VAT_RETURN_POST_ASYNC_REQUESTS_TABLE_NAME",
@@ -282,11 +313,10 @@ public class HmrcStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().hmrcVatReturnPostIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().hmrcVatReturnPostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().hmrcVatReturnPostIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().hmrcVatReturnPostIngestProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(1)
-                        .ingestMemorySize(256)
                         .workerFunctionName(props.sharedNames().hmrcVatReturnPostWorkerLambdaFunctionName)
                         .workerHandler(props.sharedNames().hmrcVatReturnPostWorkerLambdaHandler)
                         .workerLambdaArn(props.sharedNames().hmrcVatReturnPostWorkerLambdaArn)
@@ -294,8 +324,18 @@ public class HmrcStack extends Stack {
                                 props.sharedNames().hmrcVatReturnPostWorkerProvisionedConcurrencyLambdaAliasArn)
                         .workerQueueName(props.sharedNames().hmrcVatReturnPostLambdaQueueName)
                         .workerDeadLetterQueueName(props.sharedNames().hmrcVatReturnPostLambdaDeadLetterQueueName)
-                        .workerLambdaTimeout(Duration.seconds(300))
-                        .queueVisibilityTimeout(Duration.seconds(320))
+                        .workerCircuitBreaker(true)
+                        // Submissions go on the high priority lane so obligation and return reads never starve filings
+                        .highPriorityQueueMaximumConcurrency(10)
+                        .workerQueueMaximumConcurrency(2)
+                        // Keep pollers warm on the submission lane so enqueue-to-worker latency stays flat on a step up
+                        .highPriorityQueueMinimumPollers(2)
+                        .highPriorityQueueMaximumPollers(10)
+                        .queueAgeAlarmThreshold(Duration.minutes(2))
+                        // Express mode: submissions that finish inside the API timeout are answered without polling
+                        .expressStepHandler(props.sharedNames().hmrcVatReturnPostExpressStepLambdaHandler)
+                        // Six times this is the queue visibility timeout, the delay before a failed message retries
+                        .workerLambdaTimeout(Duration.seconds(30))
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().hmrcVatReturnPostLambdaHttpMethod)
                         .urlPath(props.sharedNames().hmrcVatReturnPostLambdaUrlPath)
@@ -319,10 +359,13 @@ public class HmrcStack extends Stack {
 
         // Grant the VAT submission Lambda and its worker permission to access DynamoDB Bundles Table
         // Read+Write needed: bundle enforcement reads bundles, token enforcement updates tokensConsumed
-        List.of(this.hmrcVatReturnPostLambda, submitVatLambdaUrlOrigin.workerLambda)
+        List.of(
+                        this.hmrcVatReturnPostLambda,
+                        submitVatLambdaUrlOrigin.workerLambda,
+                        submitVatLambdaUrlOrigin.expressStepLambda)
                 .forEach(fn -> {
                     bundlesTable.grantReadWriteData(fn);
-                    hmrcApiRequestsTable.grantWriteData(fn);
+                    grantHmrcApiRequestsAudit(fn, hmrcApiRequestsTable, hmrcApiRequestsDeliveryStreamArn);
                     receiptsTable.grantWriteData(fn);
                     hmrcVatReturnPostAsyncRequestsTable.grantReadWriteData(fn);
 
@@ -336,6 +379,7 @@ public class HmrcStack extends Stack {
                             .resources(List.of(activityBusArn))
                             .build());
                 });
+        grantHmrcRateLimiter(submitVatLambdaUrlOrigin, hmrcRateLimitTable);
         infof(
                 "Granted DynamoDB and Secrets Manager salt permissions to %s and its worker",
                 this.hmrcVatReturnPostLambda.getFunctionName());
@@ -343,10 +387,12 @@ public class HmrcStack extends Stack {
         // VAT obligations GET
         var vatObligationLambdaEnv = new PopulatedMap<String, String>()
                 .with("DIY_SUBMIT_BASE_URL", props.sharedNames().publicBaseUrl)
+                .with("HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME", hmrcRateLimitTable.getTableName())
                 .with("HMRC_BASE_URI", props.hmrcBaseUri())
                 .with("HMRC_SANDBOX_BASE_URI", props.hmrcSandboxBaseUri())
                 .with("BUNDLE_DYNAMODB_TABLE_NAME", props.sharedNames().bundlesTableName)
                 .with("HMRC_API_REQUESTS_DYNAMODB_TABLE_NAME", hmrcApiRequestsTable.getTableName())
+                .with("HMRC_API_REQUESTS_DELIVERY_STREAM_NAME", props.sharedNames().hmrcApiRequestsDeliveryStreamName)
                 .with(
                         "HMRC_VAT_OBLIGATION_GET_ASYNC_REQUESTS_TABLE_NAME",
                         hmrcVatObligationGetAsyncRequestsTable.getTableName())
@@ -361,6 +407,7 @@ public class HmrcStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().hmrcVatObligationGetIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().hmrcVatObligationGetIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().hmrcVatObligationGetIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().hmrcVatObligationGetIngestProvisionedConcurrencyLambdaAliasArn)
@@ -371,9 +418,9 @@ public class HmrcStack extends Stack {
                                 props.sharedNames().hmrcVatObligationGetWorkerProvisionedConcurrencyLambdaAliasArn)
                         .workerQueueName(props.sharedNames().hmrcVatObligationGetLambdaQueueName)
                         .workerDeadLetterQueueName(props.sharedNames().hmrcVatObligationGetLambdaDeadLetterQueueName)
-                        .workerProvisionedConcurrency(0)
-                        .workerLambdaTimeout(Duration.seconds(120))
-                        .queueVisibilityTimeout(Duration.seconds(140))
+                        .workerCircuitBreaker(true)
+                        .workerQueueMaximumConcurrency(5)
+                        .workerLambdaTimeout(Duration.seconds(30))
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().hmrcVatObligationGetLambdaHttpMethod)
                         .urlPath(props.sharedNames().hmrcVatObligationGetLambdaUrlPath)
@@ -399,7 +446,7 @@ public class HmrcStack extends Stack {
         List.of(this.hmrcVatObligationGetLambda, hmrcVatObligationGetLambdaUrlOrigin.workerLambda)
                 .forEach(fn -> {
                     bundlesTable.grantReadData(fn);
-                    hmrcApiRequestsTable.grantWriteData(fn);
+                    grantHmrcApiRequestsAudit(fn, hmrcApiRequestsTable, hmrcApiRequestsDeliveryStreamArn);
                     hmrcVatObligationGetAsyncRequestsTable.grantReadWriteData(fn);
 
                     // Grant access to user sub hash salt secret in Secrets Manager
@@ -412,6 +459,7 @@ public class HmrcStack extends Stack {
                             .resources(List.of(activityBusArn))
                             .build());
                 });
+        grantHmrcRateLimiter(hmrcVatObligationGetLambdaUrlOrigin, hmrcRateLimitTable);
         infof(
                 "Granted DynamoDB and Secrets Manager salt permissions to %s and its worker",
                 this.hmrcVatObligationGetLambda.getFunctionName());
@@ -419,10 +467,12 @@ public class HmrcStack extends Stack {
         // VAT return GET
         var vatReturnGetLambdaEnv = new PopulatedMap<String, String>()
                 .with("DIY_SUBMIT_BASE_URL", props.sharedNames().publicBaseUrl)
+                .with("HMRC_RATE_LIMIT_DYNAMODB_TABLE_NAME", hmrcRateLimitTable.getTableName())
                 .with("HMRC_BASE_URI", props.hmrcBaseUri())
                 .with("HMRC_SANDBOX_BASE_URI", props.hmrcSandboxBaseUri())
                 .with("BUNDLE_DYNAMODB_TABLE_NAME", props.sharedNames().bundlesTableName)
                 .with("HMRC_API_REQUESTS_DYNAMODB_TABLE_NAME", hmrcApiRequestsTable.getTableName())
+                .with("HMRC_API_REQUESTS_DELIVERY_STREAM_NAME", props.sharedNames().hmrcApiRequestsDeliveryStreamName)
                 .with(
                         "HMRC_VAT_RETURN_GET_ASYNC_REQUESTS_TABLE_NAME",
                         hmrcVatReturnGetAsyncRequestsTable.getTableName())
@@ -437,6 +487,7 @@ public class HmrcStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().hmrcVatReturnGetIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().hmrcVatReturnGetIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().hmrcVatReturnGetIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().hmrcVatReturnGetIngestProvisionedConcurrencyLambdaAliasArn)
@@ -447,8 +498,9 @@ public class HmrcStack extends Stack {
                                 props.sharedNames().hmrcVatReturnGetWorkerProvisionedConcurrencyLambdaAliasArn)
                         .workerQueueName(props.sharedNames().hmrcVatReturnGetLambdaQueueName)
                         .workerDeadLetterQueueName(props.sharedNames().hmrcVatReturnGetLambdaDeadLetterQueueName)
-                        .workerLambdaTimeout(Duration.seconds(120))
-                        .queueVisibilityTimeout(Duration.seconds(140))
+                        .workerCircuitBreaker(true)
+                        .workerQueueMaximumConcurrency(5)
+                        .workerLambdaTimeout(Duration.seconds(30))
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .httpMethod(props.sharedNames().hmrcVatReturnGetLambdaHttpMethod)
                         .urlPath(props.sharedNames().hmrcVatReturnGetLambdaUrlPath)
@@ -474,7 +526,7 @@ public class HmrcStack extends Stack {
         List.of(this.hmrcVatReturnGetLambda, hmrcVatReturnGetLambdaUrlOrigin.workerLambda)
                 .forEach(fn -> {
                     bundlesTable.grantReadData(fn);
-                    hmrcApiRequestsTable.grantWriteData(fn);
+                    grantHmrcApiRequestsAudit(fn, hmrcApiRequestsTable, hmrcApiRequestsDeliveryStreamArn);
                     hmrcVatReturnGetAsyncRequestsTable.grantReadWriteData(fn);
 
                     // Grant access to user sub hash salt secret in Secrets Manager
@@ -487,6 +539,7 @@ public class HmrcStack extends Stack {
                             .resources(List.of(activityBusArn))
                             .build());
                 });
+        grantHmrcRateLimiter(hmrcVatReturnGetLambdaUrlOrigin, hmrcRateLimitTable);
         infof(
                 "Granted DynamoDB and Secrets Manager salt permissions to %s and its worker",
                 this.hmrcVatReturnGetLambda.getFunctionName());
@@ -507,6 +560,7 @@ public class HmrcStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().receiptGetIngestLambdaFunctionName)
                         .ingestHandler(props.sharedNames().receiptGetIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().receiptGetIngestLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().receiptGetIngestProvisionedConcurrencyLambdaAliasArn)
@@ -529,6 +583,7 @@ public class HmrcStack extends Stack {
                 .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                 .ingestFunctionName(props.sharedNames().receiptGetIngestLambdaFunctionName)
                 .ingestHandler(props.sharedNames().receiptGetIngestLambdaHandler)
+                .performanceProfile(props.performanceProfile())
                 .ingestLambdaArn(props.sharedNames().receiptGetIngestLambdaArn)
                 .ingestProvisionedConcurrencyAliasArn(
                         props.sharedNames().receiptGetIngestProvisionedConcurrencyLambdaAliasArn)
@@ -563,6 +618,11 @@ public class HmrcStack extends Stack {
                 .resources(List.of(activityBusArn))
                 .build());
 
+        var hmrcWorkers =
+                List.of(submitVatLambdaUrlOrigin, hmrcVatObligationGetLambdaUrlOrigin, hmrcVatReturnGetLambdaUrlOrigin);
+        createHmrcCircuitBreaker(props, hmrcWorkers);
+        createHmrcDlqRedrives(props, hmrcWorkers);
+
         cfnOutput(this, "ExchangeHmrcTokenLambdaArn", this.hmrcTokenPostLambda.getFunctionArn());
         cfnOutput(this, "SubmitVatLambdaArn", this.hmrcVatReturnPostLambda.getFunctionArn());
         cfnOutput(this, "MyReceiptsLambdaArn", this.receiptGetLambda.getFunctionArn());
@@ -571,4 +631,149 @@ public class HmrcStack extends Stack {
                 "HmrcStack %s created successfully for %s",
                 this.getNode().getId(), props.sharedNames().dashedDeploymentDomainName);
     }
+
+    /**
+     * Controller for the workers' circuit breaker alarms (see app/functions/ops/hmrcCircuitBreaker.js). An alarm
+     * going into ALARM disables the worker's SQS event source mappings so messages wait in the queue rather than
+     * exhausting their receive count into the DLQ; a schedule probes HMRC and re-enables them on recovery.
+     */
+    private void createHmrcCircuitBreaker(HmrcStackProps props, List<AsyncApiLambda> workers) {
+        var workerAliasArns =
+                workers.stream().map(worker -> worker.workerLambdaAliasArn).collect(Collectors.joining(","));
+        var circuitBreakerLambda = new Lambda(
+                this,
+                LambdaProps.builder()
+                        .idPrefix(props.sharedNames().hmrcCircuitBreakerLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().hmrcCircuitBreakerLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().hmrcCircuitBreakerLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().hmrcCircuitBreakerLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().hmrcCircuitBreakerProvisionedConcurrencyLambdaAliasArn)
+                        .ingestLambdaTimeout(Duration.seconds(60))
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .environment(new PopulatedMap<String, String>()
+                                .with("ENVIRONMENT_NAME", props.envName())
+                                .with("HMRC_BASE_URI", props.hmrcBaseUri())
+                                .with("HMRC_SANDBOX_BASE_URI", props.hmrcSandboxBaseUri())
+                                .with("CIRCUIT_BREAKER_WORKER_ALIAS_ARNS", workerAliasArns))
+                        .build());
+
+        // ListEventSourceMappings does not support resource-level permissions
+        circuitBreakerLambda.ingestLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("lambda:ListEventSourceMappings"))
+                .resources(List.of("*"))
+                .build());
+        circuitBreakerLambda.ingestLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of(
+                        "lambda:UpdateEventSourceMapping",
+                        "lambda:ListTags",
+                        "lambda:TagResource",
+                        "lambda:UntagResource"))
+                .resources(List.of("arn:aws:lambda:%s:%s:event-source-mapping:*".formatted(getRegion(), getAccount())))
+                .build());
+
+        var alarmArns = workers.stream()
+                .map(worker -> worker.workerCircuitBreakerAlarm.getAlarmArn())
+                .toList();
+        Rule.Builder.create(this, props.resourceNamePrefix() + "-HmrcCircuitBreakerAlarmRule")
+                .ruleName(props.resourceNamePrefix() + "-hmrc-circuit-breaker-alarm")
+                .eventPattern(EventPattern.builder()
+                        .source(List.of("aws.cloudwatch"))
+                        .detailType(List.of("CloudWatch Alarm State Change"))
+                        .resources(alarmArns)
+                        .detail(Map.of("state", Map.of("value", List.of("ALARM"))))
+                        .build())
+                .targets(List.of(LambdaFunction.Builder.create(circuitBreakerLambda.ingestLambda)
+                        .build()))
+                .build();
+        Rule.Builder.create(this, props.resourceNamePrefix() + "-HmrcCircuitBreakerProbeRule")
+                .ruleName(props.resourceNamePrefix() + "-hmrc-circuit-breaker-probe")
+                .schedule(Schedule.rate(Duration.minutes(2)))
+                .targets(List.of(LambdaFunction.Builder.create(circuitBreakerLambda.ingestLambda)
+                        .build()))
+                .build();
+
+        cfnOutput(this, "HmrcCircuitBreakerLambdaArn", circuitBreakerLambda.ingestLambda.getFunctionArn());
+        infof(
+                "Created HMRC circuit breaker %s for workers %s",
+                circuitBreakerLambda.ingestLambda.getNode().getId(), workerAliasArns);
+    }
+
+    /**
+     * Scheduled redrive of each HMRC worker's DLQ at 1 message per second, well inside HMRC's 3 requests per
+     * second, and only while the worker's circuit breaker is closed (see app/functions/ops/dlqRedrive.js).
+     */
+    private void createHmrcDlqRedrives(HmrcStackProps props, List<AsyncApiLambda> workers) {
+        var redriveLambda = new Lambda(
+                this,
+                LambdaProps.builder()
+                        .idPrefix(props.sharedNames().dlqRedriveLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().dlqRedriveLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().dlqRedriveLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().dlqRedriveLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().dlqRedriveProvisionedConcurrencyLambdaAliasArn)
+                        .ingestLambdaTimeout(Duration.seconds(30))
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .environment(new PopulatedMap<String, String>().with("ENVIRONMENT_NAME", props.envName()))
+                        .build());
+
+        for (var worker : workers) {
+            List<IQueue> sourceQueues = new ArrayList<>(List.of(worker.queue));
+            if (worker.highPriorityQueue != null) {
+                sourceQueues.add(worker.highPriorityQueue);
+            }
+            new DlqRedrive(
+                    this,
+                    DlqRedriveProps.builder()
+                            .idPrefix(worker.apiProps.idPrefix())
+                            .deadLetterQueue(worker.dlq)
+                            .sourceQueues(sourceQueues)
+                            .controller(redriveLambda.ingestLambda)
+                            .maxMessagesPerSecond(1)
+                            .circuitBreakerWorkerAliasArn(
+                                    worker.workerCircuitBreakerAlarm != null ? worker.workerLambdaAliasArn : "")
+                            .build());
+        }
+        cfnOutput(this, "DlqRedriveLambdaArn", redriveLambda.ingestLambda.getFunctionArn());
+    }
+
+    /**
+     * HMRC API requests are audited to the DynamoDB hot window and, buffered, to the Firehose audit trail
+     * (see app/data/dynamoDbHmrcApiRequestRepository.js).
+     */
+    private static void grantHmrcApiRequestsAudit(
+            IFunction fn, ITable hmrcApiRequestsTable, String hmrcApiRequestsDeliveryStreamArn) {
+        hmrcApiRequestsTable.grantWriteData(fn);
+        fn.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("firehose:PutRecord"))
+                .resources(List.of(hmrcApiRequestsDeliveryStreamArn))
+                .build());
+    }
+
+    /**
+     * The worker takes tokens from the shared HMRC rate limit bucket and, when it is empty, re-queues its message
+     * on the queue for its message's lane with a delay (see app/services/hmrcRateLimiter.js).
+     */
+    private static void grantHmrcRateLimiter(AsyncApiLambda asyncApiLambda, ITable hmrcRateLimitTable) {
+        hmrcRateLimitTable.grantReadWriteData(asyncApiLambda.workerLambda);
+        if (asyncApiLambda.expressStepLambda != null) {
+            hmrcRateLimitTable.grantReadWriteData(asyncApiLambda.expressStepLambda);
+        }
+        asyncApiLambda.queue.grantSendMessages(asyncApiLambda.workerLambda);
+        if (asyncApiLambda.highPriorityQueue != null) {
+            asyncApiLambda.highPriorityQueue.grantSendMessages(asyncApiLambda.workerLambda);
+        }
+    }
 }
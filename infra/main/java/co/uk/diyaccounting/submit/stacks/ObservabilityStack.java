@@ -10,10 +10,12 @@ import static co.uk.diyaccounting.submit.utils.KindCdk.cfnOutput;
 import static co.uk.diyaccounting.submit.utils.KindCdk.ensureLogGroupWithDependency;
 
 import co.uk.diyaccounting.submit.SubmitSharedNames;
+import co.uk.diyaccounting.submit.utils.ResourceNameUtils;
 import co.uk.diyaccounting.submit.utils.RetentionDaysConverter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.immutables.value.Value;
 import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.Environment;
@@ -29,6 +31,7 @@ import software.amazon.awscdk.services.cloudwatch.Alarm;
 import software.amazon.awscdk.services.cloudwatch.ComparisonOperator;
 import software.amazon.awscdk.services.cloudwatch.Dashboard;
 import software.amazon.awscdk.services.cloudwatch.GraphWidget;
+import software.amazon.awscdk.services.cloudwatch.IMetric;
 import software.amazon.awscdk.services.cloudwatch.IWidget;
 import software.amazon.awscdk.services.cloudwatch.MathExpression;
 import software.amazon.awscdk.services.cloudwatch.Metric;
@@ -57,6 +60,20 @@ import software.constructs.Construct;
 
 public class ObservabilityStack extends Stack {
 
+    // RUM page ids (the client's default PATH format) that get per page web vitals metrics, alarms and dashboards
+    static final List<String> RUM_MONITORED_PAGE_IDS = List.of(
+            "/bundles.html",
+            "/hmrc/vat/submitVat.html",
+            "/hmrc/vat/vatObligations.html",
+            "/hmrc/vat/viewVatReturn.html",
+            "/hmrc/receipt/receipts.html");
+
+    static final List<String> RUM_PAGE_METRIC_NAMES = List.of(
+            "WebVitalsLargestContentfulPaint",
+            "WebVitalsInteractionToNextPaint",
+            "WebVitalsCumulativeLayoutShift",
+            "JsErrorCount");
+
     // public Bucket trailBucket;
     public Trail trail;
     public ILogGroup cloudTrailLogGroup;
@@ -302,6 +319,18 @@ public class ObservabilityStack extends Stack {
                         .identityPoolId(rumIdentityPool.getRef())
                         .telemetries(List.of("performance", "errors", "http"))
                         .build())
+                // Extended metrics: publish the web vitals and JS errors with a PageId dimension for the pages
+                // we alarm on, so a regression on one page is not averaged away across the whole site
+                .metricDestinations(List.of(CfnAppMonitor.MetricDestinationProperty.builder()
+                        .destination("CloudWatch")
+                        .metricDefinitions(RUM_PAGE_METRIC_NAMES.stream()
+                                .map(metricName -> (Object) CfnAppMonitor.MetricDefinitionProperty.builder()
+                                        .name(metricName)
+                                        .dimensionKeys(Map.of("metadata.pageId", "PageId"))
+                                        .eventPattern(rumMonitoredPageEventPattern())
+                                        .build())
+                                .toList())
+                        .build()))
                 .build();
 
         // RUM metrics and alarms
@@ -341,6 +370,108 @@ public class ObservabilityStack extends Stack {
                 .alarmDescription("RUM JavaScript errors >= 5 in 5 minutes")
                 .build();
 
+        // Per page web vitals alarms, thresholds are the Core Web Vitals "poor" boundaries
+        List<List<IWidget>> webVitalsRows = new ArrayList<>();
+        List<IMetric> pageLcp = new ArrayList<>();
+        List<IMetric> pageInp = new ArrayList<>();
+        List<IMetric> pageCls = new ArrayList<>();
+        List<IMetric> pageJsErrors = new ArrayList<>();
+        for (String pageId : RUM_MONITORED_PAGE_IDS) {
+            String pageName = ResourceNameUtils.convertCamelCaseToDashSeparated(
+                    pageId.replaceAll("^/", "").replaceAll("\\.html$", "").replace('/', '-'));
+            Metric pageLcpP75 = rumPageMetric(rumAppName, pageId, "WebVitalsLargestContentfulPaint", "p75");
+            Metric pageInpP75 = rumPageMetric(rumAppName, pageId, "WebVitalsInteractionToNextPaint", "p75");
+            Metric pageClsP75 = rumPageMetric(rumAppName, pageId, "WebVitalsCumulativeLayoutShift", "p75");
+            Metric pageJsErrorSum = rumPageMetric(rumAppName, pageId, "JsErrorCount", "sum");
+            pageLcp.add(pageLcpP75);
+            pageInp.add(pageInpP75);
+            pageCls.add(pageClsP75);
+            pageJsErrors.add(pageJsErrorSum);
+
+            Alarm.Builder.create(this, props.resourceNamePrefix() + "-RumLcpP75Alarm-" + pageName)
+                    .alarmName(props.resourceNamePrefix() + "-rum-lcp-p75-" + pageName)
+                    .metric(pageLcpP75)
+                    .threshold(4000) // 4s
+                    .evaluationPeriods(2)
+                    .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
+                    .treatMissingData(TreatMissingData.NOT_BREACHING)
+                    .alarmDescription("RUM p75 LCP > 4s on " + pageId)
+                    .build();
+            Alarm.Builder.create(this, props.resourceNamePrefix() + "-RumInpP75Alarm-" + pageName)
+                    .alarmName(props.resourceNamePrefix() + "-rum-inp-p75-" + pageName)
+                    .metric(pageInpP75)
+                    .threshold(500) // 500ms
+                    .evaluationPeriods(2)
+                    .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
+                    .treatMissingData(TreatMissingData.NOT_BREACHING)
+                    .alarmDescription("RUM p75 INP > 500ms on " + pageId)
+                    .build();
+            Alarm.Builder.create(this, props.resourceNamePrefix() + "-RumClsP75Alarm-" + pageName)
+                    .alarmName(props.resourceNamePrefix() + "-rum-cls-p75-" + pageName)
+                    .metric(pageClsP75)
+                    .threshold(0.25)
+                    .evaluationPeriods(2)
+                    .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
+                    .treatMissingData(TreatMissingData.NOT_BREACHING)
+                    .alarmDescription("RUM p75 CLS > 0.25 on " + pageId)
+                    .build();
+            Alarm.Builder.create(this, props.resourceNamePrefix() + "-RumJsErrorAlarm-" + pageName)
+                    .alarmName(props.resourceNamePrefix() + "-rum-js-errors-" + pageName)
+                    .metric(pageJsErrorSum)
+                    .threshold(5)
+                    .evaluationPeriods(1)
+                    .comparisonOperator(ComparisonOperator.GREATER_THAN_OR_EQUAL_TO_THRESHOLD)
+                    .treatMissingData(TreatMissingData.NOT_BREACHING)
+                    .alarmDescription("RUM JavaScript errors >= 5 in 5 minutes on " + pageId)
+                    .build();
+        }
+
+        webVitalsRows.add(List.of(
+                GraphWidget.Builder.create()
+                        .title("p75 LCP by page (ms)")
+                        .left(pageLcp)
+                        .width(12)
+                        .height(6)
+                        .build(),
+                GraphWidget.Builder.create()
+                        .title("p75 INP by page (ms)")
+                        .left(pageInp)
+                        .width(12)
+                        .height(6)
+                        .build()));
+        webVitalsRows.add(List.of(
+                GraphWidget.Builder.create()
+                        .title("p75 CLS by page")
+                        .left(pageCls)
+                        .width(12)
+                        .height(6)
+                        .build(),
+                GraphWidget.Builder.create()
+                        .title("JS errors by page (5m sum)")
+                        .left(pageJsErrors)
+                        .width(12)
+                        .height(6)
+                        .build()));
+        webVitalsRows.add(List.of(TextWidget.Builder.create()
+                .markdown(
+                        """
+                        ### Web Vitals alarms
+
+                        Each monitored page alarms when p75 LCP > 4s, p75 INP > 500ms or p75 CLS > 0.25 for two
+                        consecutive 5 minute periods, or on 5 or more JavaScript errors in 5 minutes.
+                        Pages: %s
+                        """
+                                .formatted(String.join(", ", RUM_MONITORED_PAGE_IDS)))
+                .width(24)
+                .height(3)
+                .build()));
+
+        Dashboard webVitalsDashboard = Dashboard.Builder.create(
+                        this, props.resourceNamePrefix() + "-WebVitalsDashboard")
+                .dashboardName(props.resourceNamePrefix() + "-web-vitals")
+                .widgets(webVitalsRows)
+                .build();
+
         // SNS topic for security findings (used by GuardDuty, Security Hub, and anomaly detection rules)
         Topic securityFindingsTopic = Topic.Builder.create(this, props.resourceNamePrefix() + "-SecurityFindingsTopic")
                 .topicName(props.resourceNamePrefix() + "-security-findings")
@@ -754,5 +885,28 @@ public class ObservabilityStack extends Stack {
                 "OperationsDashboard",
                 "https://" + this.getRegion() + ".console.aws.amazon.com/cloudwatch/home?region=" + this.getRegion()
                         + "#dashboards:name=" + operationsDashboard.getDashboardName());
+        cfnOutput(
+                this,
+                "WebVitalsDashboard",
+                "https://" + this.getRegion() + ".console.aws.amazon.com/cloudwatch/home?region=" + this.getRegion()
+                        + "#dashboards:name=" + webVitalsDashboard.getDashboardName());
+    }
+
+    private static Metric rumPageMetric(String rumAppName, String pageId, String metricName, String statistic) {
+        return Metric.Builder.create()
+                .namespace("AWS/RUM")
+                .metricName(metricName)
+                .dimensionsMap(Map.of("application_name", rumAppName, "PageId", pageId))
+                .statistic(statistic)
+                .period(Duration.minutes(5))
+                .label(pageId)
+                .build();
+    }
+
+    private static String rumMonitoredPageEventPattern() {
+        String pageIds = RUM_MONITORED_PAGE_IDS.stream()
+                .map(pageId -> "\"" + pageId + "\"")
+                .collect(Collectors.joining(","));
+        return "{\"metadata\":{\"pageId\":[" + pageIds + "]}}";
     }
 }
@@ -11,6 +11,7 @@ import static co.uk.diyaccounting.submit.utils.KindCdk.cfnOutput;
 import co.uk.diyaccounting.submit.SubmitSharedNames;
 import co.uk.diyaccounting.submit.constructs.Lambda;
 import co.uk.diyaccounting.submit.constructs.LambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
 import co.uk.diyaccounting.submit.utils.PopulatedMap;
 import java.util.List;
 import java.util.Map;
@@ -36,11 +37,13 @@ import software.amazon.awscdk.services.iam.ManagedPolicy;
 import software.amazon.awscdk.services.iam.PolicyStatement;
 import software.amazon.awscdk.services.iam.Role;
 import software.amazon.awscdk.services.iam.ServicePrincipal;
+import software.amazon.awscdk.services.lambda.eventsources.SqsEventSource;
 import software.amazon.awscdk.services.s3.Bucket;
 import software.amazon.awscdk.services.s3.BucketEncryption;
 import software.amazon.awscdk.services.s3.LifecycleRule;
 import software.amazon.awscdk.services.sns.Topic;
 import software.amazon.awscdk.services.sns.subscriptions.EmailSubscription;
+import software.amazon.awscdk.services.sqs.Queue;
 import software.amazon.awscdk.services.synthetics.ArtifactsBucketLocation;
 import software.amazon.awscdk.services.synthetics.Canary;
 import software.amazon.awscdk.services.synthetics.Code;
@@ -87,6 +90,12 @@ public class OpsStack extends Stack {
         @Override
         SubmitSharedNames sharedNames();
 
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
         String baseImageTag();
 
         // Alert configuration
@@ -213,10 +222,10 @@ public class OpsStack extends Stack {
                         .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().activityTelegramForwarderLambdaFunctionName)
                         .ingestHandler(props.sharedNames().activityTelegramForwarderLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().activityTelegramForwarderLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().activityTelegramForwarderProvisionedConcurrencyLambdaAliasArn)
-                        .ingestProvisionedConcurrency(0)
                         .ingestLambdaTimeout(Duration.seconds(10))
                         .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
                         .environment(telegramForwarderEnv)
@@ -253,6 +262,49 @@ public class OpsStack extends Stack {
                 "Created Telegram Forwarder Lambda %s",
                 telegramForwarderLambda.ingestLambda.getNode().getId());
 
+        // ============================================================================
+        // Activity Batch Forwarder Lambda: buffer queue (ActivityStack) → activity bus
+        // ============================================================================
+        // Publishers send one SQS message per activity event (see Lambda.wireActivityBuffer); this drains them in
+        // batches and writes PutEvents 10 entries at a time. The bus name is under its own key so the forwarder is
+        // not itself wired to the buffer.
+        var activityBufferQueue = Queue.fromQueueArn(
+                this,
+                "ActivityBufferQueue",
+                "arn:aws:sqs:%s:%s:%s"
+                        .formatted(this.getRegion(), this.getAccount(), props.sharedNames().activityBufferQueueName));
+        var activityBatchForwarderLambda = new Lambda(
+                this,
+                LambdaProps.builder()
+                        .idPrefix(props.sharedNames().activityBatchForwarderLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().activityBatchForwarderLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().activityBatchForwarderLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().activityBatchForwarderLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().activityBatchForwarderProvisionedConcurrencyLambdaAliasArn)
+                        .ingestLambdaTimeout(Duration.seconds(30))
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .environment(new PopulatedMap<String, String>()
+                                .with("ENVIRONMENT_NAME", props.envName())
+                                .with("ACTIVITY_TARGET_BUS_NAME", props.sharedNames().activityBusName))
+                        .build());
+        activityBatchForwarderLambda.ingestLambda.addEventSource(SqsEventSource.Builder.create(activityBufferQueue)
+                .batchSize(100)
+                .maxBatchingWindow(Duration.seconds(5))
+                .reportBatchItemFailures(true)
+                .build());
+        this.activityBus.grantPutEventsTo(activityBatchForwarderLambda.ingestLambda);
+
+        cfnOutput(this, "ActivityBatchForwarderLambdaArn", activityBatchForwarderLambda.ingestLambda.getFunctionArn());
+        infof(
+                "Created Activity Batch Forwarder Lambda %s on queue %s",
+                activityBatchForwarderLambda.ingestLambda.getNode().getId(),
+                props.sharedNames().activityBufferQueueName);
+
         // ============================================================================
         // Default Bus Rules: CloudFormation + CloudWatch → Telegram Forwarder
         // ============================================================================
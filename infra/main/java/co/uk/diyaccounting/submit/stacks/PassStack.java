@@ -0,0 +1,355 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.stacks;
+
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.KindCdk.cfnOutput;
+
+import co.uk.diyaccounting.submit.SubmitSharedNames;
+import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.ApiLambda;
+import co.uk.diyaccounting.submit.constructs.ApiLambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
+import co.uk.diyaccounting.submit.utils.PopulatedMap;
+import co.uk.diyaccounting.submit.utils.SubHashSaltHelper;
+import java.util.List;
+import org.immutables.value.Value;
+import software.amazon.awscdk.Environment;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.services.dynamodb.ITable;
+import software.amazon.awscdk.services.dynamodb.Table;
+import software.amazon.awscdk.services.iam.Effect;
+import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.logs.ILogGroup;
+import software.constructs.Construct;
+
+/**
+ * Pass API (get, redeem, admin issue, generate and list passes), split out of the AccountStack so it deploys in
+ * parallel with the bundle and other account Lambdas.
+ */
+public class PassStack extends Stack {
+
+    public AbstractApiLambdaProps passGetLambdaProps;
+    public Function passGetLambda;
+    public ILogGroup passGetLambdaLogGroup;
+
+    public AbstractApiLambdaProps passPostLambdaProps;
+    public Function passPostLambda;
+    public ILogGroup passPostLambdaLogGroup;
+
+    public AbstractApiLambdaProps passAdminPostLambdaProps;
+    public Function passAdminPostLambda;
+    public ILogGroup passAdminPostLambdaLogGroup;
+
+    public AbstractApiLambdaProps passGeneratePostLambdaProps;
+    public Function passGeneratePostLambda;
+    public ILogGroup passGeneratePostLambdaLogGroup;
+
+    public AbstractApiLambdaProps passMyPassesGetLambdaProps;
+    public Function passMyPassesGetLambda;
+    public ILogGroup passMyPassesGetLambdaLogGroup;
+
+    public List<AbstractApiLambdaProps> lambdaFunctionProps;
+
+    @Value.Immutable
+    public interface PassStackProps extends StackProps, SubmitStackProps {
+
+        @Override
+        Environment getEnv();
+
+        @Override
+        @Value.Default
+        default Boolean getCrossRegionReferences() {
+            return null;
+        }
+
+        @Override
+        String envName();
+
+        @Override
+        String deploymentName();
+
+        @Override
+        String resourceNamePrefix();
+
+        @Override
+        String cloudTrailEnabled();
+
+        @Override
+        SubmitSharedNames sharedNames();
+
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
+        String baseImageTag();
+
+        static ImmutablePassStackProps.Builder builder() {
+            return ImmutablePassStackProps.builder();
+        }
+    }
+
+    public PassStack(Construct scope, String id, PassStackProps props) {
+        this(scope, id, null, props);
+    }
+
+    public PassStack(Construct scope, String id, StackProps stackProps, PassStackProps props) {
+        super(scope, id, stackProps);
+
+        // Lookup existing DynamoDB Passes Table
+        ITable passesTable = Table.fromTableName(
+                this, "ImportedPassesTable-%s".formatted(props.deploymentName()), props.sharedNames().passesTableName);
+
+        // Lookup existing DynamoDB Bundle Capacity Table
+        ITable bundleCapacityTable = Table.fromTableName(
+                this,
+                "ImportedBundleCapacityTable-%s".formatted(props.deploymentName()),
+                props.sharedNames().bundleCapacityTableName);
+
+        // Lookup existing DynamoDB Bundles Table
+        ITable bundlesTable = Table.fromTableName(
+                this,
+                "ImportedBundlesTable-%s".formatted(props.deploymentName()),
+                props.sharedNames().bundlesTableName);
+
+        // Lambdas
+
+        this.lambdaFunctionProps = new java.util.ArrayList<>();
+
+        var region = props.getEnv() != null ? props.getEnv().getRegion() : "us-east-1";
+        var account = props.getEnv() != null ? props.getEnv().getAccount() : "";
+
+        // Construct EventBridge activity bus ARN for IAM policies
+        var activityBusArn = String.format(
+                "arn:aws:events:%s:%s:event-bus/%s", region, account, props.sharedNames().activityBusName);
+
+        // ============================================================================
+        // Pass GET Lambda (public, no auth)
+        // ============================================================================
+        var passGetLambdaEnv = new PopulatedMap<String, String>()
+                .with("PASSES_DYNAMODB_TABLE_NAME", passesTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName());
+        var passGetApiLambda = new ApiLambda(
+                this,
+                ApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().passGetIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().passGetIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().passGetIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().passGetIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().passGetIngestProvisionedConcurrencyLambdaAliasArn)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().passGetLambdaHttpMethod)
+                        .urlPath(props.sharedNames().passGetLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().passGetLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().passGetLambdaCustomAuthorizer)
+                        .environment(passGetLambdaEnv)
+                        .build());
+        this.passGetLambdaProps = passGetApiLambda.apiProps;
+        this.passGetLambda = passGetApiLambda.ingestLambda;
+        this.passGetLambdaLogGroup = passGetApiLambda.logGroup;
+        this.lambdaFunctionProps.add(this.passGetLambdaProps);
+        passesTable.grantReadData(this.passGetLambda);
+        this.passGetLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("events:PutEvents"))
+                .resources(List.of(activityBusArn))
+                .build());
+        infof("Created Pass GET Lambda %s", this.passGetLambda.getNode().getId());
+
+        // ============================================================================
+        // Pass POST Lambda (JWT auth - redeems pass and grants bundle)
+        // ============================================================================
+        var passPostLambdaEnv = new PopulatedMap<String, String>()
+                .with("PASSES_DYNAMODB_TABLE_NAME", passesTable.getTableName())
+                .with("BUNDLE_DYNAMODB_TABLE_NAME", bundlesTable.getTableName())
+                .with("BUNDLE_CAPACITY_DYNAMODB_TABLE_NAME", bundleCapacityTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName());
+        var passPostApiLambda = new ApiLambda(
+                this,
+                ApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().passPostIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().passPostIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().passPostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().passPostIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().passPostIngestProvisionedConcurrencyLambdaAliasArn)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().passPostLambdaHttpMethod)
+                        .urlPath(props.sharedNames().passPostLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().passPostLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().passPostLambdaCustomAuthorizer)
+                        .environment(passPostLambdaEnv)
+                        .build());
+        this.passPostLambdaProps = passPostApiLambda.apiProps;
+        this.passPostLambda = passPostApiLambda.ingestLambda;
+        this.passPostLambdaLogGroup = passPostApiLambda.logGroup;
+        this.lambdaFunctionProps.add(this.passPostLambdaProps);
+        passesTable.grantReadWriteData(this.passPostLambda);
+        bundlesTable.grantReadWriteData(this.passPostLambda);
+        bundleCapacityTable.grantReadWriteData(this.passPostLambda);
+        SubHashSaltHelper.grantSaltAccess(this.passPostLambda, region, account, props.envName());
+        this.passPostLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("events:PutEvents"))
+                .resources(List.of(activityBusArn))
+                .build());
+        infof("Created Pass POST Lambda %s", this.passPostLambda.getNode().getId());
+
+        // ============================================================================
+        // Pass Admin POST Lambda (JWT auth - generates pass codes)
+        // ============================================================================
+        var passAdminPostLambdaEnv = new PopulatedMap<String, String>()
+                .with("PASSES_DYNAMODB_TABLE_NAME", passesTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName());
+        var passAdminPostApiLambda = new ApiLambda(
+                this,
+                ApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().passAdminPostIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().passAdminPostIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().passAdminPostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().passAdminPostIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().passAdminPostIngestProvisionedConcurrencyLambdaAliasArn)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().passAdminPostLambdaHttpMethod)
+                        .urlPath(props.sharedNames().passAdminPostLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().passAdminPostLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().passAdminPostLambdaCustomAuthorizer)
+                        .environment(passAdminPostLambdaEnv)
+                        .build());
+        this.passAdminPostLambdaProps = passAdminPostApiLambda.apiProps;
+        this.passAdminPostLambda = passAdminPostApiLambda.ingestLambda;
+        this.passAdminPostLambdaLogGroup = passAdminPostApiLambda.logGroup;
+        this.lambdaFunctionProps.add(this.passAdminPostLambdaProps);
+        passesTable.grantReadWriteData(this.passAdminPostLambda);
+        this.passAdminPostLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("events:PutEvents"))
+                .resources(List.of(activityBusArn))
+                .build());
+        infof(
+                "Created Pass Admin POST Lambda %s",
+                this.passAdminPostLambda.getNode().getId());
+
+        // ============================================================================
+        // Pass Generate POST Lambda (JWT auth - user pass generation using tokens)
+        // ============================================================================
+        var passGeneratePostLambdaEnv = new PopulatedMap<String, String>()
+                .with("PASSES_DYNAMODB_TABLE_NAME", passesTable.getTableName())
+                .with("BUNDLE_DYNAMODB_TABLE_NAME", bundlesTable.getTableName())
+                .with("BUNDLE_CAPACITY_DYNAMODB_TABLE_NAME", bundleCapacityTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName());
+        var passGeneratePostApiLambda = new ApiLambda(
+                this,
+                ApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().passGeneratePostIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().passGeneratePostIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().passGeneratePostIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().passGeneratePostIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().passGeneratePostIngestProvisionedConcurrencyLambdaAliasArn)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().passGeneratePostLambdaHttpMethod)
+                        .urlPath(props.sharedNames().passGeneratePostLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().passGeneratePostLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().passGeneratePostLambdaCustomAuthorizer)
+                        .environment(passGeneratePostLambdaEnv)
+                        .build());
+        this.passGeneratePostLambdaProps = passGeneratePostApiLambda.apiProps;
+        this.passGeneratePostLambda = passGeneratePostApiLambda.ingestLambda;
+        this.passGeneratePostLambdaLogGroup = passGeneratePostApiLambda.logGroup;
+        this.lambdaFunctionProps.add(this.passGeneratePostLambdaProps);
+        passesTable.grantReadWriteData(this.passGeneratePostLambda);
+        bundlesTable.grantReadWriteData(this.passGeneratePostLambda);
+        bundleCapacityTable.grantReadData(this.passGeneratePostLambda);
+        SubHashSaltHelper.grantSaltAccess(this.passGeneratePostLambda, region, account, props.envName());
+        this.passGeneratePostLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("events:PutEvents"))
+                .resources(List.of(activityBusArn))
+                .build());
+        infof(
+                "Created Pass Generate POST Lambda %s",
+                this.passGeneratePostLambda.getNode().getId());
+
+        // ============================================================================
+        // Pass My Passes GET Lambda (JWT auth - list user's generated passes)
+        // ============================================================================
+        var passMyPassesGetLambdaEnv = new PopulatedMap<String, String>()
+                .with("PASSES_DYNAMODB_TABLE_NAME", passesTable.getTableName())
+                .with("ACTIVITY_BUS_NAME", props.sharedNames().activityBusName)
+                .with("ENVIRONMENT_NAME", props.envName());
+        var passMyPassesGetApiLambda = new ApiLambda(
+                this,
+                ApiLambdaProps.builder()
+                        .idPrefix(props.sharedNames().passMyPassesGetIngestLambdaFunctionName)
+                        .baseImageTag(props.baseImageTag())
+                        .ecrRepositoryName(props.sharedNames().ecrRepositoryName)
+                        .ecrRepositoryArn(props.sharedNames().ecrRepositoryArn)
+                        .ingestFunctionName(props.sharedNames().passMyPassesGetIngestLambdaFunctionName)
+                        .ingestHandler(props.sharedNames().passMyPassesGetIngestLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
+                        .ingestLambdaArn(props.sharedNames().passMyPassesGetIngestLambdaArn)
+                        .ingestProvisionedConcurrencyAliasArn(
+                                props.sharedNames().passMyPassesGetIngestProvisionedConcurrencyLambdaAliasArn)
+                        .provisionedConcurrencyAliasName(props.sharedNames().provisionedConcurrencyAliasName)
+                        .httpMethod(props.sharedNames().passMyPassesGetLambdaHttpMethod)
+                        .urlPath(props.sharedNames().passMyPassesGetLambdaUrlPath)
+                        .jwtAuthorizer(props.sharedNames().passMyPassesGetLambdaJwtAuthorizer)
+                        .customAuthorizer(props.sharedNames().passMyPassesGetLambdaCustomAuthorizer)
+                        .environment(passMyPassesGetLambdaEnv)
+                        .build());
+        this.passMyPassesGetLambdaProps = passMyPassesGetApiLambda.apiProps;
+        this.passMyPassesGetLambda = passMyPassesGetApiLambda.ingestLambda;
+        this.passMyPassesGetLambdaLogGroup = passMyPassesGetApiLambda.logGroup;
+        this.lambdaFunctionProps.add(this.passMyPassesGetLambdaProps);
+        passesTable.grantReadData(this.passMyPassesGetLambda);
+        SubHashSaltHelper.grantSaltAccess(this.passMyPassesGetLambda, region, account, props.envName());
+        this.passMyPassesGetLambda.addToRolePolicy(PolicyStatement.Builder.create()
+                .effect(Effect.ALLOW)
+                .actions(List.of("events:PutEvents"))
+                .resources(List.of(activityBusArn))
+                .build());
+        infof(
+                "Created Pass My Passes GET Lambda %s",
+                this.passMyPassesGetLambda.getNode().getId());
+
+        cfnOutput(this, "PassGetLambdaArn", this.passGetLambda.getFunctionArn());
+        cfnOutput(this, "PassPostLambdaArn", this.passPostLambda.getFunctionArn());
+        cfnOutput(this, "PassAdminPostLambdaArn", this.passAdminPostLambda.getFunctionArn());
+        cfnOutput(this, "PassGeneratePostLambdaArn", this.passGeneratePostLambda.getFunctionArn());
+        cfnOutput(this, "PassMyPassesGetLambdaArn", this.passMyPassesGetLambda.getFunctionArn());
+
+        infof(
+                "PassStack %s created successfully for %s",
+                this.getNode().getId(), props.sharedNames().dashedDeploymentDomainName);
+    }
+}
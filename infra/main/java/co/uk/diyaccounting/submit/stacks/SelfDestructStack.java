@@ -14,6 +14,7 @@ import static co.uk.diyaccounting.submit.utils.ResourceNameUtils.generateIamComp
 import co.uk.diyaccounting.submit.SubmitSharedNames;
 import co.uk.diyaccounting.submit.constructs.Lambda;
 import co.uk.diyaccounting.submit.constructs.LambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -72,6 +73,12 @@ public class SelfDestructStack extends Stack {
         @Override
         SubmitSharedNames sharedNames();
 
+        /** Lambda sizing and warm capacity from submit.performance.toml, see PerformanceProfile */
+        @Value.Default
+        default PerformanceProfile performanceProfile() {
+            return PerformanceProfile.none();
+        }
+
         String baseImageTag();
 
         String selfDestructLogGroupName();
@@ -177,6 +184,8 @@ public class SelfDestructStack extends Stack {
         putIfNotNull(selfDestructLambdaEnv, "AUTH_STACK_NAME", props.sharedNames().authStackId);
         putIfNotNull(selfDestructLambdaEnv, "HMRC_STACK_NAME", props.sharedNames().hmrcStackId);
         putIfNotNull(selfDestructLambdaEnv, "ACCOUNT_STACK_NAME", props.sharedNames().accountStackId);
+        putIfNotNull(selfDestructLambdaEnv, "BUNDLE_STACK_NAME", props.sharedNames().bundleStackId);
+        putIfNotNull(selfDestructLambdaEnv, "PASS_STACK_NAME", props.sharedNames().passStackId);
         putIfNotNull(selfDestructLambdaEnv, "BILLING_STACK_NAME", props.sharedNames().billingStackId);
         putIfNotNull(selfDestructLambdaEnv, "API_STACK_NAME", props.sharedNames().apiStackId);
         putIfNotNull(selfDestructLambdaEnv, "OPS_STACK_NAME", props.sharedNames().opsStackId);
@@ -209,6 +218,7 @@ public class SelfDestructStack extends Stack {
                         .ecrRepositoryArn(ecrRepositoryArn)
                         .ingestFunctionName(props.sharedNames().selfDestructLambdaFunctionName)
                         .ingestHandler(props.sharedNames().selfDestructLambdaHandler)
+                        .performanceProfile(props.performanceProfile())
                         .ingestLambdaArn(props.sharedNames().selfDestructLambdaArn)
                         .ingestProvisionedConcurrencyAliasArn(
                                 props.sharedNames().selfDestructProvisionedConcurrencyLambdaAliasArn)
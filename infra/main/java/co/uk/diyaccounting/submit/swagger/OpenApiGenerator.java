@@ -176,6 +176,7 @@ public class OpenApiGenerator {
                                         "receipts/00000000-0000-0000-0000-000000000000/2025-03-31-123456789012.json");
                             case "bundleId" -> schema.put("example", "test");
                             case "removeAll" -> schema.put("example", "false");
+                            case "page" -> schema.put("example", "/index.html");
                         }
                         pObj.set("schema", schema);
                         paramsArr.add(pObj);
@@ -29,6 +29,12 @@ import software.amazon.awssdk.utils.StringUtils;
 import software.constructs.Construct;
 
 public class KindCdk {
+
+    // Construct metadata naming the table an ensureTable / ensureTimeToLive custom resource acts on, read by the
+    // performance NagPack (the table itself is created by the SDK call, so it is not in the template)
+    public static final String TABLE_METADATA_TYPE = "submit:dynamodb:table";
+    public static final String TIME_TO_LIVE_METADATA_TYPE = "submit:dynamodb:ttl";
+
     public static CfnOutput cfnOutput(Construct scope, String id, String value) {
         if (StringUtils.isBlank(value)) {
             warnf("CfnOutput value for %s is blank", id);
@@ -199,7 +205,7 @@ public class KindCdk {
                 .ignoreErrorCodesMatching("ResourceInUseException")
                 .build();
 
-        AwsCustomResource.Builder.create(stack, id + "-EnsureTable")
+        var ensureTable = AwsCustomResource.Builder.create(stack, id + "-EnsureTable")
                 .onCreate(createTableCall)
                 .onUpdate(createTableCall)
                 .policy(AwsCustomResourcePolicy.fromStatements(List.of(PolicyStatement.Builder.create()
@@ -208,6 +214,7 @@ public class KindCdk {
                                 + ":table/" + tableName))
                         .build())))
                 .build();
+        ensureTable.getNode().addMetadata(TABLE_METADATA_TYPE, tableName);
 
         return Table.fromTableName(stack, id + "-Table", tableName);
     }
@@ -291,7 +298,7 @@ public class KindCdk {
                 .ignoreErrorCodesMatching("ValidationException")
                 .build();
 
-        AwsCustomResource.Builder.create(stack, id + "-EnsureTTL")
+        var ensureTimeToLive = AwsCustomResource.Builder.create(stack, id + "-EnsureTTL")
                 .onCreate(updateTtlCall)
                 .onUpdate(updateTtlCall)
                 .policy(AwsCustomResourcePolicy.fromStatements(List.of(PolicyStatement.Builder.create()
@@ -300,5 +307,6 @@ public class KindCdk {
                                 + ":table/" + tableName))
                         .build())))
                 .build();
+        ensureTimeToLive.getNode().addMetadata(TIME_TO_LIVE_METADATA_TYPE, tableName);
     }
 }
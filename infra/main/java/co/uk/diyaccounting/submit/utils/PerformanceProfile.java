@@ -0,0 +1,304 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.utils;
+
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.toml.TomlMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.lambda.Architecture;
+
+/**
+ * Lambda sizing and warm capacity from submit.performance.toml, over the values the stacks set in their props. The
+ * [functions] tables apply to every environment and [environments.&lt;envName&gt;.functions] tables override them
+ * setting by setting. Functions are keyed by their SubmitSharedNames function name without the deployment's resource
+ * name prefix (hmrc-vat-return-post), so one file serves every deployment. The ingest settings of a function and
+ * those of its SQS worker share an entry. Every environment's tables are read and checked whichever environment is
+ * synthesised, so a mistake in the prod tables fails a ci synth too.
+ *
+ * <p>Every Lambda construct resolves its values here and the profile keeps what each was created with, logged at the
+ * end of synth and written to performance-profile.json in the cloud assembly.
+ */
+public class PerformanceProfile {
+
+    /** One function's entry, a setting left out keeps the value the stack sets in its props */
+    public record FunctionProfile(
+            Integer ingestMemorySize,
+            Integer ingestLambdaTimeoutSeconds,
+            String ingestArchitecture,
+            Integer ingestProvisionedConcurrency,
+            Integer workerMemorySize,
+            Integer workerLambdaTimeoutSeconds,
+            String workerArchitecture,
+            Integer workerProvisionedConcurrency) {
+
+        public static final FunctionProfile EMPTY = new FunctionProfile(null, null, null, null, null, null, null, null);
+
+        public static final Set<String> SETTINGS = Set.of(
+                "ingestMemorySize",
+                "ingestLambdaTimeoutSeconds",
+                "ingestArchitecture",
+                "ingestProvisionedConcurrency",
+                "workerMemorySize",
+                "workerLambdaTimeoutSeconds",
+                "workerArchitecture",
+                "workerProvisionedConcurrency");
+
+        FunctionProfile overriddenBy(FunctionProfile o) {
+            return new FunctionProfile(
+                    o.ingestMemorySize != null ? o.ingestMemorySize : ingestMemorySize,
+                    o.ingestLambdaTimeoutSeconds != null ? o.ingestLambdaTimeoutSeconds : ingestLambdaTimeoutSeconds,
+                    o.ingestArchitecture != null ? o.ingestArchitecture : ingestArchitecture,
+                    o.ingestProvisionedConcurrency != null
+                            ? o.ingestProvisionedConcurrency
+                            : ingestProvisionedConcurrency,
+                    o.workerMemorySize != null ? o.workerMemorySize : workerMemorySize,
+                    o.workerLambdaTimeoutSeconds != null ? o.workerLambdaTimeoutSeconds : workerLambdaTimeoutSeconds,
+                    o.workerArchitecture != null ? o.workerArchitecture : workerArchitecture,
+                    o.workerProvisionedConcurrency != null
+                            ? o.workerProvisionedConcurrency
+                            : workerProvisionedConcurrency);
+        }
+    }
+
+    /** The values a Lambda function is created with */
+    public record LambdaSettings(
+            int memorySize, Duration timeout, Architecture architecture, int provisionedConcurrency) {}
+
+    /** What a function was created with and which of the values came from the profile rather than its props */
+    public record EffectiveSettings(String functionName, LambdaSettings settings, List<String> fromProfile) {}
+
+    /** The entries for one environment, the base tables with that environment's overrides applied */
+    public final Map<String, FunctionProfile> functions;
+
+    /** The keys of every table in the file by table name, whichever environment the profile was loaded for */
+    private final Map<String, Set<String>> tableKeys;
+
+    private final String functionNamePrefix;
+    private final List<EffectiveSettings> effective = new ArrayList<>();
+
+    public PerformanceProfile(Map<String, FunctionProfile> functions, String functionNamePrefix) {
+        this(functions, Map.of("functions", functions.keySet()), functionNamePrefix);
+    }
+
+    private PerformanceProfile(
+            Map<String, FunctionProfile> functions, Map<String, Set<String>> tableKeys, String functionNamePrefix) {
+        this.functions = Map.copyOf(functions);
+        this.tableKeys = Map.copyOf(tableKeys);
+        this.functionNamePrefix = functionNamePrefix;
+    }
+
+    /** No entries, every function keeps the values in its props */
+    public static PerformanceProfile none() {
+        return new PerformanceProfile(Map.of(), "");
+    }
+
+    public static PerformanceProfile load(String profilePath, String envName, String functionNamePrefix) {
+        if (profilePath == null || profilePath.isBlank()) {
+            throw new IllegalArgumentException(
+                    "No performance profile, set performanceProfilePath in cdk.json or PERFORMANCE_PROFILE_PATH");
+        }
+        Path path = Path.of(profilePath);
+        if (!Files.exists(path)) {
+            throw new IllegalArgumentException("No performance profile at " + path.toAbsolutePath());
+        }
+        try {
+            JsonNode root = new TomlMapper().readTree(path.toFile());
+            Map<String, FunctionProfile> functions = new TreeMap<>(functions(root.path("functions")));
+            Map<String, Set<String>> tableKeys = new TreeMap<>();
+            tableKeys.put("functions", Set.copyOf(functions.keySet()));
+            Map<String, FunctionProfile> overrides = Map.of();
+            for (var environment : root.path("environments").properties()) {
+                var environmentFunctions = functions(environment.getValue().path("functions"));
+                tableKeys.put(
+                        "environments.%s.functions".formatted(environment.getKey()),
+                        Set.copyOf(environmentFunctions.keySet()));
+                if (environment.getKey().equals(envName)) overrides = environmentFunctions;
+            }
+            overrides.forEach((key, override) -> functions.put(
+                    key, functions.getOrDefault(key, FunctionProfile.EMPTY).overriddenBy(override)));
+            infof(
+                    "Loaded performance profile %s with %d functions, %d with overrides for %s",
+                    path, functions.size(), overrides.size(), envName);
+            return new PerformanceProfile(functions, tableKeys, functionNamePrefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read performance profile " + path, e);
+        }
+    }
+
+    private static Map<String, FunctionProfile> functions(JsonNode tables) {
+        Map<String, FunctionProfile> functions = new TreeMap<>();
+        for (var entry : tables.properties()) {
+            var key = entry.getKey();
+            var function = entry.getValue();
+            for (var setting : function.properties()) {
+                if (!FunctionProfile.SETTINGS.contains(setting.getKey())) {
+                    throw new IllegalArgumentException("Unknown setting %s for %s, expected one of %s"
+                            .formatted(setting.getKey(), key, new TreeSet<>(FunctionProfile.SETTINGS)));
+                }
+            }
+            functions.put(
+                    key,
+                    new FunctionProfile(
+                            integer(key, function, "ingestMemorySize", 128, 10240),
+                            integer(key, function, "ingestLambdaTimeoutSeconds", 1, 900),
+                            architecture(key, function, "ingestArchitecture"),
+                            integer(key, function, "ingestProvisionedConcurrency", 0, 1000),
+                            integer(key, function, "workerMemorySize", 128, 10240),
+                            integer(key, function, "workerLambdaTimeoutSeconds", 1, 900),
+                            architecture(key, function, "workerArchitecture"),
+                            integer(key, function, "workerProvisionedConcurrency", 0, 1000)));
+        }
+        return functions;
+    }
+
+    // Lambda accepts 128 MB to 10240 MB of memory and a timeout of up to 15 minutes
+    private static Integer integer(String key, JsonNode function, String setting, int min, int max) {
+        JsonNode value = function.get(setting);
+        if (value == null) return null;
+        if (!value.isInt() || value.asInt() < min || value.asInt() > max) {
+            throw new IllegalArgumentException(
+                    "%s %s for %s is not a whole number from %d to %d".formatted(setting, value, key, min, max));
+        }
+        return value.asInt();
+    }
+
+    private static String architecture(String key, JsonNode function, String setting) {
+        JsonNode value = function.get(setting);
+        if (value == null) return null;
+        var name = value.asText();
+        if (!Architecture.ARM_64.getName().equals(name)
+                && !Architecture.X86_64.getName().equals(name)) {
+            throw new IllegalArgumentException("%s %s for %s is not %s or %s"
+                    .formatted(setting, value, key, Architecture.ARM_64.getName(), Architecture.X86_64.getName()));
+        }
+        return name;
+    }
+
+    /**
+     * Reject entries, in the tables of any environment, that name no function the lookups are keyed by. A mistyped key,
+     * or the name of an SQS worker rather than its ingest function, would otherwise be silently ignored.
+     */
+    public void validate(Collection<String> functionNames) {
+        var known = functionNames.stream().map(this::key).collect(Collectors.toCollection(TreeSet::new));
+        Map<String, Set<String>> unknown = new TreeMap<>();
+        tableKeys.forEach((table, keys) -> {
+            var unknownKeys = new TreeSet<>(keys);
+            unknownKeys.removeAll(known);
+            if (!unknownKeys.isEmpty()) unknown.put(table, unknownKeys);
+        });
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Performance profile entries %s match no function, known functions: %s".formatted(unknown, known));
+        }
+    }
+
+    /** The profile key of a function: its name without the deployment's resource name prefix */
+    public String key(String functionName) {
+        String prefix = functionNamePrefix + "-";
+        return !functionNamePrefix.isEmpty() && functionName.startsWith(prefix)
+                ? functionName.substring(prefix.length())
+                : functionName;
+    }
+
+    public LambdaSettings ingest(String ingestFunctionName, LambdaSettings props) {
+        var f = functions.getOrDefault(key(ingestFunctionName), FunctionProfile.EMPTY);
+        return resolve(
+                ingestFunctionName,
+                props,
+                f.ingestMemorySize(),
+                f.ingestLambdaTimeoutSeconds(),
+                f.ingestArchitecture(),
+                f.ingestProvisionedConcurrency());
+    }
+
+    /** The worker of an ingest function, keyed by the ingest function's entry */
+    public LambdaSettings worker(String ingestFunctionName, String workerFunctionName, LambdaSettings props) {
+        var f = functions.getOrDefault(key(ingestFunctionName), FunctionProfile.EMPTY);
+        return resolve(
+                workerFunctionName,
+                props,
+                f.workerMemorySize(),
+                f.workerLambdaTimeoutSeconds(),
+                f.workerArchitecture(),
+                f.workerProvisionedConcurrency());
+    }
+
+    private synchronized LambdaSettings resolve(
+            String functionName,
+            LambdaSettings props,
+            Integer memorySize,
+            Integer timeoutSeconds,
+            String architecture,
+            Integer provisionedConcurrency) {
+        List<String> fromProfile = new ArrayList<>();
+        if (memorySize != null) fromProfile.add("memorySize");
+        if (timeoutSeconds != null) fromProfile.add("timeout");
+        if (architecture != null) fromProfile.add("architecture");
+        if (provisionedConcurrency != null) fromProfile.add("provisionedConcurrency");
+        var settings = new LambdaSettings(
+                memorySize != null ? memorySize : props.memorySize(),
+                timeoutSeconds != null ? Duration.seconds(timeoutSeconds) : props.timeout(),
+                architecture == null
+                        ? props.architecture()
+                        : Architecture.ARM_64.getName().equals(architecture)
+                                ? Architecture.ARM_64
+                                : Architecture.X86_64,
+                provisionedConcurrency != null ? provisionedConcurrency : props.provisionedConcurrency());
+        effective.add(new EffectiveSettings(functionName, settings, List.copyOf(fromProfile)));
+        return settings;
+    }
+
+    public synchronized List<EffectiveSettings> effective() {
+        return List.copyOf(effective);
+    }
+
+    /** Log the effective values of every Lambda created with this profile and write them to the cloud assembly */
+    public void report(String outdir) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (var e : effective()) {
+            var s = e.settings();
+            infof(
+                    "Lambda %s: %d MB, %ds timeout, %s, provisioned concurrency %d%s",
+                    e.functionName(),
+                    s.memorySize(),
+                    s.timeout().toSeconds().intValue(),
+                    s.architecture().getName(),
+                    s.provisionedConcurrency(),
+                    e.fromProfile().isEmpty() ? "" : " (profile: %s)".formatted(String.join(", ", e.fromProfile())));
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("functionName", e.functionName());
+            row.put("memorySize", s.memorySize());
+            row.put("timeoutSeconds", s.timeout().toSeconds());
+            row.put("architecture", s.architecture().getName());
+            row.put("provisionedConcurrency", s.provisionedConcurrency());
+            row.put("fromProfile", e.fromProfile());
+            rows.add(row);
+        }
+        try {
+            var report = Path.of(outdir, "performance-profile.json");
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(report.toFile(), rows);
+            infof("Wrote the effective Lambda settings to %s", report);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the performance profile report", e);
+        }
+    }
+}
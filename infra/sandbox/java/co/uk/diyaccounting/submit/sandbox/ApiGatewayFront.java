@@ -0,0 +1,275 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stands in for the HTTP API in front of the sandbox's functions: matches each request to the route of an API
+ * function, turns it into a payload format 2.0 event and the function's result back into a response. The authorizers
+ * are emulated as the local server does: the Cognito access token is decoded, not verified (the http-simulator issues
+ * unsigned tokens), and its claims are passed as the JWT authorizer's claims or the custom authorizer's context.
+ */
+final class ApiGatewayFront implements HttpHandler {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    record Route(
+            String routeKey,
+            Pattern path,
+            List<String> parameterNames,
+            boolean jwt,
+            boolean custom,
+            SandboxFunction function) {
+
+        /** {name} matches one path segment and {name+} the rest of the path, as in HTTP API route keys */
+        static Route of(AbstractApiLambdaProps props, SandboxFunction function) {
+            List<String> names = new ArrayList<>();
+            var regex = new StringBuilder();
+            for (String segment : props.urlPath().split("/")) {
+                if (segment.isEmpty()) continue;
+                regex.append('/');
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    var name = segment.substring(1, segment.length() - 1);
+                    boolean greedy = name.endsWith("+");
+                    names.add(greedy ? name.substring(0, name.length() - 1) : name);
+                    regex.append(greedy ? "(.+)" : "([^/]+)");
+                } else {
+                    regex.append(Pattern.quote(segment));
+                }
+            }
+            return new Route(
+                    props.httpMethod() + " " + props.urlPath(),
+                    Pattern.compile(regex.isEmpty() ? "/" : regex.toString()),
+                    List.copyOf(names),
+                    props.jwtAuthorizer(),
+                    props.customAuthorizer(),
+                    function);
+        }
+
+        String method() {
+            return routeKey.substring(0, routeKey.indexOf(' '));
+        }
+    }
+
+    /** A route that matched a request, with the values of its path parameters */
+    record Matched(Route route, Map<String, String> pathParameters) {}
+
+    private final List<Route> routes;
+
+    ApiGatewayFront(List<Route> routes) {
+        // A route with fewer path parameters is the more specific, as HTTP API matches them
+        this.routes = routes.stream()
+                .sorted(Comparator.comparingInt(route -> route.parameterNames().size()))
+                .toList();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            dispatch(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "{\"message\":\"Service Unavailable\"}");
+        } catch (Exception e) {
+            warnf("Request %s %s failed: %s", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+            respond(exchange, 500, "{\"message\":\"Internal Server Error\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException, InterruptedException {
+        var matched =
+                match(exchange.getRequestMethod(), exchange.getRequestURI().getRawPath());
+        if (matched == null) {
+            respond(exchange, 404, "{\"message\":\"Not Found\"}");
+            return;
+        }
+        var headers = headers(exchange);
+        var authorizer = authorizer(matched.route(), headers);
+        if (authorizer == null) {
+            respond(exchange, 401, "{\"message\":\"Unauthorized\"}");
+            return;
+        }
+        var event = event(exchange, matched, headers, authorizer);
+        var result = JSON.readTree(matched.route().function().invoke(JSON.writeValueAsString(event)));
+        respond(exchange, result);
+    }
+
+    /** The most specific route for a method and raw path, null when none matches */
+    Matched match(String method, String rawPath) {
+        for (Route route : routes) {
+            if (!route.method().equals(method)) continue;
+            Matcher matcher = route.path().matcher(rawPath);
+            if (!matcher.matches()) continue;
+            Map<String, String> pathParameters = new LinkedHashMap<>();
+            for (int i = 0; i < route.parameterNames().size(); i++) {
+                pathParameters.put(route.parameterNames().get(i), decode(matcher.group(i + 1)));
+            }
+            return new Matched(route, pathParameters);
+        }
+        return null;
+    }
+
+    // Lower case names, repeated headers joined by commas, with the viewer headers CloudFront adds in a deployment
+    private static Map<String, String> headers(HttpExchange exchange) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        exchange.getRequestHeaders()
+                .forEach((name, values) -> headers.put(name.toLowerCase(), String.join(",", values)));
+        var remote = exchange.getRemoteAddress();
+        var clientIp = remote.getAddress().getHostAddress();
+        headers.putIfAbsent("x-forwarded-for", clientIp);
+        headers.putIfAbsent("cloudfront-viewer-address", "%s:%d".formatted(clientIp, remote.getPort()));
+        return headers;
+    }
+
+    /** The requestContext.authorizer of a route, empty for a public route and null when the request is refused */
+    private static ObjectNode authorizer(Route route, Map<String, String> headers) {
+        var authorizer = JSON.createObjectNode();
+        if (route.jwt()) {
+            var claims = claims(headers.get("authorization"));
+            if (claims == null) return null;
+            authorizer.putObject("jwt").set("claims", claims);
+        } else if (route.custom()) {
+            var claims = claims(headers.get("x-authorization"));
+            if (claims == null) return null;
+            // A Lambda authorizer's context holds simple values, as customAuthorizer.js flattens the claims
+            var context = authorizer.putObject("lambda");
+            claims.properties()
+                    .forEach(e -> context.put(
+                            e.getKey(),
+                            e.getValue().isValueNode()
+                                    ? e.getValue().asText()
+                                    : e.getValue().toString()));
+            context.put(
+                    "username",
+                    claims.path("cognito:username").asText(claims.path("sub").asText()));
+        }
+        return authorizer;
+    }
+
+    private static ObjectNode claims(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        var parts = authorization.substring(7).trim().split("\\.");
+        if (parts.length < 2) return null;
+        try {
+            return JSON.readTree(Base64.getUrlDecoder().decode(parts[1])) instanceof ObjectNode claims ? claims : null;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ObjectNode event(
+            HttpExchange exchange, Matched matched, Map<String, String> headers, ObjectNode authorizer)
+            throws IOException {
+        var route = matched.route();
+        var uri = exchange.getRequestURI();
+        var event = JSON.createObjectNode();
+        event.put("version", "2.0");
+        event.put("routeKey", route.routeKey());
+        event.put("rawPath", uri.getRawPath());
+        event.put("rawQueryString", uri.getRawQuery() == null ? "" : uri.getRawQuery());
+        var eventHeaders = event.putObject("headers");
+        headers.forEach(eventHeaders::put);
+        if (uri.getRawQuery() != null && !uri.getRawQuery().isEmpty()) {
+            var parameters = event.putObject("queryStringParameters");
+            for (String pair : uri.getRawQuery().split("&")) {
+                var nameValue = pair.split("=", 2);
+                var name = decode(nameValue[0]);
+                var value = nameValue.length > 1 ? decode(nameValue[1]) : "";
+                parameters.put(name, parameters.has(name) ? parameters.get(name).asText() + "," + value : value);
+            }
+        }
+        if (!matched.pathParameters().isEmpty()) {
+            var parameters = event.putObject("pathParameters");
+            matched.pathParameters().forEach(parameters::put);
+        }
+        var requestContext = event.putObject("requestContext");
+        requestContext.put("accountId", LocalAws.ACCOUNT);
+        requestContext.put("apiId", "sandbox");
+        if (!authorizer.isEmpty()) requestContext.set("authorizer", authorizer);
+        requestContext.put("domainName", headers.getOrDefault("host", "localhost"));
+        requestContext
+                .putObject("http")
+                .put("method", exchange.getRequestMethod())
+                .put("path", uri.getRawPath())
+                .put("protocol", exchange.getProtocol())
+                .put("sourceIp", exchange.getRemoteAddress().getAddress().getHostAddress())
+                .put("userAgent", headers.getOrDefault("user-agent", ""));
+        requestContext.put("requestId", UUID.randomUUID().toString());
+        requestContext.put("routeKey", route.routeKey());
+        requestContext.put("stage", "$default");
+        requestContext.put("timeEpoch", System.currentTimeMillis());
+        var body = exchange.getRequestBody().readAllBytes();
+        if (body.length > 0) event.put("body", new String(body, StandardCharsets.UTF_8));
+        event.put("isBase64Encoded", false);
+        return event;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /** A function error is a 500, a result without a statusCode is the JSON body of a 200, as HTTP API does */
+    private static void respond(HttpExchange exchange, JsonNode result) throws IOException {
+        if (result.has("errorType")) {
+            warnf(
+                    "%s returned %s: %s",
+                    exchange.getRequestURI(), result.path("errorType"), result.path("errorMessage"));
+            respond(exchange, 500, "{\"message\":\"Internal Server Error\"}");
+            return;
+        }
+        if (!result.has("statusCode")) {
+            respond(exchange, 200, result.toString());
+            return;
+        }
+        var responseHeaders = exchange.getResponseHeaders();
+        result.path("headers")
+                .properties()
+                .forEach(e -> responseHeaders.set(e.getKey(), e.getValue().asText()));
+        result.path("multiValueHeaders").properties().forEach(e -> {
+            responseHeaders.remove(e.getKey());
+            e.getValue().forEach(value -> responseHeaders.add(e.getKey(), value.asText()));
+        });
+        result.path("cookies").forEach(cookie -> responseHeaders.add("Set-Cookie", cookie.asText()));
+        var body = result.path("body").asText("");
+        var bytes = result.path("isBase64Encoded").asBoolean()
+                ? Base64.getDecoder().decode(body)
+                : body.getBytes(StandardCharsets.UTF_8);
+        send(exchange, result.path("statusCode").asInt(200), bytes);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        send(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        boolean noBody = body.length == 0 || status == 204 || status == 304;
+        exchange.sendResponseHeaders(status, noBody ? -1 : body.length);
+        if (!noBody) exchange.getResponseBody().write(body);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.assertions.Template;
+
+/**
+ * The AWS JSON protocol calls the sandbox makes to DynamoDB Local and ElasticMQ. Neither checks signatures, so requests
+ * carry an unsigned Authorization header naming the sandbox's access key and region.
+ */
+final class LocalAws {
+
+    static final String REGION = "eu-west-2";
+    static final String ACCOUNT = "000000000000";
+    static final String ACCESS_KEY = "sandbox";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient http =
+            HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final URI dynamoDbEndpoint;
+    private final URI sqsEndpoint;
+
+    LocalAws(URI dynamoDbEndpoint, URI sqsEndpoint) {
+        this.dynamoDbEndpoint = dynamoDbEndpoint;
+        this.sqsEndpoint = sqsEndpoint;
+    }
+
+    JsonNode dynamoDb(String action, JsonNode request) throws IOException, InterruptedException {
+        return call(dynamoDbEndpoint, "DynamoDB_20120810." + action, "dynamodb", request);
+    }
+
+    JsonNode sqs(String action, JsonNode request) throws IOException, InterruptedException {
+        return call(sqsEndpoint, "AmazonSQS." + action, "sqs", request);
+    }
+
+    private JsonNode call(URI endpoint, String target, String service, JsonNode body)
+            throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(endpoint)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-amz-json-1.0")
+                .header("X-Amz-Target", target)
+                .header(
+                        "Authorization",
+                        "AWS4-HMAC-SHA256 Credential=%s/20260101/%s/%s/aws4_request, SignedHeaders=host, Signature=0"
+                                .formatted(ACCESS_KEY, REGION, service))
+                .POST(HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(body)))
+                .build();
+        var response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(
+                    "%s failed with %d: %s".formatted(target, response.statusCode(), response.body()));
+        }
+        return response.body().isBlank() ? JSON.createObjectNode() : JSON.readTree(response.body());
+    }
+
+    /**
+     * Replay the DynamoDB calls of a stack's ensureTable, ensureGlobalSecondaryIndex and ensureTimeToLive custom
+     * resources (createTable, then updateTable and updateTimeToLive), so the local tables have the keys, indexes and
+     * TTL of the deployed ones. Returns the names of the tables created.
+     */
+    List<String> replayDynamoDbCalls(Stack stack) throws IOException, InterruptedException {
+        List<JsonNode> calls = new ArrayList<>();
+        for (Map<String, Object> resource :
+                Template.fromStack(stack).findResources("Custom::AWS").values()) {
+            if (!(resource.get("Properties") instanceof Map<?, ?> properties)) continue;
+            if (!(properties.get("Create") instanceof String create)) {
+                warnf("Skipping custom resource with a resolved at deploy time call: %s", properties.get("Create"));
+                continue;
+            }
+            var call = JSON.readTree(create);
+            if ("DynamoDB".equals(call.path("service").asText())) calls.add(call);
+        }
+        calls.sort(Comparator.comparing(
+                call -> !"createTable".equals(call.path("action").asText())));
+        List<String> tables = new ArrayList<>();
+        for (JsonNode call : calls) {
+            var action = call.path("action").asText();
+            var parameters = decodeBooleans(call.path("parameters").deepCopy());
+            dynamoDb(Character.toUpperCase(action.charAt(0)) + action.substring(1), parameters);
+            if ("createTable".equals(action))
+                tables.add(parameters.path("TableName").asText());
+        }
+        infof("Replayed %d DynamoDB calls of %s creating %d tables", calls.size(), stack.getStackName(), tables.size());
+        return List.copyOf(tables);
+    }
+
+    // AwsCustomResource sends booleans as "TRUE:BOOLEAN" and "FALSE:BOOLEAN" and its handler decodes them
+    static JsonNode decodeBooleans(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            object.properties().forEach(e -> object.set(e.getKey(), decodeBooleans(e.getValue())));
+        } else if (node instanceof ArrayNode array) {
+            for (int i = 0; i < array.size(); i++) array.set(i, decodeBooleans(array.get(i)));
+        } else if (node.isTextual() && node.asText().endsWith(":BOOLEAN")) {
+            return BooleanNode.valueOf(node.asText().startsWith("TRUE"));
+        }
+        return node;
+    }
+
+    /** The URL of a queue as the containers on the sandbox network address ElasticMQ */
+    static String queueUrl(String queueName) {
+        return "http://%s:%d/%s/%s".formatted(PerformanceSandbox.ELASTICMQ_ALIAS, 9324, ACCOUNT, queueName);
+    }
+
+    /** Create a queue, with a redrive policy to a dead letter queue when one is named, and return its URL */
+    String createQueue(String queueName, String deadLetterQueueName, int maxReceiveCount, Duration visibilityTimeout)
+            throws IOException, InterruptedException {
+        var request = JSON.createObjectNode().put("QueueName", queueName);
+        var attributes =
+                request.putObject("Attributes").put("VisibilityTimeout", String.valueOf(visibilityTimeout.toSeconds()));
+        if (deadLetterQueueName != null) {
+            attributes.put(
+                    "RedrivePolicy",
+                    JSON.writeValueAsString(Map.of(
+                            "deadLetterTargetArn", queueArn(deadLetterQueueName), "maxReceiveCount", maxReceiveCount)));
+        }
+        sqs("CreateQueue", request);
+        return queueUrl(queueName);
+    }
+
+    String queueArn(String queueName) throws IOException, InterruptedException {
+        return sqs(
+                        "GetQueueAttributes",
+                        JSON.createObjectNode()
+                                .put("QueueUrl", queueUrl(queueName))
+                                .set("AttributeNames", JSON.createArrayNode().add("QueueArn")))
+                .path("Attributes")
+                .path("QueueArn")
+                .asText();
+    }
+}
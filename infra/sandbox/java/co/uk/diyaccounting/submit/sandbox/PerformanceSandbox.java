@@ -0,0 +1,350 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static co.uk.diyaccounting.submit.utils.Kind.envOr;
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import co.uk.diyaccounting.submit.SubmitApplication;
+import co.uk.diyaccounting.submit.constructs.AbstractApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.AsyncApiLambdaProps;
+import co.uk.diyaccounting.submit.stacks.DataStack;
+import co.uk.diyaccounting.submit.utils.KindCdk;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile.EffectiveSettings;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile.LambdaSettings;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Volume;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.lifecycle.Startables;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.AppProps;
+import software.amazon.awscdk.Token;
+
+/**
+ * A single machine stand-in for a deployment, to measure the latency and throughput of the API without deploying to
+ * AWS. Builds the application stacks from the cdk.json context and fixed deployment of CdkTestFixture, the same as the
+ * CDK resource tests (the sandbox profile's run-sandbox execution sources cdk-test-deployment.env), and runs with
+ * Testcontainers:
+ * <ul>
+ *   <li>DynamoDB Local, with the tables DataStack ensures, created by replaying its createTable, updateTable and
+ *       updateTimeToLive calls</li>
+ *   <li>ElasticMQ, with each async function's queues, named from SubmitSharedNames and with the redrive policies the
+ *       stacks give them</li>
+ *   <li>the http-simulator in place of HMRC and Cognito</li>
+ *   <li>the Lambda image under the Runtime Interface Emulator for each API function and SQS worker, with the
+ *       environment its stack gives it and the memory size and timeout from submit.performance.toml</li>
+ * </ul>
+ * An HTTP API stand-in (ApiGatewayFront) routes requests to the functions and SQS event sources feed the workers.
+ * Run npm run docker:build first so the image holds the current handlers, then point the load test at the sandbox:
+ * <pre>
+ *   ./mvnw -P sandbox test-compile exec:exec@run-sandbox
+ *   LOAD_BASE_URL=http://localhost:3100/ ./mvnw -P loadtest test-compile exec:exec@run-load-test
+ * </pre>
+ * Services the sandbox does not run are left out of the functions' environments so the handlers take their local
+ * paths: secrets come from SANDBOX_ENV_FILE in place of Secrets Manager, the async routes use their queues in place of
+ * an Express state machine, HMRC API requests are not delivered to Firehose and activity events, which nothing in the
+ * sandbox would consume, are not sent at all. The containers' logs, with the
+ * emulator's REPORT line for each invocation, are written to SANDBOX_LOG_DIR on shutdown.
+ */
+public class PerformanceSandbox implements AutoCloseable {
+
+    static final String DYNAMODB_ALIAS = "dynamodb";
+    static final String ELASTICMQ_ALIAS = "elasticmq";
+    static final String SIMULATOR_ALIAS = "http-simulator";
+
+    static final String DYNAMODB_IMAGE = "amazon/dynamodb-local:2.6.0";
+    static final String ELASTICMQ_IMAGE = "softwaremill/elasticmq-native:1.6.11";
+    static final String SIMULATOR_IMAGE = "node:24-slim";
+
+    // Values the handlers read from the environment when run locally in place of the secrets the stacks give them ARNs
+    static final Set<String> SECRET_VARIABLES =
+            Set.of("USER_SUB_HASH_SALT", "EMAIL_HASH_SECRET", "HMRC_CLIENT_SECRET", "HMRC_SANDBOX_CLIENT_SECRET");
+
+    // Services the sandbox does not run, blank in the functions' environments so the handlers skip them
+    static final Set<String> BLANKED_VARIABLES = Set.of("HMRC_API_REQUESTS_DELIVERY_STREAM_NAME", "ACTIVITY_BUS_NAME");
+
+    private final String image;
+    private final int instances;
+    private final Path logDir;
+    private final Network network = Network.newNetwork();
+    private final List<GenericContainer<?>> services = new ArrayList<>();
+    private final Map<String, SandboxFunction> functions = new LinkedHashMap<>();
+    private final List<Thread> eventSources = new ArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private HttpServer server;
+
+    public PerformanceSandbox(String image, int instances, Path logDir) {
+        this.image = image;
+        this.instances = instances;
+        this.logDir = logDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var image = envOr("SANDBOX_IMAGE", "submit-base:latest");
+        var port = Integer.parseInt(envOr("SANDBOX_PORT", "3100"));
+        var instances = Integer.parseInt(envOr("SANDBOX_INSTANCES", "1"));
+        var only = Arrays.stream(envOr("SANDBOX_FUNCTIONS", "").split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toSet());
+        var envFile = Path.of(envOr("SANDBOX_ENV_FILE", ".env.simulator"));
+        var logDir = Path.of(envOr("SANDBOX_LOG_DIR", "target/sandbox"));
+        var seconds = Long.parseLong(envOr("SANDBOX_DURATION_SECONDS", "0"));
+
+        var app = new App(
+                AppProps.builder().context(CdkTestFixture.applicationContext()).build());
+        var appProps = SubmitApplication.loadAppProps(app, "cdk-application/");
+        var application = new SubmitApplication(app, appProps);
+        var dataStack = new DataStack(
+                new App(),
+                application.sharedNames.dataStackId,
+                DataStack.DataStackProps.builder()
+                        .env(KindCdk.buildPrimaryEnvironment())
+                        .envName(envOr("ENVIRONMENT_NAME", appProps.envName))
+                        .deploymentName(envOr("DEPLOYMENT_NAME", appProps.deploymentName))
+                        .resourceNamePrefix(application.sharedNames.envResourceNamePrefix)
+                        .cloudTrailEnabled("false")
+                        .sharedNames(application.sharedNames)
+                        .build());
+
+        var sandbox = new PerformanceSandbox(image, instances, logDir);
+        Runtime.getRuntime().addShutdownHook(new Thread(sandbox::close));
+        sandbox.start(application, dataStack, only, secrets(envFile), port);
+        if (seconds > 0) {
+            Thread.sleep(Duration.ofSeconds(seconds));
+            System.exit(0);
+        }
+        new CountDownLatch(1).await();
+    }
+
+    public void start(
+            SubmitApplication application, DataStack dataStack, Set<String> only, Map<String, String> secrets, int port)
+            throws IOException, InterruptedException {
+        var baseUrl = "http://localhost:%d/".formatted(port);
+        var dynamoDb =
+                service(DYNAMODB_IMAGE, DYNAMODB_ALIAS, 8000).withCommand("-jar DynamoDBLocal.jar -inMemory -sharedDb");
+        var elasticMq = service(ELASTICMQ_IMAGE, ELASTICMQ_ALIAS, 9324);
+        var simulator = service(SIMULATOR_IMAGE, SIMULATOR_ALIAS, 9000)
+                .withEnv("TEST_HTTP_SIMULATOR_PORT", "9000")
+                .withWorkingDirectory("/workspace")
+                .withCommand("node", "app/http-simulator/server.js")
+                .withCreateContainerCmdModifier(cmd -> cmd.getHostConfig()
+                        .withBinds(new Bind(
+                                Path.of("").toAbsolutePath().toString(), new Volume("/workspace"), AccessMode.ro)));
+        Startables.deepStart(services).join();
+        var aws = new LocalAws(endpoint(dynamoDb, 8000), endpoint(elasticMq, 9324));
+        aws.replayDynamoDbCalls(dataStack);
+
+        var profile = application.performanceProfile;
+        Map<String, LambdaSettings> settings = profile.effective().stream()
+                .collect(Collectors.toMap(
+                        EffectiveSettings::functionName, EffectiveSettings::settings, (first, last) -> last));
+        List<AbstractApiLambdaProps> apiFunctions = new ArrayList<>();
+        apiFunctions.addAll(application.authStack.lambdaFunctionProps);
+        apiFunctions.addAll(application.hmrcStack.lambdaFunctionProps);
+        apiFunctions.addAll(application.accountStack.lambdaFunctionProps);
+        apiFunctions.addAll(application.bundleStack.lambdaFunctionProps);
+        apiFunctions.addAll(application.passStack.lambdaFunctionProps);
+        apiFunctions.addAll(application.billingStack.lambdaFunctionProps);
+
+        List<ApiGatewayFront.Route> routes = new ArrayList<>();
+        Map<AsyncApiLambdaProps, SandboxFunction> workers = new LinkedHashMap<>();
+        for (AbstractApiLambdaProps props : apiFunctions) {
+            var key = profile.key(props.ingestFunctionName());
+            if (!only.isEmpty() && !only.contains(key)) continue;
+            var function = functions.get(key);
+            if (function == null) {
+                var environment = environment(props, secrets, baseUrl);
+                function = new SandboxFunction(
+                        key,
+                        props.ingestFunctionName(),
+                        image,
+                        props.ingestHandler(),
+                        environment,
+                        settingsOf(settings, props.ingestFunctionName()),
+                        instances,
+                        network);
+                functions.put(key, function);
+                if (props instanceof AsyncApiLambdaProps async) {
+                    var workerKey = profile.key(async.workerFunctionName());
+                    var worker = new SandboxFunction(
+                            workerKey,
+                            async.workerFunctionName(),
+                            image,
+                            async.workerHandler(),
+                            environment,
+                            settingsOf(settings, async.workerFunctionName()),
+                            instances,
+                            network);
+                    functions.put(workerKey, worker);
+                    workers.put(async, worker);
+                }
+            }
+            routes.add(ApiGatewayFront.Route.of(props, function));
+        }
+        infof("Starting %d functions with %d containers each", functions.size(), instances);
+        Startables.deepStart(functions.values().stream()
+                        .flatMap(function -> function.containers.stream())
+                        .toList())
+                .join();
+        functions.values().forEach(SandboxFunction::ready);
+
+        for (var entry : workers.entrySet()) {
+            var async = entry.getKey();
+            aws.createQueue(async.workerDeadLetterQueueName(), null, 0, toDuration(async.queueVisibilityTimeout()));
+            List<String> queueNames = new ArrayList<>(List.of(async.workerQueueName()));
+            if (async.highPriorityQueueMaximumConcurrency() > 0) queueNames.add(async.workerQueueName() + "-high");
+            for (String queueName : queueNames) {
+                var queueUrl = aws.createQueue(
+                        queueName,
+                        async.workerDeadLetterQueueName(),
+                        async.workerMaxReceiveCount(),
+                        toDuration(async.queueVisibilityTimeout()));
+                var queueArn = aws.queueArn(queueName);
+                for (int i = 0; i < instances; i++) {
+                    eventSources.add(Thread.ofVirtual()
+                            .name("%s-%d".formatted(queueName, i))
+                            .start(new SqsEventSource(aws, queueUrl, queueArn, entry.getValue())));
+                }
+            }
+        }
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", new ApiGatewayFront(routes));
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        for (var route : routes) {
+            infof("%-40s -> %s", route.routeKey(), route.function().functionName);
+        }
+        infof(
+                "Sandbox API at %s, DynamoDB Local at %s, ElasticMQ at %s, http-simulator at %s",
+                baseUrl, endpoint(dynamoDb, 8000), endpoint(elasticMq, 9324), endpoint(simulator, 9000));
+    }
+
+    @SuppressWarnings("resource") // Stopped by close()
+    private GenericContainer<?> service(String serviceImage, String alias, int port) {
+        var container = new GenericContainer<>(DockerImageName.parse(serviceImage))
+                .withNetwork(network)
+                .withNetworkAliases(alias)
+                .withExposedPorts(port)
+                .waitingFor(Wait.forHttp("/").forPort(port).forStatusCodeMatching(status -> true));
+        services.add(container);
+        return container;
+    }
+
+    private static URI endpoint(GenericContainer<?> container, int port) {
+        return URI.create("http://%s:%d".formatted(container.getHost(), container.getMappedPort(port)));
+    }
+
+    /**
+     * The environment a function's stack gives it, the PopulatedMap in its props plus the queue URLs the Lambda construct
+     * adds for an async function, with the AWS endpoints, the HMRC and Cognito base URIs and the site's base URL pointed
+     * at the sandbox. ARNs, the Firehose stream and the activity bus are blanked so the handlers skip those services.
+     */
+    static Map<String, String> environment(AbstractApiLambdaProps props, Map<String, String> secrets, String baseUrl) {
+        var simulatorUri = "http://%s:9000".formatted(SIMULATOR_ALIAS);
+        Map<String, String> environment = new TreeMap<>();
+        props.environment().forEach((name, value) -> {
+            if (Token.isUnresolved(value)) {
+                warnf(
+                        "Leaving %s out of the environment of %s, it is resolved at deploy time",
+                        name, props.ingestFunctionName());
+            } else if (name.endsWith("_ARN") || BLANKED_VARIABLES.contains(name)) {
+                environment.put(name, "");
+            } else {
+                environment.put(name, value);
+            }
+        });
+        if (props instanceof AsyncApiLambdaProps async) {
+            environment.put("SQS_QUEUE_URL", LocalAws.queueUrl(async.workerQueueName()));
+            if (async.highPriorityQueueMaximumConcurrency() > 0) {
+                environment.put("SQS_HIGH_PRIORITY_QUEUE_URL", LocalAws.queueUrl(async.workerQueueName() + "-high"));
+            }
+        }
+        for (String name : List.of("HMRC_BASE_URI", "HMRC_SANDBOX_BASE_URI", "COGNITO_BASE_URI")) {
+            environment.computeIfPresent(name, (n, value) -> simulatorUri);
+        }
+        environment.computeIfPresent("DIY_SUBMIT_BASE_URL", (n, value) -> baseUrl);
+        environment.putAll(secrets);
+        environment.put("AWS_REGION", LocalAws.REGION);
+        environment.put("AWS_DEFAULT_REGION", LocalAws.REGION);
+        environment.put("AWS_ACCESS_KEY_ID", LocalAws.ACCESS_KEY);
+        environment.put("AWS_SECRET_ACCESS_KEY", LocalAws.ACCESS_KEY);
+        environment.put("AWS_ENDPOINT_URL_DYNAMODB", "http://%s:8000".formatted(DYNAMODB_ALIAS));
+        environment.put("AWS_ENDPOINT_URL_SQS", "http://%s:9324".formatted(ELASTICMQ_ALIAS));
+        return environment;
+    }
+
+    private static LambdaSettings settingsOf(Map<String, LambdaSettings> settings, String functionName) {
+        var functionSettings = settings.get(functionName);
+        if (functionSettings == null) {
+            throw new IllegalStateException("No Lambda construct was created for " + functionName);
+        }
+        return functionSettings;
+    }
+
+    private static Duration toDuration(software.amazon.awscdk.Duration duration) {
+        return Duration.ofSeconds(duration.toSeconds().longValue());
+    }
+
+    /** The SECRET_VARIABLES set in a dotenv file, by default .env.simulator */
+    static Map<String, String> secrets(Path envFile) {
+        try {
+            Map<String, String> secrets = new TreeMap<>();
+            for (String line : Files.readAllLines(envFile)) {
+                var nameValue = line.split("=", 2);
+                if (nameValue.length == 2 && SECRET_VARIABLES.contains(nameValue[0].trim())) {
+                    secrets.put(nameValue[0].trim(), nameValue[1].trim());
+                }
+            }
+            return secrets;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the sandbox secrets from " + envFile, e);
+        }
+    }
+
+    /** Stop the front and the event sources, write the function logs and stop every container */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (server != null) server.stop(0);
+        eventSources.forEach(Thread::interrupt);
+        try {
+            Files.createDirectories(logDir);
+        } catch (IOException e) {
+            warnf("Could not create %s: %s", logDir, e.getMessage());
+        }
+        functions.values().forEach(function -> function.close(logDir));
+        services.forEach(GenericContainer::stop);
+        network.close();
+        infof("Stopped the sandbox, function logs are in %s", logDir);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import co.uk.diyaccounting.submit.tuning.PowerTuning;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile.LambdaSettings;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * One Lambda function of the sandbox: containers of the Lambda image running its handler under the Runtime Interface
+ * Emulator, each limited to the memory and CPU share Lambda gives its memory size. The emulator runs one invocation at
+ * a time, as an execution environment does, so each invocation takes a free container and waits for one while all are
+ * busy, like requests beyond a function's concurrency.
+ */
+final class SandboxFunction {
+
+    final String key;
+    final String functionName;
+    final List<GenericContainer<?>> containers = new ArrayList<>();
+
+    private final Duration timeout;
+    private final BlockingQueue<URI> idle = new LinkedBlockingQueue<>();
+    private final HttpClient http =
+            HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @SuppressWarnings("resource") // Stopped by close()
+    SandboxFunction(
+            String key,
+            String functionName,
+            String image,
+            String handler,
+            Map<String, String> environment,
+            LambdaSettings settings,
+            int instances,
+            Network network) {
+        this.key = key;
+        this.functionName = functionName;
+        this.timeout = Duration.ofSeconds(settings.timeout().toSeconds().longValue());
+        int memorySize = settings.memorySize();
+        for (int i = 0; i < instances; i++) {
+            containers.add(new GenericContainer<>(DockerImageName.parse(image))
+                    .withNetwork(network)
+                    .withEnv(environment)
+                    .withEnv("AWS_LAMBDA_FUNCTION_NAME", functionName)
+                    .withEnv("AWS_LAMBDA_FUNCTION_MEMORY_SIZE", String.valueOf(memorySize))
+                    .withEnv("AWS_LAMBDA_FUNCTION_TIMEOUT", String.valueOf(timeout.toSeconds()))
+                    .withCommand(handler)
+                    .withExposedPorts(8080)
+                    .withCreateContainerCmdModifier(cmd -> cmd.getHostConfig()
+                            .withMemory(memorySize * 1024L * 1024L)
+                            .withNanoCPUs((long) (Math.max(0.05, memorySize / PowerTuning.MB_PER_VCPU) * 1e9)))
+                    // Any response means the emulator is listening, a GET is not an invocation
+                    .waitingFor(Wait.forHttp("/").forPort(8080).forStatusCodeMatching(status -> true)));
+        }
+    }
+
+    /** Take the started containers into use */
+    void ready() {
+        for (GenericContainer<?> container : containers) {
+            idle.add(URI.create("http://%s:%d/2015-03-31/functions/function/invocations"
+                    .formatted(container.getHost(), container.getMappedPort(8080))));
+        }
+    }
+
+    /** Invoke with an event on a free container and return the function's result, or the emulator's error */
+    String invoke(String event) throws IOException, InterruptedException {
+        URI uri = idle.take();
+        try {
+            var request = HttpRequest.newBuilder(uri)
+                    .timeout(timeout.plusSeconds(10))
+                    .POST(HttpRequest.BodyPublishers.ofString(event))
+                    .build();
+            return http.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        } finally {
+            idle.add(uri);
+        }
+    }
+
+    /** Write each container's log, with the emulator's REPORT lines, to the log directory and stop it */
+    void close(Path logDir) {
+        for (int i = 0; i < containers.size(); i++) {
+            var container = containers.get(i);
+            if (!container.isRunning()) continue;
+            try {
+                Files.writeString(logDir.resolve("%s-%d.log".formatted(key, i)), container.getLogs());
+            } catch (IOException | RuntimeException e) {
+                warnf("Could not write the log of %s container %d: %s", key, i, e.getMessage());
+            }
+            container.stop();
+        }
+    }
+}
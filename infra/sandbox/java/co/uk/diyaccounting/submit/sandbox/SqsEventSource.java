@@ -0,0 +1,115 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+
+/**
+ * Stands in for the SQS event source mapping of an async function's worker: long polls one of its queues and invokes
+ * the worker with each message as an event of one record, the batch size the stacks configure, deleting the message
+ * unless the invocation fails or reports it in batchItemFailures. A message that keeps failing moves to the dead
+ * letter queue through the queue's redrive policy, as in SQS.
+ */
+final class SqsEventSource implements Runnable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final LocalAws aws;
+    private final String queueUrl;
+    private final String queueArn;
+    private final SandboxFunction worker;
+
+    SqsEventSource(LocalAws aws, String queueUrl, String queueArn, SandboxFunction worker) {
+        this.aws = aws;
+        this.queueUrl = queueUrl;
+        this.queueArn = queueArn;
+        this.worker = worker;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                var received = aws.sqs(
+                        "ReceiveMessage",
+                        JSON.createObjectNode()
+                                .put("QueueUrl", queueUrl)
+                                .put("MaxNumberOfMessages", 1)
+                                .put("WaitTimeSeconds", 20)
+                                .<ObjectNode>set(
+                                        "MessageSystemAttributeNames",
+                                        JSON.createArrayNode().add("All"))
+                                .set(
+                                        "MessageAttributeNames",
+                                        JSON.createArrayNode().add("All")));
+                for (JsonNode message : received.path("Messages")) {
+                    var result = JSON.readTree(worker.invoke(JSON.writeValueAsString(event(message))));
+                    if (succeeded(result, message.path("MessageId").asText())) {
+                        aws.sqs(
+                                "DeleteMessage",
+                                JSON.createObjectNode()
+                                        .put("QueueUrl", queueUrl)
+                                        .put(
+                                                "ReceiptHandle",
+                                                message.path("ReceiptHandle").asText()));
+                    } else {
+                        warnf("%s failed a message from %s: %s", worker.key, queueArn, result);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                warnf("Polling %s for %s failed: %s", queueArn, worker.key, e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // The record format of the Lambda SQS event, from a message in the SQS JSON protocol's ReceiveMessage response
+    private ObjectNode event(JsonNode message) {
+        var event = JSON.createObjectNode();
+        var record = event.putArray("Records").addObject();
+        record.put("messageId", message.path("MessageId").asText());
+        record.put("receiptHandle", message.path("ReceiptHandle").asText());
+        record.put("body", message.path("Body").asText());
+        record.set("attributes", message.path("Attributes").deepCopy());
+        var attributes = record.putObject("messageAttributes");
+        message.path("MessageAttributes").properties().forEach(e -> {
+            var attribute = attributes.putObject(e.getKey());
+            if (e.getValue().has("StringValue")) {
+                attribute.put("stringValue", e.getValue().path("StringValue").asText());
+            }
+            if (e.getValue().has("BinaryValue")) {
+                attribute.put("binaryValue", e.getValue().path("BinaryValue").asText());
+            }
+            attribute.putArray("stringListValues");
+            attribute.putArray("binaryListValues");
+            attribute.put("dataType", e.getValue().path("DataType").asText());
+        });
+        record.put("md5OfBody", message.path("MD5OfBody").asText());
+        record.put("eventSource", "aws:sqs");
+        record.put("eventSourceARN", queueArn);
+        record.put("awsRegion", LocalAws.REGION);
+        return event;
+    }
+
+    private static boolean succeeded(JsonNode result, String messageId) {
+        if (result.has("errorType")) return false;
+        for (JsonNode failure : result.path("batchItemFailures")) {
+            if (messageId.equals(failure.path("itemIdentifier").asText())) return false;
+        }
+        return true;
+    }
+}
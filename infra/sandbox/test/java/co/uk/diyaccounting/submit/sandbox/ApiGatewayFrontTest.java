@@ -0,0 +1,72 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import software.amazon.awscdk.services.apigatewayv2.HttpMethod;
+
+@ResourceLock(CdkTestFixture.JSII)
+class ApiGatewayFrontTest {
+
+    private static ApiGatewayFront.Route route(HttpMethod method, String urlPath, String key) {
+        return ApiGatewayFront.Route.of(
+                SandboxProps.api(method, urlPath, false, false, Map.of()), SandboxProps.function(key));
+    }
+
+    @Test
+    void routeOfTurnsTheRouteKeyIntoAPathPatternWithItsParameters() {
+        var route = ApiGatewayFront.Route.of(
+                SandboxProps.api(HttpMethod.GET, "/api/v1/pass/{code}/{rest+}", true, false, Map.of()),
+                SandboxProps.function("pass-get"));
+
+        assertEquals("GET /api/v1/pass/{code}/{rest+}", route.routeKey());
+        assertEquals("GET", route.method());
+        assertEquals(List.of("code", "rest"), route.parameterNames());
+        assertTrue(route.jwt());
+        assertFalse(route.custom());
+        assertTrue(route.path().matcher("/api/v1/pass/abc/x/y").matches());
+        assertFalse(route.path().matcher("/api/v1/pass/abc").matches());
+        // A literal segment is quoted, not a pattern
+        assertFalse(route(HttpMethod.GET, "/api/v1.0/bundle", "bundle-get")
+                .path()
+                .matcher("/api/v1x0/bundle")
+                .matches());
+        assertTrue(route(HttpMethod.GET, "/", "index").path().matcher("/").matches());
+    }
+
+    @Test
+    void theRouteWithFewerPathParametersWinsWhateverTheOrderTheRoutesCameIn() {
+        var front = new ApiGatewayFront(List.of(
+                route(HttpMethod.GET, "/api/v1/hmrc/receipt/{name}", "receipt-by-name"),
+                route(HttpMethod.GET, "/api/v1/hmrc/{resource}/latest", "any-latest"),
+                route(HttpMethod.GET, "/api/v1/hmrc/receipt/latest", "receipt-latest"),
+                route(HttpMethod.POST, "/api/v1/hmrc/receipt/latest", "receipt-latest-post")));
+
+        assertEquals("receipt-latest", keyOf(front.match("GET", "/api/v1/hmrc/receipt/latest")));
+        assertEquals("receipt-latest-post", keyOf(front.match("POST", "/api/v1/hmrc/receipt/latest")));
+
+        var byName = front.match("GET", "/api/v1/hmrc/receipt/2026-01-01T00%3A00%3A00Z-123");
+        assertEquals("receipt-by-name", keyOf(byName));
+        assertEquals(Map.of("name", "2026-01-01T00:00:00Z-123"), byName.pathParameters());
+        assertEquals("any-latest", keyOf(front.match("GET", "/api/v1/hmrc/obligation/latest")));
+
+        assertNull(front.match("DELETE", "/api/v1/hmrc/receipt/latest"));
+        assertNull(front.match("GET", "/api/v1/hmrc/receipt"));
+    }
+
+    private static String keyOf(ApiGatewayFront.Matched matched) {
+        return matched.route().function().key;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+class LocalAwsTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Test
+    void decodeBooleansDecodesTheCustomResourceBooleansAtAnyDepth() throws Exception {
+        var parameters = JSON.readTree(
+                """
+                {
+                  "TableName": "ci-env-bundles",
+                  "DeletionProtectionEnabled": "FALSE:BOOLEAN",
+                  "TimeToLiveSpecification": { "AttributeName": "ttl", "Enabled": "TRUE:BOOLEAN" },
+                  "GlobalSecondaryIndexUpdates": [ { "Flags": [ "TRUE:BOOLEAN", "BOOLEAN", 5 ] } ]
+                }
+                """);
+
+        assertEquals(
+                JSON.readTree(
+                        """
+                        {
+                          "TableName": "ci-env-bundles",
+                          "DeletionProtectionEnabled": false,
+                          "TimeToLiveSpecification": { "AttributeName": "ttl", "Enabled": true },
+                          "GlobalSecondaryIndexUpdates": [ { "Flags": [ true, "BOOLEAN", 5 ] } ]
+                        }
+                        """),
+                LocalAws.decodeBooleans(parameters));
+    }
+
+    @Test
+    void queueUrlAddressesElasticMqOnTheSandboxNetwork() {
+        assertEquals(
+                "http://elasticmq:9324/000000000000/ci-env-activity-buffer",
+                LocalAws.queueUrl("ci-env-activity-buffer"));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import software.amazon.awscdk.Aws;
+import software.amazon.awscdk.services.apigatewayv2.HttpMethod;
+
+@ResourceLock(CdkTestFixture.JSII)
+class PerformanceSandboxTest {
+
+    private static final String BASE_URL = "http://localhost:3100/";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void environmentPointsTheFunctionAtTheSandboxAndBlanksTheServicesItDoesNotRun() {
+        var props = SandboxProps.api(
+                HttpMethod.GET,
+                "/api/v1/bundle",
+                true,
+                false,
+                Map.of(
+                        "BUNDLE_DYNAMODB_TABLE_NAME", "ci-env-bundles",
+                        "HMRC_CLIENT_SECRET_ARN", "arn:aws:secretsmanager:eu-west-2:000000000000:secret:hmrc",
+                        "HMRC_API_REQUESTS_DELIVERY_STREAM_NAME", "ci-env-hmrc-api-requests",
+                        "ACTIVITY_BUS_NAME", "ci-env-activity",
+                        "HMRC_BASE_URI", "https://test-api.service.hmrc.gov.uk",
+                        "DIY_SUBMIT_BASE_URL", "https://ci.submit.diyaccounting.co.uk/",
+                        "AWS_ACCOUNT_ID", Aws.ACCOUNT_ID,
+                        "HMRC_CLIENT_SECRET", "from-the-stack"));
+
+        var environment =
+                PerformanceSandbox.environment(props, Map.of("HMRC_CLIENT_SECRET", "from-env-file"), BASE_URL);
+
+        assertEquals("ci-env-bundles", environment.get("BUNDLE_DYNAMODB_TABLE_NAME"));
+        assertEquals("", environment.get("HMRC_CLIENT_SECRET_ARN"));
+        assertEquals("", environment.get("HMRC_API_REQUESTS_DELIVERY_STREAM_NAME"));
+        // Nothing in the sandbox consumes activity events, so the handlers skip them
+        assertEquals("", environment.get("ACTIVITY_BUS_NAME"));
+        assertFalse(environment.containsKey("ACTIVITY_QUEUE_URL"));
+        assertFalse(environment.containsKey("AWS_ACCOUNT_ID"));
+        assertEquals("http://http-simulator:9000", environment.get("HMRC_BASE_URI"));
+        assertFalse(environment.containsKey("COGNITO_BASE_URI"));
+        assertEquals(BASE_URL, environment.get("DIY_SUBMIT_BASE_URL"));
+        assertEquals("from-env-file", environment.get("HMRC_CLIENT_SECRET"));
+        assertEquals("http://dynamodb:8000", environment.get("AWS_ENDPOINT_URL_DYNAMODB"));
+        assertEquals("http://elasticmq:9324", environment.get("AWS_ENDPOINT_URL_SQS"));
+        assertEquals(LocalAws.REGION, environment.get("AWS_REGION"));
+        assertFalse(environment.containsKey("SQS_QUEUE_URL"));
+    }
+
+    @Test
+    void environmentOfAnAsyncFunctionNamesItsQueuesOnElasticMq() {
+        var lanes =
+                PerformanceSandbox.environment(SandboxProps.async("/api/v1/hmrc/vat/return", 10), Map.of(), BASE_URL);
+        var queue = "http://elasticmq:9324/000000000000/ci-sandbox-app-api-v-hmrc-vat-return-queue";
+
+        assertEquals(queue, lanes.get("SQS_QUEUE_URL"));
+        assertEquals(queue + "-high", lanes.get("SQS_HIGH_PRIORITY_QUEUE_URL"));
+        var oneLane =
+                PerformanceSandbox.environment(SandboxProps.async("/api/v1/hmrc/vat/return", 0), Map.of(), BASE_URL);
+        assertTrue(oneLane.containsKey("SQS_QUEUE_URL"));
+        assertFalse(oneLane.containsKey("SQS_HIGH_PRIORITY_QUEUE_URL"));
+    }
+
+    @Test
+    void secretsAreReadFromTheEnvFileAndOnlyTheSecretVariables() throws IOException {
+        var envFile = Files.writeString(
+                dir.resolve(".env.simulator"),
+                """
+                # simulator secrets
+                HMRC_CLIENT_SECRET = local-secret
+                USER_SUB_HASH_SALT=salt=with=equals
+                HMRC_BASE_URI=http://localhost:9000
+                """);
+
+        assertEquals(
+                Map.of("HMRC_CLIENT_SECRET", "local-secret", "USER_SUB_HASH_SALT", "salt=with=equals"),
+                PerformanceSandbox.secrets(envFile));
+    }
+}
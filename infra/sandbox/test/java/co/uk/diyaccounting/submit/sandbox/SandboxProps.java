@@ -0,0 +1,83 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.sandbox;
+
+import co.uk.diyaccounting.submit.constructs.ApiLambdaProps;
+import co.uk.diyaccounting.submit.constructs.AsyncApiLambdaProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile.LambdaSettings;
+import java.util.Map;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.apigatewayv2.HttpMethod;
+import software.amazon.awscdk.services.lambda.Architecture;
+
+/** Lambda props and functions for the sandbox tests, with only what routing and the environment read */
+final class SandboxProps {
+
+    private static final String PREFIX = "ci-sandbox-app";
+    private static final String ARN = "arn:aws:lambda:eu-west-2:000000000000:function:" + PREFIX;
+
+    private SandboxProps() {}
+
+    static ApiLambdaProps api(
+            HttpMethod method, String urlPath, boolean jwt, boolean custom, Map<String, String> environment) {
+        var name = PREFIX + urlPath.replaceAll("[^a-z]+", "-");
+        return ApiLambdaProps.builder()
+                .idPrefix(name)
+                .baseImageTag("test")
+                .ecrRepositoryName("submit")
+                .ecrRepositoryArn("arn:aws:ecr:eu-west-2:000000000000:repository/submit")
+                .ingestFunctionName(name)
+                .ingestHandler("app/functions/sandbox.ingestHandler")
+                .ingestLambdaArn(ARN)
+                .ingestProvisionedConcurrencyAliasArn(ARN + ":zero")
+                .provisionedConcurrencyAliasName("zero")
+                .httpMethod(method)
+                .urlPath(urlPath)
+                .jwtAuthorizer(jwt)
+                .customAuthorizer(custom)
+                .environment(environment)
+                .build();
+    }
+
+    static AsyncApiLambdaProps async(String urlPath, int highPriorityQueueMaximumConcurrency) {
+        var name = PREFIX + urlPath.replaceAll("[^a-z]+", "-");
+        return AsyncApiLambdaProps.builder()
+                .idPrefix(name)
+                .baseImageTag("test")
+                .ecrRepositoryName("submit")
+                .ecrRepositoryArn("arn:aws:ecr:eu-west-2:000000000000:repository/submit")
+                .ingestFunctionName(name)
+                .ingestHandler("app/functions/sandbox.ingestHandler")
+                .ingestLambdaArn(ARN)
+                .ingestProvisionedConcurrencyAliasArn(ARN + ":zero")
+                .workerFunctionName(name + "-worker")
+                .workerHandler("app/functions/sandbox.workerHandler")
+                .workerLambdaArn(ARN + "-worker")
+                .workerProvisionedConcurrencyAliasArn(ARN + "-worker:zero")
+                .workerQueueName(name + "-queue")
+                .workerDeadLetterQueueName(name + "-dlq")
+                .highPriorityQueueMaximumConcurrency(highPriorityQueueMaximumConcurrency)
+                .provisionedConcurrencyAliasName("zero")
+                .httpMethod(HttpMethod.POST)
+                .urlPath(urlPath)
+                .jwtAuthorizer(false)
+                .customAuthorizer(true)
+                .build();
+    }
+
+    /** A function with no containers, enough to be routed to */
+    static SandboxFunction function(String key) {
+        return new SandboxFunction(
+                key,
+                PREFIX + "-" + key,
+                "submit-base:test",
+                "app/functions/sandbox.ingestHandler",
+                Map.of(),
+                new LambdaSettings(256, Duration.seconds(3), Architecture.ARM_64, 0),
+                0,
+                null);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import java.io.IOException;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junitpioneer.jupiter.WritesEnvironmentVariable;
+
+/**
+ * Base for tests asserting on the synthesised application app, setting the fixed deployment it is synthesised for.
+ */
+@WritesEnvironmentVariable
+@ResourceLock(CdkTestFixture.JSII)
+abstract class ApplicationCdkTest {
+
+    @RegisterExtension
+    static final CdkTestFixture.Deployment DEPLOYMENT = new CdkTestFixture.Deployment();
+
+    static CdkTestApps.Synthesized<SubmitApplication> application() throws IOException {
+        return CdkTestApps.application();
+    }
+}
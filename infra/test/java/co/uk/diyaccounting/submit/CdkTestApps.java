@@ -0,0 +1,65 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.AppProps;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.assertions.Template;
+import software.amazon.awscdk.cxapi.CloudAssembly;
+
+/**
+ * Synthesises each CDK app once per test JVM and caches the Template of each stack, so any number of test classes
+ * and methods can assert on the apps for the cost of one synth each. The first test to ask for an app synthesises
+ * it, under the environment variables of ApplicationCdkTest or EnvironmentCdkTest, which every caller extends.
+ */
+final class CdkTestApps {
+
+    record Synthesized<T>(App app, T submit, CloudAssembly assembly, Map<String, Template> templates) {
+
+        Template template(Stack stack) {
+            return templates.computeIfAbsent(stack.getArtifactId(), artifactId -> Template.fromStack(stack));
+        }
+
+        List<Stack> stacks() {
+            return app.getNode().getChildren().stream()
+                    .filter(Stack.class::isInstance)
+                    .map(Stack.class::cast)
+                    .toList();
+        }
+    }
+
+    private static Synthesized<SubmitApplication> application;
+    private static Synthesized<SubmitEnvironment> environment;
+
+    private CdkTestApps() {}
+
+    static synchronized Synthesized<SubmitApplication> application() throws IOException {
+        if (application == null) {
+            App app = new App(AppProps.builder()
+                    .context(CdkTestFixture.applicationContext())
+                    .build());
+            var submitApplication = new SubmitApplication(app, SubmitApplication.loadAppProps(app, "cdk-application/"));
+            application = new Synthesized<>(app, submitApplication, app.synth(), new ConcurrentHashMap<>());
+        }
+        return application;
+    }
+
+    static synchronized Synthesized<SubmitEnvironment> environment() throws IOException {
+        if (environment == null) {
+            App app = new App(AppProps.builder()
+                    .context(CdkTestFixture.environmentContext())
+                    .build());
+            var submitEnvironment = new SubmitEnvironment(app, SubmitEnvironment.loadAppProps(app, "cdk-environment/"));
+            environment = new Synthesized<>(app, submitEnvironment, app.synth(), new ConcurrentHashMap<>());
+        }
+        return environment;
+    }
+}
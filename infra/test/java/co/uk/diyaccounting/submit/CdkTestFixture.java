@@ -0,0 +1,141 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * What the CDK apps are synthesised from outside a pipeline, shared by the CDK resource tests, the synth benchmarks
+ * (infra/benchmark/java) and the performance sandbox (infra/sandbox/java): the cdk.json context of each app and the
+ * fixed deployment of cdk-test-deployment.env, which the jmh and sandbox profiles and scripts/cdk-aot-cache.sh
+ * source for the same values.
+ */
+public final class CdkTestFixture {
+
+    public static final String APPLICATION_CDK_JSON = "cdk-application/cdk.json";
+    public static final String ENVIRONMENT_CDK_JSON = "cdk-environment/cdk.json";
+    public static final Path DEPLOYMENT_ENV = Path.of("infra/test/resources/cdk-test-deployment.env");
+
+    /**
+     * The resource lock of every test class that calls into the CDK. The CDK's Java classes share one jsii runtime
+     * process per JVM, whose request/response channel is not safe for concurrent use.
+     */
+    public static final String JSII = "jsii";
+
+    // A syntactically valid ACM ARN, as the environment's ApexStack rejects the empty value in cdk.json
+    public static final String FAKE_CERTIFICATE_ARN =
+            "arn:aws:acm:us-east-1:111111111111:certificate/12345678-1234-1234-1234-123456789012";
+
+    private CdkTestFixture() {}
+
+    /** The context of cdk-application/cdk.json */
+    public static Map<String, Object> applicationContext() {
+        return loadContext(APPLICATION_CDK_JSON);
+    }
+
+    /** The context of cdk-environment/cdk.json, normalised to the keys SubmitEnvironmentProps reads */
+    public static Map<String, Object> environmentContext() {
+        Map<String, Object> ctx = loadContext(ENVIRONMENT_CDK_JSON);
+        if (ctx.containsKey("apexActiveLabel")) {
+            ctx.put("activeLabel", ctx.get("apexActiveLabel"));
+        }
+        if (ctx.containsKey("apexDeploymentOrigins")) {
+            ctx.put("deploymentOriginsCsv", ctx.get("apexDeploymentOrigins"));
+        }
+        ctx.put("certificateArn", FAKE_CERTIFICATE_ARN);
+        return ctx;
+    }
+
+    public static Map<String, Object> loadContext(String cdkJsonPath) {
+        try {
+            JsonNode ctxNode = new ObjectMapper()
+                    .readTree(Files.readString(Path.of(cdkJsonPath).toAbsolutePath()))
+                    .path("context");
+            Map<String, Object> ctx = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = ctxNode.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                ctx.put(e.getKey(), e.getValue().asText());
+            }
+            return ctx;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read CDK context from " + cdkJsonPath, e);
+        }
+    }
+
+    /** The environment variables of the fixed deployment, from the "export NAME=value" lines of DEPLOYMENT_ENV */
+    public static Map<String, String> deploymentVariables() {
+        try {
+            Map<String, String> variables = new LinkedHashMap<>();
+            for (String line : Files.readAllLines(DEPLOYMENT_ENV)) {
+                if (!line.startsWith("export ")) continue;
+                String assignment = line.substring("export ".length());
+                int equals = assignment.indexOf('=');
+                variables.put(assignment.substring(0, equals), assignment.substring(equals + 1));
+            }
+            return variables;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the test deployment from " + DEPLOYMENT_ENV, e);
+        }
+    }
+
+    /**
+     * Sets the variables of the fixed deployment, with any overrides, for the tests of a class and restores the
+     * previous values after them. Modifies the JVM's copy of the environment as @SetEnvironmentVariable does, so
+     * register it on a class annotated @WritesEnvironmentVariable to share that annotation's lock.
+     */
+    public static final class Deployment implements BeforeAllCallback, AfterAllCallback {
+
+        private final Map<String, String> variables = deploymentVariables();
+        private final Map<String, String> previous = new HashMap<>();
+
+        public Deployment with(String name, String value) {
+            variables.put(name, value);
+            return this;
+        }
+
+        @Override
+        public void beforeAll(ExtensionContext context) {
+            Map<String, String> environment = writableEnvironment();
+            variables.forEach((name, value) -> previous.put(name, environment.put(name, value)));
+        }
+
+        @Override
+        public void afterAll(ExtensionContext context) {
+            Map<String, String> environment = writableEnvironment();
+            previous.forEach((name, value) -> {
+                if (value == null) environment.remove(name);
+                else environment.put(name, value);
+            });
+            previous.clear();
+        }
+
+        // The map System.getenv() wraps unmodifiable, opened by the --add-opens java.base/java.util of the argLine
+        @SuppressWarnings("unchecked")
+        private static Map<String, String> writableEnvironment() {
+            Map<String, String> environment = System.getenv();
+            try {
+                Field m = environment.getClass().getDeclaredField("m");
+                m.setAccessible(true);
+                return (Map<String, String>) m.get(environment);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not modify the environment variables", e);
+            }
+        }
+    }
+}
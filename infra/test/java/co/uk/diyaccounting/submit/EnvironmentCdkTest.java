@@ -0,0 +1,28 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import java.io.IOException;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junitpioneer.jupiter.WritesEnvironmentVariable;
+
+/**
+ * Base for tests asserting on the synthesised environment app, setting the fixed deployment it is synthesised for.
+ */
+@WritesEnvironmentVariable
+@ResourceLock(CdkTestFixture.JSII)
+abstract class EnvironmentCdkTest {
+
+    // The environment is synthesised with us-east-1 as its primary region, the application with eu-west-2
+    @RegisterExtension
+    static final CdkTestFixture.Deployment DEPLOYMENT =
+            new CdkTestFixture.Deployment().with("CDK_DEFAULT_REGION", "us-east-1");
+
+    static CdkTestApps.Synthesized<SubmitEnvironment> environment() throws IOException {
+        return CdkTestApps.environment();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+
+/**
+ * Records the wall clock time of the infra test suite and of each test class, logging a summary and writing it to
+ * target/infra-test-timing.json for scripts/infra-test-timing.sh to compare sequential and parallel runs. Registered
+ * through META-INF/services, so it runs with every ./mvnw test.
+ */
+public class InfraTestTimingListener implements TestExecutionListener {
+
+    static final Path REPORT_PATH = Path.of("target", "infra-test-timing.json");
+
+    private final Map<String, Long> classStartNanos = new ConcurrentHashMap<>();
+    private final Map<String, Long> classMillis = new ConcurrentHashMap<>();
+    private long suiteStartNanos;
+    private boolean parallel;
+
+    @Override
+    public void testPlanExecutionStarted(TestPlan testPlan) {
+        suiteStartNanos = System.nanoTime();
+        parallel = testPlan.getConfigurationParameters()
+                .getBoolean("junit.jupiter.execution.parallel.enabled")
+                .orElse(false);
+    }
+
+    @Override
+    public void executionStarted(TestIdentifier testIdentifier) {
+        className(testIdentifier).ifPresent(name -> classStartNanos.put(name, System.nanoTime()));
+    }
+
+    @Override
+    public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+        className(testIdentifier).ifPresent(name -> {
+            Long start = classStartNanos.remove(name);
+            if (start != null) {
+                classMillis.put(name, (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+    }
+
+    @Override
+    public void testPlanExecutionFinished(TestPlan testPlan) {
+        long wallClockMillis = (System.nanoTime() - suiteStartNanos) / 1_000_000;
+        long classTotalMillis =
+                classMillis.values().stream().mapToLong(Long::longValue).sum();
+        var classes = new LinkedHashMap<String, Long>();
+        classMillis.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> classes.put(e.getKey(), e.getValue()));
+
+        infof(
+                "Infra test suite wall clock %d ms (parallel %s), %d ms summed over %d test classes",
+                wallClockMillis, parallel, classTotalMillis, classes.size());
+        classes.forEach((name, millis) -> infof("  %6d ms %s", millis, name));
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("parallel", parallel);
+        report.put("wallClockMillis", wallClockMillis);
+        report.put("classTotalMillis", classTotalMillis);
+        report.put("classes", classes);
+        try {
+            Files.createDirectories(REPORT_PATH.getParent());
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(REPORT_PATH.toFile(), report);
+        } catch (IOException e) {
+            warnf("Could not write %s: %s", REPORT_PATH, e.getMessage());
+        }
+    }
+
+    private static Optional<String> className(TestIdentifier testIdentifier) {
+        return testIdentifier.getSource().filter(ClassSource.class::isInstance).map(source -> ((ClassSource) source)
+                .getClassName());
+    }
+}
@@ -6,73 +6,78 @@
 package co.uk.diyaccounting.submit;
 
 import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import co.uk.diyaccounting.submit.stacks.EdgeStack;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
-import org.junitpioneer.jupiter.SetEnvironmentVariable;
 import org.opentest4j.AssertionFailedError;
 import software.amazon.awscdk.App;
 import software.amazon.awscdk.AppProps;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.assertions.Annotations;
+import software.amazon.awscdk.assertions.Match;
 import software.amazon.awscdk.assertions.Template;
 
-@SetEnvironmentVariable.SetEnvironmentVariables({
-    @SetEnvironmentVariable(key = "ENVIRONMENT_NAME", value = "test"),
-    @SetEnvironmentVariable(key = "DEPLOYMENT_NAME", value = "tt-witheight"),
-    @SetEnvironmentVariable(
-            key = "COGNITO_USER_POOL_ARN",
-            value = "arn:aws:cognito-idp:eu-west-2:111111111111:userpool/eu-west-2_123456789"),
-    @SetEnvironmentVariable(key = "COGNITO_CLIENT_ID", value = "tt-witheight-cognito-client-id"),
-    @SetEnvironmentVariable(
-            key = "HMRC_CLIENT_SECRET_ARN",
-            value = "arn:aws:secretsmanager:eu-west-2:111111111111:secret:tt-witheight/submit/hmrc/client_secret"),
-    @SetEnvironmentVariable(
-            key = "HMRC_SANDBOX_CLIENT_SECRET_ARN",
-            value =
-                    "arn:aws:secretsmanager:eu-west-2:111111111111:secret:tt-witheight/submit/hmrc/sandbox_client_secret"),
-    @SetEnvironmentVariable(key = "BASE_IMAGE_TAG", value = "test"),
-    @SetEnvironmentVariable(key = "CLOUD_TRAIL_ENABLED", value = "true"),
-    @SetEnvironmentVariable(key = "SELF_DESTRUCT_DELAY_HOURS", value = "1"),
-    @SetEnvironmentVariable(key = "HTTP_API_URL", value = "https://test-api.example.com/"),
-    @SetEnvironmentVariable(key = "DOC_ROOT_PATH", value = "web/public"),
-    @SetEnvironmentVariable(key = "EDGE_FUNCTION_ASSET_PATH", value = "app/functions/edge"),
-    @SetEnvironmentVariable(key = "CDK_DEFAULT_ACCOUNT", value = "111111111111"),
-    @SetEnvironmentVariable(key = "CDK_DEFAULT_REGION", value = "eu-west-2"),
-})
-class SubmitApplicationCdkResourceTest {
+class SubmitApplicationCdkResourceTest extends ApplicationCdkTest {
 
     @Test
     void shouldCreateSubmitApplicationWithResources() throws IOException {
 
-        Path cdkJsonPath = Path.of("cdk-application/cdk.json").toAbsolutePath();
-        Map<String, Object> ctx = buildContextPropertyMapFromCdkJsonPath(cdkJsonPath);
-        App app = new App(AppProps.builder().context(ctx).build());
-
-        SubmitApplication.SubmitApplicationProps appProps = SubmitApplication.loadAppProps(app, "cdk-application/");
-        var submitApplication = new SubmitApplication(app, appProps);
-        app.synth();
-        infof("CDK synth complete");
+        // The application app synthesised from cdk-application/cdk.json, shared by all application tests
+        var application = application();
+        var submitApplication = application.submit();
 
         infof("Created stack:", submitApplication.authStack.getStackName());
-        Template.fromStack(submitApplication.authStack).resourceCountIs("AWS::Lambda::Function", 2);
+        application.template(submitApplication.authStack).resourceCountIs("AWS::Lambda::Function", 2);
 
         infof("Created stack:", submitApplication.hmrcStack.getStackName());
-        Template.fromStack(submitApplication.hmrcStack).resourceCountIs("AWS::Lambda::Function", 8);
+        // 11 Lambdas: 5 ingest, 3 async workers, the VAT return POST Express step, the circuit breaker and DLQ
+        // redrive controllers; 4 event source mappings as VAT return POST has a high priority lane
+        Template hmrcStackTemplate = application.template(submitApplication.hmrcStack);
+        hmrcStackTemplate.resourceCountIs("AWS::Lambda::Function", 11);
+        hmrcStackTemplate.resourcePropertiesCountIs(
+                "AWS::StepFunctions::StateMachine", Map.of("StateMachineType", "EXPRESS"), 1);
+        // The Express step's HMRC call gives up inside the execution's 20s timeout
+        hmrcStackTemplate.hasResourceProperties(
+                "AWS::Lambda::Function",
+                Map.of("Environment", Map.of("Variables", Match.objectLike(Map.of("HMRC_HTTP_TIMEOUT_MS", "15000")))));
+        // A failed HMRC message is redelivered after six 30s worker timeouts, each worker's HMRC call gives up first
+        hmrcStackTemplate.resourcePropertiesCountIs("AWS::SQS::Queue", Map.of("VisibilityTimeout", 180), 4);
+        hmrcStackTemplate.resourcePropertiesCountIs(
+                "AWS::Lambda::Function",
+                Map.of(
+                        "Timeout",
+                        30,
+                        "Environment",
+                        Map.of("Variables", Match.objectLike(Map.of("HMRC_HTTP_TIMEOUT_MS", "25000")))),
+                3);
+        hmrcStackTemplate.resourceCountIs("AWS::Lambda::EventSourceMapping", 4);
+        hmrcStackTemplate.resourcePropertiesCountIs(
+                "AWS::Lambda::EventSourceMapping",
+                Map.of(
+                        "ProvisionedPollerConfig",
+                        Map.of("MinimumPollers", 2, "MaximumPollers", 10),
+                        "ScalingConfig",
+                        Map.of("MaximumConcurrency", 10)),
+                1);
+        // Circuit breaker alarm and probe rules plus one DLQ redrive schedule per HMRC worker
+        hmrcStackTemplate.resourceCountIs("AWS::Events::Rule", 5);
 
         infof("Created stack:", submitApplication.accountStack.getStackName());
-        // 13 Lambdas: bundleGet(1), bundlePost(2), bundleDelete(2), interestPost(1), passGet(1),
-        // passPost(1), passAdminPost(1), passGeneratePost(1), passMyPassesGet(1),
-        // bundleCapacityReconcile(1), sessionBeaconPost(1)
-        Template accountStackTemplate = Template.fromStack(submitApplication.accountStack);
-        accountStackTemplate.resourceCountIs("AWS::Lambda::Function", 13);
+        // 1 Lambda: interestPost(1); supportTicketPost only when a GitHub token secret is configured
+        application.template(submitApplication.accountStack).resourceCountIs("AWS::Lambda::Function", 1);
+
+        infof("Created stack:", submitApplication.bundleStack.getStackName());
+        // 6 Lambdas: bundleGet(1), bundlePost(2), bundleDelete(2), bundleCapacityReconcile(1)
+        Template bundleStackTemplate = application.template(submitApplication.bundleStack);
+        bundleStackTemplate.resourceCountIs("AWS::Lambda::Function", 6);
 
         // Regression guard: bundleGet performs lazy token refresh via dynamodb:UpdateItem on the
         // bundles table (see app/functions/account/bundleGet.js resetTokens). The CDK grant MUST be
@@ -83,76 +88,216 @@ class SubmitApplicationCdkResourceTest {
         // "bundles-table"): bundleGet(1) + bundlePost ingest+worker(2) + bundleDelete ingest+worker(2)
         // = 5 expected. The per-Lambda assertion below is the primary guard; the count is
         // informational.
-        long bundleGetUpdateItemPolicies = countIamPoliciesWithUpdateItemOnBundlesTable(accountStackTemplate, "bundle-get");
+        long bundleGetUpdateItemPolicies =
+                countIamPoliciesWithUpdateItemOnBundlesTable(bundleStackTemplate, "bundle-get");
         if (bundleGetUpdateItemPolicies < 1) {
-            dumpIamPolicies(accountStackTemplate);
+            dumpIamPolicies(bundleStackTemplate);
             throw new AssertionFailedError("bundleGet Lambda role is missing dynamodb:UpdateItem on the bundles table. "
-                    + "Check AccountStack.java grantReadWriteData for bundleGetLambda — "
+                    + "Check BundleStack.java grantReadWriteData for bundleGetLambda — "
                     + "this was the root cause of the 2026-04 production incident.");
         }
         infof("IAM guard: bundleGet has %d policies with UpdateItem on bundles table (expected >= 1)", bundleGetUpdateItemPolicies);
 
+        infof("Created stack:", submitApplication.passStack.getStackName());
+        // 5 Lambdas: passGet(1), passPost(1), passAdminPost(1), passGeneratePost(1), passMyPassesGet(1)
+        application.template(submitApplication.passStack).resourceCountIs("AWS::Lambda::Function", 5);
+
         infof("Created stack:", submitApplication.billingStack.getStackName());
         // 3 Lambdas: billingCheckoutPost(1), billingPortalGet(1), billingRecoverPost(1)
         // billingWebhookPost moved to env-level BillingWebhookStack
-        Template.fromStack(submitApplication.billingStack).resourceCountIs("AWS::Lambda::Function", 3);
+        application.template(submitApplication.billingStack).resourceCountIs("AWS::Lambda::Function", 3);
 
         infof("Created stack:", submitApplication.apiStack.getStackName());
-        Template apiStackTemplate = Template.fromStack(submitApplication.apiStack);
-        // Log all API Gateway routes present in the synthesized template
-        @SuppressWarnings("unchecked")
-        Map<String, Object> apiTemplateJson = (Map<String, Object>) apiStackTemplate.toJSON();
-        Object resourcesObj = apiTemplateJson.get("Resources");
-        if (resourcesObj instanceof Map) {
-            Map<String, Object> resources = (Map<String, Object>) resourcesObj;
-            int routeCount = 0;
-            for (Map.Entry<String, Object> e : resources.entrySet()) {
-                Object v = e.getValue();
-                if (v instanceof Map) {
-                    Map<String, Object> res = (Map<String, Object>) v;
-                    Object type = res.get("Type");
-                    if ("AWS::ApiGatewayV2::Route".equals(type)) {
-                        Map<String, Object> props = (Map<String, Object>) res.get("Properties");
-                        Object routeKey = props != null ? props.get("RouteKey") : null;
-                        Object target = props != null ? props.get("Target") : null;
-                        infof(
-                                "API route: id=%s routeKey=%s target=%s",
-                                e.getKey(), String.valueOf(routeKey), String.valueOf(target));
-                        routeCount++;
-                    }
-                }
-            }
-            infof("Total API routes found: %d", routeCount);
+        Template apiStackTemplate = application.template(submitApplication.apiStack);
+        // The ApiStack holds the HttpApi and its authorizers, publishing their IDs to SSM for the route stacks
+        apiStackTemplate.resourceCountIs("AWS::ApiGatewayV2::Api", 1);
+        apiStackTemplate.resourceCountIs("AWS::ApiGatewayV2::Authorizer", 2);
+        apiStackTemplate.resourceCountIs("AWS::SSM::Parameter", 3);
+        apiStackTemplate.resourceCountIs("AWS::ApiGatewayV2::Route", 0);
+
+        // Each domain stack attaches its own routes, so depends on the ApiStack and on nothing else of the API
+        List<Stack> routeStacks = List.of(
+                submitApplication.authStack,
+                submitApplication.hmrcStack,
+                submitApplication.accountStack,
+                submitApplication.bundleStack,
+                submitApplication.passStack,
+                submitApplication.billingStack);
+        int routeCount = 0;
+        for (Stack routeStack : routeStacks) {
+            assertTrue(
+                    routeStack.getDependencies().contains(submitApplication.apiStack),
+                    routeStack.getStackName() + " should depend on the ApiStack");
+            routeCount += logApiRoutes(application.template(routeStack));
         }
+        assertTrue(
+                submitApplication.apiStack.getDependencies().isEmpty(),
+                "The ApiStack should not depend on the stacks that attach routes to it");
+        infof("Total API routes found: %d", routeCount);
+        assertEquals(38, routeCount);
 
-        apiStackTemplate.resourceCountIs("AWS::ApiGatewayV2::Api", 1);
         // Confirm key routes exist, including multiple HTTP methods on the same path
-        apiStackTemplate.hasResourceProperties("AWS::ApiGatewayV2::Route", Map.of("RouteKey", "POST /api/v1/bundle"));
-        apiStackTemplate.hasResourceProperties("AWS::ApiGatewayV2::Route", Map.of("RouteKey", "DELETE /api/v1/bundle"));
-        apiStackTemplate.hasResourceProperties(
+        bundleStackTemplate.hasResourceProperties(
+                "AWS::ApiGatewayV2::Route", Map.of("RouteKey", "POST /api/v1/bundle"));
+        bundleStackTemplate.hasResourceProperties(
+                "AWS::ApiGatewayV2::Route", Map.of("RouteKey", "DELETE /api/v1/bundle"));
+        bundleStackTemplate.hasResourceProperties(
                 "AWS::ApiGatewayV2::Route", Map.of("RouteKey", "DELETE /api/v1/bundle/{id}"));
-        apiStackTemplate.resourceCountIs("AWS::ApiGatewayV2::Route", 38);
 
         // Dashboard moved to environment-level ObservabilityStack
         infof("Created stack:", submitApplication.opsStack.getStackName());
 
         infof("Created stack:", submitApplication.edgeStack.getStackName());
-        Template.fromStack(submitApplication.edgeStack).resourceCountIs("AWS::CloudFront::Distribution", 1);
+        Template edgeStackTemplate = application.template(submitApplication.edgeStack);
+        edgeStackTemplate.resourceCountIs("AWS::CloudFront::Distribution", 1);
+        // Cache behaviours are evaluated in order, so the HMRC routes must come before the /api/v1/* catch-all
+        var pathPatterns = edgeStackTemplate.findResources("AWS::CloudFront::Distribution").values().stream()
+                .map(distribution -> (Map<?, ?>) ((Map<?, ?>) distribution.get("Properties")).get("DistributionConfig"))
+                .flatMap(config -> ((List<?>) config.get("CacheBehaviors")).stream())
+                .map(behaviour -> String.valueOf(((Map<?, ?>) behaviour).get("PathPattern")))
+                .toList();
+        assertTrue(
+                pathPatterns.indexOf("/api/v1/hmrc/*") < pathPatterns.indexOf("/api/v1/*"),
+                "Cache behaviour order: " + pathPatterns);
+        // Gov-Client viewer headers for the HMRC routes and the session beacon are handled at the edge
+        edgeStackTemplate.resourceCountIs("AWS::CloudFront::Function", 2);
+        // Real-time logs: one config for all behaviours, delivered to S3 via Firehose
+        edgeStackTemplate.resourceCountIs("AWS::CloudFront::RealtimeLogConfig", 1);
+        edgeStackTemplate.resourceCountIs("AWS::KinesisFirehose::DeliveryStream", 1);
+        // Per route WAF rate limits, keyed on the Cognito token for the HMRC submission route
+        edgeStackTemplate.hasResourceProperties(
+                "AWS::WAFv2::WebACL",
+                Map.of(
+                        "Rules",
+                        Match.arrayWith(List.of(Match.objectLike(Map.of(
+                                "Name",
+                                "RouteRateLimitHmrcVatReturnPost",
+                                "Statement",
+                                Map.of(
+                                        "RateBasedStatement",
+                                        Match.objectLike(Map.of("AggregateKeyType", "CUSTOM_KEYS")))))))));
 
         infof("Created stack:", submitApplication.publishStack.getStackName());
-        Template.fromStack(submitApplication.publishStack).resourceCountIs("Custom::CDKBucketDeployment", 1);
+        application.template(submitApplication.publishStack).resourceCountIs("Custom::CDKBucketDeployment", 1);
 
         if (submitApplication.selfDestructStack != null) {
             infof("Created stack:", submitApplication.selfDestructStack.getStackName());
             // 2 Lambdas: self-destruct function + AwsCustomResource backing Lambda for ensureLogGroup
-            Template.fromStack(submitApplication.selfDestructStack).resourceCountIs("AWS::Lambda::Function", 2);
+            application.template(submitApplication.selfDestructStack).resourceCountIs("AWS::Lambda::Function", 2);
+        }
+    }
+
+    @Test
+    void shouldCreateStagingDistributionFromContext() {
+        // The Edge stack alone, with continuous deployment and candidate staging settings set as cdk.json would
+        Map<String, Object> context = new HashMap<>(CdkTestFixture.applicationContext());
+        context.put("stagingDistributionTraffic", "weight");
+        context.put("stagingDistributionWeight", "0.1");
+        context.put(
+                "stagingBehaviors",
+                "*:compress=false,defaultTtlSeconds=300; /docs/*:defaultTtlSeconds=60,maxTtlSeconds=600");
+        App app = new App(AppProps.builder().context(context).build());
+        var edgeStack =
+                new SubmitApplicationStacks(SubmitApplication.loadAppProps(app, "cdk-application/")).edgeStack(app);
+        Template template = Template.fromStack(edgeStack);
+
+        template.resourceCountIs("AWS::CloudFront::Distribution", 2);
+        template.hasResourceProperties(
+                "AWS::CloudFront::ContinuousDeploymentPolicy",
+                Map.of(
+                        "ContinuousDeploymentPolicyConfig",
+                        Match.objectLike(Map.of(
+                                "TrafficConfig",
+                                Match.objectLike(Map.of(
+                                        "Type",
+                                        "SingleWeight",
+                                        "SingleWeightConfig",
+                                        Match.objectLike(Map.of("Weight", 0.1))))))));
+        // Only the staging distribution trials the candidate settings, each TTL candidate with its own cache policy
+        template.hasResourceProperties(
+                "AWS::CloudFront::Distribution",
+                Map.of(
+                        "DistributionConfig",
+                        Match.objectLike(Map.of(
+                                "Staging",
+                                true,
+                                "DefaultCacheBehavior",
+                                Match.objectLike(Map.of("Compress", false))))));
+        template.resourcePropertiesCountIs(
+                "AWS::CloudFront::Distribution",
+                Map.of(
+                        "DistributionConfig",
+                        Match.objectLike(Map.of("DefaultCacheBehavior", Match.objectLike(Map.of("Compress", false))))),
+                1);
+        template.hasResourceProperties(
+                "AWS::CloudFront::CachePolicy",
+                Map.of("CachePolicyConfig", Match.objectLike(Map.of("DefaultTTL", 300, "MaxTTL", 31536000))));
+        template.hasResourceProperties(
+                "AWS::CloudFront::CachePolicy",
+                Map.of("CachePolicyConfig", Match.objectLike(Map.of("MinTTL", 0, "DefaultTTL", 60, "MaxTTL", 600))));
+    }
+
+    @Test
+    void shouldRejectInvalidStagingBehaviors() {
+        assertEquals(
+                new EdgeStack.StagingBehavior(false, 0, 300, 31536000),
+                EdgeStack.stagingBehaviors("*:compress=false,defaultTtlSeconds=300")
+                        .get("*"));
+        assertEquals(Map.of(), EdgeStack.stagingBehaviors(""));
+        for (var config : List.of(
+                "*:compress=no",
+                "*:defaultTtl=300",
+                "*:defaultTtlSeconds=-1",
+                "*:minTtlSeconds=600,defaultTtlSeconds=300",
+                "compress=false",
+                "*:compress=false;*:compress=true")) {
+            assertThrows(IllegalArgumentException.class, () -> EdgeStack.stagingBehaviors(config), config);
+        }
+    }
+
+    @Test
+    void shouldHaveNoPerformanceRuleErrors() throws IOException {
+        // No performance NagPack errors (unsuppressed rule violations) in any stack
+        for (var stack : application().stacks()) {
+            Annotations.fromStack(stack).hasNoError("*", Match.stringLikeRegexp(".*Performance-.*"));
+        }
+    }
+
+    @Test
+    void shouldKeepEachStackWithinTemplateBudget() throws IOException {
+        // Each stack within its CloudFormation resource, template size, output and custom resource budget
+        var application = application();
+        var thresholds = TemplateBudget.Thresholds.fromEnvironment();
+        List<String> overBudget = new ArrayList<>();
+        for (var stack : application.stacks()) {
+            var report = TemplateBudget.analyse(stack, application.assembly());
+            infof("%s", report.format());
+            overBudget.addAll(report.violations(thresholds));
+        }
+        if (!overBudget.isEmpty()) {
+            throw new AssertionFailedError("Stacks over their template budget:\n" + String.join("\n", overBudget));
+        }
+    }
+
+    // Log the API Gateway routes present in a synthesized template, returning how many there are
+    @SuppressWarnings("unchecked")
+    private static int logApiRoutes(Template template) {
+        Map<String, Map<String, Object>> routes = template.findResources("AWS::ApiGatewayV2::Route");
+        for (Map.Entry<String, Map<String, Object>> e : routes.entrySet()) {
+            Map<String, Object> props = (Map<String, Object>) e.getValue().get("Properties");
+            Object routeKey = props != null ? props.get("RouteKey") : null;
+            Object target = props != null ? props.get("Target") : null;
+            infof(
+                    "API route: id=%s routeKey=%s target=%s",
+                    e.getKey(), String.valueOf(routeKey), String.valueOf(target));
         }
+        return routes.size();
     }
 
     @SuppressWarnings("unchecked")
     private static void dumpIamPolicies(Template template) {
         Map<String, Map<String, Object>> policies = template.findResources("AWS::IAM::Policy");
-        infof("[IAM diag] Found %d AWS::IAM::Policy resources in AccountStack", policies.size());
+        infof("[IAM diag] Found %d AWS::IAM::Policy resources in BundleStack", policies.size());
         for (Map.Entry<String, Map<String, Object>> e : policies.entrySet()) {
             Map<String, Object> props = (Map<String, Object>) e.getValue().get("Properties");
             if (props == null) continue;
@@ -291,22 +436,4 @@ class SubmitApplicationCdkResourceTest {
         }
         return false;
     }
-
-    private static @NotNull Map<String, Object> buildContextPropertyMapFromCdkJsonPath(Path cdkJsonPath)
-            throws IOException {
-        String json = Files.readString(cdkJsonPath);
-
-        // 2) Extract the "context" object
-        ObjectMapper om = new ObjectMapper();
-        JsonNode root = om.readTree(json);
-        JsonNode ctxNode = root.path("context");
-
-        Map<String, Object> ctx = new HashMap<>();
-        for (Iterator<Map.Entry<String, JsonNode>> it = ctxNode.fields(); it.hasNext(); ) {
-            Map.Entry<String, JsonNode> e = it.next();
-            // CDK context values are Objects; in your case they’re strings
-            ctx.put(e.getKey(), e.getValue().asText());
-        }
-        return ctx;
-    }
 }
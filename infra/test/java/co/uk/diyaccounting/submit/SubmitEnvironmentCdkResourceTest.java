@@ -5,95 +5,54 @@
 
 package co.uk.diyaccounting.submit;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
-import org.junitpioneer.jupiter.SetEnvironmentVariable;
-import software.amazon.awscdk.App;
-import software.amazon.awscdk.AppProps;
-import software.amazon.awscdk.assertions.Template;
+import software.amazon.awscdk.assertions.Annotations;
+import software.amazon.awscdk.assertions.Match;
 
-@SetEnvironmentVariable.SetEnvironmentVariables({
-    @SetEnvironmentVariable(key = "ENVIRONMENT_NAME", value = "test"),
-    @SetEnvironmentVariable(key = "DEPLOYMENT_NAME", value = "tt-witheight"),
-    @SetEnvironmentVariable(
-            key = "GOOGLE_CLIENT_SECRET_ARN",
-            value = "arn:aws:secretsmanager:us-east-1:111111111111:secret:tt-witheight-google-secret"),
-    @SetEnvironmentVariable(key = "CLOUD_TRAIL_ENABLED", value = "true"),
-    @SetEnvironmentVariable(key = "ACCESS_LOG_GROUP_RETENTION_PERIOD_DAYS", value = "1"),
-    @SetEnvironmentVariable(key = "DYNAMODB_RETAIN_RECEIPTS_TABLE", value = "false"),
-    @SetEnvironmentVariable(key = "HOLDING_DOC_ROOT_PATH", value = "./web/holding"),
-    @SetEnvironmentVariable(key = "CDK_DEFAULT_ACCOUNT", value = "111111111111"),
-    @SetEnvironmentVariable(key = "CDK_DEFAULT_REGION", value = "us-east-1"),
-})
-class SubmitEnvironmentCdkResourceTest {
+class SubmitEnvironmentCdkResourceTest extends EnvironmentCdkTest {
 
     @Test
     void shouldCreateApexStackWithResources() throws IOException {
-        // 1) Load the CDK context from cdk-environment/cdk.json
-        Path cdkJsonPath = Path.of("cdk-environment/cdk.json").toAbsolutePath();
-        Map<String, Object> ctx = buildContextPropertyMapFromCdkJsonPath(cdkJsonPath);
+        // 1) The environment app synthesised from cdk-environment/cdk.json, shared by all environment tests
+        var environment = environment();
+        var env = environment.submit();
 
-        // Normalize to keys expected by SubmitEnvironmentProps if provided via cdk-environment
-        if (ctx.containsKey("apexActiveLabel")) {
-            ctx.put("activeLabel", ctx.get("apexActiveLabel"));
-        }
-        if (ctx.containsKey("apexDeploymentOrigins")) {
-            ctx.put("deploymentOriginsCsv", ctx.get("apexDeploymentOrigins"));
-        }
-        // Use a syntactically valid fake ACM certificate ARN so CDK doesn't reject the ARN format
-        ctx.put(
-                "certificateArn",
-                "arn:aws:acm:us-east-1:111111111111:certificate/12345678-1234-1234-1234-123456789012");
-
-        App app = new App(AppProps.builder().context(ctx).build());
-
-        // 2) Load props using the application loader to mimic real execution
-        SubmitEnvironment.SubmitEnvironmentProps appProps = SubmitEnvironment.loadAppProps(app, "cdk-environment/");
-
-        // 3) Build the environment and synth
-        var env = new SubmitEnvironment(app, appProps);
-        app.synth();
+        // 2) Make sure core resources exist on the Apex stack
+        // environment.template(env.apexStack).resourceCountIs("AWS::CloudFront::Distribution", 1);
+        // environment.template(env.apexStack).resourceCountIs("AWS::Route53::RecordSet", 1);
 
-        // 4) Make sure core resources exist on the Apex stack
-        // Template.fromStack(env.apexStack).resourceCountIs("AWS::CloudFront::Distribution", 1);
-        // Template.fromStack(env.apexStack).resourceCountIs("AWS::Route53::RecordSet", 1);
+        // 3) Identity stack should create a Cognito User Pool
+        environment.template(env.identityStack).resourceCountIs("AWS::Cognito::UserPool", 1);
 
-        // 5) Identity stack should create a Cognito User Pool
-        Template.fromStack(env.identityStack).resourceCountIs("AWS::Cognito::UserPool", 1);
-
-        // 6) Data stack creates 11 DynamoDB tables + 1 GSI + 7 TTL via AwsCustomResource for idempotent deployments
+        // 4) Data stack creates 12 DynamoDB tables + 1 GSI + 7 TTL via AwsCustomResource for idempotent deployments
         // Tables: receipts, bundles, bundlePostAsyncRequests, bundleDeleteAsyncRequests,
         // hmrcVatReturnPostAsyncRequests, hmrcVatReturnGetAsyncRequests, hmrcVatObligationGetAsyncRequests,
-        // hmrcApiRequests, passes, bundleCapacity, subscriptions
+        // hmrcApiRequests, passes, bundleCapacity, hmrcRateLimit, subscriptions
         // GSIs: passes issuedBy-index
         // TTL: bundles, bundlePostAsync, bundleDeleteAsync, hmrcVatReturnPostAsync,
         //      hmrcVatReturnGetAsync, hmrcVatObligationGetAsync, hmrcApiRequests
-        Template.fromStack(env.dataStack).resourceCountIs("Custom::AWS", 19);
+        environment.template(env.dataStack).resourceCountIs("Custom::AWS", 20);
 
-        // 8) Observability stack should enable CloudTrail (Trail present)
-        Template.fromStack(env.observabilityStack).resourceCountIs("AWS::CloudTrail::Trail", 1);
-    }
+        // 5) Data stack has the buffered HMRC API requests audit trail: direct put Firehose -> S3 Parquet
+        environment
+                .template(env.dataStack)
+                .resourcePropertiesCountIs(
+                        "AWS::KinesisFirehose::DeliveryStream", Map.of("DeliveryStreamType", "DirectPut"), 1);
 
-    private static @NotNull Map<String, Object> buildContextPropertyMapFromCdkJsonPath(Path cdkJsonPath)
-            throws IOException {
-        String json = Files.readString(cdkJsonPath);
-        ObjectMapper om = new ObjectMapper();
-        JsonNode root = om.readTree(json);
-        JsonNode ctxNode = root.path("context");
+        // 6) Observability stack should enable CloudTrail (Trail present)
+        environment.template(env.observabilityStack).resourceCountIs("AWS::CloudTrail::Trail", 1);
 
-        Map<String, Object> ctx = new HashMap<>();
-        for (Iterator<Map.Entry<String, JsonNode>> it = ctxNode.fields(); it.hasNext(); ) {
-            Map.Entry<String, JsonNode> e = it.next();
-            ctx.put(e.getKey(), e.getValue().asText());
+        // 7) Observability stack has the operations dashboard and the per page RUM web vitals dashboard
+        environment.template(env.observabilityStack).resourceCountIs("AWS::CloudWatch::Dashboard", 2);
+    }
+
+    @Test
+    void shouldHaveNoPerformanceRuleErrors() throws IOException {
+        // No performance NagPack errors (unsuppressed rule violations) in any stack
+        for (var stack : environment().stacks()) {
+            Annotations.fromStack(stack).hasNoError("*", Match.stringLikeRegexp(".*Performance-.*"));
         }
-        return ctx;
     }
 }
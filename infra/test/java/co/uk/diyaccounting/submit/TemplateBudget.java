@@ -0,0 +1,193 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit;
+
+import static co.uk.diyaccounting.submit.utils.Kind.envOr;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import software.amazon.awscdk.CfnResource;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.cxapi.CloudAssembly;
+import software.amazon.awscdk.services.lambda.CfnFunction;
+
+/**
+ * Measures each synthesised stack against the CloudFormation limits that a growing stack runs into: 500 resources,
+ * 1 MB of template (uploaded via S3) and 200 outputs. Deploy time grows with the template too, so the thresholds
+ * default to 80% of the limits and can be lowered per run with TEMPLATE_BUDGET_* environment variables.
+ *
+ * <p>Custom resources have no CloudFormation quota of their own. Their budget of 20 per stack is this project's
+ * choice: each one invokes a Lambda during deploy, one at a time where they depend on each other, so they are where
+ * a stack's deploy time goes and each one is a rollback that can hang on a handler that never responds.
+ *
+ * <p>Resources are grouped by the construct they came from, so a stack over budget names the largest groups as the
+ * candidates to move to another stack. Lambda, ApiLambda and AsyncApiLambda create their resources directly in the
+ * stack with ids prefixed by the function name, so a group is the function name prefixing the top level construct
+ * id, or the id itself for anything else.
+ */
+final class TemplateBudget {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    record Thresholds(int maxResources, long maxTemplateBytes, int maxOutputs, int maxCustomResources) {
+
+        static Thresholds fromEnvironment() {
+            return new Thresholds(
+                    Integer.parseInt(envOr("TEMPLATE_BUDGET_MAX_RESOURCES", "400")),
+                    Long.parseLong(envOr("TEMPLATE_BUDGET_MAX_TEMPLATE_BYTES", "838860")),
+                    Integer.parseInt(envOr("TEMPLATE_BUDGET_MAX_OUTPUTS", "160")),
+                    // Project-chosen, not 80% of an AWS limit (there is none for custom resources)
+                    Integer.parseInt(envOr("TEMPLATE_BUDGET_MAX_CUSTOM_RESOURCES", "20")));
+        }
+    }
+
+    record Group(String name, int resources, long bytes) {}
+
+    record Report(
+            String stackName,
+            long templateBytes,
+            int resources,
+            Map<String, Integer> resourcesByType,
+            int customResources,
+            int outputs,
+            int exports,
+            int imports,
+            List<Group> groups) {
+
+        List<String> violations(Thresholds thresholds) {
+            var violations = new ArrayList<String>();
+            if (resources > thresholds.maxResources()) {
+                violations.add(
+                        "%s has %d resources (budget %d)".formatted(stackName, resources, thresholds.maxResources()));
+            }
+            if (templateBytes > thresholds.maxTemplateBytes()) {
+                violations.add("%s template is %d bytes (budget %d)"
+                        .formatted(stackName, templateBytes, thresholds.maxTemplateBytes()));
+            }
+            if (outputs > thresholds.maxOutputs()) {
+                violations.add("%s has %d outputs, %d of them exports (budget %d)"
+                        .formatted(stackName, outputs, exports, thresholds.maxOutputs()));
+            }
+            if (customResources > thresholds.maxCustomResources()) {
+                violations.add("%s has %d custom resources (budget %d)"
+                        .formatted(stackName, customResources, thresholds.maxCustomResources()));
+            }
+            if (!violations.isEmpty()) {
+                violations.add("%s candidates to split out: %s".formatted(stackName, candidates(5)));
+            }
+            return violations;
+        }
+
+        String candidates(int limit) {
+            return String.join(
+                    ", ",
+                    groups.stream()
+                            .limit(limit)
+                            .map(g -> "%s (%d resources, %d bytes)".formatted(g.name(), g.resources(), g.bytes()))
+                            .toList());
+        }
+
+        String format() {
+            var sb = new StringBuilder();
+            sb.append("Template budget for %s: %d resources, %d bytes, %d outputs (%d exports), %d imports,"
+                    .formatted(stackName, resources, templateBytes, outputs, exports, imports));
+            sb.append(" %d custom resources%n".formatted(customResources));
+            resourcesByType.forEach((type, count) -> sb.append("  %-45s %4d%n".formatted(type, count)));
+            sb.append("  largest groups: ").append(candidates(5));
+            return sb.toString();
+        }
+    }
+
+    private TemplateBudget() {}
+
+    static Report analyse(Stack stack, CloudAssembly assembly) throws IOException {
+        Path templatePath =
+                Path.of(assembly.getStackArtifact(stack.getArtifactId()).getTemplateFullPath());
+        JsonNode template = MAPPER.readTree(Files.readString(templatePath));
+        JsonNode resources = template.path("Resources");
+        JsonNode outputs = template.path("Outputs");
+
+        var resourcesByType = new TreeMap<String, Integer>();
+        int customResources = 0;
+        for (var it = resources.fields(); it.hasNext(); ) {
+            String type = it.next().getValue().path("Type").asText();
+            resourcesByType.merge(type, 1, Integer::sum);
+            if (type.startsWith("Custom::") || type.equals("AWS::CloudFormation::CustomResource")) {
+                customResources++;
+            }
+        }
+        int exports = 0;
+        for (var output : outputs) {
+            if (output.has("Export")) {
+                exports++;
+            }
+        }
+
+        return new Report(
+                stack.getStackName(),
+                Files.size(templatePath),
+                resources.size(),
+                resourcesByType,
+                customResources,
+                outputs.size(),
+                exports,
+                countImports(template),
+                groups(stack, resources));
+    }
+
+    // Resources (and their serialised size) per originating construct, largest first
+    private static List<Group> groups(Stack stack, JsonNode resources) throws IOException {
+        int depth = stack.getNode().getScopes().size();
+        var functionNames = new ArrayList<String>();
+        var topLevelIdByLogicalId = new HashMap<String, String>();
+        for (var construct : stack.getNode().findAll()) {
+            if (construct instanceof CfnResource resource) {
+                var scopes = resource.getNode().getScopes();
+                topLevelIdByLogicalId.put(
+                        stack.getLogicalId(resource),
+                        scopes.get(depth).getNode().getId());
+                if (resource instanceof CfnFunction function
+                        && stack.resolve(function.getFunctionName()) instanceof String functionName) {
+                    functionNames.add(functionName);
+                }
+            }
+        }
+
+        var counts = new HashMap<String, Integer>();
+        var bytes = new HashMap<String, Long>();
+        for (var it = resources.fields(); it.hasNext(); ) {
+            var entry = it.next();
+            String topLevelId = topLevelIdByLogicalId.getOrDefault(entry.getKey(), entry.getKey());
+            String group = functionNames.stream()
+                    .filter(topLevelId::startsWith)
+                    .max(Comparator.comparingInt(String::length))
+                    .orElse(topLevelId);
+            counts.merge(group, 1, Integer::sum);
+            bytes.merge(group, (long) MAPPER.writeValueAsBytes(entry.getValue()).length, Long::sum);
+        }
+        return counts.entrySet().stream()
+                .map(e -> new Group(e.getKey(), e.getValue(), bytes.get(e.getKey())))
+                .sorted(Comparator.comparingInt(Group::resources).reversed().thenComparing(Group::name))
+                .toList();
+    }
+
+    private static int countImports(JsonNode node) {
+        int imports = node.isObject() && node.has("Fn::ImportValue") ? 1 : 0;
+        for (var child : node) {
+            imports += countImports(child);
+        }
+        return imports;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.nag;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import co.uk.diyaccounting.submit.utils.KindCdk;
+import io.github.cdklabs.cdknag.NagPackSuppression;
+import io.github.cdklabs.cdknag.NagSuppressions;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.Aspects;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.assertions.Annotations;
+import software.amazon.awscdk.assertions.Match;
+import software.amazon.awscdk.services.lambda.Alias;
+import software.amazon.awscdk.services.lambda.Code;
+import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.lambda.Runtime;
+import software.amazon.awscdk.services.lambda.eventsources.SqsEventSource;
+import software.amazon.awscdk.services.sqs.Queue;
+
+@ResourceLock(CdkTestFixture.JSII)
+class PerformanceChecksTest {
+
+    private static final PerformanceChecksProps PROPS = PerformanceChecksProps.builder()
+            .hotRouteFunctionNames(List.of("hot-fn"))
+            .transientTableNames(List.of("transient-table"))
+            .edgeCacheableUrlPaths(List.of())
+            .highVolumeQueueNames(List.of("high-volume-queue"))
+            .build();
+
+    @Test
+    void hotRouteFunctionNeedsProvisionedConcurrencyAndMemory() {
+        App app = new App();
+        Stack stack = new Stack(app, "TestStack");
+        Aspects.of(app).add(new PerformanceChecks(PROPS));
+        function(stack, "Hot", "hot-fn", 128, Duration.seconds(3));
+        function(stack, "Cold", "cold-fn", 128, Duration.seconds(3));
+
+        var annotations = Annotations.fromStack(stack);
+        annotations.hasError("/TestStack/Hot/Resource", rule("HotRouteProvisionedConcurrency"));
+        annotations.hasError("/TestStack/Hot/Resource", rule("HotRouteMemorySize"));
+        annotations.hasNoError("/TestStack/Cold/Resource", rule("HotRoute.*"));
+    }
+
+    @Test
+    void hotRouteFunctionWithProvisionedAliasPasses() {
+        App app = new App();
+        Stack stack = new Stack(app, "TestStack");
+        Aspects.of(app).add(new PerformanceChecks(PROPS));
+        var hot = function(stack, "Hot", "hot-fn", 256, Duration.seconds(3));
+        Alias.Builder.create(stack, "HotAlias")
+                .aliasName("zero")
+                .version(hot.getCurrentVersion())
+                .provisionedConcurrentExecutions(1)
+                .build();
+
+        Annotations.fromStack(stack).hasNoError("*", rule("HotRoute.*"));
+    }
+
+    @Test
+    void queueVisibilityTimeoutBelowSixTimesWorkerTimeoutFailsUnlessSuppressed() {
+        App app = new App();
+        Stack stack = new Stack(app, "TestStack");
+        Aspects.of(app).add(new PerformanceChecks(PROPS));
+        var queue = Queue.Builder.create(stack, "Queue")
+                .visibilityTimeout(Duration.seconds(30))
+                .build();
+        var worker = function(stack, "Worker", "worker-fn", 256, Duration.seconds(10));
+        worker.addEventSource(SqsEventSource.Builder.create(queue).batchSize(10).build());
+        var suppressed = function(stack, "Suppressed", "suppressed-fn", 256, Duration.seconds(10));
+        suppressed.addEventSource(
+                SqsEventSource.Builder.create(queue).batchSize(1).build());
+        NagSuppressions.addResourceSuppressions(
+                suppressed,
+                List.of(
+                        NagPackSuppression.builder()
+                                .id("Performance-QueueVisibilityTimeout")
+                                .reason("Test of a recorded exception")
+                                .build(),
+                        NagPackSuppression.builder()
+                                .id("Performance-SqsBatchSize")
+                                .reason("Test of a recorded exception")
+                                .build()),
+                true);
+
+        var annotations = Annotations.fromStack(stack);
+        annotations.hasError("*", rule("QueueVisibilityTimeout"));
+        annotations.hasNoError("*", rule("SqsBatchSize"));
+        assertEquals(
+                1, annotations.findError("*", rule("QueueVisibilityTimeout")).size());
+    }
+
+    @Test
+    void sqsBatchSizeOfOneFailsOnlyOnHighVolumeQueues() {
+        App app = new App();
+        Stack stack = new Stack(app, "TestStack");
+        Aspects.of(app).add(new PerformanceChecks(PROPS));
+        var highVolume = Queue.Builder.create(stack, "HighVolume")
+                .queueName("high-volume-queue")
+                .visibilityTimeout(Duration.seconds(60))
+                .build();
+        var perRequest = Queue.Builder.create(stack, "PerRequest")
+                .queueName("per-request-queue")
+                .visibilityTimeout(Duration.seconds(60))
+                .build();
+        var imported = Queue.fromQueueArn(stack, "Imported", "arn:aws:sqs:eu-west-2:000000000000:high-volume-queue");
+        function(stack, "HighVolumeWorker", "high-volume-fn", 256, Duration.seconds(10))
+                .addEventSource(
+                        SqsEventSource.Builder.create(highVolume).batchSize(1).build());
+        function(stack, "PerRequestWorker", "per-request-fn", 256, Duration.seconds(10))
+                .addEventSource(
+                        SqsEventSource.Builder.create(perRequest).batchSize(1).build());
+        function(stack, "ImportedWorker", "imported-fn", 256, Duration.seconds(10))
+                .addEventSource(
+                        SqsEventSource.Builder.create(imported).batchSize(1).build());
+
+        var failing = Annotations.fromStack(stack).findError("*", rule("SqsBatchSize")).stream()
+                .map(error -> error.getId().split("/")[2])
+                .sorted()
+                .toList();
+        assertEquals(List.of("HighVolumeWorker", "ImportedWorker"), failing);
+    }
+
+    @Test
+    void transientTableWithoutTimeToLiveFails() {
+        App app = new App();
+        Stack stack = new Stack(app, "TestStack");
+        Aspects.of(app).add(new PerformanceChecks(PROPS));
+        KindCdk.ensureTable(stack, "Transient", "transient-table", "pk", null);
+        KindCdk.ensureTable(stack, "Lasting", "lasting-table", "pk", null);
+
+        var annotations = Annotations.fromStack(stack);
+        annotations.hasError("/TestStack/Transient-EnsureTable/Resource/Default", rule("TransientTableTimeToLive"));
+        annotations.hasNoError("/TestStack/Lasting-EnsureTable/Resource/Default", rule("TransientTableTimeToLive"));
+    }
+
+    @Test
+    void transientTableWithTimeToLivePasses() {
+        App app = new App();
+        Stack stack = new Stack(app, "TestStack");
+        Aspects.of(app).add(new PerformanceChecks(PROPS));
+        KindCdk.ensureTable(stack, "Transient", "transient-table", "pk", null);
+        KindCdk.ensureTimeToLive(stack, "TransientTTL", "transient-table", "ttl");
+
+        Annotations.fromStack(stack).hasNoError("*", rule("TransientTableTimeToLive"));
+    }
+
+    @Test
+    void pathPatternMatchesLikeCloudFront() {
+        assertTrue(PerformanceChecks.pathPatternMatches("/api/v1/*", "/api/v1/catalog"));
+        assertTrue(PerformanceChecks.pathPatternMatches("api/v1/*", "/api/v1/catalog"));
+        assertTrue(PerformanceChecks.pathPatternMatches("/api/v?/catalog", "/api/v1/catalog"));
+        assertFalse(PerformanceChecks.pathPatternMatches("/api/v1/hmrc/*", "/api/v1/catalog"));
+        assertFalse(PerformanceChecks.pathPatternMatches("/API/v1/*", "/api/v1/catalog"));
+    }
+
+    private static Function function(Stack stack, String id, String functionName, int memorySize, Duration timeout) {
+        return Function.Builder.create(stack, id)
+                .functionName(functionName)
+                .runtime(Runtime.NODEJS_22_X)
+                .handler("index.handler")
+                .code(Code.fromInline("exports.handler = async () => ({});"))
+                .memorySize(memorySize)
+                .timeout(timeout)
+                .build();
+    }
+
+    private static Object rule(String suffix) {
+        return Match.stringLikeRegexp(".*Performance-" + suffix + ".*");
+    }
+}
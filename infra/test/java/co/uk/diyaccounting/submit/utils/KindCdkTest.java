@@ -7,13 +7,16 @@ package co.uk.diyaccounting.submit.utils;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import co.uk.diyaccounting.submit.CdkTestFixture;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import software.amazon.awscdk.App;
 import software.amazon.awscdk.AppProps;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.assertions.Template;
 
+@ResourceLock(CdkTestFixture.JSII)
 class KindCdkTest {
 
     @Test
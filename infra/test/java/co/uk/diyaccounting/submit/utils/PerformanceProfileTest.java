@@ -0,0 +1,148 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.uk.diyaccounting.submit.CdkTestFixture;
+import co.uk.diyaccounting.submit.SubmitSharedNames;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile.LambdaSettings;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.lambda.Architecture;
+
+@ResourceLock(CdkTestFixture.JSII)
+class PerformanceProfileTest {
+
+    private static final LambdaSettings PROPS = new LambdaSettings(1024, Duration.seconds(28), Architecture.ARM_64, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void environmentOverridesApplySettingBySettingOverTheFunctionTables() throws IOException {
+        var path = Files.writeString(
+                dir.resolve("profile.toml"),
+                """
+                version = "1.0.0"
+
+                [functions.hmrc-vat-return-post]
+                ingestMemorySize = 256
+                ingestProvisionedConcurrency = 1
+                workerMemorySize = 1536
+                workerLambdaTimeoutSeconds = 120
+
+                [environments.prod.functions.hmrc-vat-return-post]
+                ingestProvisionedConcurrency = 3
+
+                [environments.prod.functions.bundle-get]
+                ingestArchitecture = "x86_64"
+                """);
+        var prod = PerformanceProfile.load(path.toString(), "prod", "prod-abc-app");
+        var ci = PerformanceProfile.load(path.toString(), "ci", "ci-abc-app");
+
+        var ingest = prod.ingest("prod-abc-app-hmrc-vat-return-post", PROPS);
+        assertEquals(256, ingest.memorySize());
+        assertEquals(3, ingest.provisionedConcurrency());
+        assertEquals(28, ingest.timeout().toSeconds().intValue());
+        var worker =
+                prod.worker("prod-abc-app-hmrc-vat-return-post", "prod-abc-app-hmrc-vat-return-post-worker", PROPS);
+        assertEquals(1536, worker.memorySize());
+        assertEquals(120, worker.timeout().toSeconds().intValue());
+        assertEquals(0, worker.provisionedConcurrency());
+        assertEquals(
+                "x86_64",
+                prod.ingest("prod-abc-app-bundle-get", PROPS).architecture().getName());
+        assertEquals(1, ci.ingest("ci-abc-app-hmrc-vat-return-post", PROPS).provisionedConcurrency());
+        assertEquals(
+                "arm64",
+                ci.ingest("ci-abc-app-bundle-get", PROPS).architecture().getName());
+
+        assertEquals(
+                List.of("memorySize", "provisionedConcurrency"),
+                prod.effective().getFirst().fromProfile());
+        assertEquals(List.of(), ci.effective().getLast().fromProfile());
+    }
+
+    @Test
+    void invalidProfilesFailToLoad() throws IOException {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> PerformanceProfile.load(dir.resolve("absent.toml").toString(), "ci", "ci-abc-app"));
+        assertThrows(IllegalArgumentException.class, () -> PerformanceProfile.load("", "ci", "ci-abc-app"));
+        for (var setting :
+                List.of("ingestMemorySize = 64", "ingestMemorySizeMb = 512", "workerArchitecture = \"arm\"")) {
+            var path = Files.writeString(dir.resolve("profile.toml"), "[functions.bundle-get]\n" + setting + "\n");
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> PerformanceProfile.load(path.toString(), "ci", "ci-abc-app"),
+                    setting);
+        }
+        var prodOnly = Files.writeString(
+                dir.resolve("prod-only.toml"), "[environments.prod.functions.bundle-get]\ningestMemorySize = 64\n");
+        assertThrows(
+                IllegalArgumentException.class, () -> PerformanceProfile.load(prodOnly.toString(), "ci", "ci-abc-app"));
+    }
+
+    @Test
+    void entriesOfEveryEnvironmentMustMatchAProfiledFunction() throws IOException {
+        var functionNames = SubmitSharedNames.forDocs().profiledLambdaFunctionNames();
+        var path = Files.writeString(
+                dir.resolve("profile.toml"),
+                """
+                [functions.bundle-get]
+                ingestMemorySize = 256
+
+                [environments.ci.functions.bundle-gets]
+                ingestMemorySize = 512
+                """);
+
+        for (var envName : List.of("ci", "prod")) {
+            var profile = PerformanceProfile.load(path.toString(), envName, "docs-app");
+            assertThrows(IllegalArgumentException.class, () -> profile.validate(functionNames), envName);
+        }
+
+        // A worker's settings are read from its ingest function's entry, never from one of its own
+        var worker = Files.writeString(
+                dir.resolve("worker.toml"),
+                """
+                [functions.hmrc-vat-return-post-worker]
+                workerMemorySize = 1024
+                """);
+        assertThrows(IllegalArgumentException.class, () -> PerformanceProfile.load(worker.toString(), "ci", "docs-app")
+                .validate(functionNames));
+    }
+
+    @Test
+    void repositoryProfileIsValid() {
+        var functionNames = SubmitSharedNames.forDocs().profiledLambdaFunctionNames();
+        for (var envName : List.of("ci", "prod")) {
+            PerformanceProfile.load("submit.performance.toml", envName, "docs-app")
+                    .validate(functionNames);
+        }
+        var submission = "docs-app-hmrc-vat-return-post";
+        assertEquals(
+                1,
+                PerformanceProfile.load("submit.performance.toml", "ci", "docs-app")
+                        .ingest(submission, PROPS)
+                        .provisionedConcurrency());
+        assertEquals(
+                2,
+                PerformanceProfile.load("submit.performance.toml", "prod", "docs-app")
+                        .ingest(submission, PROPS)
+                        .provisionedConcurrency());
+        assertEquals(
+                1024,
+                PerformanceProfile.none().ingest("docs-app-bundle-get", PROPS).memorySize());
+    }
+}
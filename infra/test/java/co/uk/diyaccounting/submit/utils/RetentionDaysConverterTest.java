@@ -7,9 +7,12 @@ package co.uk.diyaccounting.submit.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import co.uk.diyaccounting.submit.CdkTestFixture;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import software.amazon.awscdk.services.logs.RetentionDays;
 
+@ResourceLock(CdkTestFixture.JSII)
 class RetentionDaysConverterTest {
 
     @Test
@@ -7,12 +7,15 @@ package co.uk.diyaccounting.submit.utils;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import co.uk.diyaccounting.submit.CdkTestFixture;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import software.amazon.awscdk.services.s3.LifecycleRule;
 import software.amazon.awscdk.services.s3.StorageClass;
 import software.amazon.awscdk.services.s3.Transition;
 
+@ResourceLock(CdkTestFixture.JSII)
 class S3Test {
 
     @Test
@@ -0,0 +1,367 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.tuning;
+
+import static co.uk.diyaccounting.submit.utils.Kind.envOr;
+import static co.uk.diyaccounting.submit.utils.Kind.infof;
+import static co.uk.diyaccounting.submit.utils.Kind.warnf;
+
+import co.uk.diyaccounting.submit.SubmitSharedNames;
+import co.uk.diyaccounting.submit.nag.PerformanceChecksProps;
+import co.uk.diyaccounting.submit.utils.PerformanceProfile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Offline Lambda memory power tuning. Runs the Lambda image locally through the Runtime Interface Emulator built into
+ * the AWS base image at each memory size in a sweep, with the CPU share Lambda gives that memory size, replays recorded
+ * event payloads against each function, and recommends the cheapest memory size whose warm duration is within a
+ * tolerance of the fastest, and for a hot route function no smaller than the memory floor the Performance nag pack
+ * enforces at synth. The recommendations are written to submit.performance.toml, which the stacks read through
+ * PerformanceProfile, and the measurements to target/power-tuning/power-tuning.json.
+ *
+ * <p>Payloads are one event per .json file under TUNING_PAYLOADS_DIR/&lt;function&gt;/, where &lt;function&gt; is the
+ * function name without the deployment prefix, e.g. hmrc-vat-return-post or, for the SQS worker,
+ * hmrc-vat-return-post-worker. Record them from the "Processing request with event" log lines (the
+ * events are already sanitised there) or build them with app/test-helpers/eventBuilders.js. Run npm run docker:build
+ * first so the image holds the current handlers.
+ */
+public class PowerTuning {
+
+    // Lambda arm64 on-demand pricing (USD)
+    static final double PRICE_PER_GB_SECOND = 0.0000133334;
+    static final double PRICE_PER_REQUEST = 0.20 / 1_000_000;
+
+    // Lambda allocates one full vCPU at 1769 MB and CPU in proportion to memory below and above that
+    public static final double MB_PER_VCPU = 1769.0;
+
+    private static final Pattern REPORT = Pattern.compile("^REPORT RequestId: .*$", Pattern.MULTILINE);
+    private static final Pattern INIT_DURATION = Pattern.compile("Init Duration: ([\\d.]+) ms");
+    private static final Pattern DURATION = Pattern.compile("(?<!Init |Billed )Duration: ([\\d.]+) ms");
+
+    /**
+     * A function in the image: its handler, whether it is the SQS worker of an ingest function and the smallest memory
+     * size synth accepts for it
+     */
+    public record TunedFunction(String key, String handler, boolean worker, int memorySizeFloor) {
+
+        /** The submit.performance.toml entry, shared by an ingest function and its worker */
+        public String profileKey() {
+            return worker && key.endsWith("-worker") ? key.substring(0, key.length() - "-worker".length()) : key;
+        }
+    }
+
+    public record Measurement(
+            int memorySize,
+            int invocations,
+            int errors,
+            Double initMillis,
+            double meanMillis,
+            double p95Millis,
+            double costPer1kInvocations) {}
+
+    public record Recommendation(TunedFunction function, int memorySize, List<Measurement> measurements) {}
+
+    private final String image;
+    private final String envFile;
+    private final int rounds;
+    private final HttpClient http =
+            HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    public PowerTuning(String image, String envFile, int rounds) {
+        this.image = image;
+        this.envFile = envFile;
+        this.rounds = rounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var image = envOr("TUNING_IMAGE", "submit-base:latest");
+        var payloadsDir = Path.of(envOr("TUNING_PAYLOADS_DIR", "target/power-tuning/payloads"));
+        var memorySizes = Arrays.stream(envOr("TUNING_MEMORY_SIZES", "128,256,512,1024,1536,2048,3008")
+                        .split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        var rounds = Integer.parseInt(envOr("TUNING_ROUNDS", "10"));
+        var tolerance = Double.parseDouble(envOr("TUNING_TOLERANCE", "0.10"));
+        var envFile = envOr("TUNING_ENV_FILE", "");
+        var profilePath = Path.of(envOr("TUNING_PROFILE_PATH", "submit.performance.toml"));
+        var reportDir = Path.of(envOr("TUNING_REPORT_DIR", "target/power-tuning"));
+
+        var sharedNames = SubmitSharedNames.forDocs();
+        var functions = functions(sharedNames);
+        if (!Files.isDirectory(payloadsDir)) {
+            throw new IllegalStateException("No payloads in %s, add <function>/<event>.json for any of %s"
+                    .formatted(payloadsDir, functions.keySet()));
+        }
+        var tuning = new PowerTuning(image, envFile, rounds);
+        List<Recommendation> recommendations = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(payloadsDir)) {
+            for (Path dir : dirs.filter(Files::isDirectory).sorted().toList()) {
+                var function = functions.get(dir.getFileName().toString());
+                if (function == null) {
+                    warnf("Skipping payloads in %s, not a function in %s", dir, functions.keySet());
+                    continue;
+                }
+                List<String> payloads;
+                try (Stream<Path> files = Files.list(dir)) {
+                    payloads = files.filter(f -> f.toString().endsWith(".json"))
+                            .sorted()
+                            .map(PowerTuning::read)
+                            .toList();
+                }
+                if (payloads.isEmpty()) continue;
+                List<Measurement> measurements = new ArrayList<>();
+                for (int memorySize : memorySizes) {
+                    measurements.add(tuning.measure(function, payloads, memorySize));
+                }
+                recommendations.add(new Recommendation(
+                        function, recommend(measurements, tolerance, function.memorySizeFloor()), measurements));
+            }
+        }
+
+        Files.createDirectories(reportDir);
+        new ObjectMapper()
+                .writerWithDefaultPrettyPrinter()
+                .writeValue(reportDir.resolve("power-tuning.json").toFile(), recommendations);
+        for (Recommendation r : recommendations) {
+            infof("%s: %d MB", r.function().key(), r.memorySize());
+            for (Measurement m : r.measurements()) {
+                infof(
+                        "  %5d MB  init %8s ms  mean %8.1f ms  p95 %8.1f ms  errors %d/%d  $%.5f per 1k",
+                        m.memorySize(),
+                        m.initMillis() == null ? "n/a" : "%.1f".formatted(m.initMillis()),
+                        m.meanMillis(),
+                        m.p95Millis(),
+                        m.errors(),
+                        m.invocations(),
+                        m.costPer1kInvocations());
+            }
+        }
+        updateProfile(profilePath, recommendations);
+        infof("Wrote %s and updated %s", reportDir.resolve("power-tuning.json"), profilePath);
+    }
+
+    /**
+     * The application's functions by key, from the SubmitSharedNames *LambdaFunctionName and *LambdaHandler pairs, the
+     * hot route functions with the memory floor of the Performance nag pack
+     */
+    static Map<String, TunedFunction> functions(SubmitSharedNames sharedNames) throws IllegalAccessException {
+        var prefix = sharedNames.appResourceNamePrefix + "-";
+        var hotRouteFloor = PerformanceChecksProps.builder().build().hotRouteMemorySizeFloor();
+        Map<String, TunedFunction> functions = new TreeMap<>();
+        for (Field field : SubmitSharedNames.class.getFields()) {
+            if (!field.getName().endsWith("LambdaFunctionName")) continue;
+            var handlerFieldName = field.getName().replaceFirst("FunctionName$", "Handler");
+            var handlerField = Arrays.stream(SubmitSharedNames.class.getFields())
+                    .filter(f -> f.getName().equals(handlerFieldName))
+                    .findFirst();
+            if (handlerField.isEmpty()
+                    || !(field.get(sharedNames) instanceof String functionName)
+                    || !(handlerField.get().get(sharedNames) instanceof String handler)
+                    || !functionName.startsWith(prefix)) continue;
+            var key = functionName.substring(prefix.length());
+            var floor = sharedNames.hotRouteLambdaFunctionNames.contains(functionName) ? hotRouteFloor : 0;
+            functions.put(key, new TunedFunction(key, handler, field.getName().contains("WorkerLambda"), floor));
+        }
+        return functions;
+    }
+
+    /**
+     * Run the image with the memory and CPU limits of one Lambda memory size, invoke each payload once from cold,
+     * then for the configured rounds warm, and read the durations the emulator reports.
+     */
+    Measurement measure(TunedFunction function, List<String> payloads, int memorySize)
+            throws IOException, InterruptedException {
+        int port;
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> run = new ArrayList<>(List.of(
+                "docker",
+                "run",
+                "-d",
+                "--memory",
+                memorySize + "m",
+                "--cpus",
+                "%.2f".formatted(Math.max(0.05, memorySize / MB_PER_VCPU)),
+                "-p",
+                "127.0.0.1:%d:8080".formatted(port),
+                "-e",
+                "AWS_LAMBDA_FUNCTION_MEMORY_SIZE=" + memorySize,
+                "-e",
+                "AWS_LAMBDA_FUNCTION_NAME=" + function.key()));
+        if (!envFile.isBlank()) run.addAll(List.of("--env-file", envFile));
+        run.addAll(List.of(image, function.handler()));
+        var containerId = docker(run).trim();
+        try {
+            var uri = URI.create("http://127.0.0.1:%d/2015-03-31/functions/function/invocations".formatted(port));
+            List<Double> clientMillis = new ArrayList<>();
+            int errors = 0;
+            for (int round = 0; round <= rounds; round++) {
+                for (String payload : payloads) {
+                    var request = HttpRequest.newBuilder(uri)
+                            .timeout(Duration.ofMinutes(2))
+                            .POST(HttpRequest.BodyPublishers.ofString(payload))
+                            .build();
+                    long start = System.nanoTime();
+                    var response = invoke(request);
+                    clientMillis.add((System.nanoTime() - start) / 1_000_000.0);
+                    if (response.statusCode() != 200 || response.body().contains("\"errorType\"")) errors++;
+                }
+            }
+            var logs = docker(List.of("docker", "logs", containerId));
+            Double initMillis = null;
+            List<Double> reportedMillis = new ArrayList<>();
+            Matcher report = REPORT.matcher(logs);
+            while (report.find()) {
+                var init = INIT_DURATION.matcher(report.group());
+                if (init.find() && initMillis == null) initMillis = Double.parseDouble(init.group(1));
+                var duration = DURATION.matcher(report.group());
+                if (duration.find()) reportedMillis.add(Double.parseDouble(duration.group(1)));
+            }
+            boolean reported = reportedMillis.size() == clientMillis.size();
+            var durations = reported ? reportedMillis : clientMillis;
+            if (!reported) {
+                warnf(
+                        "%s at %d MB: emulator reported %d of %d invocations, using client timings",
+                        function.key(), memorySize, reportedMillis.size(), clientMillis.size());
+            }
+            // The first pass over the payloads is the cold start, the rest are warm
+            var warm = durations.subList(payloads.size(), durations.size()).stream()
+                    .sorted()
+                    .toList();
+            double mean =
+                    warm.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+            double p95 = warm.isEmpty() ? 0 : warm.get((int) Math.ceil(warm.size() * 0.95) - 1);
+            return new Measurement(
+                    memorySize, durations.size(), errors, initMillis, mean, p95, costPer1k(memorySize, mean));
+        } finally {
+            docker(List.of("docker", "rm", "-f", containerId));
+        }
+    }
+
+    /** Billed per 1 ms of duration at the configured memory, plus the request charge */
+    static double costPer1k(int memorySize, double meanMillis) {
+        double billedSeconds = Math.ceil(meanMillis) / 1000.0;
+        return 1000 * (billedSeconds * (memorySize / 1024.0) * PRICE_PER_GB_SECOND + PRICE_PER_REQUEST);
+    }
+
+    /**
+     * The cheapest error free memory size of at least the floor whose mean warm duration is within the tolerance of the
+     * fastest. Sizes below the floor are left out altogether, as synth would reject them.
+     */
+    static int recommend(List<Measurement> measurements, double tolerance, int memorySizeFloor) {
+        var clean = measurements.stream()
+                .filter(m -> m.errors() == 0 && m.memorySize() >= memorySizeFloor)
+                .toList();
+        if (clean.isEmpty()) {
+            throw new IllegalStateException(
+                    "No memory size of %d MB or more without errors: %s".formatted(memorySizeFloor, measurements));
+        }
+        double fastest =
+                clean.stream().mapToDouble(Measurement::meanMillis).min().orElseThrow();
+        return clean.stream()
+                .filter(m -> m.meanMillis() <= fastest * (1 + tolerance))
+                .min(Comparator.comparingDouble(Measurement::costPer1kInvocations)
+                        .thenComparingInt(Measurement::memorySize))
+                .orElseThrow()
+                .memorySize();
+    }
+
+    /**
+     * Set the recommended memory sizes in the [functions] tables of the profile, editing the file in place so its
+     * comments, other settings and environment overrides stay as they are. An environment override of a memory size
+     * still wins over the value set here.
+     */
+    static void updateProfile(Path profilePath, List<Recommendation> recommendations) throws IOException {
+        var toml = Files.readString(profilePath);
+        for (Recommendation r : recommendations) {
+            var setting = r.function().worker() ? "workerMemorySize" : "ingestMemorySize";
+            toml = withSetting(toml, r.function().profileKey(), setting, r.memorySize());
+        }
+        Files.writeString(profilePath, toml);
+        // Fail here rather than at the next synth if the edit broke the file
+        PerformanceProfile.load(profilePath.toString(), "", "");
+    }
+
+    static String withSetting(String toml, String key, String setting, int value) {
+        List<String> lines = new ArrayList<>(toml.lines().toList());
+        var line = "%s = %d".formatted(setting, value);
+        int table = lines.indexOf("[functions.%s]".formatted(key));
+        if (table < 0) {
+            lines.addAll(List.of("", "[functions.%s]".formatted(key), line));
+        } else {
+            int next = table + 1;
+            while (next < lines.size() && !lines.get(next).startsWith("[")) next++;
+            int existing = -1;
+            for (int i = table + 1; i < next; i++) {
+                if (lines.get(i).matches(setting + "\\s*=.*")) existing = i;
+            }
+            if (existing >= 0) {
+                lines.set(existing, line);
+            } else {
+                lines.add(table + 1, line);
+            }
+        }
+        return String.join("\n", lines) + "\n";
+    }
+
+    private static String read(Path path) {
+        try {
+            return Files.readString(path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read payload " + path, e);
+        }
+    }
+
+    /**
+     * The container takes a moment to start listening, so retry the connection rather than the invocation. Until the
+     * emulator listens, docker-proxy accepts the connection and then resets it, which surfaces as a plain IOException
+     * rather than a ConnectException. A request that timed out is not retried.
+     */
+    private HttpResponse<String> invoke(HttpRequest request) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return http.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (HttpTimeoutException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt == 50) throw e;
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    private static String docker(List<String> command) throws IOException, InterruptedException {
+        var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("%s failed: %s".formatted(String.join(" ", command), output));
+        }
+        return output;
+    }
+}
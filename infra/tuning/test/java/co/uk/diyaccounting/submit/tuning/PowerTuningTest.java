@@ -0,0 +1,98 @@
+/*
+ * SPDX-License-Identifier: AGPL-3.0-only
+ * Copyright (C) 2025-2026 DIY Accounting Ltd
+ */
+
+package co.uk.diyaccounting.submit.tuning;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import co.uk.diyaccounting.submit.tuning.PowerTuning.Measurement;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PowerTuningTest {
+
+    private static final String PROFILE =
+            """
+            # Lambda sizing, see PerformanceProfile
+            version = "1.0.0"
+
+            [functions.bundle-get]
+            # Hot route, keep at or above the floor
+            ingestMemorySize = 256
+            ingestMemorySizeMb = 1
+            workerMemorySize = 512
+
+            [functions.hmrc-vat-return-post]
+            ingestProvisionedConcurrency = 1
+
+            [environments.prod.functions.bundle-get]
+            ingestMemorySize = 2048
+            """;
+
+    private static Measurement measurement(int memorySize, int errors, double meanMillis) {
+        return new Measurement(
+                memorySize, 10, errors, null, meanMillis, meanMillis, PowerTuning.costPer1k(memorySize, meanMillis));
+    }
+
+    @Test
+    void costPer1kBillsWholeMillisecondsAtTheMemorySizePlusTheRequestCharge() {
+        var expected = 1000 * (0.1 * PowerTuning.PRICE_PER_GB_SECOND + PowerTuning.PRICE_PER_REQUEST);
+
+        assertEquals(expected, PowerTuning.costPer1k(1024, 99.2), 1e-12);
+        assertEquals(PowerTuning.costPer1k(1024, 100), PowerTuning.costPer1k(1024, 99.01), 1e-12);
+        assertEquals(
+                2 * PowerTuning.costPer1k(512, 200) - 1000 * PowerTuning.PRICE_PER_REQUEST,
+                PowerTuning.costPer1k(1024, 200),
+                1e-12);
+    }
+
+    @Test
+    void recommendPicksTheCheapestErrorFreeSizeWithinToleranceOfTheFastest() {
+        var measurements = List.of(
+                measurement(128, 1, 150),
+                measurement(256, 0, 400),
+                measurement(512, 0, 210),
+                measurement(1024, 0, 200),
+                measurement(2048, 0, 195));
+
+        // 128 MB failed and 256 MB is more than 10% slower than the fastest, 512 MB is the cheapest of the rest
+        assertEquals(512, PowerTuning.recommend(measurements, 0.10, 0));
+        assertEquals(2048, PowerTuning.recommend(measurements, 0.0, 0));
+        assertEquals(256, PowerTuning.recommend(measurements, 1.5, 0));
+    }
+
+    @Test
+    void recommendLeavesOutSizesBelowTheFloorAndPrefersTheSmallerSizeOnATie() {
+        var measurements = List.of(measurement(512, 0, 210), measurement(1024, 0, 200), measurement(2048, 0, 195));
+
+        assertEquals(1024, PowerTuning.recommend(measurements, 0.10, 1024));
+        // The same GB-seconds at both sizes
+        assertEquals(256, PowerTuning.recommend(List.of(measurement(512, 0, 100), measurement(256, 0, 200)), 1.0, 0));
+        assertThrows(
+                IllegalStateException.class, () -> PowerTuning.recommend(List.of(measurement(1024, 2, 200)), 0.10, 0));
+        assertThrows(IllegalStateException.class, () -> PowerTuning.recommend(measurements, 0.10, 3008));
+    }
+
+    @Test
+    void withSettingChangesOnlyTheTargetKeyAndKeepsComments() {
+        var updated = PowerTuning.withSetting(PROFILE, "bundle-get", "ingestMemorySize", 1024);
+
+        assertEquals(PROFILE.replace("ingestMemorySize = 256", "ingestMemorySize = 1024"), updated);
+    }
+
+    @Test
+    void withSettingAddsAMissingSettingToItsTableAndAMissingTableAtTheEnd() {
+        var added = PowerTuning.withSetting(PROFILE, "hmrc-vat-return-post", "workerMemorySize", 1536);
+        assertEquals(
+                PROFILE.replace(
+                        "[functions.hmrc-vat-return-post]\n",
+                        "[functions.hmrc-vat-return-post]\nworkerMemorySize = 1536\n"),
+                added);
+
+        var appended = PowerTuning.withSetting(PROFILE, "pass-get", "ingestMemorySize", 512);
+        assertEquals(PROFILE + "\n[functions.pass-get]\ningestMemorySize = 512\n", appended);
+    }
+}
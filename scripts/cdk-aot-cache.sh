@@ -0,0 +1,91 @@
+#!/usr/bin/env bash
+# SPDX-License-Identifier: AGPL-3.0-only
+# Copyright (C) 2025-2026 DIY Accounting Ltd
+
+# JDK AOT cache (JEP 483/514, Java 25) for the CDK app jars: most of a synth is spent loading and linking
+# aws-cdk-lib, jsii and Jackson classes before the first construct is built, which the cache does ahead of time.
+#
+#   train   submit-application|submit-environment  - synth once with -XX:AOTCacheOutput to write target/<name>.aot
+#   measure submit-application|submit-environment  - time RUNS (default 5) synths without and with the cache
+#
+# Run after ./mvnw verify (or via ./mvnw -P cdk-all,aot-cache install -DskipTests, which trains both jars).
+# The app runs exactly as scripts/cdk-java-app.sh runs it under the CDK CLI (same working directory and jar path,
+# which the cache is keyed on), with the CLI's context passed in CDK_CONTEXT_JSON and a throwaway CDK_OUTDIR.
+# Deployment values not in cdk.json default to the fixed deployment the CDK resource tests synthesise, so no AWS
+# account is needed; exported values win.
+
+set -euo pipefail
+
+mode="${1:?usage: cdk-aot-cache.sh train|measure submit-application|submit-environment}"
+name="${2:?usage: cdk-aot-cache.sh train|measure submit-application|submit-environment}"
+runs="${RUNS:-5}"
+
+cd "$(dirname "$0")/../cdk-${name#submit-}"
+jar="../target/${name}.jar"
+cache="../target/${name}.aot"
+if [ ! -f "${jar}" ]; then
+  echo "${jar} not found, build it first with ./mvnw verify -DskipTests" >&2
+  exit 1
+fi
+
+# The fixed deployment of the CDK resource tests (see CdkTestFixture), each value only where not already exported.
+# Its paths are relative to the repository root the tests run in, cdk.json has them relative to this directory.
+while IFS='=' read -r key value; do
+  case "${key}" in
+    *_PATH) continue ;;
+  esac
+  export "${key}=${!key:-${value}}"
+done < <(sed -n 's/^export //p' ../infra/test/resources/cdk-test-deployment.env)
+
+# The context the CDK CLI would pass: cdk.json context overlaid with cdk.context.json
+CDK_CONTEXT_JSON="$(node -e '
+  const fs = require("fs");
+  const context = JSON.parse(fs.readFileSync("cdk.json", "utf-8")).context || {};
+  if (fs.existsSync("cdk.context.json")) Object.assign(context, JSON.parse(fs.readFileSync("cdk.context.json", "utf-8")));
+  process.stdout.write(JSON.stringify(context));
+')"
+export CDK_CONTEXT_JSON
+
+outdir="$(mktemp -d)"
+trap 'rm -rf "${outdir}"' EXIT
+
+# Synth once, printing the elapsed milliseconds
+synth() {
+  local start end
+  rm -rf "${outdir:?}"/*
+  start=$(date +%s%N)
+  CDK_OUTDIR="${outdir}" java "$@" -jar "${jar}" >/dev/null
+  end=$(date +%s%N)
+  echo $(((end - start) / 1000000))
+}
+
+# Median of the elapsed milliseconds of RUNS synths
+median() {
+  local times=()
+  for _ in $(seq "${runs}"); do
+    times+=("$(synth "$@")")
+  done
+  printf '%s\n' "${times[@]}" | sort -n | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)] }'
+}
+
+case "${mode}" in
+  train)
+    rm -f "${cache}"
+    echo "Training ${cache} with a ${name} synth..." >&2
+    elapsed=$(synth -XX:AOTCacheOutput="${cache}")
+    echo "Wrote ${cache} ($(du -h "${cache}" | cut -f1)) in ${elapsed} ms" >&2
+    ;;
+  measure)
+    if [ ! -f "${cache}" ] || [ ! "${cache}" -nt "${jar}" ]; then
+      echo "${cache} is missing or older than ${jar}, train it first: scripts/cdk-aot-cache.sh train ${name}" >&2
+      exit 1
+    fi
+    without=$(median)
+    with=$(median -XX:AOTCache="${cache}" -XX:AOTMode=on)
+    echo "${name} synth, median of ${runs} runs: ${without} ms without the AOT cache, ${with} ms with it"
+    ;;
+  *)
+    echo "Unknown mode ${mode}, expected train or measure" >&2
+    exit 1
+    ;;
+esac
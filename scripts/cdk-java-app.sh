@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# SPDX-License-Identifier: AGPL-3.0-only
+# Copyright (C) 2025-2026 DIY Accounting Ltd
+
+# CDK app entrypoint for cdk-application/cdk.json and cdk-environment/cdk.json, run from that directory:
+#   ../scripts/cdk-java-app.sh submit-application
+#
+# Runs the CDK jar, using the JDK AOT cache trained for it by scripts/cdk-aot-cache.sh when one is present and
+# newer than the jar. A cache from an older jar would be rejected by the JVM anyway, this just skips the warning.
+
+set -euo pipefail
+
+name="${1:?usage: cdk-java-app.sh submit-application|submit-environment}"
+jar="../target/${name}.jar"
+cache="../target/${name}.aot"
+
+if [ -f "${cache}" ] && [ "${cache}" -nt "${jar}" ]; then
+  exec java -XX:AOTCache="${cache}" -jar "${jar}"
+fi
+exec java -jar "${jar}"
@@ -0,0 +1,24 @@
+#!/usr/bin/env node
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+/**
+ * Fails when a package in package-lock.json has no integrity hash, which npm ci would install unverified.
+ * Entries like that come from editing the lockfile by hand; regenerate it with npm install instead.
+ * Usage: node scripts/check-lockfile-integrity.js
+ */
+
+import { readFileSync } from "fs";
+
+const { packages = {} } = JSON.parse(readFileSync("package-lock.json", "utf8"));
+
+const unverified = Object.entries(packages)
+  .filter(([path, entry]) => path && !entry.link && !entry.integrity)
+  .map(([path, entry]) => `${path}@${entry.version}`);
+
+if (unverified.length > 0) {
+  console.error(`package-lock.json has ${unverified.length} package(s) without an integrity hash, run npm install to regenerate it:`);
+  unverified.forEach((name) => console.error(`  ${name}`));
+  process.exit(1);
+}
+console.log("All packages in package-lock.json have an integrity hash");
@@ -0,0 +1,97 @@
+#!/usr/bin/env node
+// SPDX-License-Identifier: AGPL-3.0-only
+// Copyright (C) 2025-2026 DIY Accounting Ltd
+
+/**
+ * Report the stack deploy graph of a synthesised CDK app and its critical path
+ *
+ * Reads the stack dependencies from a cloud assembly's manifest.json and groups the stacks into waves: each wave
+ * can deploy in parallel (cdk deploy --concurrency, or parallel workflow jobs) once the waves before it are done.
+ * The critical path is the chain of dependent stacks with the most resources, the resource count standing in for
+ * deploy time. Given a second assembly (e.g. synthesised from main) it reports that one first, as "before".
+ *
+ * Usage:
+ *   npm run cdk:synth-application && node scripts/deploy-graph.js cdk-submit-application.out
+ *
+ *   # Before and after: keep a copy of cdk-submit-application.out synthesised from main, then
+ *   node scripts/deploy-graph.js cdk-submit-application.out /tmp/main-cdk-submit-application.out
+ */
+
+import fs from "node:fs";
+import path from "node:path";
+
+function readGraph(assemblyDir) {
+  const manifest = JSON.parse(fs.readFileSync(path.join(assemblyDir, "manifest.json"), "utf8"));
+  const artifacts = manifest.artifacts || {};
+  const stacks = new Map();
+  for (const [id, artifact] of Object.entries(artifacts)) {
+    if (artifact.type !== "aws:cloudformation:stack") continue;
+    const template = JSON.parse(fs.readFileSync(path.join(assemblyDir, artifact.properties.templateFile), "utf8"));
+    stacks.set(id, {
+      id,
+      resources: Object.keys(template.Resources || {}).length,
+      // Asset manifests are dependencies too, only stack to stack edges order a deploy
+      dependencies: (artifact.dependencies || []).filter(
+        (dependency) => artifacts[dependency]?.type === "aws:cloudformation:stack",
+      ),
+    });
+  }
+  return stacks;
+}
+
+function analyse(stacks) {
+  // Longest (most resources) path ending at each stack, and the wave it can start in
+  const memo = new Map();
+  const visit = (id) => {
+    if (memo.has(id)) return memo.get(id);
+    const stack = stacks.get(id);
+    let best = { weight: 0, wave: 0, path: [] };
+    for (const dependency of stack.dependencies) {
+      const upstream = visit(dependency);
+      if (upstream.weight > best.weight) best = { ...best, weight: upstream.weight, path: upstream.path };
+      best.wave = Math.max(best.wave, upstream.wave + 1);
+    }
+    const result = { weight: best.weight + stack.resources, wave: best.wave, path: [...best.path, id] };
+    memo.set(id, result);
+    return result;
+  };
+  for (const id of stacks.keys()) visit(id);
+
+  const waves = [];
+  for (const [id, { wave }] of memo) (waves[wave] ||= []).push(id);
+  const critical = [...memo.values()].reduce((a, b) => (b.weight > a.weight ? b : a), { weight: 0, path: [] });
+  const total = [...stacks.values()].reduce((sum, stack) => sum + stack.resources, 0);
+  return { waves, critical, total };
+}
+
+function report(label, assemblyDir) {
+  const stacks = readGraph(assemblyDir);
+  const { waves, critical, total } = analyse(stacks);
+  console.log(`${label}: ${assemblyDir}`);
+  waves.forEach((ids, wave) => {
+    const line = ids
+      .sort()
+      .map((id) => `${id} (${stacks.get(id).resources})`)
+      .join(", ");
+    console.log(`  wave ${wave + 1}: ${line}`);
+  });
+  console.log(`  critical path: ${critical.path.join(" -> ")}`);
+  console.log(`  ${critical.weight} of ${total} resources on the critical path, ${waves.length} waves`);
+  return { waves: waves.length, critical: critical.weight, total };
+}
+
+const [assemblyDir, baselineDir] = process.argv.slice(2);
+if (!assemblyDir) {
+  console.error("Usage: node scripts/deploy-graph.js <cdk.out> [<baseline cdk.out>]");
+  process.exit(1);
+}
+if (baselineDir) {
+  const before = report("Before", baselineDir);
+  const after = report("After", assemblyDir);
+  console.log(
+    `Critical path ${before.critical} -> ${after.critical} resources, ${before.waves} -> ${after.waves} waves ` +
+      `(${before.total} -> ${after.total} resources in total)`,
+  );
+} else {
+  report("Deploy graph", assemblyDir);
+}
@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# SPDX-License-Identifier: AGPL-3.0-only
+# Copyright (C) 2025-2026 DIY Accounting Ltd
+
+# Wall clock of the infra (Java/CDK) test suite run sequentially and with JUnit parallel execution, as recorded by
+# InfraTestTimingListener in target/infra-test-timing.json. Compiles once first so both runs time only the tests.
+#
+#   scripts/infra-test-timing.sh            - both modes
+#   RUNS=3 scripts/infra-test-timing.sh     - best of 3 runs per mode
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+runs="${RUNS:-1}"
+report="target/infra-test-timing.json"
+
+./mvnw -B -q test-compile
+
+# Best (lowest) suite wall clock in ms over RUNS runs of ./mvnw test with parallel execution on or off
+best() {
+  local parallel="$1" best=""
+  for _ in $(seq "${runs}"); do
+    rm -f "${report}"
+    ./mvnw -B -q surefire:test -Djunit.jupiter.execution.parallel.enabled="${parallel}" >/dev/null
+    local ms
+    ms=$(node -e 'process.stdout.write(String(require("./" + process.argv[1]).wallClockMillis))' "${report}")
+    if [ -z "${best}" ] || [ "${ms}" -lt "${best}" ]; then
+      best="${ms}"
+    fi
+  done
+  echo "${best}"
+}
+
+sequential=$(best false)
+parallel=$(best true)
+echo "Infra test suite wall clock, best of ${runs}: ${sequential} ms sequential, ${parallel} ms parallel"
+echo "Slowest classes (parallel run):"
+node -e '
+  const r = require("./" + process.argv[1]);
+  for (const [name, ms] of Object.entries(r.classes).slice(0, 5)) console.log(`  ${String(ms).padStart(6)} ms ${name}`);
+' "${report}"
@@ -1,4 +1,4 @@
-// session-beacon.js — fire-and-forget session start beacon
+// session-beacon.js — fire-and-forget session start beacon (answered at the edge, see app/functions/edge/sessionBeacon.js)
 (function () {
   if (typeof sessionStorage === "undefined") return;
   if (sessionStorage.getItem("__diy_session__")) return;
@@ -6,9 +6,8 @@
 
   try {
     const xhr = new XMLHttpRequest();
-    xhr.open("POST", "/api/session/beacon", true);
-    xhr.setRequestHeader("Content-Type", "application/json");
-    xhr.send(JSON.stringify({ page: window.location.pathname }));
+    xhr.open("GET", "/api/session/beacon?page=" + encodeURIComponent(window.location.pathname), true);
+    xhr.send();
   } catch {
     // beacon failures are expected (ad blockers, offline)
   }